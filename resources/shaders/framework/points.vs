@@ -0,0 +1,15 @@
+#version 410
+
+// One vertex per point, at the point's coordinates on the virtual screen. Each is drawn as the
+// single pixel of the target that holds its color, row by row in point order
+uniform ivec2 pointTargetSize;
+
+in vec2 inPosition;
+out vec2 pointFragCoord;
+
+void main()
+{
+    ivec2 pixel = ivec2(gl_VertexID % pointTargetSize.x, gl_VertexID / pointTargetSize.x);
+    gl_Position = vec4((vec2(pixel) + 0.5) / vec2(pointTargetSize) * 2.0 - 1.0, 0.0, 1.0);
+    pointFragCoord = inPosition;
+}
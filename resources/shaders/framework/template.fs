@@ -1,4 +1,5 @@
 #version 410
+{{%defines%}}
 
 out vec4 finalColor;
 
@@ -15,8 +16,17 @@ uniform float sinPhaseBeat;
 uniform float bassLevel;
 uniform float trebleLevel;
 
+#ifdef POINT_SAMPLED
+// Where this point is on the virtual screen, from points.vs
+in vec2 pointFragCoord;
+#endif
+
 {{%shader_body%}}
 
 void main() {
+#ifdef POINT_SAMPLED
+    mainImage(finalColor, pointFragCoord);
+#else
     mainImage(finalColor, gl_FragCoord.xy);
+#endif
 }
@@ -0,0 +1,163 @@
+package titanicsend.app;
+
+import com.google.gson.JsonObject;
+import heronarts.lx.LX;
+import heronarts.lx.LXSerializable;
+import titanicsend.model.TEModelDiff;
+import titanicsend.model.TEWholeModel;
+import titanicsend.output.TEArtNetOutput;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the model's resource directory and reloads the geometry when a file
+ * in it changes, so the car can be re-mapped without restarting.
+ *
+ * The new model is loaded on this watcher's own thread, registering its
+ * outputs into a fresh set while the live ones keep running. Panels whose
+ * corners haven't moved reuse the live model's striping, so only the panels an
+ * edit touches are striped again. The new model is then diffed against the live one and swapped in by an
+ * engine task, between frames:
+ *
+ * - If no edge, panel or laser changed, the live model stays and only the
+ *   outputs are reactivated, for edits to the wiring columns alone.
+ * - If the point count is unchanged, the model is swapped in place. Patterns
+ *   and effects keep running with their state, and rebuild whatever they
+ *   worked out from the old model (index sets, canvases, transformed
+ *   coordinates) in onModelChanged; see TEPattern.onModelChanged.
+ * - Otherwise the model is swapped and every channel, pattern and effect is
+ *   rebuilt from the engine's current state, unsaved changes included, since
+ *   per-point buffers are the wrong size.
+ *
+ * Either way, each controller whose wiring came out identical keeps its
+ * running output. A file that fails to parse is logged and the live model is
+ * left alone. The loopback ArtNetSimulator still expects the wiring it
+ * started with.
+ */
+public class GeometryReloader implements Runnable {
+  // Editors often save in several writes; wait this long for them to stop
+  private static final long SETTLE_MSEC = 500;
+
+  private final LX lx;
+  private final String resourceSubdir;
+  private final Path dir;
+  private final WatchService watcher;
+  private final Thread thread;
+  private volatile TEWholeModel model;
+
+  public GeometryReloader(LX lx, TEWholeModel model, String resourceSubdir) throws IOException {
+    this.lx = lx;
+    this.model = model;
+    this.resourceSubdir = resourceSubdir;
+    this.dir = Paths.get(model.subdir);
+    this.watcher = FileSystems.getDefault().newWatchService();
+    this.dir.register(this.watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_CREATE);
+    this.thread = new Thread(this, "TE geometry reloader");
+    this.thread.setDaemon(true);
+  }
+
+  public void start() {
+    this.thread.start();
+  }
+
+  public void stop() {
+    this.thread.interrupt();
+    try {
+      this.watcher.close();
+    } catch (IOException e) {
+      LX.log("Error closing geometry watcher: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        Set<String> changed = new TreeSet<>();
+        WatchKey key = this.watcher.take();
+        while (key != null) {
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path) {
+              String name = event.context().toString();
+              // The geometry cache lives here too, and is rewritten by every load
+              if (name.endsWith(".txt")) changed.add(name);
+            }
+          }
+          key.reset();
+          key = this.watcher.poll(SETTLE_MSEC, TimeUnit.MILLISECONDS);
+        }
+        if (!changed.isEmpty()) reload(changed);
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // Stopped
+    }
+  }
+
+  private void reload(Set<String> changed) {
+    LX.log("Reloading geometry after changes to " + String.join(", ", changed));
+    TEArtNetOutput.Registrations live = TEArtNetOutput.beginReload();
+    TEWholeModel next;
+    try {
+      next = new TEWholeModel(this.resourceSubdir, this.model);
+    } catch (Throwable e) {
+      // Model files signal bad lines with Error and AssertionError
+      TEArtNetOutput.abandonReload(live);
+      LX.error(e, "Geometry reload failed, keeping the current model");
+      return;
+    }
+
+    TEModelDiff diff = new TEModelDiff(this.model, next);
+    LX.log("Geometry reload: " + diff.summary());
+    // Wait for the swap, so the next reload sets aside these registrations and not the old ones
+    CountDownLatch swapped = new CountDownLatch(1);
+    this.lx.engine.addTask(() -> {
+      try {
+        swap(next, diff, live);
+      } finally {
+        swapped.countDown();
+      }
+    });
+    try {
+      swapped.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Runs on the engine thread, between frames
+  private void swap(TEWholeModel next, TEModelDiff diff, TEArtNetOutput.Registrations live) {
+    if (diff.isEmpty()) {
+      // Same points at the same indexes, so the new wiring works against the live model
+      TEArtNetOutput.reactivateAll(this.lx, this.model.gapPoint.index, live);
+      return;
+    }
+    TEWholeModel previous = this.model;
+    this.lx.structure.setStaticModel(next);
+    this.model = next;
+    TEArtNetOutput.reactivateAll(this.lx, next.gapPoint.index, live);
+    CompiledCanvas.forget(previous);
+    // Same size: components see the new model in onModelChanged on their next loop
+    if (!diff.sameSize()) rebuildEngine();
+  }
+
+  // Same as reopening the project, but from what's running now rather than the last save
+  private void rebuildEngine() {
+    LX.log("Point count changed, rebuilding patterns and effects for the new geometry");
+    JsonObject state = LXSerializable.Utils.toObject(this.lx, this.lx.engine);
+    // The engine clears its channels and modulators before loading, so IDs only collide on components
+    // that survive the load, and those can keep the ones they have
+    this.lx.setModelImportFlag(true);
+    try {
+      this.lx.engine.load(this.lx, state);
+    } finally {
+      this.lx.setModelImportFlag(false);
+    }
+  }
+}
@@ -9,18 +9,34 @@ import titanicsend.pattern.TimeAccumulator;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import static java.lang.Math.min;
 
 public class GigglePixelBroadcaster implements LXLoopTask {
   public static final int BROADCAST_PERIOD_MSEC = 200;
 
+  // Most colors we'll put in one palette packet
+  public static final int MAX_COLORS = 64;
+
   private final LX lx;
   private final GPBroadcaster gp;
   private final TimeAccumulator timeAccumulator;
   private final String name;
-  public boolean enabled;
-  private List<Integer> colors;
+  public volatile boolean enabled;
+
+  // GPOutput samples colors only when a broadcast is due and asks for them.
+  // It may be on the network output thread, so the handoff is synchronized.
+  private final int[] colors = new int[MAX_COLORS];
+  private int numColors = 0;
+  private boolean colorsReady = false;
+  private volatile boolean wantColors = false;
+
+  // Packets are sent from their own thread so a slow network never stalls the
+  // engine. Only the newest batch is kept; an unsent older one is dropped.
+  private final AtomicReference<List<GPPacket>> pending;
+  private final Thread senderThread;
 
   public GigglePixelBroadcaster(LX lx, String destIP, String myName, int myID) throws IOException {
     this.lx = lx;
@@ -30,43 +46,79 @@ public class GigglePixelBroadcaster implements LXLoopTask {
     this.name = myName;
     this.timeAccumulator = new TimeAccumulator(BROADCAST_PERIOD_MSEC);
     this.enabled = false;
-    this.colors = null;
+    this.pending = new AtomicReference<>();
+    this.senderThread = new Thread(this::runSender, "GigglePixel broadcaster");
+    this.senderThread.setDaemon(true);
+    this.senderThread.start();
+  }
+
+  private void runSender() {
+    while (true) {
+      List<GPPacket> packets = this.pending.getAndSet(null);
+      if (packets == null) {
+        LockSupport.park(this);
+        continue;
+      }
+      for (GPPacket packet : packets) {
+        try {
+          this.gp.send(packet);
+        } catch (IOException e) {
+          String what = (packet instanceof GPIdentificationPacket) ? "ID" : "palette";
+          LX.log("Error broadcasting GigglePixel " + what + ": " + e.getMessage());
+          break;
+        }
+      }
+    }
+  }
+
+  // True when a broadcast is due and waiting on fresh colors
+  public boolean wantsColors() {
+    return this.enabled && this.wantColors;
   }
 
-  public void setColors(List<Integer> colors) {
-    this.colors = colors;
+  public synchronized void setColors(int[] colors, int numColors) {
+    numColors = min(numColors, MAX_COLORS);
+    System.arraycopy(colors, 0, this.colors, 0, numColors);
+    this.numColors = numColors;
+    this.colorsReady = true;
+    this.wantColors = false;
   }
 
   @Override
   public void loop(double deltaMs) {
-    this.timeAccumulator.add(deltaMs);
     if (!this.enabled) return;
-    if (this.colors == null) return;
-    if (!this.timeAccumulator.timeToRun()) return;
-
-    GPIdentificationPacket idPacket = new GPIdentificationPacket(this.name);
-    try {
-      this.gp.send(idPacket);
-    } catch (IOException e) {
-      LX.log("Error broadcasting GigglePixel ID: " + e.getMessage());
-      return;
+    this.timeAccumulator.add(deltaMs);
+    if (this.timeAccumulator.timeToRun()) this.wantColors = true;
+
+    List<GPPacket> packets;
+    synchronized (this) {
+      if (!this.colorsReady) return;
+      this.colorsReady = false;
+      packets = buildPackets();
     }
+    send(packets);
+  }
+
+  private List<GPPacket> buildPackets() {
+    List<GPPacket> packets = new ArrayList<>();
+    packets.add(new GPIdentificationPacket(this.name));
+    if (this.numColors < 1) return packets;
 
-    int numColors = this.colors.size();
-    if (numColors < 1) return;
     List<GPColor> entries = new ArrayList<>();
-    for (Integer color : this.colors) {
+    for (int i = 0; i < this.numColors; i++) {
+      int color = this.colors[i];
       int r = (256 + LXColor.red(color)) % 256;
       int g = (256 + LXColor.green(color)) % 256;
       int b = (256 + LXColor.blue(color)) % 256;
-      int frac = min(255, 256 / numColors);
+      int frac = min(255, 256 / this.numColors);
       entries.add(new GPColor(r,g,b,frac));
     }
-    GPPalettePacket palettePacket = new GPPalettePacket(entries);
-    try {
-      this.gp.send(palettePacket);
-    } catch (IOException e) {
-      LX.log("Error broadcasting GigglePixel palette: " + e.getMessage());
-    }
+    packets.add(new GPPalettePacket(entries));
+    return packets;
+  }
+
+  private void send(List<GPPacket> packets) {
+    this.pending.set(packets);
+    LockSupport.unpark(this.senderThread);
   }
 }
\ No newline at end of file
@@ -2,26 +2,50 @@ package titanicsend.app;
 
 import heronarts.lx.LX;
 import heronarts.lx.LXLoopTask;
-import heronarts.p4lx.ui.component.UITextBox;
 import playasystems.gigglepixel.*;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LXSwatch;
 
 import java.io.IOException;
 import java.net.InetAddress;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Listens for GigglePixel peers and palettes on a non-blocking channel. Each
+ * engine frame drains every packet that has arrived, so a busy network can't
+ * build up a backlog, and only the newest palette is applied. The channel
+ * stays open once peeking first starts, and keeps being drained (and the
+ * packets ignored) while peeking is off.
+ *
+ * Peers are remembered until they go quiet for PEER_EXPIRY_MSEC. The list of
+ * names for the UI is only rebuilt when a peer comes or goes.
+ */
 public class GigglePixelListener implements LXLoopTask {
+  public static final int PEER_EXPIRY_MSEC = 30000;
+
   private final LX lx;
-  private GPListener gp;
-  private InetAddress listenAddr;
+  private final InetAddress listenAddr;
   private final int myID; // Set to >= 0, and packets with this ID will be ignored as from ourselves
   public boolean peeking;
   public boolean subscribing;
-  Set<String> peersSeen;
-  UITextBox peersTextbox;
+
+  private DatagramChannel channel;
+  private Selector selector;
+  private final byte[] receiveBytes = new byte[GPUDP.GP_MAXLEN];
+  private final ByteBuffer receiveBuffer = ByteBuffer.wrap(this.receiveBytes);
+
+  // Peer name -> when we last heard from it
+  private final Map<String, Long> peers = new HashMap<>();
+
+  // Comma-separated names of the current peers, for the UI to pick up
+  public volatile String peersText = "";
 
   public GigglePixelListener(LX lx, String listenIP, int myID) throws IOException {
     this.lx = lx;
@@ -29,74 +53,108 @@ public class GigglePixelListener implements LXLoopTask {
     this.myID = myID;
     this.peeking = false;
     this.subscribing = false;
-    this.peersTextbox = null;
+  }
+
+  private void open() throws IOException {
+    this.channel = DatagramChannel.open();
+    this.channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    this.channel.bind(new InetSocketAddress(this.listenAddr, GPUDP.GP_DEFAULT_PORT));
+    this.channel.configureBlocking(false);
+    this.selector = Selector.open();
+    this.channel.register(this.selector, SelectionKey.OP_READ);
   }
 
   @Override
   public void loop(double deltaMs) {
-    if (!this.peeking) {
-      this.gp = null;
-      return;
+    if (this.channel == null) {
+      if (!this.peeking) return;
+      try {
+        open();
+      } catch (IOException e) {
+        LX.log("Failed to create GigglePixel listener: " + e.getMessage());
+        this.channel = null;
+        this.peeking = false;
+        return;
+      }
     }
 
-    if (this.gp == null) try {
-      this.gp = new GPListener(this.listenAddr);
-      this.peersSeen = new HashSet<>();
-    } catch (SocketException e) {
-      LX.log("Failed to create GigglePixel listener: " + e.getMessage());
-      this.peeking = false;
-      return;
+    long now = System.currentTimeMillis();
+    GPPalettePacket palette = null;
+    try {
+      if (this.selector.selectNow() > 0) {
+        this.selector.selectedKeys().clear();
+        while (this.channel.receive(this.receiveBuffer) != null) {
+          int length = this.receiveBuffer.position();
+          this.receiveBuffer.clear();
+          if (!this.peeking) continue;
+          GPPacket packet = decode(length);
+          if (packet == null) continue;
+          if (packet instanceof GPIdentificationPacket) {
+            sawPeer(((GPIdentificationPacket) packet).name, now);
+          } else if (packet instanceof GPPalettePacket) {
+            palette = (GPPalettePacket) packet;
+          }
+        }
+      }
+    } catch (IOException e) {
+      LX.log("Got I/O error in GigglePixel code: " + e.getMessage());
     }
 
-    GPPacket packet;
+    expirePeers(now);
+    if (this.subscribing && palette != null) applyPalette(palette);
+  }
 
+  private GPPacket decode(int length) {
+    GPPacket packet;
     try {
-      packet = this.gp.loop();
-    } catch (IOException e) {
-      LX.log("Got I/O error in GigglePixel code: " + e.getMessage());
-      return;
+      packet = GPPacket.decode(Arrays.copyOf(this.receiveBytes, length));
     } catch (GPException e) {
       LX.log("Got invalid GigglePixel packet: " + e.getMessage());
-      return;
+      return null;
     }
-
-    if (packet == null) return;
-
     if (packet.source == this.myID) {
       LX.log("Ignoring GigglePixel packet from myself");
-      return;
+      return null;
     }
+    return packet;
+  }
 
-    if (this.peersTextbox != null && packet instanceof GPIdentificationPacket) {
-      GPIdentificationPacket idPacket = (GPIdentificationPacket) packet;
-      if (!this.peersSeen.contains(idPacket.name)) {
-        this.peersSeen.add(idPacket.name);
-        String peersStr = this.peersSeen.stream().collect(Collectors.joining(", "));
-        this.peersTextbox.setValue(peersStr);
-      }
+  private void sawPeer(String name, long now) {
+    if (this.peers.put(name, now) == null) {
+      updatePeersText();
     }
+  }
 
-    if (this.subscribing && packet instanceof GPPalettePacket) {
-      GPPalettePacket pp = (GPPalettePacket) packet;
-      int numColors = pp.entries.size();
-      if (numColors < 1) {
-        LX.log("Got empty palette packet");
-        return;
-      } else if (numColors > 5) {
-        numColors = 5;  // TODO: Be smarter when getting big palette packets
-      }
-      LXSwatch swatch = lx.engine.palette.swatch;
-      while(swatch.colors.size() > numColors) {
-        swatch.removeColor();
-      }
-      while(swatch.colors.size() < numColors) {
-        swatch.addColor();
-      }
-      for (int i = 0; i < numColors; i++) {
-        GPColor gpColor = pp.entries.get(i);
-        int color = LXColor.rgb(gpColor.r, gpColor.g, gpColor.b);
-        swatch.colors.get(i).color.setColor(color);
-      }
+  // Forgets peers that have gone quiet, or all of them once we stop peeking
+  private void expirePeers(long now) {
+    if (this.peers.values().removeIf(lastSeen -> !this.peeking || now - lastSeen > PEER_EXPIRY_MSEC)) {
+      updatePeersText();
+    }
+  }
+
+  private void updatePeersText() {
+    this.peersText = this.peers.keySet().stream().sorted().collect(Collectors.joining(", "));
+  }
+
+  private void applyPalette(GPPalettePacket pp) {
+    int numColors = pp.entries.size();
+    if (numColors < 1) {
+      LX.log("Got empty palette packet");
+      return;
+    } else if (numColors > 5) {
+      numColors = 5;  // TODO: Be smarter when getting big palette packets
+    }
+    LXSwatch swatch = lx.engine.palette.swatch;
+    while(swatch.colors.size() > numColors) {
+      swatch.removeColor();
+    }
+    while(swatch.colors.size() < numColors) {
+      swatch.addColor();
+    }
+    for (int i = 0; i < numColors; i++) {
+      GPColor gpColor = pp.entries.get(i);
+      int color = LXColor.rgb(gpColor.r, gpColor.g, gpColor.b);
+      swatch.colors.get(i).color.setColor(color);
     }
   }
 }
@@ -40,8 +40,12 @@ public class GigglePixelUI extends UICollapsibleSection {
     dropmenu.addToContainer(this);
     UILabel label = new UILabel(0, 0, width, 16, "Peers:");
     label.addToContainer(this);
-    listener.peersTextbox = new UITextBox(0, 0, width, 16);
-    listener.peersTextbox.addToContainer(this);
+    UITextBox peersTextbox = new UITextBox(0, 0, width, 16);
+    peersTextbox.addToContainer(this);
+    addLoopTask((deltaMs) -> {
+      String peersText = listener.peersText;
+      if (!peersText.equals(peersTextbox.getValue())) peersTextbox.setValue(peersText);
+    });
 
     final LXParameterListener update = (p) -> {
       switch(gpMode.getEnum()) {
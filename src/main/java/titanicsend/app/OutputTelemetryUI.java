@@ -0,0 +1,80 @@
+package titanicsend.app;
+
+import heronarts.lx.studio.LXStudio;
+import heronarts.p4lx.ui.UI2dContainer;
+import heronarts.p4lx.ui.component.UICollapsibleSection;
+import heronarts.p4lx.ui.component.UILabel;
+import titanicsend.output.OutputTelemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OutputTelemetryUI extends UICollapsibleSection {
+  private static final double REFRESH_MSEC = 1000;
+
+  private final OutputTelemetry.Sampler sampler = new OutputTelemetry.Sampler();
+  private final List<UILabel> rateLabels = new ArrayList<>();
+  private final List<UILabel> detailLabels = new ArrayList<>();
+  private final float rowWidth;
+  private UILabel noControllersLabel = null;
+  private double elapsedMsec = 0;
+
+  public OutputTelemetryUI(final LXStudio.UI ui, float width) {
+    super(ui, 0, 0, width, 16);
+    this.rowWidth = width;
+    setTitle("Output");
+    setLayout(UI2dContainer.Layout.VERTICAL);
+
+    rebuildRows(OutputTelemetry.getControllers().size());
+
+    addLoopTask((deltaMs) -> {
+      this.elapsedMsec += deltaMs;
+      if (this.elapsedMsec >= REFRESH_MSEC) {
+        this.elapsedMsec = 0;
+        refresh();
+      }
+    });
+  }
+
+  // Two lines per controller: name and rates, then latency and trouble
+  private void rebuildRows(int controllerCount) {
+    for (UILabel label : this.rateLabels) label.removeFromContainer();
+    for (UILabel label : this.detailLabels) label.removeFromContainer();
+    this.rateLabels.clear();
+    this.detailLabels.clear();
+    if (this.noControllersLabel != null) {
+      this.noControllersLabel.removeFromContainer();
+      this.noControllersLabel = null;
+    }
+
+    if (controllerCount == 0) {
+      this.noControllersLabel = new UILabel(0, 0, this.rowWidth, 16, "No controllers");
+      this.noControllersLabel.addToContainer(this);
+    }
+    for (int i = 0; i < controllerCount; i++) {
+      UILabel rates = new UILabel(0, 0, this.rowWidth, 16, "");
+      rates.addToContainer(this);
+      this.rateLabels.add(rates);
+      UILabel details = new UILabel(0, 0, this.rowWidth, 16, "");
+      details.setPadding(0, 0, 0, 8);
+      details.addToContainer(this);
+      this.detailLabels.add(details);
+    }
+  }
+
+  private void refresh() {
+    List<OutputTelemetry.Sample> samples = this.sampler.sample();
+    // Reloading the geometry (--watch) can add or remove controllers
+    if (samples.size() != this.rateLabels.size()) {
+      rebuildRows(samples.size());
+    }
+    for (int i = 0; i < samples.size(); i++) {
+      OutputTelemetry.Sample sample = samples.get(i);
+      this.rateLabels.get(i).setLabel(String.format("%s %.0f p/s %.1f Mb/s",
+              sample.controller.label, sample.packetsPerSecond, sample.bytesPerSecond * 8 / 1e6));
+      this.detailLabels.get(i).setLabel(String.format("p99<%dus err %d drop %d saved %.0f%% %s",
+              sample.latencyPercentileMicros(.99), sample.errors, sample.droppedFrames,
+              sample.savedFraction * 100, sample.busiestUniverse()));
+    }
+  }
+}
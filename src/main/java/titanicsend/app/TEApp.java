@@ -23,11 +23,15 @@ import java.io.IOException;
 
 import heronarts.lx.LX;
 import heronarts.lx.LXPlugin;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.studio.LXStudio;
 import processing.core.PApplet;
 import titanicsend.model.TEWholeModel;
+import titanicsend.output.ArtNetSimulator;
 import titanicsend.output.GPOutput;
+import titanicsend.output.OutputTelemetry;
 import titanicsend.output.TEArtNetOutput;
+import titanicsend.output.WireRecorder;
 import titanicsend.pattern.alex.*;
 import titanicsend.pattern.ben.BassLightning;
 import titanicsend.pattern.cesar.*;
@@ -50,10 +54,16 @@ public class TEApp extends PApplet implements LXPlugin  {
   private static int WIDTH = 1280;
   private static int HEIGHT = 800;
   private static boolean FULLSCREEN = false;
+  private static boolean LOOPBACK = false;
+  private static boolean WATCH = false;
+  private static File recordFile = null;
   private static String resourceSubdir;
 
   private GigglePixelListener gpListener;
   private GigglePixelBroadcaster gpBroadcaster;
+  private ArtNetSimulator artNetSimulator;
+  private GeometryReloader geometryReloader;
+  private TEVirtualOverlays visual;
 
   @Override
   public void settings() {
@@ -85,8 +95,55 @@ public class TEApp extends PApplet implements LXPlugin  {
     // you cannot assume you are working with an LXStudio class or that any UI will be
     // available.
 
+    if (LOOPBACK) {
+      // Send to an in-process stand-in for the controllers, which checks what it receives
+      try {
+        this.artNetSimulator = new ArtNetSimulator(this.model);
+        this.artNetSimulator.start();
+        lx.addOutput(this.artNetSimulator.makeReferenceOutput(lx));
+        TEArtNetOutput.loopbackPorts = this.artNetSimulator.getLoopbackPorts();
+        LX.log("ArtNet simulator started, sending to loopback");
+      } catch (IOException e) {
+        LX.log("Failed to start ArtNet simulator: " + e.getMessage());
+      }
+    }
+
+    if (recordFile != null) {
+      try {
+        WireRecorder recorder = new WireRecorder(recordFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close));
+        TEArtNetOutput.recorder = recorder;
+        LX.log("Recording output to " + recordFile);
+      } catch (IOException e) {
+        LX.log("Failed to start wire recording: " + e.getMessage());
+      }
+    }
+
     TEArtNetOutput.activateAll(lx, this.model.gapPoint.index);
 
+    // Keep up with geometry reloads, whoever swaps the model in
+    lx.addListener(new LX.Listener() {
+      @Override
+      public void modelChanged(LX lx, LXModel model) {
+        TEApp.this.model = (TEWholeModel) model;
+        if (TEApp.this.visual != null) TEApp.this.visual.model = TEApp.this.model;
+      }
+    });
+
+    if (WATCH) {
+      try {
+        this.geometryReloader = new GeometryReloader(lx, this.model, resourceSubdir);
+        this.geometryReloader.start();
+        LX.log("Watching " + this.model.subdir + " for geometry changes");
+      } catch (IOException e) {
+        LX.log("Failed to watch geometry: " + e.getMessage());
+      }
+    }
+    if (!(lx instanceof LXStudio)) {
+      // No UI to show output telemetry in, so log it instead
+      lx.engine.addLoopTask(new OutputTelemetry.LogTask(10000));
+    }
+
     // Register custom pattern and effect types
 
     // Patterns/effects that currently conform to art direction standards
@@ -170,13 +227,15 @@ public class TEApp extends PApplet implements LXPlugin  {
     // At this point, the LX Studio application UI has been built. You may now add
     // additional views and components to the Ui heirarchy.
 
-    TEVirtualOverlays visual = new TEVirtualOverlays(this.model);
-    lx.ui.preview.addComponent(visual);
-    new TEUIControls(ui, visual, ui.leftPane.global.getContentWidth()).addToContainer(ui.leftPane.global);
+    this.visual = new TEVirtualOverlays(this.model);
+    lx.ui.preview.addComponent(this.visual);
+    new TEUIControls(ui, this.visual, ui.leftPane.global.getContentWidth()).addToContainer(ui.leftPane.global);
 
     GigglePixelUI gpui = new GigglePixelUI(ui, ui.leftPane.global.getContentWidth(),
             this.gpListener, this.gpBroadcaster);
     gpui.addToContainer(ui.leftPane.global);
+
+    new OutputTelemetryUI(ui, ui.leftPane.global.getContentWidth()).addToContainer(ui.leftPane.global);
   }
 
   @Override
@@ -201,6 +260,16 @@ public class TEApp extends PApplet implements LXPlugin  {
     for (int i = 0; i < args.length; ++i) {
       if ("--headless".equals(args[i])) {
         headless = true;
+      } else if ("--loopback".equals(args[i])) {
+        LOOPBACK = true;
+      } else if ("--watch".equals(args[i])) {
+        WATCH = true;
+      } else if ("--record".equals(args[i])) {
+        try {
+          recordFile = new File(args[++i]);
+        } catch (Exception x) {
+          LX.error("Record command-line argument must be followed by a filename");
+        }
       } else if ("--fullscreen".equals(args[i]) || "-f".equals(args[i])) {
         FULLSCREEN = true;
       } else if ("--width".equals(args[i]) || "-w".equals(args[i])) {
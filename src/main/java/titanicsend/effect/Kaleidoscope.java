@@ -2,10 +2,7 @@ package titanicsend.effect;
 
 import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
-import heronarts.lx.color.LXColor;
-import heronarts.lx.effect.LXEffect;
-import heronarts.lx.model.LXPoint;
-import heronarts.lx.parameter.BoundedParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.DiscreteParameter;
 import heronarts.lx.transform.LXProjection;
@@ -13,13 +10,20 @@ import heronarts.lx.transform.LXVector;
 import titanicsend.model.TEPanelModel;
 
 import java.util.ArrayList;
-import java.util.List;
 
 @LXCategory(LXCategory.TEST)
 public class Kaleidoscope extends BasicEffect {
     private final DiscreteParameter segments = new DiscreteParameter("Segments", 6, 2, 12);
     private final CompoundParameter startAngle = new CompoundParameter("Start Angle", 0, 0, 2 * Math.PI);
 
+    // Each lit panel point copies its color from the point at the same slot in
+    // sources. Only depends on the geometry and the two parameters, so it's
+    // rebuilt when they change rather than searched for every frame.
+    private int[] targets = new int[0];
+    private int[] sources = new int[0];
+    private double builtSegments = -1;
+    private double builtStartAngle = -1;
+
     public Kaleidoscope(LX lx) {
 
         super(lx);
@@ -28,46 +32,77 @@ public class Kaleidoscope extends BasicEffect {
     }
 
     @Override
-    protected void run(double deltaMs, double enabledAmount) {
-        if (enabledAmount > 0) {
-            double segmentAngle = 2 * Math.PI / segments.getValue();
-            for (TEPanelModel panel : this.model.panelsById.values()) {
-                if (!panel.panelType.equals(TEPanelModel.LIT)) {
-                    continue;
-                }
+    protected void onModelChanged(LXModel model) {
+        // Built from the old geometry's panels
+        this.builtSegments = -1;
+    }
 
-                LXProjection projection = new LXProjection(panel);
-                projection.translate(-panel.centroid.x, -panel.centroid.y, -panel.centroid.z);
+    private void buildMapping(double segmentAngle, double start) {
+        int count = 0;
+        for (TEPanelModel panel : this.model.panelsById.values()) {
+            if (panel.panelType.equals(TEPanelModel.LIT)) count += panel.points.length;
+        }
+        if (this.targets.length != count) {
+            this.targets = new int[count];
+            this.sources = new int[count];
+        }
 
-                LXVector zAxis = new LXVector(0, 0, 1);
+        // Same projection and search the effect has always done per frame, so the
+        // output doesn't change. Note zAxis.cross() mutates zAxis, so the rotation
+        // is always a quarter turn about it rather than onto the panel's plane.
+        int n = 0;
+        for (TEPanelModel panel : this.model.panelsById.values()) {
+            if (!panel.panelType.equals(TEPanelModel.LIT)) {
+                continue;
+            }
 
-                ArrayList<LXVector> vectors = new ArrayList<LXVector>();
-                projection.iterator().forEachRemaining(vectors::add);
-                LXVector normal = vectors.get(0).copy().cross(vectors.get(1));
-                LXVector rotationAxis = zAxis.cross(normal);
-                projection.rotate(LXVector.angleBetween(normal, zAxis), rotationAxis.x, rotationAxis.y, rotationAxis.z);
+            LXProjection projection = new LXProjection(panel);
+            projection.translate(-panel.centroid.x, -panel.centroid.y, -panel.centroid.z);
 
-                for (LXVector v : projection) {
-                    double angle = Math.atan2(v.y, v.x);
-                    angle -= segmentAngle * Math.floor(angle / segmentAngle);
-                    angle = Math.min(angle, segmentAngle - angle);
-                    angle += startAngle.getValue();
-                    double radius = Math.sqrt(v.dot(v));
-                    LXVector sampleVector = new LXVector((float) Math.sin(angle), (float) Math.cos(angle), 0).mult((float) radius);
-                    LXVector closest = null;
-                    double minDistance = Double.MAX_VALUE;
-                    for (LXVector w : projection) {
-                        if (w.dist(sampleVector) < minDistance) {
-                            closest = w;
-                            minDistance = w.dist(sampleVector);
-                        }
-                    }
-                    if (closest == null) {
-                        continue;
+            LXVector zAxis = new LXVector(0, 0, 1);
+
+            ArrayList<LXVector> vectors = new ArrayList<LXVector>();
+            projection.iterator().forEachRemaining(vectors::add);
+            LXVector normal = vectors.get(0).copy().cross(vectors.get(1));
+            LXVector rotationAxis = zAxis.cross(normal);
+            projection.rotate(LXVector.angleBetween(normal, zAxis), rotationAxis.x, rotationAxis.y, rotationAxis.z);
+
+            for (LXVector v : projection) {
+                double angle = Math.atan2(v.y, v.x);
+                angle -= segmentAngle * Math.floor(angle / segmentAngle);
+                angle = Math.min(angle, segmentAngle - angle);
+                angle += start;
+                double radius = Math.sqrt(v.dot(v));
+                LXVector sampleVector = new LXVector((float) Math.sin(angle), (float) Math.cos(angle), 0).mult((float) radius);
+                LXVector closest = null;
+                double minDistance = Double.MAX_VALUE;
+                for (LXVector w : projection) {
+                    if (w.dist(sampleVector) < minDistance) {
+                        closest = w;
+                        minDistance = w.dist(sampleVector);
                     }
-                    colors[v.point.index] = colors[closest.point.index];
                 }
+                this.targets[n] = v.point.index;
+                this.sources[n] = closest == null ? v.point.index : closest.point.index;
+                n++;
+            }
+        }
+    }
+
+    @Override
+    protected void run(double deltaMs, double enabledAmount) {
+        if (enabledAmount > 0) {
+            double segmentAngle = 2 * Math.PI / segments.getValue();
+            double start = startAngle.getValue();
+            if (segments.getValue() != this.builtSegments || start != this.builtStartAngle) {
+                buildMapping(segmentAngle, start);
+                this.builtSegments = segments.getValue();
+                this.builtStartAngle = start;
+            }
+            // In order, so a point can pick up a color that was already mirrored this frame
+            for (int i = 0; i < this.targets.length; i++) {
+                colors[this.targets[i]] = colors[this.sources[i]];
             }
         }
     }
-}
\ No newline at end of file
+}
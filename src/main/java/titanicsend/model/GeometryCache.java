@@ -0,0 +1,245 @@
+package titanicsend.model;
+
+import heronarts.lx.LX;
+import heronarts.lx.model.LXPoint;
+import titanicsend.util.PanelStriper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the striped pixel layout of every lit panel in a binary file next to
+ * the model's text files, so startup doesn't have to rerun PanelStriper's
+ * containment and margin math for each panel. Striping is most of the cost of
+ * building the model; the text files themselves parse quickly, and parsing
+ * them is what registers each strand with its controller, so they're still
+ * read every time.
+ *
+ * The file is keyed by a hash of every *.txt file in the model's directory
+ * plus the striper's VERSION and spacing constants. If any of those change,
+ * the cache is ignored, the panels are striped from scratch, and the file is
+ * rewritten.
+ *
+ * File layout: the MAGIC bytes, the 32-byte key, an int panel count, then for
+ * each panel: short idLength, id (UTF-8), short flavorLength, flavor (UTF-8),
+ * int pointCount, then x, y, z floats for each point.
+ *
+ * When the geometry is reloaded while running, the panels of the model being
+ * replaced can be handed to reuseFrom(). A panel missing from the file whose
+ * corners haven't moved then takes its pixels from the old panel, so editing
+ * one line only re-stripes the panels that line touches.
+ *
+ * Once constructed, stripe() is safe to call from several threads at once.
+ */
+public class GeometryCache {
+  public static final byte[] MAGIC = "TEGEOM01".getBytes(StandardCharsets.US_ASCII);
+  public static final String FILENAME = "geometry.cache";
+
+  private static final int KEY_LENGTH = 32;
+
+  private static class Stripe {
+    String flavor;
+    List<LXPoint> points;
+  }
+
+  private final File path;
+  private final byte[] key;
+
+  // Panel ID -> offset of its flavor in the mapped file
+  private final Map<String, Integer> offsets = new HashMap<>();
+  private MappedByteBuffer mapped = null;
+
+  // Every panel striped this run, for writing a new cache
+  private final Map<String, Stripe> stripes = new ConcurrentHashMap<>();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  // Lit panels of the model being reloaded, by ID
+  private Map<String, TEPanelModel> previous = Collections.emptyMap();
+  private final AtomicInteger reused = new AtomicInteger();
+
+  public GeometryCache(String subdir) {
+    this.path = new File(subdir, FILENAME);
+    this.key = computeKey(new File(subdir));
+    try {
+      map();
+    } catch (IOException | RuntimeException e) {
+      LX.log("Ignoring unreadable geometry cache " + this.path + ": " + e.getMessage());
+      this.offsets.clear();
+      this.mapped = null;
+    }
+  }
+
+  private static byte[] computeKey(File dir) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new Error(e);
+    }
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".txt"));
+    if (files == null) throw new Error(dir + " not found below " + System.getProperty("user.dir"));
+    Arrays.sort(files);
+    for (File f : files) {
+      try {
+        digest.update(f.getName().getBytes(StandardCharsets.UTF_8));
+        digest.update(Files.readAllBytes(f.toPath()));
+      } catch (IOException e) {
+        throw new Error("Couldn't read " + f, e);
+      }
+    }
+    // A change to how panels are striped makes old stripes stale too
+    digest.update(ByteBuffer.allocate(12)
+            .putInt(PanelStriper.VERSION)
+            .putInt(PanelStriper.MARGIN)
+            .putInt(PanelStriper.DISTANCE_BETWEEN_PIXELS)
+            .array());
+    return digest.digest();
+  }
+
+  private void map() throws IOException {
+    if (!this.path.exists()) return;
+    ByteBuffer b;
+    try (FileChannel file = FileChannel.open(this.path.toPath(), StandardOpenOption.READ)) {
+      this.mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+      b = this.mapped.duplicate();
+    }
+
+    byte[] magic = new byte[MAGIC.length];
+    byte[] key = new byte[KEY_LENGTH];
+    b.get(magic);
+    b.get(key);
+    if (!Arrays.equals(magic, MAGIC) || !Arrays.equals(key, this.key)) {
+      LX.log("Geometry changed since " + this.path + " was written, restriping panels");
+      this.mapped = null;
+      return;
+    }
+
+    // Index where each panel starts; points are read when the panel is built
+    int count = b.getInt();
+    for (int i = 0; i < count; i++) {
+      String id = readString(b);
+      this.offsets.put(id, b.position());
+      readString(b);
+      int numPoints = b.getInt();
+      b.position(b.position() + numPoints * 3 * Float.BYTES);
+    }
+  }
+
+  private static String readString(ByteBuffer b) {
+    byte[] bytes = new byte[b.getShort() & 0xffff];
+    b.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(ByteBuffer b, String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    b.putShort((short) bytes.length);
+    b.put(bytes);
+  }
+
+  // Call before striping anything
+  public void reuseFrom(Map<String, TEPanelModel> panelsById) {
+    this.previous = panelsById;
+  }
+
+  // Whether a panel has the same three corners, in any order
+  private static boolean sameCorners(TEPanelModel panel, TEVertex v0, TEVertex v1, TEVertex v2) {
+    TEVertex[] corners = { panel.v0, panel.v1, panel.v2 };
+    for (TEVertex v : new TEVertex[] { v0, v1, v2 }) {
+      boolean found = false;
+      for (TEVertex c : corners) {
+        if (c.x == v.x && c.y == v.y && c.z == v.z) found = true;
+      }
+      if (!found) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Fills pointList with a lit panel's pixels and returns its flavor, exactly
+   * as PanelStriper.stripe would, from the cache when it has the panel.
+   */
+  public String stripe(String id, TEVertex v0, TEVertex v1, TEVertex v2, List<LXPoint> pointList) {
+    Stripe stripe = new Stripe();
+    Integer offset = this.offsets.get(id);
+    if (offset != null) {
+      ByteBuffer b = this.mapped.duplicate();
+      b.position(offset);
+      stripe.flavor = readString(b);
+      int numPoints = b.getInt();
+      stripe.points = new ArrayList<>(numPoints);
+      for (int i = 0; i < numPoints; i++) {
+        stripe.points.add(new LXPoint(b.getFloat(), b.getFloat(), b.getFloat()));
+      }
+    } else {
+      stripe.points = new ArrayList<>();
+      TEPanelModel old = this.previous.get(id);
+      if (old != null && TEPanelModel.LIT.equals(old.panelType) && sameCorners(old, v0, v1, v2)) {
+        stripe.flavor = old.flavor;
+        for (LXPoint p : old.points) {
+          stripe.points.add(new LXPoint(p.x, p.y, p.z));
+        }
+        this.reused.incrementAndGet();
+      } else {
+        stripe.flavor = PanelStriper.stripe(v0, v1, v2, stripe.points);
+        this.misses.incrementAndGet();
+      }
+    }
+    this.stripes.put(id, stripe);
+    pointList.addAll(stripe.points);
+    return stripe.flavor;
+  }
+
+  // Rewrites the cache if any panel didn't come from it. Failing to write it only costs the next startup.
+  public void save() {
+    if (this.misses.get() + this.reused.get() == 0) return;
+    if (this.reused.get() > 0) {
+      LX.log("Reused " + this.reused.get() + " panels from the previous model, restriped " + this.misses.get());
+    }
+    // Sorted, so the same geometry always writes the same file
+    Map<String, Stripe> stripes = new TreeMap<>(this.stripes);
+    int length = MAGIC.length + KEY_LENGTH + Integer.BYTES;
+    for (Map.Entry<String, Stripe> entry : stripes.entrySet()) {
+      length += 2 + entry.getKey().getBytes(StandardCharsets.UTF_8).length +
+              2 + entry.getValue().flavor.getBytes(StandardCharsets.UTF_8).length +
+              Integer.BYTES + entry.getValue().points.size() * 3 * Float.BYTES;
+    }
+    ByteBuffer b = ByteBuffer.allocate(length);
+    b.put(MAGIC);
+    b.put(this.key);
+    b.putInt(stripes.size());
+    for (Map.Entry<String, Stripe> entry : stripes.entrySet()) {
+      writeString(b, entry.getKey());
+      writeString(b, entry.getValue().flavor);
+      b.putInt(entry.getValue().points.size());
+      for (LXPoint p : entry.getValue().points) {
+        b.putFloat(p.x);
+        b.putFloat(p.y);
+        b.putFloat(p.z);
+      }
+    }
+
+    // Write alongside and move into place, so a reader never sees half a file
+    Path tmp = new File(this.path.getPath() + ".tmp").toPath();
+    try {
+      Files.write(tmp, b.array());
+      Files.move(tmp, this.path.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LX.log("Wrote geometry cache " + this.path + ", " + length + " bytes");
+    } catch (IOException e) {
+      LX.log("Couldn't write geometry cache " + this.path + ": " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package titanicsend.model;
+
+import titanicsend.util.PanelStriper;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * For each edge and panel point, the point at its mirror image across the
+ * car's fore-aft plane (z = 0), its port-starboard plane (x = 0), or both.
+ * Edges and panels aren't striped perfectly symmetrically, so a mirror is
+ * the nearest point of the same kind to the reflected position, as long as
+ * it's within a couple of pixels' spacing; otherwise the point has none.
+ *
+ * A pattern whose output is symmetric can use this to render only part of
+ * the car and copy the rest:
+ *
+ *   for (int i : model.mirrors.renderIndices(Symmetry.PORT_STARBOARD)) {
+ *     colors[i] = ...
+ *   }
+ *   model.mirrors.copy(Symmetry.PORT_STARBOARD, colors);
+ *
+ * The rendered part is the aft half (z >= 0), the starboard half (x >= 0), or
+ * the aft starboard quarter, plus every point that has no mirror there.
+ * PatternEffects get the same from PatternTarget.setSymmetry().
+ */
+public class TEMirrors {
+  public enum Symmetry {
+    NONE,
+    FORE_AFT,        // Mirrored across z = 0
+    PORT_STARBOARD,  // Mirrored across x = 0
+    BOTH             // Mirrored across both; renders a quarter
+  }
+
+  // How far from the reflected position a mirror can be
+  private static final float EDGE_TOLERANCE = 2 * TEEdgeModel.DISTANCE_BETWEEN_PIXELS;
+  private static final float PANEL_TOLERANCE = 2 * PanelStriper.DISTANCE_BETWEEN_PIXELS;
+
+  // Room for every point within tolerance of a reflection, with plenty to spare
+  private static final int CANDIDATES = 256;
+
+  // Mirror of each point across z = 0, x = 0, and both (a half turn about the y axis). -1 if none.
+  public final int[] foreAft;
+  public final int[] portStarboard;
+  public final int[] diagonal;
+
+  /**
+   * The copies that fill in the points a symmetric render skipped: each target
+   * takes its source's color, and every source is a point that was rendered.
+   */
+  public static class CopyPlan {
+    private final int[] targets;
+    private final int[] sources;
+
+    private CopyPlan(int[] targets, int[] sources) {
+      this.targets = targets;
+      this.sources = sources;
+    }
+
+    public int size() {
+      return this.targets.length;
+    }
+
+    public boolean isEmpty() {
+      return this.targets.length == 0;
+    }
+
+    // The i'th point that gets copied to, in ascending order
+    public int target(int i) {
+      return this.targets[i];
+    }
+
+    public void copy(int[] colors) {
+      for (int i = 0; i < this.targets.length; i++) {
+        colors[this.targets[i]] = colors[this.sources[i]];
+      }
+    }
+  }
+
+  private final int[][] renderIndices = new int[Symmetry.values().length][];
+  private final CopyPlan[] plans = new CopyPlan[Symmetry.values().length];
+
+  TEMirrors(TEPointArrays pa, TESpatialIndex index) {
+    this.foreAft = mirrorTable(pa, index, 1, -1);
+    this.portStarboard = mirrorTable(pa, index, -1, 1);
+    this.diagonal = mirrorTable(pa, index, -1, -1);
+
+    for (Symmetry symmetry : Symmetry.values()) {
+      buildPlan(pa, symmetry);
+    }
+  }
+
+  private static int[] mirrorTable(TEPointArrays pa, TESpatialIndex index, float xSign, float zSign) {
+    int[] table = new int[pa.size];
+    int[] candidates = new int[CANDIDATES];
+    for (int i = 0; i < pa.size; i++) {
+      table[i] = -1;
+      byte kind = pa.kind[i];
+      if (kind != TEPointArrays.KIND_EDGE && kind != TEPointArrays.KIND_PANEL) continue;
+      float tolerance = kind == TEPointArrays.KIND_EDGE ? EDGE_TOLERANCE : PANEL_TOLERANCE;
+      float x = xSign * pa.x[i], y = pa.y[i], z = zSign * pa.z[i];
+      int count = index.withinRadius(x, y, z, tolerance, candidates);
+      float best = Float.MAX_VALUE;
+      for (int c = 0; c < count; c++) {
+        int j = candidates[c];
+        if (pa.kind[j] != kind) continue;
+        float dx = pa.x[j] - x, dy = pa.y[j] - y, dz = pa.z[j] - z;
+        float d2 = dx * dx + dy * dy + dz * dz;
+        // Ties go to the lower index, so the table doesn't depend on the grid's order
+        if (d2 < best || (d2 == best && j < table[i])) {
+          best = d2;
+          table[i] = j;
+        }
+      }
+    }
+    return table;
+  }
+
+  private static boolean rendered(TEPointArrays pa, Symmetry symmetry, int i) {
+    switch (symmetry) {
+      case FORE_AFT:
+        return pa.z[i] >= 0;
+      case PORT_STARBOARD:
+        return pa.x[i] >= 0;
+      case BOTH:
+        return pa.x[i] >= 0 && pa.z[i] >= 0;
+      default:
+        return true;
+    }
+  }
+
+  // Where a point outside the rendered part would copy from, or -1
+  private int sourceOf(Symmetry symmetry, TEPointArrays pa, int i) {
+    switch (symmetry) {
+      case FORE_AFT:
+        return this.foreAft[i];
+      case PORT_STARBOARD:
+        return this.portStarboard[i];
+      case BOTH:
+        if (pa.x[i] < 0 && pa.z[i] < 0) return this.diagonal[i];
+        return pa.x[i] < 0 ? this.portStarboard[i] : this.foreAft[i];
+      default:
+        return -1;
+    }
+  }
+
+  private void buildPlan(TEPointArrays pa, Symmetry symmetry) {
+    int[] render = new int[pa.size];
+    int[] targets = new int[pa.size];
+    int[] sources = new int[pa.size];
+    int numRender = 0, numCopies = 0;
+    for (int i = 0; i < pa.size; i++) {
+      if (!rendered(pa, symmetry, i)) {
+        // Copy only from a point that's rendered itself, so one pass is enough
+        int source = sourceOf(symmetry, pa, i);
+        if (source >= 0 && rendered(pa, symmetry, source)) {
+          targets[numCopies] = i;
+          sources[numCopies] = source;
+          numCopies++;
+          continue;
+        }
+      }
+      render[numRender++] = i;
+    }
+    int s = symmetry.ordinal();
+    this.renderIndices[s] = Arrays.copyOf(render, numRender);
+    this.plans[s] = new CopyPlan(Arrays.copyOf(targets, numCopies), Arrays.copyOf(sources, numCopies));
+  }
+
+  // Every point a pattern using this symmetry needs to compute, ascending
+  public int[] renderIndices(Symmetry symmetry) {
+    return this.renderIndices[symmetry.ordinal()];
+  }
+
+  // Fills in the points renderIndices left out from their mirrors
+  public void copy(Symmetry symmetry, int[] colors) {
+    this.plans[symmetry.ordinal()].copy(colors);
+  }
+
+  /**
+   * Just the copies that stay inside some set of points, for a pattern that only
+   * paints those: a point is left for copying only if its source is in the set
+   * too. Everything else in the set still has to be rendered.
+   */
+  public CopyPlan plan(Symmetry symmetry, BitSet within) {
+    CopyPlan all = this.plans[symmetry.ordinal()];
+    int[] targets = new int[all.size()];
+    int[] sources = new int[all.size()];
+    int n = 0;
+    for (int i = 0; i < all.size(); i++) {
+      if (within.get(all.targets[i]) && within.get(all.sources[i])) {
+        targets[n] = all.targets[i];
+        sources[n] = all.sources[i];
+        n++;
+      }
+    }
+    return new CopyPlan(Arrays.copyOf(targets, n), Arrays.copyOf(sources, n));
+  }
+}
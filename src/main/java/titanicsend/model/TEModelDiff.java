@@ -0,0 +1,90 @@
+package titanicsend.model;
+
+import heronarts.lx.model.LXPoint;
+
+import java.util.*;
+
+/**
+ * What changed between two loads of the same geometry: which edges, panels
+ * and lasers were added, removed, or changed, by ID. A submodel has changed
+ * if it has a different number of points, any point moved, or (for panels)
+ * its type or flavor is different. Wiring changes are found separately, by
+ * TEArtNetOutput, when the outputs are reactivated.
+ */
+public class TEModelDiff {
+  public final List<String> added = new ArrayList<>();
+  public final List<String> removed = new ArrayList<>();
+  public final List<String> changed = new ArrayList<>();
+  public final int oldSize;
+  public final int newSize;
+
+  public TEModelDiff(TEWholeModel before, TEWholeModel after) {
+    this.oldSize = before.points.length;
+    this.newSize = after.points.length;
+    compare("edge ", before.edgesById, after.edgesById);
+    compare("panel ", before.panelsById, after.panelsById);
+    compare("laser ", before.lasersById, after.lasersById);
+  }
+
+  private <M extends TEModel> void compare(String kind, Map<String, M> before, Map<String, M> after) {
+    List<String> ids = new ArrayList<>(before.keySet());
+    Collections.sort(ids);
+    for (String id : ids) {
+      M b = before.get(id);
+      M a = after.get(id);
+      if (a == null) {
+        this.removed.add(kind + id);
+      } else if (!samePoints(b, a) || !samePanel(b, a)) {
+        this.changed.add(kind + id);
+      }
+    }
+    ids = new ArrayList<>(after.keySet());
+    Collections.sort(ids);
+    for (String id : ids) {
+      if (!before.containsKey(id)) this.added.add(kind + id);
+    }
+  }
+
+  // Same number of points, at the same positions, in the same order
+  private static boolean samePoints(TEModel before, TEModel after) {
+    if (before.points.length != after.points.length) return false;
+    for (int i = 0; i < before.points.length; i++) {
+      LXPoint b = before.points[i];
+      LXPoint a = after.points[i];
+      if (b.x != a.x || b.y != a.y || b.z != a.z) return false;
+    }
+    return true;
+  }
+
+  private static boolean samePanel(TEModel before, TEModel after) {
+    if (!(before instanceof TEPanelModel)) return true;
+    TEPanelModel b = (TEPanelModel) before;
+    TEPanelModel a = (TEPanelModel) after;
+    return Objects.equals(b.panelType, a.panelType) && Objects.equals(b.flavor, a.flavor);
+  }
+
+  public boolean isEmpty() {
+    return this.added.isEmpty() && this.removed.isEmpty() && this.changed.isEmpty();
+  }
+
+  // Whether there are as many points as before, so per-point arrays in patterns are still the right size
+  public boolean sameSize() {
+    return this.oldSize == this.newSize;
+  }
+
+  public String summary() {
+    if (isEmpty()) return "no geometry changes";
+    StringBuilder sb = new StringBuilder();
+    append(sb, "added", this.added);
+    append(sb, "removed", this.removed);
+    append(sb, "changed", this.changed);
+    sb.append("; ").append(this.oldSize).append(" -> ").append(this.newSize).append(" points");
+    return sb.toString();
+  }
+
+  private static void append(StringBuilder sb, String what, List<String> ids) {
+    if (ids.isEmpty()) return;
+    if (sb.length() > 0) sb.append("; ");
+    sb.append(what).append(" ").append(String.join(", ", ids));
+  }
+}
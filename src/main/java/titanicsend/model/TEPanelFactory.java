@@ -11,6 +11,13 @@ public class TEPanelFactory {
   public static TEPanelModel build(String id, TEVertex v0, TEVertex v1, TEVertex v2,
                             TEEdgeModel e0, TEEdgeModel e1, TEEdgeModel e2,
                             String panelType) {
+    return build(id, v0, v1, v2, e0, e1, e2, panelType, null);
+  }
+
+  // With a cache, lit panels take their pixels from it instead of being striped again
+  public static TEPanelModel build(String id, TEVertex v0, TEVertex v1, TEVertex v2,
+                            TEEdgeModel e0, TEEdgeModel e1, TEEdgeModel e2,
+                            String panelType, GeometryCache cache) {
     ArrayList<LXPoint> points = new ArrayList<LXPoint>();
 
     float centroidX = (v0.x + v1.x + v2.x) / 3.0F;
@@ -24,7 +31,11 @@ public class TEPanelFactory {
     if (panelType.equals(TEPanelModel.LIT)) {
       List<LXPoint> stripedPoints = new ArrayList<>();
       try {
-        flavor = PanelStriper.stripe(v0, v1, v2, stripedPoints);
+        if (cache != null) {
+          flavor = cache.stripe(id, v0, v1, v2, stripedPoints);
+        } else {
+          flavor = PanelStriper.stripe(v0, v1, v2, stripedPoints);
+        }
       } catch (Throwable t) {
         LX.log("Problem striping Panel " + id);
         throw t;
@@ -0,0 +1,140 @@
+package titanicsend.model;
+
+import heronarts.lx.model.LXPoint;
+
+import java.util.*;
+
+/**
+ * Flat, per-attribute arrays of everything patterns commonly want to know
+ * about a point, all indexed by LXPoint.index. A loop over these reads a few
+ * contiguous float arrays instead of chasing an LXPoint and its submodel for
+ * every pixel, which is friendlier to the cache and gives the JIT a chance to
+ * vectorize.
+ *
+ *   TEPointArrays pa = model.pointArrays;
+ *   for (int i : pa.panelIndices) {
+ *     colors[i] = ... pa.zn[i] ... pa.yn[i] ...
+ *   }
+ *
+ * Built once when the model loads, so like the rest of TEWholeModel it
+ * assumes the geometry doesn't move afterwards. The normalized coordinates
+ * are refreshed whenever LX normalizes the model, which first happens when
+ * the model is handed to the engine.
+ */
+public class TEPointArrays {
+  public static final byte KIND_GAP = 0;
+  public static final byte KIND_EDGE = 1;
+  public static final byte KIND_PANEL = 2;
+  public static final byte KIND_LASER = 3;
+
+  public final int size;
+
+  public final float[] x, y, z;
+  public final float[] xn, yn, zn;
+
+  // How far along its edge an edge point is, 0-1 (TEEdgeModel.Point.frac). 0 for other points.
+  public final float[] frac;
+
+  // How far from its lit panel's centroid a panel point is, as a fraction of
+  // the farthest vertex (TEPanelModel.LitPointData.radiusFraction). 0 for other points.
+  public final float[] radiusFraction;
+
+  // What the point belongs to: one of the KIND constants
+  public final byte[] kind;
+
+  // Which edge, panel or laser owns the point, as an index into edges, panels
+  // or lasers depending on its kind. -1 for the gap point.
+  public final int[] owner;
+
+  // Owners, sorted by id
+  public final TEEdgeModel[] edges;
+  public final TEPanelModel[] panels;
+  public final TELaserModel[] lasers;
+
+  // Indexes of every edge point and every panel point, ascending
+  public final int[] edgeIndices;
+  public final int[] panelIndices;
+
+  TEPointArrays(TEWholeModel model) {
+    LXPoint[] points = model.points;
+    this.size = points.length;
+    this.x = new float[this.size];
+    this.y = new float[this.size];
+    this.z = new float[this.size];
+    this.xn = new float[this.size];
+    this.yn = new float[this.size];
+    this.zn = new float[this.size];
+    this.frac = new float[this.size];
+    this.radiusFraction = new float[this.size];
+    this.kind = new byte[this.size];
+    this.owner = new int[this.size];
+
+    for (LXPoint p : points) {
+      int i = p.index;
+      this.x[i] = p.x;
+      this.y[i] = p.y;
+      this.z[i] = p.z;
+      this.kind[i] = KIND_GAP;
+      this.owner[i] = -1;
+    }
+
+    this.edges = model.edgesById.values().toArray(new TEEdgeModel[0]);
+    Arrays.sort(this.edges, Comparator.comparing(TEEdgeModel::getId));
+    for (int e = 0; e < this.edges.length; e++) {
+      for (TEEdgeModel.Point p : this.edges[e].points) {
+        this.kind[p.index] = KIND_EDGE;
+        this.owner[p.index] = e;
+        this.frac[p.index] = p.frac;
+      }
+    }
+
+    this.panels = model.panelsById.values().toArray(new TEPanelModel[0]);
+    Arrays.sort(this.panels, Comparator.comparing(TEPanelModel::getId));
+    for (int n = 0; n < this.panels.length; n++) {
+      TEPanelModel panel = this.panels[n];
+      for (LXPoint p : panel.points) {
+        this.kind[p.index] = KIND_PANEL;
+        this.owner[p.index] = n;
+      }
+      if (panel.litPointData != null) {
+        for (TEPanelModel.LitPointData lpd : panel.litPointData) {
+          this.radiusFraction[lpd.point.index] = (float) lpd.radiusFraction;
+        }
+      }
+    }
+
+    this.lasers = model.lasersById.values().toArray(new TELaserModel[0]);
+    Arrays.sort(this.lasers, Comparator.comparing(TELaserModel::getId));
+    for (int l = 0; l < this.lasers.length; l++) {
+      for (LXPoint p : this.lasers[l].points) {
+        this.kind[p.index] = KIND_LASER;
+        this.owner[p.index] = l;
+      }
+    }
+
+    this.edgeIndices = indicesOfKind(KIND_EDGE);
+    this.panelIndices = indicesOfKind(KIND_PANEL);
+    updateNormalized(points);
+  }
+
+  void updateNormalized(LXPoint[] points) {
+    for (LXPoint p : points) {
+      this.xn[p.index] = p.xn;
+      this.yn[p.index] = p.yn;
+      this.zn[p.index] = p.zn;
+    }
+  }
+
+  private int[] indicesOfKind(byte k) {
+    int count = 0;
+    for (byte b : this.kind) {
+      if (b == k) count++;
+    }
+    int[] indices = new int[count];
+    int n = 0;
+    for (int i = 0; i < this.size; i++) {
+      if (this.kind[i] == k) indices[n++] = i;
+    }
+    return indices;
+  }
+}
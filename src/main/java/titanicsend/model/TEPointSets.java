@@ -0,0 +1,141 @@
+package titanicsend.model;
+
+import heronarts.lx.model.LXPoint;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * The points in each part of the model that patterns commonly pick out: each
+ * edge, each panel, each panel section and each panel flavor. Built once when
+ * the model loads, so patterns can look them up every frame without streaming
+ * or copying anything.
+ *
+ * Edges and panels are numbered as in TEPointArrays. Every pattern shares these
+ * sets, so they're only handed out as read-only PointSets.
+ */
+public class TEPointSets {
+  /**
+   * A read-only group of point indexes, kept both as an ascending array and as
+   * a BitSet. Walk it with size()/index(i) or test membership with contains()
+   * in a frame loop; stream() and toArray() are there for everything else.
+   */
+  public static class PointSet {
+    private final int[] indices;
+    private final BitSet mask;
+
+    private PointSet(int[] indices) {
+      this.indices = indices;
+      this.mask = new BitSet(indices.length == 0 ? 0 : indices[indices.length - 1] + 1);
+      for (int i : indices) this.mask.set(i);
+    }
+
+    public int size() {
+      return this.indices.length;
+    }
+
+    // The i'th point index in the set, in ascending order
+    public int index(int i) {
+      return this.indices[i];
+    }
+
+    public boolean contains(int pointIndex) {
+      return pointIndex >= 0 && this.mask.get(pointIndex);
+    }
+
+    public IntStream stream() {
+      return Arrays.stream(this.indices);
+    }
+
+    // A copy the caller is free to change
+    public int[] toArray() {
+      return this.indices.clone();
+    }
+  }
+
+  private static final PointSet NONE = new PointSet(new int[0]);
+
+  // Every edge point and every panel point
+  private final PointSet edgePoints;
+  private final PointSet panelPoints;
+
+  // Each edge's and each panel's points
+  private final PointSet[] edges;
+  private final PointSet[] panels;
+
+  // Every section and every flavor has an entry, empty if no panel has it
+  private final EnumMap<TEPanelSection, PointSet> sections = new EnumMap<>(TEPanelSection.class);
+  private final Map<String, PointSet> flavors = new HashMap<>();
+
+  TEPointSets(TEPointArrays pa) {
+    this.edgePoints = new PointSet(pa.edgeIndices.clone());
+    this.panelPoints = new PointSet(pa.panelIndices.clone());
+
+    this.edges = new PointSet[pa.edges.length];
+    for (int e = 0; e < pa.edges.length; e++) {
+      this.edges[e] = setOf(Collections.singletonList(pa.edges[e]));
+    }
+
+    this.panels = new PointSet[pa.panels.length];
+    Map<TEPanelSection, List<TEPanelModel>> bySection = new EnumMap<>(TEPanelSection.class);
+    Map<String, List<TEPanelModel>> byFlavor = new HashMap<>();
+    for (int p = 0; p < pa.panels.length; p++) {
+      TEPanelModel panel = pa.panels[p];
+      this.panels[p] = setOf(Collections.singletonList(panel));
+      bySection.computeIfAbsent(panel.getSection(), k -> new ArrayList<>()).add(panel);
+      byFlavor.computeIfAbsent(panel.flavor, k -> new ArrayList<>()).add(panel);
+    }
+
+    for (TEPanelSection section : TEPanelSection.values()) {
+      this.sections.put(section, setOf(bySection.getOrDefault(section, Collections.emptyList())));
+    }
+    for (Map.Entry<String, List<TEPanelModel>> entry : byFlavor.entrySet()) {
+      this.flavors.put(entry.getKey(), setOf(entry.getValue()));
+    }
+  }
+
+  private static PointSet setOf(List<? extends TEModel> models) {
+    int count = 0;
+    for (TEModel model : models) count += model.points.length;
+    int[] indices = new int[count];
+    int n = 0;
+    for (TEModel model : models) {
+      for (LXPoint p : model.points) indices[n++] = p.index;
+    }
+    Arrays.sort(indices);
+    return new PointSet(indices);
+  }
+
+  public PointSet edgePoints() {
+    return this.edgePoints;
+  }
+
+  public PointSet panelPoints() {
+    return this.panelPoints;
+  }
+
+  public int edgeCount() {
+    return this.edges.length;
+  }
+
+  public PointSet edge(int edge) {
+    return this.edges[edge];
+  }
+
+  public int panelCount() {
+    return this.panels.length;
+  }
+
+  public PointSet panel(int panel) {
+    return this.panels[panel];
+  }
+
+  public PointSet section(TEPanelSection section) {
+    return this.sections.get(section);
+  }
+
+  // Empty for a flavor no panel has
+  public PointSet flavor(String flavor) {
+    return this.flavors.getOrDefault(flavor, NONE);
+  }
+}
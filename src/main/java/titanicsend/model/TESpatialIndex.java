@@ -0,0 +1,304 @@
+package titanicsend.model;
+
+import heronarts.lx.model.LXPoint;
+import heronarts.lx.transform.LXProjection;
+import heronarts.lx.transform.LXVector;
+
+import java.util.Iterator;
+
+/**
+ * Finds the points near a position without scanning the whole model. Points
+ * are bucketed into a uniform grid of CELL_SIZE microns, and a query only
+ * looks at the cells it overlaps. Each lit panel also gets its own 2D grid in
+ * the panel's plane (see PanelFrame), for effects that work in a panel's
+ * local coordinates.
+ *
+ * Queries write point indexes into a buffer the caller owns and return how
+ * many they wrote, stopping early if the buffer fills up. They don't
+ * allocate, and the index never changes after it's built, so they're safe to
+ * call every frame from any thread.
+ */
+public class TESpatialIndex {
+  // About a dozen edge or panel pixels per cell
+  public static final float CELL_SIZE = 200_000;
+  // Panel pixels are 62mm apart, so two or three per cell
+  public static final float PANEL_CELL_SIZE = 100_000;
+
+  /**
+   * Uniform grid over a set of points. Points are stored by slot; ids maps a
+   * slot back to its LXPoint.index. Cells are in compressed form: the slots in
+   * cell c are cellSlots[cellStart[c]] up to cellSlots[cellStart[c + 1]].
+   */
+  private static class Grid {
+    final float cellSize;
+    final float[] x, y, z;
+    final int[] ids;
+    final float minX, minY, minZ;
+    final int nx, ny, nz;
+    final int[] cellStart;
+    final int[] cellSlots;
+
+    Grid(float cellSize, float[] x, float[] y, float[] z, int[] ids) {
+      this.cellSize = cellSize;
+      this.x = x;
+      this.y = y;
+      this.z = z;
+      this.ids = ids;
+      int n = ids.length;
+
+      float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+      float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+      for (int s = 0; s < n; s++) {
+        minX = Math.min(minX, x[s]);
+        minY = Math.min(minY, y[s]);
+        minZ = Math.min(minZ, z[s]);
+        maxX = Math.max(maxX, x[s]);
+        maxY = Math.max(maxY, y[s]);
+        maxZ = Math.max(maxZ, z[s]);
+      }
+      if (n == 0) minX = minY = minZ = maxX = maxY = maxZ = 0;
+      this.minX = minX;
+      this.minY = minY;
+      this.minZ = minZ;
+      this.nx = (int) ((maxX - minX) / cellSize) + 1;
+      this.ny = (int) ((maxY - minY) / cellSize) + 1;
+      this.nz = (int) ((maxZ - minZ) / cellSize) + 1;
+
+      // Count, then prefix-sum, then place
+      this.cellStart = new int[this.nx * this.ny * this.nz + 1];
+      int[] cellOf = new int[n];
+      for (int s = 0; s < n; s++) {
+        cellOf[s] = cell(cellX(x[s]), cellY(y[s]), cellZ(z[s]));
+        this.cellStart[cellOf[s] + 1]++;
+      }
+      for (int c = 0; c < this.cellStart.length - 1; c++) {
+        this.cellStart[c + 1] += this.cellStart[c];
+      }
+      this.cellSlots = new int[n];
+      int[] fill = new int[this.cellStart.length - 1];
+      for (int s = 0; s < n; s++) {
+        int c = cellOf[s];
+        this.cellSlots[this.cellStart[c] + fill[c]++] = s;
+      }
+    }
+
+    int cellX(float v) {
+      return clamp((int) Math.floor((v - this.minX) / this.cellSize), this.nx);
+    }
+
+    int cellY(float v) {
+      return clamp((int) Math.floor((v - this.minY) / this.cellSize), this.ny);
+    }
+
+    int cellZ(float v) {
+      return clamp((int) Math.floor((v - this.minZ) / this.cellSize), this.nz);
+    }
+
+    private static int clamp(int c, int n) {
+      return c < 0 ? 0 : (c >= n ? n - 1 : c);
+    }
+
+    int cell(int cx, int cy, int cz) {
+      return (cz * this.ny + cy) * this.nx + cx;
+    }
+
+    float dist2(int slot, float px, float py, float pz) {
+      float dx = this.x[slot] - px;
+      float dy = this.y[slot] - py;
+      float dz = this.z[slot] - pz;
+      return dx * dx + dy * dy + dz * dz;
+    }
+
+    int withinBox(float x0, float y0, float z0, float x1, float y1, float z1, int[] out) {
+      int count = 0;
+      int cx1 = cellX(x1), cy1 = cellY(y1), cz1 = cellZ(z1);
+      for (int cz = cellZ(z0); cz <= cz1; cz++) {
+        for (int cy = cellY(y0); cy <= cy1; cy++) {
+          for (int cx = cellX(x0); cx <= cx1; cx++) {
+            int c = cell(cx, cy, cz);
+            for (int i = this.cellStart[c]; i < this.cellStart[c + 1]; i++) {
+              int s = this.cellSlots[i];
+              if (this.x[s] >= x0 && this.x[s] <= x1 &&
+                  this.y[s] >= y0 && this.y[s] <= y1 &&
+                  this.z[s] >= z0 && this.z[s] <= z1) {
+                if (count == out.length) return count;
+                out[count++] = this.ids[s];
+              }
+            }
+          }
+        }
+      }
+      return count;
+    }
+
+    int withinRadius(float px, float py, float pz, float radius, int[] out) {
+      int count = 0;
+      float r2 = radius * radius;
+      int cx1 = cellX(px + radius), cy1 = cellY(py + radius), cz1 = cellZ(pz + radius);
+      for (int cz = cellZ(pz - radius); cz <= cz1; cz++) {
+        for (int cy = cellY(py - radius); cy <= cy1; cy++) {
+          for (int cx = cellX(px - radius); cx <= cx1; cx++) {
+            int c = cell(cx, cy, cz);
+            for (int i = this.cellStart[c]; i < this.cellStart[c + 1]; i++) {
+              int s = this.cellSlots[i];
+              if (dist2(s, px, py, pz) <= r2) {
+                if (count == out.length) return count;
+                out[count++] = this.ids[s];
+              }
+            }
+          }
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Searches shells of cells outward from the query's cell, keeping the k
+     * closest in out (as slots until the end), closest first. Everything in
+     * shell r is at least r - 1 cells away, so once the k-th closest is nearer
+     * than that the search can stop.
+     */
+    int kNearest(float px, float py, float pz, int k, int[] out) {
+      k = Math.min(k, Math.min(out.length, this.ids.length));
+      if (k <= 0) return 0;
+      int count = 0;
+      int qx = cellX(px), qy = cellY(py), qz = cellZ(pz);
+      int maxRing = Math.max(this.nx, Math.max(this.ny, this.nz));
+      for (int r = 0; r <= maxRing; r++) {
+        if (count == k) {
+          float reach = (r - 1) * this.cellSize;
+          if (dist2(out[k - 1], px, py, pz) <= reach * reach) break;
+        }
+        for (int cz = Math.max(0, qz - r); cz <= Math.min(this.nz - 1, qz + r); cz++) {
+          for (int cy = Math.max(0, qy - r); cy <= Math.min(this.ny - 1, qy + r); cy++) {
+            if (Math.abs(cz - qz) == r || Math.abs(cy - qy) == r) {
+              for (int cx = Math.max(0, qx - r); cx <= Math.min(this.nx - 1, qx + r); cx++) {
+                count = searchCell(cell(cx, cy, cz), px, py, pz, out, count, k);
+              }
+            } else {
+              // Inside the shell's faces, only its two x ends are new this ring
+              if (qx - r >= 0) count = searchCell(cell(qx - r, cy, cz), px, py, pz, out, count, k);
+              if (r > 0 && qx + r < this.nx) count = searchCell(cell(qx + r, cy, cz), px, py, pz, out, count, k);
+            }
+          }
+        }
+      }
+      for (int i = 0; i < count; i++) out[i] = this.ids[out[i]];
+      return count;
+    }
+
+    private int searchCell(int c, float px, float py, float pz, int[] out, int count, int k) {
+      for (int i = this.cellStart[c]; i < this.cellStart[c + 1]; i++) {
+        count = insertNearest(this.cellSlots[i], px, py, pz, out, count, k);
+      }
+      return count;
+    }
+
+    // Insertion into the sorted candidates. Ties go to the lower point index.
+    private int insertNearest(int slot, float px, float py, float pz, int[] out, int count, int k) {
+      float d = dist2(slot, px, py, pz);
+      int at = count;
+      while (at > 0) {
+        float dPrev = dist2(out[at - 1], px, py, pz);
+        if (dPrev < d || (dPrev == d && this.ids[out[at - 1]] < this.ids[slot])) break;
+        at--;
+      }
+      if (at >= k) return count;
+      int end = Math.min(count, k - 1);
+      System.arraycopy(out, at, out, at + 1, end - at);
+      out[at] = slot;
+      return Math.min(count + 1, k);
+    }
+  }
+
+  /**
+   * A panel's points in the panel's own 2D coordinates: centered on the
+   * centroid, with the panel's normal (from its first two points) rotated
+   * onto the z axis so the panel lies flat in u and v.
+   */
+  public static class PanelFrame {
+    public final TEPanelModel panel;
+    // Point index, u and v of each of the panel's points, in the panel's point order
+    public final int[] indices;
+    public final float[] u, v;
+    private final Grid grid;
+
+    PanelFrame(TEPanelModel panel) {
+      this.panel = panel;
+      int n = panel.points.length;
+      this.indices = new int[n];
+      this.u = new float[n];
+      this.v = new float[n];
+
+      LXProjection projection = new LXProjection(panel);
+      projection.translate(-panel.centroid.x, -panel.centroid.y, -panel.centroid.z);
+      Iterator<LXVector> it = projection.iterator();
+      LXVector first = it.next().copy();
+      LXVector normal = first.cross(it.next());
+      LXVector zAxis = new LXVector(0, 0, 1);
+      // Careful: cross() changes the vector it's called on
+      LXVector rotationAxis = zAxis.copy().cross(normal);
+      if (rotationAxis.mag() > 0) {
+        // LXProjection rotates clockwise about the axis, so turning the normal onto z takes the negative angle
+        projection.rotate(-LXVector.angleBetween(normal, zAxis), rotationAxis.x, rotationAxis.y, rotationAxis.z);
+      }
+
+      int i = 0;
+      for (LXVector vec : projection) {
+        this.indices[i] = vec.point.index;
+        this.u[i] = vec.x;
+        this.v[i] = vec.y;
+        i++;
+      }
+      this.grid = new Grid(PANEL_CELL_SIZE, this.u, this.v, new float[n], this.indices);
+    }
+
+    public int kNearest(float u, float v, int k, int[] out) {
+      return this.grid.kNearest(u, v, 0, k, out);
+    }
+
+    public int withinRadius(float u, float v, float radius, int[] out) {
+      return this.grid.withinRadius(u, v, 0, radius, out);
+    }
+
+    public int withinBox(float u0, float v0, float u1, float v1, int[] out) {
+      return this.grid.withinBox(u0, v0, 0, u1, v1, 0, out);
+    }
+  }
+
+  private final Grid grid;
+
+  // Parallel to TEPointArrays.panels; null for panels with fewer than two points
+  public final PanelFrame[] panelFrames;
+
+  TESpatialIndex(TEPointArrays pa) {
+    int[] ids = new int[pa.size];
+    for (int i = 0; i < ids.length; i++) ids[i] = i;
+    this.grid = new Grid(CELL_SIZE, pa.x, pa.y, pa.z, ids);
+
+    this.panelFrames = new PanelFrame[pa.panels.length];
+    for (int n = 0; n < pa.panels.length; n++) {
+      if (pa.panels[n].points.length >= 2) {
+        this.panelFrames[n] = new PanelFrame(pa.panels[n]);
+      }
+    }
+  }
+
+  // Points with every coordinate inside the box, bounds included
+  public int withinBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int[] out) {
+    return this.grid.withinBox(minX, minY, minZ, maxX, maxY, maxZ, out);
+  }
+
+  public int withinRadius(float x, float y, float z, float radius, int[] out) {
+    return this.grid.withinRadius(x, y, z, radius, out);
+  }
+
+  public int withinRadius(LXPoint p, float radius, int[] out) {
+    return this.grid.withinRadius(p.x, p.y, p.z, radius, out);
+  }
+
+  // The k closest points, closest first
+  public int kNearest(float x, float y, float z, int k, int[] out) {
+    return this.grid.kNearest(x, y, z, k, out);
+  }
+}
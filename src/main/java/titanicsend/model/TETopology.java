@@ -0,0 +1,251 @@
+package titanicsend.model;
+
+import java.util.*;
+
+/**
+ * How the vertexes, edges and panels connect, as flat int arrays, for
+ * patterns that walk the graph every frame. Everything is numbered densely:
+ * vertexes in id order, and edges and panels in the same order as
+ * TEPointArrays.edges and panels, so an edge's number here is also the owner
+ * of its points there. Graph walks can then keep their state in int arrays
+ * and BitSets instead of sets of models or string ids.
+ *
+ * Adjacency lists are in compressed form: the edges at vertex v are
+ * vertexEdges[vertexEdgeStart[v]] up to vertexEdges[vertexEdgeStart[v + 1]],
+ * and likewise for the other lists.
+ *
+ * A "step" is an edge traveled in one direction: step 2e goes from edge e's v0
+ * to its v1, and step 2e + 1 goes back. continuations lists the steps that
+ * can follow a step, that is every step leaving the vertex it arrives at
+ * except turning straight back.
+ *
+ * Built once with the model and never changed.
+ */
+public class TETopology {
+  public final TEVertex[] vertexes;
+  public final TEEdgeModel[] edges;
+  public final TEPanelModel[] panels;
+
+  // Each edge's end vertexes
+  public final int[] edgeV0, edgeV1;
+
+  // Each panel's three vertexes and three edges, at [3p], [3p + 1] and [3p + 2]
+  public final int[] panelVertexes;
+  public final int[] panelEdges;
+
+  // Edges that meet at a vertex
+  public final int[] vertexEdgeStart, vertexEdges;
+  // Panels bordering an edge
+  public final int[] edgePanelStart, edgePanels;
+  // Panels sharing an edge with a panel, not counting the panel itself
+  public final int[] panelNeighborStart, panelNeighbors;
+  // Steps that can follow a step
+  public final int[] continuationStart, continuations;
+
+  // Fewest hops between each pair, at [a * count + b]; UNREACHABLE if there's no path.
+  // Vertexes hop along edges, edges hop through shared vertexes, panels hop across shared edges.
+  public static final short UNREACHABLE = -1;
+  public final short[] vertexHops;
+  public final short[] edgeHops;
+  public final short[] panelHops;
+
+  private final Map<Integer, Integer> vertexNumbers = new HashMap<>();
+  private final Map<TEEdgeModel, Integer> edgeNumbers = new HashMap<>();
+  private final Map<TEPanelModel, Integer> panelNumbers = new HashMap<>();
+
+  TETopology(TEWholeModel model, TEPointArrays pa) {
+    this.vertexes = model.vertexesById.values().toArray(new TEVertex[0]);
+    Arrays.sort(this.vertexes, Comparator.comparingInt(v -> v.id));
+    this.edges = pa.edges;
+    this.panels = pa.panels;
+    for (int v = 0; v < this.vertexes.length; v++) this.vertexNumbers.put(this.vertexes[v].id, v);
+    for (int e = 0; e < this.edges.length; e++) this.edgeNumbers.put(this.edges[e], e);
+    for (int p = 0; p < this.panels.length; p++) this.panelNumbers.put(this.panels[p], p);
+
+    int numEdges = this.edges.length;
+    this.edgeV0 = new int[numEdges];
+    this.edgeV1 = new int[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      this.edgeV0[e] = vertexNumber(this.edges[e].v0);
+      this.edgeV1[e] = vertexNumber(this.edges[e].v1);
+    }
+
+    int numPanels = this.panels.length;
+    this.panelVertexes = new int[3 * numPanels];
+    this.panelEdges = new int[3 * numPanels];
+    for (int p = 0; p < numPanels; p++) {
+      TEPanelModel panel = this.panels[p];
+      this.panelVertexes[3 * p] = vertexNumber(panel.v0);
+      this.panelVertexes[3 * p + 1] = vertexNumber(panel.v1);
+      this.panelVertexes[3 * p + 2] = vertexNumber(panel.v2);
+      this.panelEdges[3 * p] = edgeNumber(panel.e0);
+      this.panelEdges[3 * p + 1] = edgeNumber(panel.e1);
+      this.panelEdges[3 * p + 2] = edgeNumber(panel.e2);
+    }
+
+    List<List<Integer>> lists = new ArrayList<>();
+    for (TEVertex vertex : this.vertexes) {
+      lists.add(sortedNumbers(vertex.edges, this.edgeNumbers));
+    }
+    this.vertexEdgeStart = new int[this.vertexes.length + 1];
+    this.vertexEdges = compress(lists, this.vertexEdgeStart);
+
+    lists.clear();
+    for (TEEdgeModel edge : this.edges) {
+      lists.add(sortedNumbers(edge.connectedPanels, this.panelNumbers));
+    }
+    this.edgePanelStart = new int[numEdges + 1];
+    this.edgePanels = compress(lists, this.edgePanelStart);
+
+    lists.clear();
+    for (int p = 0; p < numPanels; p++) {
+      Set<TEPanelModel> neighbors = this.panels[p].neighbors();
+      neighbors.remove(this.panels[p]);
+      lists.add(sortedNumbers(neighbors, this.panelNumbers));
+    }
+    this.panelNeighborStart = new int[numPanels + 1];
+    this.panelNeighbors = compress(lists, this.panelNeighborStart);
+
+    lists.clear();
+    for (int step = 0; step < 2 * numEdges; step++) {
+      int edge = stepEdge(step);
+      int at = stepTo(step);
+      List<Integer> next = new ArrayList<>();
+      for (int i = this.vertexEdgeStart[at]; i < this.vertexEdgeStart[at + 1]; i++) {
+        int other = this.vertexEdges[i];
+        if (other != edge) next.add(stepFrom(other, at));
+      }
+      lists.add(next);
+    }
+    this.continuationStart = new int[2 * numEdges + 1];
+    this.continuations = compress(lists, this.continuationStart);
+
+    // Vertexes are neighbors across each edge
+    int[] vertexNeighborStart = new int[this.vertexes.length + 1];
+    int[] vertexNeighbors = new int[this.vertexEdges.length];
+    for (int v = 0; v < this.vertexes.length; v++) {
+      vertexNeighborStart[v + 1] = this.vertexEdgeStart[v + 1];
+      for (int i = this.vertexEdgeStart[v]; i < this.vertexEdgeStart[v + 1]; i++) {
+        int e = this.vertexEdges[i];
+        vertexNeighbors[i] = this.edgeV0[e] == v ? this.edgeV1[e] : this.edgeV0[e];
+      }
+    }
+    this.vertexHops = allHops(vertexNeighborStart, vertexNeighbors);
+
+    // Edges are neighbors when they share a vertex, which is what continuations already says
+    int[] edgeNeighborStart = new int[numEdges + 1];
+    int[] edgeNeighbors = new int[this.continuations.length];
+    int n = 0;
+    for (int e = 0; e < numEdges; e++) {
+      for (int step = 2 * e; step <= 2 * e + 1; step++) {
+        for (int i = this.continuationStart[step]; i < this.continuationStart[step + 1]; i++) {
+          edgeNeighbors[n++] = stepEdge(this.continuations[i]);
+        }
+      }
+      edgeNeighborStart[e + 1] = n;
+    }
+    this.edgeHops = allHops(edgeNeighborStart, edgeNeighbors);
+
+    this.panelHops = allHops(this.panelNeighborStart, this.panelNeighbors);
+  }
+
+  private static <T> List<Integer> sortedNumbers(Collection<T> models, Map<T, Integer> numbers) {
+    List<Integer> list = new ArrayList<>();
+    for (T model : models) {
+      Integer number = numbers.get(model);
+      if (number == null) throw new Error("Topology found " + model + " outside the model");
+      list.add(number);
+    }
+    Collections.sort(list);
+    return list;
+  }
+
+  private static int[] compress(List<List<Integer>> lists, int[] start) {
+    for (int i = 0; i < lists.size(); i++) {
+      start[i + 1] = start[i] + lists.get(i).size();
+    }
+    int[] flat = new int[start[lists.size()]];
+    for (int i = 0; i < lists.size(); i++) {
+      int n = start[i];
+      for (int value : lists.get(i)) flat[n++] = value;
+    }
+    return flat;
+  }
+
+  // Breadth-first search from every node; the graphs here have a few hundred nodes at most
+  private static short[] allHops(int[] start, int[] neighbors) {
+    int count = start.length - 1;
+    short[] hops = new short[count * count];
+    Arrays.fill(hops, UNREACHABLE);
+    int[] queue = new int[count];
+    for (int from = 0; from < count; from++) {
+      int row = from * count;
+      int head = 0, tail = 0;
+      hops[row + from] = 0;
+      queue[tail++] = from;
+      while (head < tail) {
+        int node = queue[head++];
+        for (int i = start[node]; i < start[node + 1]; i++) {
+          int next = neighbors[i];
+          if (hops[row + next] == UNREACHABLE) {
+            hops[row + next] = (short) (hops[row + node] + 1);
+            queue[tail++] = next;
+          }
+        }
+      }
+    }
+    return hops;
+  }
+
+  public int vertexNumber(TEVertex vertex) {
+    Integer v = this.vertexNumbers.get(vertex.id);
+    if (v == null) throw new Error("Vertex " + vertex.id + " isn't in the model");
+    return v;
+  }
+
+  // -1 if there's no such vertex
+  public int vertexNumber(int vertexId) {
+    return this.vertexNumbers.getOrDefault(vertexId, -1);
+  }
+
+  public int edgeNumber(TEEdgeModel edge) {
+    Integer e = this.edgeNumbers.get(edge);
+    if (e == null) throw new Error("Edge " + edge.getId() + " isn't in the model");
+    return e;
+  }
+
+  public int panelNumber(TEPanelModel panel) {
+    Integer p = this.panelNumbers.get(panel);
+    if (p == null) throw new Error("Panel " + panel.getId() + " isn't in the model");
+    return p;
+  }
+
+  public int stepEdge(int step) {
+    return step >> 1;
+  }
+
+  public int stepTo(int step) {
+    return (step & 1) == 0 ? this.edgeV1[step >> 1] : this.edgeV0[step >> 1];
+  }
+
+  public int stepFrom(int step) {
+    return (step & 1) == 0 ? this.edgeV0[step >> 1] : this.edgeV1[step >> 1];
+  }
+
+  // The step along edge that leaves vertex
+  public int stepFrom(int edge, int vertex) {
+    return this.edgeV0[edge] == vertex ? 2 * edge : 2 * edge + 1;
+  }
+
+  public int vertexHops(int a, int b) {
+    return this.vertexHops[a * this.vertexes.length + b];
+  }
+
+  public int edgeHops(int a, int b) {
+    return this.edgeHops[a * this.edges.length + b];
+  }
+
+  public int panelHops(int a, int b) {
+    return this.panelHops[a * this.panels.length + b];
+  }
+}
@@ -3,6 +3,7 @@ package titanicsend.model;
 import java.util.*;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import heronarts.lx.LX;
@@ -10,7 +11,9 @@ import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.transform.LXVector;
 import titanicsend.lasercontrol.MovingTarget;
+import titanicsend.output.ColorCorrection;
 import titanicsend.output.TEArtNetOutput;
+import titanicsend.output.TEControllerOutput;
 
 public class TEWholeModel extends LXModel {
   public String subdir;
@@ -27,6 +30,18 @@ public class TEWholeModel extends LXModel {
   public List<LXPoint> panelPoints; // Points belonging to panels
   public List<TEBox> boxes;
   public Boundaries boundaryPoints;
+  public TEPointArrays pointArrays; // Per-point attributes as flat arrays, for hot loops
+  public TESpatialIndex spatialIndex; // For finding points near a position
+  public TETopology topology; // How vertexes, edges and panels connect, for graph walks
+  public TEPointSets pointSets; // Read-only point index sets for each edge, panel, section and flavor
+  public TEMirrors mirrors; // Each point's mirror image, for rendering part of a symmetric pattern
+
+  // What the getters below return, built once since the model doesn't change
+  private Set<TEPanelModel> allPanels;
+  private Set<TEEdgeModel> allEdges;
+  private Set<TEPanelModel> leftPanels;
+  private Set<TEPanelModel> rightPanels;
+  private final EnumMap<TEPanelSection, Set<LXPoint>> pointsBySection = new EnumMap<>(TEPanelSection.class);
 
   // Boundaries are the points at the boundaries of our 3-dimensional grid. We retain
   // the `LXPoint` for convenience, but only the respective coordinate of each bound
@@ -67,14 +82,40 @@ public class TEWholeModel extends LXModel {
     public HashMap<String, TELaserModel> lasersById;
     public List<TEBox> boxes;
     public LXModel[] children;
+    public PhaseTimer timer;
+    public TEWholeModel previous;  // The live model, when reloading
+  }
+
+  // Notes how long each step of building the model took, for the startup log
+  private static class PhaseTimer {
+    private final long startNanos = System.nanoTime();
+    private long lastNanos = this.startNanos;
+    private final StringBuilder phases = new StringBuilder();
+
+    void mark(String phase) {
+      long now = System.nanoTime();
+      if (this.phases.length() > 0) this.phases.append(", ");
+      this.phases.append(String.format("%s %.1fms", phase, (now - this.lastNanos) / 1e6));
+      this.lastNanos = now;
+    }
+
+    String summary() {
+      return String.format("%.1fms (%s)", (System.nanoTime() - this.startNanos) / 1e6, this.phases);
+    }
   }
 
   public TEWholeModel(String subdir) {
-    this(loadGeometry(subdir));
+    this(loadGeometry(subdir, null));
+  }
+
+  // Reloads the geometry, reusing the striping of any panel in the live model that hasn't moved
+  public TEWholeModel(String subdir, TEWholeModel previous) {
+    this(loadGeometry(subdir, previous));
   }
 
   private TEWholeModel(Geometry geometry) {
     super(geometry.children);
+    geometry.timer.mark("whole model");
     this.subdir = geometry.subdir;
     this.name = geometry.name;
     this.gapPoint = geometry.gapPoint;
@@ -83,6 +124,7 @@ public class TEWholeModel extends LXModel {
     this.edgesById = geometry.edgesById;
     this.edgesBySymmetryGroup = new HashMap<>();
     buildEdgeRelations();
+    geometry.timer.mark("edge relations");
 
     this.panelsById = geometry.panelsById;
     this.panelsBySection = geometry.panelsBySection;
@@ -97,7 +139,20 @@ public class TEWholeModel extends LXModel {
     this.boxes = geometry.boxes;
 
     reindexPoints();
+    geometry.timer.mark("index points");
     this.boundaryPoints = initializeBoundaries();
+    geometry.timer.mark("boundaries");
+    this.pointArrays = new TEPointArrays(this);
+    geometry.timer.mark("point arrays");
+    this.spatialIndex = new TESpatialIndex(this.pointArrays);
+    geometry.timer.mark("spatial index");
+    this.topology = new TETopology(this, this.pointArrays);
+    geometry.timer.mark("topology");
+    this.pointSets = new TEPointSets(this.pointArrays);
+    buildPanelSets();
+    geometry.timer.mark("point sets");
+    this.mirrors = new TEMirrors(this.pointArrays, this.spatialIndex);
+    geometry.timer.mark("mirrors");
     LX.log(String.format("Min X boundary: %f", boundaryPoints.minXBoundaryPoint.x));
     LX.log(String.format("Max X boundary: %f", boundaryPoints.maxXBoundaryPoint.x));
 
@@ -111,15 +166,40 @@ public class TEWholeModel extends LXModel {
            this.vertexesById.size() + " vertexes, " +
            this.edgesById.size() + " edges, " +
            this.panelsById.size() + " panels, " +
-           this.points.length + " pixels");
+           this.points.length + " pixels in " +
+           geometry.timer.summary());
+  }
+
+  // LX normalizes the points when the model is attached to the engine, so keep the flat copies current
+  @Override
+  public LXModel normalizePoints() {
+    super.normalizePoints();
+    if (this.pointArrays != null) this.pointArrays.updateNormalized(this.points);
+    return this;
   }
 
   public boolean isEdgePoint(int index) {
-    return index >= edgePoints.get(0).index && index <= edgePoints.get(edgePoints.size()-1).index;
+    return this.pointSets.edgePoints().contains(index);
   }
 
   public boolean isPanelPoint(int index) {
-    return index >= panelPoints.get(0).index && index <= panelPoints.get(panelPoints.size() - 1).index;
+    return this.pointSets.panelPoints().contains(index);
+  }
+
+  private void buildPanelSets() {
+    this.allPanels = Collections.unmodifiableSet(new HashSet<>(this.panelsById.values()));
+    this.allEdges = Collections.unmodifiableSet(new HashSet<>(this.edgesById.values()));
+    this.leftPanels = Collections.unmodifiableSet(getPanelsBySections(List.of(TEPanelSection.STARBOARD_AFT,
+            TEPanelSection.STARBOARD_AFT_SINGLE, TEPanelSection.AFT)));
+    this.rightPanels = Collections.unmodifiableSet(getPanelsBySections(List.of(TEPanelSection.STARBOARD_FORE,
+            TEPanelSection.STARBOARD_FORE_SINGLE, TEPanelSection.FORE)));
+    for (TEPanelSection section : TEPanelSection.values()) {
+      Set<LXPoint> points = new HashSet<>();
+      for (TEPanelModel panel : this.panelsBySection.getOrDefault(section, Collections.emptySet())) {
+        points.addAll(Arrays.asList(panel.points));
+      }
+      this.pointsBySection.put(section, Collections.unmodifiableSet(points));
+    }
   }
 
   /** Builds structures that compute spacial relationships for edges,
@@ -139,6 +219,13 @@ public class TEWholeModel extends LXModel {
     }
   }
 
+  // Builds a model for each spec on the common ForkJoinPool. The results come
+  // back in the same order as the specs, so point indexes don't depend on
+  // which thread finished first.
+  private static <S, M> List<M> buildInParallel(List<S> specs, Function<S, M> builder) {
+    return specs.parallelStream().map(builder).collect(Collectors.toList());
+  }
+
   private static Scanner loadFilePrivate(String filename) {
     try {
       File f = new File(filename);
@@ -183,57 +270,89 @@ public class TEWholeModel extends LXModel {
     TEArtNetOutput.registerSubmodel(subModel, ipAddress, universeNum, strandOffset, fwd);
   }
 
+  // One line of edges.txt, parsed but not yet built
+  private static class EdgeSpec {
+    String id;
+    TEVertex v0, v1;
+    boolean dark;
+    boolean fwd;
+    String controller;
+  }
+
   private static void loadEdges(Geometry geometry) {
     geometry.edgesById = new HashMap<String, TEEdgeModel>();
     Scanner s = loadFilePrivate(geometry.subdir + "/edges.txt");
 
+    List<EdgeSpec> specs = new ArrayList<>();
     while (s.hasNextLine()) {
       String line = s.nextLine();
       String[] tokens = line.split("\t");
       assert tokens.length == 3 : "Found " + tokens.length + " tokens";
 
-      String id = tokens[0];
+      EdgeSpec spec = new EdgeSpec();
+      spec.id = tokens[0];
       String edgeKind = tokens[1];
-      String controller = tokens[2];
+      spec.controller = tokens[2];
 
-      boolean dark;
-      boolean fwd = true;
+      spec.fwd = true;
       switch (edgeKind) {
         case "default":
-          dark = false;
+          spec.dark = false;
           break;
         case "reversed":
-          dark = false;
-          fwd = false;
+          spec.dark = false;
+          spec.fwd = false;
           break;
         case "dark":
-          dark = true;
-          assert controller.equals("uncontrolled");
+          spec.dark = true;
+          assert spec.controller.equals("uncontrolled");
           break;
         default:
           throw new Error("Weird edge config: " + line);
       }
 
-      tokens = id.split("-");
+      tokens = spec.id.split("-");
       if (tokens.length != 2) {
         throw new Error("Found " + tokens.length + " ID tokens");
       }
       int v0Id = Integer.parseInt(tokens[0]);
       int v1Id = Integer.parseInt(tokens[1]);
       assert v0Id < v1Id;
-      TEVertex v0 = geometry.vertexesById.get(v0Id);
-      TEVertex v1 = geometry.vertexesById.get(v1Id);
-      TEEdgeModel e = new TEEdgeModel(v0, v1, dark);
-      v0.addEdge(e);
-      v1.addEdge(e);
-
-      if (!controller.equals("uncontrolled")) {
-        registerController(e, controller, fwd);
+      spec.v0 = geometry.vertexesById.get(v0Id);
+      spec.v1 = geometry.vertexesById.get(v1Id);
+      specs.add(spec);
+    }
+    s.close();
+    geometry.timer.mark("parse edges");
+
+    // Each edge's points only depend on its own vertexes, so build them in parallel
+    List<TEEdgeModel> edges = buildInParallel(specs, spec -> new TEEdgeModel(spec.v0, spec.v1, spec.dark));
+    geometry.timer.mark("build edges");
+
+    // Everything that touches shared state happens back in file order
+    for (int i = 0; i < specs.size(); i++) {
+      EdgeSpec spec = specs.get(i);
+      TEEdgeModel e = edges.get(i);
+      spec.v0.addEdge(e);
+      spec.v1.addEdge(e);
+
+      if (!spec.controller.equals("uncontrolled")) {
+        registerController(e, spec.controller, spec.fwd);
       }
 
-      geometry.edgesById.put(id, e);
+      geometry.edgesById.put(spec.id, e);
     }
-    s.close();
+  }
+
+  // One line of panels.txt, parsed but not yet built
+  private static class PanelSpec {
+    String id;
+    TEVertex[] vertexes;
+    TEEdgeModel e0, e1, e2;
+    String flipStr;
+    String panelType;
+    String outputConfig;
+    boolean lit;
   }
 
   private static void loadPanels(Geometry geometry) {
@@ -243,48 +362,64 @@ public class TEWholeModel extends LXModel {
 
     Scanner s = loadFilePrivate(geometry.subdir + "/panels.txt");
 
+    List<PanelSpec> specs = new ArrayList<>();
     while (s.hasNextLine()) {
       String line = s.nextLine();
       String[] tokens = line.split("\t");
       assert tokens.length == 6 : "Found " + tokens.length + " tokens";
 
-      String id = tokens[0];
+      PanelSpec spec = new PanelSpec();
+      spec.id = tokens[0];
       String e0Id = tokens[1];
       String e1Id = tokens[2];
       String e2Id = tokens[3];
-      String flipStr = tokens[4];
-      String panelType = tokens[5];
+      spec.flipStr = tokens[4];
+      spec.panelType = tokens[5];
 
-      TEEdgeModel e0 = geometry.edgesById.get(e0Id);
-      TEEdgeModel e1 = geometry.edgesById.get(e1Id);
-      TEEdgeModel e2 = geometry.edgesById.get(e2Id);
+      spec.e0 = geometry.edgesById.get(e0Id);
+      spec.e1 = geometry.edgesById.get(e1Id);
+      spec.e2 = geometry.edgesById.get(e2Id);
 
       HashSet<TEVertex> vh = new HashSet<TEVertex>();
-      vh.add(e0.v0); vh.add(e0.v1);
-      vh.add(e1.v0); vh.add(e1.v1);
-      vh.add(e2.v0); vh.add(e2.v1);
-      TEVertex[] vertexes = vh.toArray(new TEVertex[0]);
-      assert vertexes.length == 3;
-
-      boolean lit = panelType.contains(".");
-      String outputConfig = panelType;
-
-      if (lit) panelType = "lit";
+      vh.add(spec.e0.v0); vh.add(spec.e0.v1);
+      vh.add(spec.e1.v0); vh.add(spec.e1.v1);
+      vh.add(spec.e2.v0); vh.add(spec.e2.v1);
+      spec.vertexes = vh.toArray(new TEVertex[0]);
+      assert spec.vertexes.length == 3;
 
-      TEPanelModel p = TEPanelFactory.build(id, vertexes[0], vertexes[1], vertexes[2],
-              e0, e1, e2, panelType);
+      spec.lit = spec.panelType.contains(".");
+      spec.outputConfig = spec.panelType;
 
-      if (flipStr.equals("flipped")) {
+      if (spec.lit) spec.panelType = "lit";
+      specs.add(spec);
+    }
+    s.close();
+    geometry.timer.mark("parse panels");
+    GeometryCache cache = new GeometryCache(geometry.subdir);
+    if (geometry.previous != null) cache.reuseFrom(geometry.previous.panelsById);
+    geometry.timer.mark("open cache");
+
+    // Striping and each panel's lit point data are independent per panel
+    List<TEPanelModel> panels = buildInParallel(specs, spec ->
+            TEPanelFactory.build(spec.id, spec.vertexes[0], spec.vertexes[1], spec.vertexes[2],
+                    spec.e0, spec.e1, spec.e2, spec.panelType, cache));
+    geometry.timer.mark("build panels");
+
+    for (int i = 0; i < specs.size(); i++) {
+      PanelSpec spec = specs.get(i);
+      TEPanelModel p = panels.get(i);
+
+      if (spec.flipStr.equals("flipped")) {
         p.offsetTriangles.flip();
-      } else if (!flipStr.equals("unflipped")) {
-        throw new Error("Panel " + id + " is neither flipped nor unflipped");
+      } else if (!spec.flipStr.equals("unflipped")) {
+        throw new Error("Panel " + spec.id + " is neither flipped nor unflipped");
       }
 
-      e0.connectedPanels.add(p);
-      e1.connectedPanels.add(p);
-      e2.connectedPanels.add(p);
+      spec.e0.connectedPanels.add(p);
+      spec.e1.connectedPanels.add(p);
+      spec.e2.connectedPanels.add(p);
 
-      geometry.panelsById.put(id, p);
+      geometry.panelsById.put(spec.id, p);
 
       if (!geometry.panelsBySection.containsKey(p.getSection()))
         geometry.panelsBySection.put(p.getSection(), new HashSet<>());
@@ -296,9 +431,10 @@ public class TEWholeModel extends LXModel {
       geometry.panelsByFlavor.get(flavor).add(p);
 
       // TODO: Do we need to support backwards-wired panels?
-      if (lit) registerController(p, outputConfig, true);
+      if (spec.lit) registerController(p, spec.outputConfig, true);
     }
-    s.close();
+    cache.save();
+    geometry.timer.mark("index panels");
 
     for (String flavor : geometry.panelsByFlavor.keySet()) {
       StringBuilder flavorStr = new StringBuilder("Panels of flavor ");
@@ -376,6 +512,24 @@ public class TEWholeModel extends LXModel {
         case "name":
           geometry.name = tokens[1].trim();
           break;
+        case "sacn":
+          // Controllers that take E1.31 multicast instead of ArtNet unicast
+          for (String ipAddress : tokens[1].trim().split("\\s+")) {
+            TEArtNetOutput.setProtocol(ipAddress, TEControllerOutput.Protocol.SACN);
+          }
+          break;
+        case "correction":
+          // A color correction profile: name, then settings
+          String[] spec = tokens[1].trim().split("\\s+", 2);
+          TEArtNetOutput.defineCorrection(ColorCorrection.parse(spec[0], spec.length > 1 ? spec[1] : ""));
+          break;
+        case "apply correction":
+          // Profile name, then the controllers (ip) or strands (ip#universe) it's for
+          String[] targets = tokens[1].trim().split("\\s+");
+          for (int i = 1; i < targets.length; i++) {
+            TEArtNetOutput.applyCorrection(targets[0], targets[i]);
+          }
+          break;
         default:
           throw new Error("Weird line: " + line);
       }
@@ -388,39 +542,41 @@ public class TEWholeModel extends LXModel {
   // and instantiates a helper class called Boundaries to keep track of the edge values
   // represented by that outermost LXPoint for each axis.
   private Boundaries initializeBoundaries() {
-    ArrayList<LXPoint> pointsList = new ArrayList<>(Arrays.asList(this.points));
-
-    LXPoint minXValuePoint = pointsList.stream().min(Comparator.comparing(p -> p.x)).get();
-    LXPoint maxXValuePoint = pointsList.stream().max(Comparator.comparing(p -> p.x)).get();
-
-    LXPoint minYValuePoint = pointsList.stream().min(Comparator.comparing(p -> p.y)).get();
-    LXPoint maxYValuePoint = pointsList.stream().max(Comparator.comparing(p -> p.y)).get();
-
-    LXPoint minZValuePoint = pointsList.stream().min(Comparator.comparing(p -> p.z)).get();
-    LXPoint maxZValuePoint = pointsList.stream().max(Comparator.comparing(p -> p.z)).get();
-    return new Boundaries(
-      minXValuePoint,
-      maxXValuePoint,
-      minYValuePoint,
-      maxYValuePoint,
-      minZValuePoint,
-      maxZValuePoint);
+    // One pass, keeping the first point found at each extreme
+    LXPoint minX = this.points[0], maxX = this.points[0];
+    LXPoint minY = this.points[0], maxY = this.points[0];
+    LXPoint minZ = this.points[0], maxZ = this.points[0];
+    for (LXPoint p : this.points) {
+      if (p.x < minX.x) minX = p;
+      if (p.x > maxX.x) maxX = p;
+      if (p.y < minY.y) minY = p;
+      if (p.y > maxY.y) maxY = p;
+      if (p.z < minZ.z) minZ = p;
+      if (p.z > maxZ.z) maxZ = p;
+    }
+    return new Boundaries(minX, maxX, minY, maxY, minZ, maxZ);
   }
 
-  private static Geometry loadGeometry(String subdir) {
+  private static Geometry loadGeometry(String subdir, TEWholeModel previous) {
     Geometry geometry = new Geometry();
     geometry.subdir = "resources/" + subdir;
+    geometry.previous = previous;
+    geometry.timer = new PhaseTimer();
     List<LXModel> childList = new ArrayList<LXModel>();
 
     loadGeneral(geometry);
+    geometry.timer.mark("general");
 
     loadBoxes(geometry);
+    geometry.timer.mark("boxes");
 
     loadVertexes(geometry);
+    geometry.timer.mark("vertexes");
 
     // Vertexes aren't LXPoints (and thus, not LXModels) so they're not children
 
     loadLasers(geometry);
+    geometry.timer.mark("lasers");
 
     childList.addAll(geometry.lasersById.values());
 
@@ -438,6 +594,7 @@ public class TEWholeModel extends LXModel {
     childList.add(new LXModel(gapList));
 
     geometry.children = childList.toArray(new LXModel[0]);
+    geometry.timer.mark("children");
 
     return geometry;
   }
@@ -446,38 +603,36 @@ public class TEWholeModel extends LXModel {
     return panelsBySection.get(section);
   }
 
+  // The sets returned below are built once at load and can't be modified.
+  // For per-frame work, pointSets has the same groupings as read-only index sets.
+
   public Set<LXPoint> getPointsBySection(TEPanelSection section) {
-    return getPanelsBySection(section)
-            .stream()
-            .map(LXModel::getPoints)
-            .flatMap(List::stream)
-            .collect(Collectors.toSet());
+    return pointsBySection.get(section);
   }
 
+  // Builds a new set; any combination of sections can be asked for
   public Set<TEPanelModel> getPanelsBySections(Collection<TEPanelSection> sections) {
-    return panelsBySection.entrySet().stream()
-            .filter(entry -> sections.contains(entry.getKey()))
-            .map(Map.Entry::getValue)
-            .flatMap(Set::stream)
-            .collect(Collectors.toSet());
+    Set<TEPanelModel> panels = new HashSet<>();
+    for (TEPanelSection section : sections) {
+      panels.addAll(panelsBySection.getOrDefault(section, Collections.emptySet()));
+    }
+    return panels;
   }
 
   public Set<TEPanelModel> getLeftPanels() {
-    return getPanelsBySections(List.of(TEPanelSection.STARBOARD_AFT,
-            TEPanelSection.STARBOARD_AFT_SINGLE, TEPanelSection.AFT));
+    return leftPanels;
   }
 
   public Set<TEPanelModel> getRightPanels() {
-    return getPanelsBySections(List.of(TEPanelSection.STARBOARD_FORE,
-            TEPanelSection.STARBOARD_FORE_SINGLE, TEPanelSection.FORE));
+    return rightPanels;
   }
 
   public Set<TEPanelModel> getAllPanels() {
-    return new HashSet<>(panelsById.values());
+    return allPanels;
   }
 
   public Set<TEEdgeModel> getAllEdges() {
-    return new HashSet<>(edgesById.values());
+    return allEdges;
   }
 
 }
@@ -0,0 +1,450 @@
+package titanicsend.output;
+
+import heronarts.lx.LX;
+import heronarts.lx.model.LXPoint;
+import heronarts.lx.output.LXOutput;
+import titanicsend.model.TEModel;
+import titanicsend.model.TEWholeModel;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.*;
+
+/**
+ * Stands in for the car's ArtNet controllers so output changes can be tested
+ * without the hardware. Each controller found in the model's edges.txt and
+ * panels.txt gets its own localhost port; TEArtNetOutput is pointed at those
+ * ports, and every ArtDMX/ArtSync packet (or E1.31 data/sync packet, for
+ * sACN controllers) is decoded here.
+ *
+ * Strands are rebuilt independently from the ip#universe:offset config
+ * strings. Each time a controller latches a frame with a sync packet, its
+ * pixels are checked against the engine's recent colors arrays, and we track
+ * latency, packet loss (from sequence numbers) and frames per second.
+ *
+ * Runs in-process with TEApp's --loopback flag, or standalone via main(),
+ * which drives the outputs with random frames and prints a report.
+ */
+public class ArtNetSimulator {
+  public static final int BASE_PORT = 16454;
+  private static final int REPORT_PERIOD_MSEC = 5000;
+  private static final int REFERENCE_FRAMES = 8;
+
+  private static final int OP_DMX = 0x5000;
+  private static final int OP_SYNC = 0x5200;
+  private static final int E131_VECTOR_DATA = 0x00000004;
+  private static final int E131_VECTOR_EXTENDED = 0x00000008;
+
+  private static class StrandEntry {
+    final TEModel subModel;
+    final int strandOffset;
+    final boolean fwd;
+
+    StrandEntry(TEModel subModel, int strandOffset, boolean fwd) {
+      this.subModel = subModel;
+      this.strandOffset = strandOffset;
+      this.fwd = fwd;
+    }
+  }
+
+  // One simulated controller
+  private static class Controller {
+    final String ip;
+    int port;
+    final TreeMap<Integer, List<StrandEntry>> strands = new TreeMap<>();
+    final Map<Integer, int[]> expected = new TreeMap<>();   // Wire universe -> point indexes
+    final Map<Integer, ColorCorrection> corrections = new HashMap<>();
+    final Map<Integer, byte[]> received = new HashMap<>();  // Wire universe -> latest DMX data
+    final Map<Integer, Integer> lastSequence = new HashMap<>();
+    DatagramChannel channel;
+
+    long packets, lostPackets, frames, matchedFrames, mismatchedFrames, unknownUniverses;
+    long latencyNanosTotal, latencyNanosMax;
+
+    Controller(String ip) {
+      this.ip = ip;
+    }
+
+    void resetCounters() {
+      this.packets = this.lostPackets = this.frames = 0;
+      this.matchedFrames = this.mismatchedFrames = this.unknownUniverses = 0;
+      this.latencyNanosTotal = this.latencyNanosMax = 0;
+    }
+  }
+
+  // A copy of what the engine sent, for checking latched frames against
+  private static class ReferenceFrame {
+    int[] colors;
+    byte[] gamma;
+    long nanos;
+  }
+
+  private final TEWholeModel model;
+  private final Map<String, Controller> controllers = new TreeMap<>();
+  private final ReferenceFrame[] referenceFrames = new ReferenceFrame[REFERENCE_FRAMES];
+  private int nextReferenceFrame = 0;
+  private final ByteBuffer packetBuffer = ByteBuffer.allocateDirect(1024);
+  private Selector selector;
+  private Thread receiverThread;
+  private volatile boolean running;
+  private long lastReportMillis;
+
+  public ArtNetSimulator(TEWholeModel model) {
+    this.model = model;
+    for (int i = 0; i < REFERENCE_FRAMES; i++) {
+      this.referenceFrames[i] = new ReferenceFrame();
+    }
+    loadControllers();
+    layoutStrands();
+  }
+
+  private Scanner loadFile(String filename) {
+    try {
+      return new Scanner(new File(this.model.subdir + "/" + filename));
+    } catch (FileNotFoundException e) {
+      throw new Error(filename + " not found below " + System.getProperty("user.dir"));
+    }
+  }
+
+  private void addEntry(TEModel subModel, String config, boolean fwd) {
+    String[] tokens = config.split("#");
+    String ip = tokens[0];
+    tokens = tokens[1].split(":");
+    int universeNum = Integer.parseInt(tokens[0]);
+    int strandOffset = Integer.parseInt(tokens[1]);
+    Controller controller = this.controllers.get(ip);
+    if (controller == null) {
+      controller = new Controller(ip);
+      this.controllers.put(ip, controller);
+    }
+    controller.strands.computeIfAbsent(universeNum, k -> new ArrayList<>())
+            .add(new StrandEntry(subModel, strandOffset, fwd));
+  }
+
+  private void loadControllers() {
+    Scanner s = loadFile("edges.txt");
+    while (s.hasNextLine()) {
+      String[] tokens = s.nextLine().split("\t");
+      if (tokens.length != 3 || tokens[2].equals("uncontrolled")) continue;
+      addEntry(this.model.edgesById.get(tokens[0]), tokens[2], !tokens[1].equals("reversed"));
+    }
+    s.close();
+
+    s = loadFile("panels.txt");
+    while (s.hasNextLine()) {
+      String[] tokens = s.nextLine().split("\t");
+      if (tokens.length != 6 || !tokens[5].contains(".")) continue;
+      addEntry(this.model.panelsById.get(tokens[0]), tokens[5], true);
+    }
+    s.close();
+
+    // Ports are handed out in IP order, so they're stable from run to run
+    int port = BASE_PORT;
+    for (Controller controller : this.controllers.values()) {
+      controller.port = port++;
+    }
+  }
+
+  // Lays out each strand the way the car's controllers expect it, 170 pixels per universe
+  private void layoutStrands() {
+    int gapIndex = this.model.gapPoint.index;
+    for (Controller controller : this.controllers.values()) {
+      for (Map.Entry<Integer, List<StrandEntry>> strand : controller.strands.entrySet()) {
+        int length = 0;
+        for (StrandEntry entry : strand.getValue()) {
+          length = Math.max(length, entry.strandOffset + entry.subModel.points.length);
+        }
+        int[] indices = new int[length];
+        Arrays.fill(indices, gapIndex);
+        for (StrandEntry entry : strand.getValue()) {
+          LXPoint[] points = entry.subModel.points;
+          for (int i = 0; i < points.length; i++) {
+            LXPoint point = entry.fwd ? points[i] : points[points.length - 1 - i];
+            indices[entry.strandOffset + i] = point.index;
+          }
+        }
+        int universeNum = strand.getKey();
+        ColorCorrection correction = TEArtNetOutput.correctionFor(controller.ip, universeNum);
+        for (int start = 0; start < length; start += TEArtNetOutput.MAX_PIXELS_PER_UNIVERSE) {
+          int end = Math.min(length, start + TEArtNetOutput.MAX_PIXELS_PER_UNIVERSE);
+          if (correction != null) controller.corrections.put(universeNum, correction);
+          controller.expected.put(universeNum++, Arrays.copyOfRange(indices, start, end));
+        }
+      }
+    }
+  }
+
+  // Controller IP -> localhost port, for TEArtNetOutput.loopbackPorts
+  public Map<String, Integer> getLoopbackPorts() {
+    Map<String, Integer> ports = new HashMap<>();
+    for (Controller controller : this.controllers.values()) {
+      ports.put(controller.ip, controller.port);
+    }
+    return ports;
+  }
+
+  /**
+   * Records each frame the engine sends. Add this to LX before the controller
+   * outputs so every frame is recorded before it can come back over the wire.
+   */
+  public LXOutput makeReferenceOutput(LX lx) {
+    return new LXOutput(lx, "ArtNet simulator reference") {
+      @Override
+      protected void onSend(int[] colors, byte[][] glut, double brightness) {
+        recordReferenceFrame(colors, glut[(int) Math.round(255. * brightness)]);
+      }
+    };
+  }
+
+  private synchronized void recordReferenceFrame(int[] colors, byte[] gamma) {
+    ReferenceFrame frame = this.referenceFrames[this.nextReferenceFrame];
+    if (frame.colors == null || frame.colors.length != colors.length) {
+      frame.colors = new int[colors.length];
+    }
+    System.arraycopy(colors, 0, frame.colors, 0, colors.length);
+    frame.gamma = gamma;
+    frame.nanos = System.nanoTime();
+    this.nextReferenceFrame = (this.nextReferenceFrame + 1) % REFERENCE_FRAMES;
+  }
+
+  public void start() throws IOException {
+    this.selector = Selector.open();
+    InetAddress loopback = InetAddress.getLoopbackAddress();
+    for (Controller controller : this.controllers.values()) {
+      controller.channel = DatagramChannel.open();
+      controller.channel.bind(new InetSocketAddress(loopback, controller.port));
+      controller.channel.configureBlocking(false);
+      controller.channel.register(this.selector, SelectionKey.OP_READ, controller);
+      LX.log("ArtNet simulator: " + controller.ip + " on port " + controller.port + ", " +
+              controller.expected.size() + " universes");
+    }
+    this.running = true;
+    this.lastReportMillis = System.currentTimeMillis();
+    this.receiverThread = new Thread(this::receive, "ArtNet simulator");
+    this.receiverThread.setDaemon(true);
+    this.receiverThread.start();
+  }
+
+  public void stop() {
+    this.running = false;
+    if (this.selector != null) this.selector.wakeup();
+    try {
+      if (this.receiverThread != null) this.receiverThread.join(1000);
+      for (Controller controller : this.controllers.values()) {
+        if (controller.channel != null) controller.channel.close();
+      }
+      if (this.selector != null) this.selector.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      LX.error(e, "Error stopping ArtNet simulator");
+    }
+  }
+
+  private void receive() {
+    while (this.running) {
+      try {
+        this.selector.select(100);
+        Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          Controller controller = (Controller) key.attachment();
+          this.packetBuffer.clear();
+          while (controller.channel.receive(this.packetBuffer) != null) {
+            this.packetBuffer.flip();
+            handlePacket(controller, this.packetBuffer);
+            this.packetBuffer.clear();
+          }
+        }
+      } catch (IOException e) {
+        if (this.running) LX.error(e, "ArtNet simulator receive failed");
+      }
+
+      long now = System.currentTimeMillis();
+      if (now - this.lastReportMillis >= REPORT_PERIOD_MSEC) {
+        LX.log(report(now - this.lastReportMillis));
+        this.lastReportMillis = now;
+      }
+    }
+  }
+
+  private static boolean isArtNet(ByteBuffer packet) {
+    if (packet.remaining() < 12) return false;
+    return packet.get(0) == 'A' && packet.get(1) == 'r' && packet.get(2) == 't' && packet.get(3) == '-' &&
+            packet.get(4) == 'N' && packet.get(5) == 'e' && packet.get(6) == 't' && packet.get(7) == 0;
+  }
+
+  private static boolean isE131(ByteBuffer packet) {
+    if (packet.remaining() < 38) return false;
+    return packet.get(4) == 'A' && packet.get(5) == 'S' && packet.get(6) == 'C' && packet.get(7) == '-' &&
+            packet.get(8) == 'E' && packet.get(9) == '1' && packet.get(10) == '.' && packet.get(11) == '1' &&
+            packet.get(12) == '7';
+  }
+
+  private void handlePacket(Controller controller, ByteBuffer packet) {
+    if (isArtNet(packet)) {
+      int opCode = (packet.get(8) & 0xff) | ((packet.get(9) & 0xff) << 8);
+      if (opCode == OP_DMX && packet.remaining() >= 18) {
+        // ArtDMX sequence numbers skip 0, which means "disabled"
+        int sequence = packet.get(12) & 0xff;
+        int universe = (packet.get(14) & 0xff) | ((packet.get(15) & 0xff) << 8);
+        int length = ((packet.get(16) & 0xff) << 8) | (packet.get(17) & 0xff);
+        handleDmx(controller, packet, universe, sequence == 0 ? -1 : sequence, 255, 18, length);
+      } else if (opCode == OP_SYNC) {
+        latchFrame(controller);
+      }
+    } else if (isE131(packet)) {
+      int vector = packet.getInt(18);
+      if (vector == E131_VECTOR_DATA && packet.remaining() >= 126) {
+        int sequence = packet.get(111) & 0xff;
+        int universe = packet.getShort(113) & 0xffff;
+        int length = (packet.getShort(123) & 0xffff) - 1;
+        handleDmx(controller, packet, universe, sequence, 256, 126, length);
+      } else if (vector == E131_VECTOR_EXTENDED) {
+        latchFrame(controller);
+      }
+    }
+  }
+
+  // A sequence of -1 means the sender isn't numbering its packets
+  private void handleDmx(Controller controller, ByteBuffer packet, int universe,
+                         int sequence, int sequenceModulus, int dataOffset, int length) {
+    controller.packets++;
+    if (!controller.expected.containsKey(universe)) {
+      controller.unknownUniverses++;
+      return;
+    }
+
+    Integer last = controller.lastSequence.put(universe, sequence);
+    if (last != null && last >= 0 && sequence >= 0) {
+      int missed = (sequence - last - 1 + sequenceModulus) % sequenceModulus;
+      controller.lostPackets += missed;
+    }
+
+    byte[] data = controller.received.get(universe);
+    if (data == null || data.length != length) {
+      data = new byte[length];
+      controller.received.put(universe, data);
+    }
+    packet.get(dataOffset, data, 0, Math.min(length, packet.remaining() - dataOffset));
+  }
+
+  // Sync: everything received so far makes up one frame. Find the engine frame it came from.
+  private void latchFrame(Controller controller) {
+    long now = System.nanoTime();
+    controller.frames++;
+    synchronized (this) {
+      for (int i = 1; i <= REFERENCE_FRAMES; i++) {
+        ReferenceFrame frame = this.referenceFrames[(this.nextReferenceFrame - i + REFERENCE_FRAMES) % REFERENCE_FRAMES];
+        if (frame.colors != null && matches(controller, frame)) {
+          long latency = now - frame.nanos;
+          controller.matchedFrames++;
+          controller.latencyNanosTotal += latency;
+          controller.latencyNanosMax = Math.max(controller.latencyNanosMax, latency);
+          return;
+        }
+      }
+    }
+    controller.mismatchedFrames++;
+  }
+
+  private static boolean matches(Controller controller, ReferenceFrame frame) {
+    for (Map.Entry<Integer, int[]> universe : controller.expected.entrySet()) {
+      byte[] data = controller.received.get(universe.getKey());
+      int[] indices = universe.getValue();
+      if (data == null || data.length < 3 * indices.length) return false;
+      ColorCorrection correction = controller.corrections.get(universe.getKey());
+      if (correction != null) {
+        if (!matchesCorrected(data, indices, frame, correction)) return false;
+        continue;
+      }
+      for (int i = 0; i < indices.length; i++) {
+        int color = frame.colors[indices[i]];
+        if (data[3 * i] != frame.gamma[(color >> 16) & 0xff] ||
+                data[3 * i + 1] != frame.gamma[(color >> 8) & 0xff] ||
+                data[3 * i + 2] != frame.gamma[color & 0xff]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  // Corrected levels are checked against the profile's exact curve, not its
+  // tables. Rounding, or dithering, may put them off by one.
+  private static boolean matchesCorrected(byte[] data, int[] indices, ReferenceFrame frame, ColorCorrection correction) {
+    for (int i = 0; i < indices.length; i++) {
+      int color = frame.colors[indices[i]];
+      for (int c = 0; c < 3; c++) {
+        int in = frame.gamma[(color >> (16 - 8 * c)) & 0xff] & 0xff;
+        double expected = correction.level(c, in);
+        if (Math.abs((data[3 * i + c] & 0xff) - expected) > 1) return false;
+      }
+    }
+    return true;
+  }
+
+  private String report(long periodMillis) {
+    StringBuilder sb = new StringBuilder("ArtNet simulator, last " + periodMillis + "ms:");
+    double seconds = periodMillis / 1000.;
+    for (Controller c : this.controllers.values()) {
+      double avgLatencyMs = c.matchedFrames > 0 ? c.latencyNanosTotal / (c.matchedFrames * 1e6) : 0;
+      sb.append(String.format("%n  %s: %.1f fps, %.0f pkts/s, %d lost, %d/%d frames matched, " +
+                      "latency avg %.2fms max %.2fms",
+              c.ip, c.frames / seconds, c.packets / seconds, c.lostPackets,
+              c.matchedFrames, c.frames, avgLatencyMs, c.latencyNanosMax / 1e6));
+      if (c.unknownUniverses > 0) {
+        sb.append(", ").append(c.unknownUniverses).append(" packets for unknown universes");
+      }
+      c.resetCounters();
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Standalone throughput test: builds the model, points the TE outputs at the
+   * simulator, and pushes random frames through them.
+   *
+   * Usage: ArtNetSimulator [vehicle|testahedron] [seconds] [fps]
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    String subdir = args.length > 0 ? args[0] : "vehicle";
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    int fps = args.length > 2 ? Integer.parseInt(args[2]) : 70;
+
+    TEWholeModel model = new TEWholeModel(subdir);
+    LX lx = new LX(model);
+    ArtNetSimulator simulator = new ArtNetSimulator(model);
+    simulator.start();
+    lx.addOutput(simulator.makeReferenceOutput(lx));
+    TEArtNetOutput.loopbackPorts = simulator.getLoopbackPorts();
+    TEArtNetOutput.activateAll(lx, model.gapPoint.index);
+
+    Random random = new Random(0);
+    int[] colors = new int[model.points.length];
+    long frameNanos = 1_000_000_000L / fps;
+    long end = System.nanoTime() + seconds * 1_000_000_000L;
+    long next = System.nanoTime();
+    while (System.nanoTime() < end) {
+      for (int i = 0; i < colors.length; i++) {
+        // Leave most pixels alone from frame to frame, like most patterns do
+        if (random.nextInt(8) == 0) colors[i] = 0xff000000 | random.nextInt(0x1000000);
+      }
+      lx.engine.output.send(colors);
+      next += frameNanos;
+      long sleep = next - System.nanoTime();
+      if (sleep > 0) Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+    }
+
+    simulator.stop();
+    lx.dispose();
+  }
+}
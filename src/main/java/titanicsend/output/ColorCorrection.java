@@ -0,0 +1,148 @@
+package titanicsend.output;
+
+import java.util.Arrays;
+
+/**
+ * A color correction profile for a kind of LED: its gamma curve, white
+ * balance (how far to turn each channel down so full white looks white), and
+ * a max current scale that caps every channel's duty cycle. Profiles are
+ * declared in the model's general.txt and applied per controller or per strand:
+ *
+ *   correction: panels gamma=2.2 white=1,0.92,0.85 current=0.8 dither
+ *   apply correction: panels 10.10.1.1 10.10.1.2#6
+ *
+ * Nothing is computed per pixel. At activation each profile is compiled into
+ * a 256-entry table per channel, in 8.8 fixed point; each frame those are
+ * folded through the engine's brightness row into plain byte tables, so
+ * correcting a pixel costs the same three table reads as uncorrected output.
+ *
+ * With dither on, the fractional part of each level is spread over a cycle of
+ * frames, so dim pixels fade smoothly instead of stepping between the few
+ * levels at the bottom of a steep gamma curve.
+ */
+public class ColorCorrection {
+  public static final int RED = 0;
+  public static final int GREEN = 1;
+  public static final int BLUE = 2;
+
+  // Ordered thresholds for temporal dither, one per frame of an 8-frame cycle
+  private static final int[] DITHER = { 0, 128, 64, 192, 32, 160, 96, 224 };
+
+  public final String name;
+  public final double gamma;
+  public final double[] white;
+  public final double maxCurrent;
+  public final boolean dither;
+
+  // Corrected output level for each input level, per channel, in 8.8 fixed point
+  private int[][] levels = null;
+
+  public ColorCorrection(String name, double gamma, double[] white, double maxCurrent, boolean dither) {
+    if (gamma <= 0) throw new Error("Correction " + name + ": gamma must be positive");
+    if (white.length != 3) throw new Error("Correction " + name + ": white needs red, green and blue");
+    for (double w : white) {
+      if (w < 0 || w > 1) throw new Error("Correction " + name + ": white levels must be 0-1");
+    }
+    if (maxCurrent < 0 || maxCurrent > 1) throw new Error("Correction " + name + ": current must be 0-1");
+    this.name = name;
+    this.gamma = gamma;
+    this.white = white;
+    this.maxCurrent = maxCurrent;
+    this.dither = dither;
+  }
+
+  // Parses "gamma=2.2 white=1,0.92,0.85 current=0.8 dither"; anything left out is uncorrected
+  public static ColorCorrection parse(String name, String spec) {
+    double gamma = 1;
+    double[] white = { 1, 1, 1 };
+    double maxCurrent = 1;
+    boolean dither = false;
+    for (String token : spec.trim().split("\\s+")) {
+      if (token.isEmpty()) continue;
+      String[] kv = token.split("=");
+      try {
+        switch (kv[0]) {
+          case "gamma":
+            gamma = Double.parseDouble(kv[1]);
+            break;
+          case "white":
+            String[] rgb = kv[1].split(",");
+            if (rgb.length != 3) throw new Error("Correction " + name + ": white needs three levels");
+            for (int c = 0; c < 3; c++) white[c] = Double.parseDouble(rgb[c]);
+            break;
+          case "current":
+            maxCurrent = Double.parseDouble(kv[1]);
+            break;
+          case "dither":
+            dither = true;
+            break;
+          default:
+            throw new Error("Correction " + name + ": unknown setting " + token);
+        }
+      } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+        throw new Error("Correction " + name + ": bad setting " + token);
+      }
+    }
+    return new ColorCorrection(name, gamma, white, maxCurrent, dither);
+  }
+
+  // The exact corrected level for an input level, 0-255 but fractional
+  public double level(int channel, int in) {
+    return 255. * this.maxCurrent * this.white[channel] * Math.pow(in / 255., this.gamma);
+  }
+
+  // Whether two profiles correct the same way, e.g. the same line of general.txt parsed twice
+  public boolean sameSettings(ColorCorrection other) {
+    return other != null && this.name.equals(other.name) && this.gamma == other.gamma &&
+            Arrays.equals(this.white, other.white) &&
+            this.maxCurrent == other.maxCurrent && this.dither == other.dither;
+  }
+
+  // Builds the per-channel tables. Called once, when the outputs are activated.
+  public void compile() {
+    if (this.levels != null) return;
+    int[][] levels = new int[3][256];
+    for (int c = 0; c < 3; c++) {
+      for (int in = 0; in < 256; in++) {
+        levels[c][in] = (int) Math.round(level(c, in) * 256);
+      }
+    }
+    this.levels = levels;
+  }
+
+  /**
+   * One output's working copy of a profile, folded through whichever
+   * brightness row it's sending at. Only touched by that output's sender.
+   */
+  public static class Tables {
+    public final ColorCorrection correction;
+    public final byte[][] bytes = new byte[3][256];
+    public final int[][] fixed = new int[3][256];
+    private byte[] composedFor = null;
+
+    public Tables(ColorCorrection correction) {
+      correction.compile();
+      this.correction = correction;
+    }
+
+    // Refolds the tables when the brightness row changes, 768 lookups
+    public void compose(byte[] gamma) {
+      if (gamma == this.composedFor) return;
+      int[][] levels = this.correction.levels;
+      for (int c = 0; c < 3; c++) {
+        for (int in = 0; in < 256; in++) {
+          int level = levels[c][gamma[in] & 0xff];
+          this.fixed[c][in] = level;
+          this.bytes[c][in] = (byte) ((level + 128) >> 8);
+        }
+      }
+      this.composedFor = gamma;
+    }
+
+    // Dither threshold for a pixel on a frame. Pixels are offset from each other
+    // so a whole strand doesn't pulse in step.
+    public static int ditherThreshold(int frameNumber, int pixel) {
+      return DITHER[(frameNumber + pixel) & 7];
+    }
+  }
+}
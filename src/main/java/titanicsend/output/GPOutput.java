@@ -10,47 +10,75 @@ import heronarts.lx.pattern.LXPattern;
 import titanicsend.app.GigglePixelBroadcaster;
 import titanicsend.pattern.TEPattern;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Hands GigglePixelBroadcaster the colors to broadcast: the active TE
+ * pattern's GigglePixel points if it has any, otherwise the swatch. Colors
+ * are only sampled when the broadcaster is due to send, into a preallocated
+ * array, and the pattern's points are looked up once each time the pattern
+ * changes, so most frames cost nothing here.
+ */
 public class GPOutput extends LXOutput {
   private GigglePixelBroadcaster broadcaster;
 
+  private final int[] sampled = new int[GigglePixelBroadcaster.MAX_COLORS];
+
+  // Point indexes from the last active pattern's getGigglePixelPoints()
+  private LXPattern cachedPattern = null;
+  private int[] pointIndices = new int[0];
+
   public GPOutput(LX lx, GigglePixelBroadcaster broadcaster) {
     super(lx);
     this.broadcaster = broadcaster;
   }
 
+  // The nth LXChannel in the mixer, skipping groups
+  private LXChannel findChannel(int channelIndex) {
+    List<LXAbstractChannel> channels = this.lx.engine.mixer.channels;
+    for (int i = 0; i < channels.size(); i++) {
+      LXAbstractChannel ac = channels.get(i);
+      if (ac instanceof LXChannel && channelIndex-- == 0) {
+        return (LXChannel) ac;
+      }
+    }
+    return null;
+  }
+
+  private void updatePoints(LXPattern pattern) {
+    if (pattern == this.cachedPattern) return;
+    this.cachedPattern = pattern;
+    if (!(pattern instanceof TEPattern)) {
+      this.pointIndices = new int[0];
+      return;
+    }
+    List<LXPoint> points = ((TEPattern) pattern).getGigglePixelPoints();
+    int n = Math.min(points.size(), this.sampled.length);
+    this.pointIndices = new int[n];
+    for (int i = 0; i < n; i++) {
+      this.pointIndices[i] = points.get(i).index;
+    }
+  }
+
   @Override
   protected void onSend(int[] colors, byte[][] glut, double brightness) {
+    if (this.broadcaster == null || !this.broadcaster.wantsColors()) return;
     int channelIndex = 0; // TODO: Expose in the UI
 
-    List<LXAbstractChannel> abstractChannels = this.lx.engine.mixer.channels;
-    List<LXChannel> channels = new ArrayList<>();
-    for (LXAbstractChannel ac : abstractChannels) {
-      if (ac instanceof LXChannel) {
-        channels.add((LXChannel) ac);
-      }
-    }
+    LXChannel channel = findChannel(channelIndex);
+    updatePoints(channel != null ? channel.getActivePattern() : null);
 
-    List<Integer> gpColors = new ArrayList<>();
-    for (LXDynamicColor dc : lx.engine.palette.swatch.colors) {
-      gpColors.add(dc.getColor());
-    }
-    this.broadcaster.setColors(gpColors);
-
-    if (channelIndex >= channels.size()) return;
-    LXChannel channel = channels.get(channelIndex);
-    LXPattern pattern = channel.getActivePattern();
-    if (!(pattern instanceof TEPattern)) return;
-    TEPattern tePattern = (TEPattern) pattern;
-    List<LXPoint> points = tePattern.getGigglePixelPoints();
-    if (points.isEmpty()) return;
-
-    gpColors = new ArrayList<>();
-    for (LXPoint point : points) {
-      gpColors.add(colors[point.index]);
+    int n = 0;
+    if (this.pointIndices.length > 0) {
+      for (int index : this.pointIndices) {
+        this.sampled[n++] = colors[index];
+      }
+    } else {
+      List<LXDynamicColor> swatch = this.lx.engine.palette.swatch.colors;
+      for (int i = 0; i < swatch.size() && n < this.sampled.length; i++) {
+        this.sampled[n++] = swatch.get(i).getColor();
+      }
     }
-    this.broadcaster.setColors(gpColors);
+    this.broadcaster.setColors(this.sampled, n);
   }
 }
@@ -0,0 +1,252 @@
+package titanicsend.output;
+
+import heronarts.lx.LX;
+import heronarts.lx.LXLoopTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for every TE controller output: packets and bytes per controller
+ * and per universe, a histogram of how long each send call took, socket
+ * errors, and frames dropped or universes skipped before they got that far.
+ *
+ * The counters are LongAdders, so the sender threads bump them without
+ * contending with each other or with whoever is reading. Readers use a
+ * Sampler, which turns the running totals into rates since its last sample.
+ */
+public class OutputTelemetry {
+  // Bucket b counts sends that took under 2^b microseconds; the last one catches the rest
+  public static final int LATENCY_BUCKETS = 16;
+
+  // Universe index to pass for packets that don't belong to a universe, like sync
+  public static final int NO_UNIVERSE = -1;
+
+  public static class Controller {
+    public final String label;
+    public final int[] universeNums;
+    final LongAdder packets = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder droppedFrames = new LongAdder();
+    final LongAdder skippedPackets = new LongAdder();
+    final LongAdder[] universePackets;
+    final LongAdder[] universeBytes;
+    final LongAdder[] latency = newAdders(LATENCY_BUCKETS);
+
+    Controller(String label, int[] universeNums) {
+      this.label = label;
+      this.universeNums = universeNums;
+      this.universePackets = newAdders(universeNums.length);
+      this.universeBytes = newAdders(universeNums.length);
+    }
+
+    // universe is an index into universeNums, or NO_UNIVERSE
+    public void recordSend(int universe, int length, long nanos) {
+      this.packets.increment();
+      this.bytes.add(length);
+      if (universe != NO_UNIVERSE) {
+        this.universePackets[universe].increment();
+        this.universeBytes[universe].add(length);
+      }
+      this.latency[latencyBucket(nanos)].increment();
+    }
+
+    public void recordError() {
+      this.errors.increment();
+    }
+
+    public void recordDroppedFrame() {
+      this.droppedFrames.increment();
+    }
+
+    public void recordSkipped() {
+      this.skippedPackets.increment();
+    }
+  }
+
+  private static final List<Controller> controllers = new CopyOnWriteArrayList<>();
+
+  public static Controller register(String label, int[] universeNums) {
+    Controller controller = new Controller(label, universeNums);
+    controllers.add(controller);
+    return controller;
+  }
+
+  public static void unregister(Controller controller) {
+    controllers.remove(controller);
+  }
+
+  public static List<Controller> getControllers() {
+    return Collections.unmodifiableList(controllers);
+  }
+
+  private static LongAdder[] newAdders(int n) {
+    LongAdder[] adders = new LongAdder[n];
+    for (int i = 0; i < n; i++) adders[i] = new LongAdder();
+    return adders;
+  }
+
+  static int latencyBucket(long nanos) {
+    long micros = nanos / 1000;
+    int bucket = 64 - Long.numberOfLeadingZeros(micros);
+    return Math.min(bucket, LATENCY_BUCKETS - 1);
+  }
+
+  // Upper bound of a latency bucket, in microseconds
+  static long bucketMicros(int bucket) {
+    return 1L << bucket;
+  }
+
+  // One controller's activity between two samples
+  public static class Sample {
+    public final Controller controller;
+    public final double packetsPerSecond;
+    public final double bytesPerSecond;
+    public final long errors;
+    public final long droppedFrames;
+    public final long skippedPackets;
+    public final double skippedPerSecond;
+    // Of the universe packets this controller would have sent without delta send, the fraction skipped
+    public final double savedFraction;
+    public final double[] universePacketsPerSecond;
+    public final double[] universeBytesPerSecond;
+    public final long[] latency;
+
+    Sample(Controller controller, double seconds, long[] delta) {
+      this.controller = controller;
+      int n = controller.universeNums.length;
+      this.packetsPerSecond = delta[0] / seconds;
+      this.bytesPerSecond = delta[1] / seconds;
+      this.errors = delta[2];
+      this.droppedFrames = delta[3];
+      this.skippedPackets = delta[4];
+      this.skippedPerSecond = delta[4] / seconds;
+      this.universePacketsPerSecond = new double[n];
+      this.universeBytesPerSecond = new double[n];
+      long universePackets = 0;
+      for (int u = 0; u < n; u++) {
+        this.universePacketsPerSecond[u] = delta[5 + u] / seconds;
+        this.universeBytesPerSecond[u] = delta[5 + n + u] / seconds;
+        universePackets += delta[5 + u];
+      }
+      this.savedFraction = this.skippedPackets > 0 ?
+              (double) this.skippedPackets / (this.skippedPackets + universePackets) : 0;
+      this.latency = new long[LATENCY_BUCKETS];
+      System.arraycopy(delta, 5 + 2 * n, this.latency, 0, LATENCY_BUCKETS);
+    }
+
+    // Send latency below which the given fraction of sends fell, as a bucket bound in microseconds
+    public long latencyPercentileMicros(double fraction) {
+      long total = 0;
+      for (long count : this.latency) total += count;
+      if (total == 0) return 0;
+      long threshold = (long) Math.ceil(total * fraction);
+      long seen = 0;
+      for (int b = 0; b < LATENCY_BUCKETS; b++) {
+        seen += this.latency[b];
+        if (seen >= threshold) return bucketMicros(b);
+      }
+      return bucketMicros(LATENCY_BUCKETS - 1);
+    }
+
+    public String summary() {
+      return String.format("%s: %.0f pkts/s, %.2f Mbit/s, send p50<%dus p99<%dus, %d errors, %d dropped frames, " +
+                      "%.0f skipped/s (%.0f%% saved)",
+              this.controller.label, this.packetsPerSecond, this.bytesPerSecond * 8 / 1e6,
+              latencyPercentileMicros(.5), latencyPercentileMicros(.99), this.errors, this.droppedFrames,
+              this.skippedPerSecond, this.savedFraction * 100);
+    }
+
+    // The busiest universe, which is usually the one worth looking at
+    public String busiestUniverse() {
+      int busiest = -1;
+      for (int u = 0; u < this.universeBytesPerSecond.length; u++) {
+        if (busiest < 0 || this.universeBytesPerSecond[u] > this.universeBytesPerSecond[busiest]) busiest = u;
+      }
+      if (busiest < 0) return "";
+      return String.format("#%d %.0f pkts/s", this.controller.universeNums[busiest],
+              this.universePacketsPerSecond[busiest]);
+    }
+  }
+
+  /**
+   * Turns the running totals into per-controller rates. Each reader (the UI,
+   * the headless log) keeps its own Sampler so they don't reset each other.
+   */
+  public static class Sampler {
+    private final Map<Controller, long[]> lastTotals = new HashMap<>();
+    private long lastNanos = System.nanoTime();
+
+    private static long[] totals(Controller c) {
+      int n = c.universeNums.length;
+      long[] totals = new long[5 + 2 * n + LATENCY_BUCKETS];
+      totals[0] = c.packets.sum();
+      totals[1] = c.bytes.sum();
+      totals[2] = c.errors.sum();
+      totals[3] = c.droppedFrames.sum();
+      totals[4] = c.skippedPackets.sum();
+      for (int u = 0; u < n; u++) {
+        totals[5 + u] = c.universePackets[u].sum();
+        totals[5 + n + u] = c.universeBytes[u].sum();
+      }
+      for (int b = 0; b < LATENCY_BUCKETS; b++) {
+        totals[5 + 2 * n + b] = c.latency[b].sum();
+      }
+      return totals;
+    }
+
+    public List<Sample> sample() {
+      long now = System.nanoTime();
+      double seconds = Math.max(1e-9, (now - this.lastNanos) / 1e9);
+      this.lastNanos = now;
+
+      List<Sample> samples = new ArrayList<>();
+      for (Controller controller : controllers) {
+        long[] totals = totals(controller);
+        long[] last = this.lastTotals.put(controller, totals);
+        long[] delta = totals.clone();
+        if (last != null) {
+          for (int i = 0; i < delta.length; i++) delta[i] -= last[i];
+        }
+        samples.add(new Sample(controller, seconds, delta));
+      }
+      this.lastTotals.keySet().retainAll(controllers);
+      samples.sort((a, b) -> a.controller.label.compareTo(b.controller.label));
+      return samples;
+    }
+  }
+
+  // Logs every controller's rates periodically, for headless mode where there's no UI to watch
+  public static class LogTask implements LXLoopTask {
+    private final Sampler sampler = new Sampler();
+    private final double periodMsec;
+    private double elapsedMsec = 0;
+
+    public LogTask(double periodMsec) {
+      this.periodMsec = periodMsec;
+    }
+
+    @Override
+    public void loop(double deltaMs) {
+      this.elapsedMsec += deltaMs;
+      if (this.elapsedMsec < this.periodMsec) return;
+      this.elapsedMsec = 0;
+
+      List<Sample> samples = this.sampler.sample();
+      if (samples.isEmpty()) return;
+      StringBuilder sb = new StringBuilder("Output telemetry:");
+      for (Sample sample : samples) {
+        sb.append("\n  ").append(sample.summary());
+        String busiest = sample.busiestUniverse();
+        if (!busiest.isEmpty()) sb.append(", busiest ").append(busiest);
+      }
+      LX.log(sb.toString());
+    }
+  }
+}
@@ -6,10 +6,14 @@ import heronarts.lx.output.ArtNetDatagram;
 import titanicsend.model.TEModel;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.*;
 
 public class TEArtNetOutput {
+  // A 512-channel DMX universe holds 170 RGB pixels
+  public static final int MAX_PIXELS_PER_UNIVERSE = ArtNetDatagram.MAX_DATA_LENGTH / 3;
+
   private static class SubModelEntry {
     TEModel subModel;
     int universeNum;
@@ -23,11 +27,44 @@ public class TEArtNetOutput {
     }
   }
 
+  // Pack and send each controller's frames on its own thread, off the engine thread
+  public static boolean threadedOutput = true;
+
+  // When set, controllers send to these localhost ports instead of their real
+  // addresses, so ArtNetSimulator can stand in for the hardware
+  public static Map<String, Integer> loopbackPorts = null;
+
+  // When set, every packet sent is also recorded here, for WirePlayer
+  public static WireRecorder recorder = null;
+
+  // Color correction profiles by name, from general.txt
+  static Map<String, ColorCorrection> corrections = new HashMap<>();
+
   String ipAddress;
+  TEControllerOutput.Protocol protocol = TEControllerOutput.Protocol.ARTNET;
+  ColorCorrection correction = null;  // For every strand without its own
+  private final Map<Integer, ColorCorrection> strandCorrections = new HashMap<>();
   static Map<String, TEArtNetOutput> ipMap = new HashMap<>();
   private final List<SubModelEntry> subModelEntries;
   private boolean activated;
   private HashMap<Integer,Integer> deviceLengths;
+  private List<TEControllerOutput.Universe> universes = Collections.emptyList();
+  private TEControllerOutput output = null;  // Null until activated, or if nothing is wired
+
+  /**
+   * Every controller's registrations and correction profiles. While a changed
+   * model is reloaded in the background, the live ones are set aside here so
+   * the new model can register into an empty set.
+   */
+  public static class Registrations {
+    private final Map<String, TEArtNetOutput> ipMap;
+    private final Map<String, ColorCorrection> corrections;
+
+    private Registrations(Map<String, TEArtNetOutput> ipMap, Map<String, ColorCorrection> corrections) {
+      this.ipMap = ipMap;
+      this.corrections = corrections;
+    }
+  }
 
   private TEArtNetOutput(String ipAddress) {
     this.ipAddress = ipAddress;
@@ -52,6 +89,38 @@ public class TEArtNetOutput {
     output.subModelEntries.add(new SubModelEntry(subModel, deviceNum, strandOffset, fwd));
   }
 
+  // Chooses between ArtNet unicast (the default) and sACN multicast for a controller
+  public static void setProtocol(String ipAddress, TEControllerOutput.Protocol protocol) {
+    TEArtNetOutput output = getOrMake(ipAddress);
+    assert !output.activated;
+    output.protocol = protocol;
+  }
+
+  public static void defineCorrection(ColorCorrection correction) {
+    corrections.put(correction.name, correction);
+  }
+
+  // The correction a strand gets, or null
+  static ColorCorrection correctionFor(String ipAddress, int universeNum) {
+    TEArtNetOutput output = ipMap.get(ipAddress);
+    if (output == null) return null;
+    return output.strandCorrections.getOrDefault(universeNum, output.correction);
+  }
+
+  // Applies a correction profile to a whole controller ("ip") or one strand ("ip#universe")
+  public static void applyCorrection(String name, String target) {
+    ColorCorrection correction = corrections.get(name);
+    if (correction == null) throw new Error("Unknown correction " + name + " for " + target);
+    String[] tokens = target.split("#");
+    TEArtNetOutput output = getOrMake(tokens[0]);
+    assert !output.activated;
+    if (tokens.length == 1) {
+      output.correction = correction;
+    } else {
+      output.strandCorrections.put(Integer.parseInt(tokens[1]), correction);
+    }
+  }
+
   // Sort by device number, then by strand offset
   private static class SortSubModelEntries implements Comparator<SubModelEntry> {
     public int compare(SubModelEntry a, SubModelEntry b) {
@@ -63,49 +132,24 @@ public class TEArtNetOutput {
     }
   }
 
-  private static void registerOutput(LX lx, InetAddress addr, List<Integer> indexBuffer, int universe) {
-    if (indexBuffer.size() == 0) return;
-    int[] ib = indexBuffer.stream().mapToInt(i -> i).toArray();
-    //StreamingACNDatagram outputDevice = new StreamingACNDatagram(lx, ib, universe);
-    ArtNetDatagram outputDevice = new ArtNetDatagram(lx, ib, universe);
-    outputDevice.setAddress(addr);
-    lx.addOutput(outputDevice);
-  }
-
   private String pixString(int numPix) {
     if (numPix == 0) return "";
     else return " {" + numPix + "pix}";
   }
 
-  private void activate(LX lx, int gapPointIndex) {
-    assert !this.activated;
-    this.deviceLengths = new HashMap<>();
-    this.subModelEntries.sort(new SortSubModelEntries());
-    int currentUniverseNum = 0;
-    int currentStrandOffset = -1;
-
-    InetAddress addr;
-    try {
-      addr = InetAddress.getByName(this.ipAddress);
-    } catch (UnknownHostException e) {
-      throw new Error(e);
+  // Lays out one universe's strand in wire order. Gaps between submodels are
+  // filled with the gap point, and reversed submodels are flipped.
+  private int[] compileStrand(List<SubModelEntry> entries, int gapPointIndex, StringBuilder logString) {
+    int length = 0;
+    for (SubModelEntry subModelEntry : entries) {
+      length = Math.max(length, subModelEntry.strandOffset + subModelEntry.subModel.points.length);
     }
+    int[] indices = new int[length];
+    Arrays.fill(indices, gapPointIndex);
 
-    StringBuilder logString = new StringBuilder("ArtNet " + this.ipAddress + ": ");
-    ArrayList<Integer> indexBuffer = new ArrayList<>();
-    for (SubModelEntry subModelEntry : this.subModelEntries) {
-      int numPoints = subModelEntry.subModel.points.length;
-      if (subModelEntry.universeNum > currentUniverseNum) {
-        registerOutput(lx, addr, indexBuffer, currentUniverseNum);
-        currentUniverseNum = subModelEntry.universeNum;
-        currentStrandOffset = 0;
-        String deviceSummary = "#" + currentUniverseNum + " ";
-        logString.append(pixString(indexBuffer.size()));
-        logString.append(deviceSummary);
-        indexBuffer = new ArrayList<>();
-      }
-      assert subModelEntry.universeNum == currentUniverseNum;
-
+    int currentStrandOffset = 0;
+    for (SubModelEntry subModelEntry : entries) {
+      LXPoint[] points = subModelEntry.subModel.points;
       int gap = subModelEntry.strandOffset - currentStrandOffset;
       if (gap < 0) {
         throw new Error(subModelEntry.subModel.repr() + " offset must be >= " + currentStrandOffset);
@@ -113,35 +157,172 @@ public class TEArtNetOutput {
         String gapSummary = "[Gap=" + gap + "] ";
         logString.append(gapSummary);
         currentStrandOffset += gap;
-        for (int i = 0; i < gap; i++) indexBuffer.add(gapPointIndex);
       }
       String rStr = subModelEntry.fwd ? "" : "(r)";
-      String smSummary = "[" + currentStrandOffset + ":" + rStr + subModelEntry.subModel.repr() + "=" + numPoints + "] ";
+      String smSummary = "[" + currentStrandOffset + ":" + rStr + subModelEntry.subModel.repr() + "=" + points.length + "] ";
       logString.append(smSummary);
-      currentStrandOffset += numPoints;
-      this.deviceLengths.put(currentUniverseNum, currentStrandOffset);
-      for (int i = 0; i < subModelEntry.subModel.points.length; i++) {
+      for (int i = 0; i < points.length; i++) {
         LXPoint point;
-        if (subModelEntry.fwd) point = subModelEntry.subModel.points[i];
-        else point = subModelEntry.subModel.points[subModelEntry.subModel.points.length - i - 1];
-        indexBuffer.add(point.index);
+        if (subModelEntry.fwd) point = points[i];
+        else point = points[points.length - i - 1];
+        indices[currentStrandOffset + i] = point.index;
       }
+      currentStrandOffset += points.length;
     }
+    return indices;
+  }
 
-    logString.append(pixString(indexBuffer.size()));
+  // Where packets go: the loopback simulator, the controller, or nowhere fixed for sACN,
+  // which sends each universe to its own multicast group
+  private InetSocketAddress destination() {
+    try {
+      if (loopbackPorts != null && loopbackPorts.containsKey(this.ipAddress)) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), loopbackPorts.get(this.ipAddress));
+      } else if (this.protocol == TEControllerOutput.Protocol.ARTNET) {
+        return new InetSocketAddress(InetAddress.getByName(this.ipAddress), ArtNetDatagram.ARTNET_PORT);
+      }
+    } catch (UnknownHostException e) {
+      throw new Error(e);
+    }
+    return null;
+  }
+
+  // Lays out every strand and splits them into universes, logging the wiring
+  private List<TEControllerOutput.Universe> compile(int gapPointIndex) {
+    this.deviceLengths = new HashMap<>();
+    this.subModelEntries.sort(new SortSubModelEntries());
+
+    String label = this.protocol.label + " " + this.ipAddress;
+    StringBuilder logString = new StringBuilder(label + ": ");
+    List<TEControllerOutput.Universe> universes = new ArrayList<>();
+    int nextFreeUniverse = 0;
+    int i = 0;
+    while (i < this.subModelEntries.size()) {
+      int universeNum = this.subModelEntries.get(i).universeNum;
+      int j = i;
+      while (j < this.subModelEntries.size() && this.subModelEntries.get(j).universeNum == universeNum) j++;
+
+      if (this.protocol == TEControllerOutput.Protocol.SACN && universeNum < 1) {
+        throw new Error(label + " universe " + universeNum + " is invalid, sACN universes start at 1");
+      }
+      if (universeNum < nextFreeUniverse) {
+        throw new Error(label + " universe " + universeNum +
+                " overlaps the previous strand, which runs through universe " + (nextFreeUniverse - 1));
+      }
 
-    // We did this in the loop when we changed universes, but there might be one left at the end
-    registerOutput(lx, addr, indexBuffer, currentUniverseNum);
+      logString.append("#" + universeNum + " ");
+      int[] indices = compileStrand(this.subModelEntries.subList(i, j), gapPointIndex, logString);
+      logString.append(pixString(indices.length));
+      ColorCorrection correction = this.strandCorrections.getOrDefault(universeNum, this.correction);
+      if (correction != null) {
+        correction.compile();
+        logString.append("<" + correction.name + "> ");
+      }
+      this.deviceLengths.put(universeNum, indices.length);
+
+      // Split long strands across consecutive universes of at most 170 pixels each
+      int numUniverses = 0;
+      for (int start = 0; start < indices.length; start += MAX_PIXELS_PER_UNIVERSE) {
+        int end = Math.min(indices.length, start + MAX_PIXELS_PER_UNIVERSE);
+        universes.add(new TEControllerOutput.Universe(universeNum + numUniverses,
+                Arrays.copyOfRange(indices, start, end), correction));
+        numUniverses++;
+      }
+      if (numUniverses > 1) {
+        logString.append("(#" + universeNum + "-#" + (universeNum + numUniverses - 1) + ") ");
+      }
+      nextFreeUniverse = universeNum + Math.max(1, numUniverses);
+      i = j;
+    }
 
     LX.log(logString.toString());
+    return universes;
+  }
+
+  private void activate(LX lx, List<TEControllerOutput.Universe> universes) {
+    assert !this.activated;
+    this.universes = universes;
+    if (!this.universes.isEmpty()) {
+      this.output = new TEControllerOutput(lx, this.ipAddress, this.protocol, destination(),
+              this.universes, threadedOutput);
+      this.output.setRecorder(recorder);
+      lx.addOutput(this.output);
+    }
     this.activated = true;
   }
 
+  // Whether a reloaded controller would put exactly the same pixels on the wire
+  private boolean sendsSameAs(TEArtNetOutput that, List<TEControllerOutput.Universe> universes) {
+    if (this.protocol != that.protocol || that.universes.size() != universes.size()) return false;
+    for (int i = 0; i < universes.size(); i++) {
+      TEControllerOutput.Universe a = universes.get(i), b = that.universes.get(i);
+      if (a.universeNum != b.universeNum || !Arrays.equals(a.indices, b.indices)) return false;
+      if (a.correction == null ? b.correction != null : !a.correction.sameSettings(b.correction)) return false;
+    }
+    return true;
+  }
+
+  private static void deactivate(LX lx, TEArtNetOutput live) {
+    if (live.output == null) return;
+    lx.engine.output.removeChild(live.output);
+    live.output.dispose();
+    live.output = null;
+  }
+
   public static void activateAll(LX lx, int gapPointIndex) {
     List<String> ips = new ArrayList<>(ipMap.keySet());
     Collections.sort(ips);
     for (String ip : ips) {
-      ipMap.get(ip).activate(lx, gapPointIndex);
+      TEArtNetOutput output = ipMap.get(ip);
+      output.activate(lx, output.compile(gapPointIndex));
+    }
+  }
+
+  // Sets aside the live registrations and starts empty ones, for loading a new model.
+  // Call before building it, and hand the result to reactivateAll or abandonReload.
+  public static Registrations beginReload() {
+    Registrations live = new Registrations(ipMap, corrections);
+    ipMap = new HashMap<>();
+    corrections = new HashMap<>();
+    return live;
+  }
+
+  // The reloaded model is being thrown away, so go back to the live registrations
+  public static void abandonReload(Registrations live) {
+    ipMap = live.ipMap;
+    corrections = live.corrections;
+  }
+
+  /**
+   * Activates a reloaded model's registrations in place of the live ones.
+   * Must run on the engine thread. A controller that would send exactly what
+   * it sends now keeps its running output, along with its sender thread,
+   * socket and telemetry; the rest are replaced, and controllers the new
+   * model doesn't use are shut down.
+   */
+  public static void reactivateAll(LX lx, int gapPointIndex, Registrations live) {
+    List<String> ips = new ArrayList<>(ipMap.keySet());
+    Collections.sort(ips);
+    int kept = 0, replaced = 0;
+    for (String ip : ips) {
+      TEArtNetOutput next = ipMap.get(ip);
+      TEArtNetOutput previous = live.ipMap.get(ip);
+      List<TEControllerOutput.Universe> universes = next.compile(gapPointIndex);
+      if (previous != null && previous.activated && next.sendsSameAs(previous, universes)) {
+        next.universes = previous.universes;
+        next.output = previous.output;
+        next.activated = true;
+        previous.output = null;
+        kept++;
+      } else {
+        if (previous != null) deactivate(lx, previous);
+        next.activate(lx, universes);
+        replaced++;
+      }
+    }
+    for (TEArtNetOutput previous : live.ipMap.values()) {
+      deactivate(lx, previous);
     }
+    LX.log("Reloaded outputs: " + kept + " controllers unchanged, " + replaced + " rebuilt");
   }
 }
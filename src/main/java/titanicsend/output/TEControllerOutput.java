@@ -0,0 +1,533 @@
+package titanicsend.output;
+
+import heronarts.lx.LX;
+import heronarts.lx.output.ArtNetDatagram;
+import heronarts.lx.output.LXOutput;
+import heronarts.lx.output.StreamingACNDatagram;
+import heronarts.lx.parameter.BooleanParameter;
+import heronarts.lx.parameter.BoundedParameter;
+import heronarts.lx.parameter.LXParameter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends every universe for one controller IP. All of the controller's DMX
+ * packets live back-to-back in a single preallocated direct buffer, so a frame
+ * is packed in one pass over the colors array and each universe goes out on
+ * the same DatagramChannel without any per-frame allocation or copying.
+ *
+ * Packets are either ArtNet, unicast to the controller, or E1.31 (sACN),
+ * multicast to each universe's group so any number of receivers can mirror
+ * them for the cost of one send. Either way each frame ends with a sync
+ * packet (ArtSync, or an E1.31 universe sync on the controller's first
+ * universe) so the controller latches all of its universes together instead
+ * of tearing between them.
+ *
+ * When threaded, the engine thread only gathers this controller's pixels into
+ * a TripleBuffer; a dedicated sender thread packs and transmits the newest
+ * frame, so a slow NIC or unreachable controller never stalls rendering. If
+ * the sender falls behind, stale frames are dropped rather than queued.
+ *
+ * With delta send turned on (it's off by default), a universe whose pixels
+ * haven't changed since it was last sent is skipped, except for a keyframe
+ * every so often so controllers never time out waiting for data.
+ */
+public class TEControllerOutput extends LXOutput {
+  private static final int ARTSYNC_LENGTH = 14;
+  private static final int E131_SYNC_LENGTH = 49;
+  private static final int E131_SYNC_SEQUENCE_INDEX = 44;
+  private static final int E131_OFFSET_SYNC_ADDRESS = 109;
+  private static final String E131_SOURCE_NAME = "Titanic's End";
+
+  public enum Protocol {
+    ARTNET("ArtNet", ArtNetDatagram.ARTNET_HEADER_LENGTH, ArtNetDatagram.SEQUENCE_INDEX, ARTSYNC_LENGTH),
+    SACN("sACN", StreamingACNDatagram.OFFSET_DMX_DATA, StreamingACNDatagram.OFFSET_SEQUENCE_NUMBER, E131_SYNC_LENGTH);
+
+    public final String label;
+    final int headerLength;
+    final int sequenceIndex;
+    final int syncLength;
+
+    Protocol(String label, int headerLength, int sequenceIndex, int syncLength) {
+      this.label = label;
+      this.headerLength = headerLength;
+      this.sequenceIndex = sequenceIndex;
+      this.syncLength = syncLength;
+    }
+  }
+
+  public static class Universe {
+    public final int universeNum;
+    public final int[] indices;   // LXPoint index for each pixel, in wire order
+    int dataLength;               // DMX payload length (padded to be even for ArtNet)
+    int pixelOffset;              // Where this universe's pixels start in a gathered frame
+    int packetOffset;             // Where this universe's packet starts in the shared buffer
+    ByteBuffer packet;            // View of just this universe's packet
+    InetSocketAddress destination;
+    byte sequence = 0;            // ArtDMX sequence number, 1-255 (0 means disabled)
+    long lastSentMillis = 0;      // When this universe last went out, for keyframes
+    public final ColorCorrection correction;  // Null to send colors as they are
+    ColorCorrection.Tables tables;
+
+    public Universe(int universeNum, int[] indices) {
+      this(universeNum, indices, null);
+    }
+
+    public Universe(int universeNum, int[] indices, ColorCorrection correction) {
+      this.universeNum = universeNum;
+      this.indices = indices;
+      this.correction = correction;
+    }
+  }
+
+  public final String ipAddress;            // The controller's configured IP
+  public final Protocol protocol;
+  private final Universe[] universes;
+  private final ByteBuffer buffer;
+  private final ByteBuffer syncPacket;
+  private final InetSocketAddress syncDestination;
+  private final int syncUniverse;
+  private final byte[] cid;
+  private byte syncSequence = 0;
+
+  // This output's copy of each correction profile its universes use
+  private final ColorCorrection.Tables[] correctionTables;
+  private int frameNumber = 0;
+  private DatagramChannel channel;
+
+  // A gathered frame holds every pixel's color in wire order, followed by the
+  // brightness row of the gamma table it should be sent at
+  private final int numPixels;
+  private final WireMap wireMap;
+  private final int[] syncFrame;
+  private final TripleBuffer frames;
+  private final Thread senderThread;
+  private volatile boolean running;
+  private volatile byte[][] glut;
+
+  public final BooleanParameter deltaSend =
+          new BooleanParameter("Delta Send", false)
+                  .setDescription("Skip universes that haven't changed since they were last sent");
+
+  public final BoundedParameter keyframeMsec = (BoundedParameter)
+          new BoundedParameter("Keyframe", 1000, 100, 10000)
+                  .setUnits(LXParameter.Units.MILLISECONDS)
+                  .setDescription("Resend unchanged universes at least this often");
+
+  // Packets and bytes sent, send latency, socket errors, frames the sender
+  // thread never got to, and universes skipped by delta send
+  public final OutputTelemetry.Controller stats;
+
+  // Optional tap that records every packet sent
+  private volatile WireRecorder recorder;
+  private int recorderId;
+
+  // What each pixel looked like the last time its universe was sent
+  private final int[] lastSentFrame;
+  private byte[][] lastSentGlut;
+
+  // Back off from controllers that keep failing, the same way LXDatagram does
+  private int failureCount;
+  private long sendAfter;
+
+  // Everything goes to address, which may be a loopback stand-in for the
+  // controller. An sACN output with a null address multicasts each universe to
+  // its own group instead.
+  public TEControllerOutput(LX lx, String ipAddress, Protocol protocol, InetSocketAddress address,
+                            List<Universe> universes, boolean threaded) {
+    super(lx, "TE " + ipAddress);
+    this.ipAddress = ipAddress;
+    this.protocol = protocol;
+    this.universes = universes.toArray(new Universe[0]);
+    this.syncUniverse = this.universes[0].universeNum;
+    this.syncDestination = (address != null) ? address : multicastAddress(this.syncUniverse);
+    this.cid = uuidBytes(UUID.nameUUIDFromBytes((E131_SOURCE_NAME + " " + ipAddress).getBytes(StandardCharsets.UTF_8)));
+
+    List<ColorCorrection.Tables> correctionTables = new ArrayList<>();
+    int bufferSize = 0;
+    int numPixels = 0;
+    for (Universe universe : this.universes) {
+      if (universe.correction != null) {
+        for (ColorCorrection.Tables tables : correctionTables) {
+          if (tables.correction == universe.correction) universe.tables = tables;
+        }
+        if (universe.tables == null) {
+          universe.tables = new ColorCorrection.Tables(universe.correction);
+          correctionTables.add(universe.tables);
+        }
+      }
+      int numChannels = 3 * universe.indices.length;
+      universe.dataLength = (protocol == Protocol.ARTNET) ? numChannels + (numChannels % 2) : numChannels;
+      universe.destination = (address != null) ? address : multicastAddress(universe.universeNum);
+      universe.packetOffset = bufferSize;
+      bufferSize += protocol.headerLength + universe.dataLength;
+      universe.pixelOffset = numPixels;
+      numPixels += universe.indices.length;
+    }
+    this.numPixels = numPixels;
+    this.correctionTables = correctionTables.toArray(new ColorCorrection.Tables[0]);
+    this.lastSentFrame = new int[numPixels + 1];
+
+    int[] indices = new int[numPixels];
+    for (Universe universe : this.universes) {
+      System.arraycopy(universe.indices, 0, indices, universe.pixelOffset, universe.indices.length);
+    }
+    this.wireMap = WireMap.compile(indices);
+    int syncOffset = bufferSize;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize + protocol.syncLength);
+    for (Universe universe : this.universes) {
+      if (protocol == Protocol.ARTNET) {
+        writeArtDmxHeader(universe);
+      } else {
+        writeE131DataHeader(universe);
+      }
+      universe.packet = this.buffer.slice(universe.packetOffset, protocol.headerLength + universe.dataLength);
+    }
+    if (protocol == Protocol.ARTNET) {
+      writeArtSyncPacket(syncOffset);
+    } else {
+      writeE131SyncPacket(syncOffset);
+    }
+    this.syncPacket = this.buffer.slice(syncOffset, protocol.syncLength);
+
+    try {
+      this.channel = DatagramChannel.open();
+    } catch (IOException e) {
+      LXOutput.error(e, "Could not open DatagramChannel for " + this.ipAddress);
+      this.channel = null;
+    }
+
+    int[] universeNums = new int[this.universes.length];
+    for (int u = 0; u < universeNums.length; u++) {
+      universeNums[u] = this.universes[u].universeNum;
+    }
+    this.stats = OutputTelemetry.register(protocol.label + " " + ipAddress, universeNums);
+
+    if (threaded) {
+      this.syncFrame = null;
+      this.frames = new TripleBuffer(numPixels + 1);
+      this.running = true;
+      this.senderThread = new Thread(this::runSender, "TE " + protocol.label + " " + ipAddress);
+      this.senderThread.setDaemon(true);
+      this.senderThread.start();
+    } else {
+      this.syncFrame = new int[numPixels + 1];
+      this.frames = null;
+      this.senderThread = null;
+    }
+
+    addParameter("deltaSend", this.deltaSend);
+    addParameter("keyframeMsec", this.keyframeMsec);
+  }
+
+  public void setRecorder(WireRecorder recorder) {
+    if (recorder != null) this.recorderId = recorder.addController(this.ipAddress);
+    this.recorder = recorder;
+  }
+
+  private void runSender() {
+    while (this.running) {
+      int[] frame = this.frames.acquire();
+      if (frame == null) {
+        LockSupport.park(this);
+      } else {
+        sendFrame(frame);
+      }
+    }
+  }
+
+  // E1.31 multicast group for a universe: 239.255.<hi>.<lo>
+  public static InetSocketAddress multicastAddress(int universeNum) {
+    byte[] group = { (byte) 239, (byte) 255, (byte) ((universeNum >> 8) & 0xff), (byte) (universeNum & 0xff) };
+    try {
+      return new InetSocketAddress(InetAddress.getByAddress(group), StreamingACNDatagram.DEFAULT_PORT);
+    } catch (UnknownHostException e) {
+      throw new Error(e);
+    }
+  }
+
+  private static byte[] uuidBytes(UUID uuid) {
+    return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+  }
+
+  private void writeArtDmxHeader(Universe universe) {
+    int o = universe.packetOffset;
+    this.buffer.put(o, (byte) 'A');
+    this.buffer.put(o + 1, (byte) 'r');
+    this.buffer.put(o + 2, (byte) 't');
+    this.buffer.put(o + 3, (byte) '-');
+    this.buffer.put(o + 4, (byte) 'N');
+    this.buffer.put(o + 5, (byte) 'e');
+    this.buffer.put(o + 6, (byte) 't');
+    this.buffer.put(o + 7, (byte) 0);
+    this.buffer.put(o + 8, (byte) 0x00); // ArtDMX opcode
+    this.buffer.put(o + 9, (byte) 0x50); // ArtDMX opcode
+    this.buffer.put(o + 10, (byte) 0); // Protocol version
+    this.buffer.put(o + 11, (byte) 14); // Protocol version
+    this.buffer.put(o + 12, (byte) 0); // Sequence
+    this.buffer.put(o + 13, (byte) 0); // Physical
+    this.buffer.put(o + 14, (byte) (universe.universeNum & 0xff)); // Universe LSB
+    this.buffer.put(o + 15, (byte) ((universe.universeNum >>> 8) & 0xff)); // Universe MSB
+    this.buffer.put(o + 16, (byte) ((universe.dataLength >>> 8) & 0xff));
+    this.buffer.put(o + 17, (byte) (universe.dataLength & 0xff));
+  }
+
+  // Same layout as heronarts' ArtSyncDatagram
+  private void writeArtSyncPacket(int o) {
+    this.buffer.put(o, (byte) 'A');
+    this.buffer.put(o + 1, (byte) 'r');
+    this.buffer.put(o + 2, (byte) 't');
+    this.buffer.put(o + 3, (byte) '-');
+    this.buffer.put(o + 4, (byte) 'N');
+    this.buffer.put(o + 5, (byte) 'e');
+    this.buffer.put(o + 6, (byte) 't');
+    this.buffer.put(o + 7, (byte) 0);
+    this.buffer.put(o + 8, (byte) 0x00); // OpSync low byte
+    this.buffer.put(o + 9, (byte) 0x52); // OpSync hi byte
+    this.buffer.put(o + 10, (byte) 0); // Protocol version
+    this.buffer.put(o + 11, (byte) 14); // Protocol version
+    this.buffer.put(o + 12, (byte) 0); // Aux1
+    this.buffer.put(o + 13, (byte) 0); // Aux2
+  }
+
+  // E1.31 root layer, shared by data and sync packets
+  private void writeE131RootLayer(int o, int length, int vector) {
+    this.buffer.put(o, (byte) 0x00); // Preamble size
+    this.buffer.put(o + 1, (byte) 0x10);
+    this.buffer.put(o + 2, (byte) 0x00); // Post-amble size
+    this.buffer.put(o + 3, (byte) 0x00);
+    byte[] acnId = { 'A', 'S', 'C', '-', 'E', '1', '.', '1', '7', 0, 0, 0 };
+    this.buffer.put(o + 4, acnId);
+    this.buffer.putShort(o + 16, (short) (0x7000 | (length - 16))); // Flags and length
+    this.buffer.putInt(o + 18, vector);
+    this.buffer.put(o + 22, this.cid);
+  }
+
+  // Same layout as heronarts' StreamingACNDatagram, plus the sync address
+  private void writeE131DataHeader(Universe universe) {
+    int o = universe.packetOffset;
+    int length = Protocol.SACN.headerLength + universe.dataLength;
+    writeE131RootLayer(o, length, 0x00000004); // VECTOR_ROOT_E131_DATA
+
+    // Framing layer
+    this.buffer.putShort(o + 38, (short) (0x7000 | (length - 38)));
+    this.buffer.putInt(o + 40, 0x00000002); // VECTOR_E131_DATA_PACKET
+    byte[] sourceName = E131_SOURCE_NAME.getBytes(StandardCharsets.UTF_8);
+    this.buffer.put(o + 44, sourceName);
+    for (int i = 44 + sourceName.length; i < 108; i++) {
+      this.buffer.put(o + i, (byte) 0);
+    }
+    this.buffer.put(o + 108, (byte) 100); // Priority
+    this.buffer.putShort(o + E131_OFFSET_SYNC_ADDRESS, (short) this.syncUniverse);
+    this.buffer.put(o + StreamingACNDatagram.OFFSET_SEQUENCE_NUMBER, (byte) 0);
+    this.buffer.put(o + 112, (byte) 0); // Options
+    this.buffer.putShort(o + StreamingACNDatagram.OFFSET_UNIVERSE_NUMBER, (short) universe.universeNum);
+
+    // DMP layer
+    this.buffer.putShort(o + 115, (short) (0x7000 | (length - 115)));
+    this.buffer.put(o + 117, (byte) 0x02); // VECTOR_DMP_SET_PROPERTY
+    this.buffer.put(o + 118, (byte) 0xa1); // Address Type & Data Type
+    this.buffer.putShort(o + 119, (short) 0); // First Property Address
+    this.buffer.putShort(o + 121, (short) 1); // Address Increment
+    this.buffer.putShort(o + 123, (short) (1 + universe.dataLength)); // Property value count
+    this.buffer.put(o + 125, (byte) 0); // DMX start code
+  }
+
+  private void writeE131SyncPacket(int o) {
+    writeE131RootLayer(o, E131_SYNC_LENGTH, 0x00000008); // VECTOR_ROOT_E131_EXTENDED
+    this.buffer.putShort(o + 38, (short) (0x7000 | (E131_SYNC_LENGTH - 38)));
+    this.buffer.putInt(o + 40, 0x00000001); // VECTOR_E131_EXTENDED_SYNCHRONIZATION
+    this.buffer.put(o + E131_SYNC_SEQUENCE_INDEX, (byte) 0);
+    this.buffer.putShort(o + 45, (short) this.syncUniverse);
+    this.buffer.putShort(o + 47, (short) 0); // Reserved
+  }
+
+  private void updateSequenceNumber(Universe universe) {
+    // ArtNet reserves sequence 0 to mean "disabled"; E1.31 wraps through it
+    if (++universe.sequence == 0 && this.protocol == Protocol.ARTNET) {
+      ++universe.sequence;
+    }
+    this.buffer.put(universe.packetOffset + this.protocol.sequenceIndex, universe.sequence);
+  }
+
+  private void updateSyncSequenceNumber() {
+    if (this.protocol == Protocol.SACN) {
+      this.syncPacket.put(E131_SYNC_SEQUENCE_INDEX, ++this.syncSequence);
+    }
+  }
+
+  // Writes a universe's DMX payload from a gathered frame
+  private void pack(Universe universe, int[] frame, byte[] gamma) {
+    if (universe.tables != null) {
+      if (universe.correction.dither) {
+        packDithered(universe, frame);
+      } else {
+        packCorrected(universe, frame);
+      }
+      return;
+    }
+    int offset = universe.packetOffset + this.protocol.headerLength;
+    int end = universe.pixelOffset + universe.indices.length;
+    for (int p = universe.pixelOffset; p < end; p++) {
+      int color = frame[p];
+      this.buffer.put(offset++, gamma[(color >> 16) & 0xff]); // R
+      this.buffer.put(offset++, gamma[(color >> 8) & 0xff]); // G
+      this.buffer.put(offset++, gamma[color & 0xff]); // B
+    }
+  }
+
+  // Same, through the universe's correction tables, already folded through the brightness row
+  private void packCorrected(Universe universe, int[] frame) {
+    byte[] red = universe.tables.bytes[ColorCorrection.RED];
+    byte[] green = universe.tables.bytes[ColorCorrection.GREEN];
+    byte[] blue = universe.tables.bytes[ColorCorrection.BLUE];
+    int offset = universe.packetOffset + this.protocol.headerLength;
+    int end = universe.pixelOffset + universe.indices.length;
+    for (int p = universe.pixelOffset; p < end; p++) {
+      int color = frame[p];
+      this.buffer.put(offset++, red[(color >> 16) & 0xff]);
+      this.buffer.put(offset++, green[(color >> 8) & 0xff]);
+      this.buffer.put(offset++, blue[color & 0xff]);
+    }
+  }
+
+  private void packDithered(Universe universe, int[] frame) {
+    int[] red = universe.tables.fixed[ColorCorrection.RED];
+    int[] green = universe.tables.fixed[ColorCorrection.GREEN];
+    int[] blue = universe.tables.fixed[ColorCorrection.BLUE];
+    int offset = universe.packetOffset + this.protocol.headerLength;
+    int end = universe.pixelOffset + universe.indices.length;
+    for (int p = universe.pixelOffset; p < end; p++) {
+      int color = frame[p];
+      int threshold = ColorCorrection.Tables.ditherThreshold(this.frameNumber, p);
+      this.buffer.put(offset++, (byte) ((red[(color >> 16) & 0xff] + threshold) >> 8));
+      this.buffer.put(offset++, (byte) ((green[(color >> 8) & 0xff] + threshold) >> 8));
+      this.buffer.put(offset++, (byte) ((blue[color & 0xff] + threshold) >> 8));
+    }
+  }
+
+  private boolean needsSend(Universe universe, int[] frame, boolean levelsChanged, long now, long keyframeMsec) {
+    if (levelsChanged || now - universe.lastSentMillis >= keyframeMsec) return true;
+    // Dither changes the output every frame even when the colors hold still
+    if (universe.correction != null && universe.correction.dither) return true;
+    int from = universe.pixelOffset;
+    int to = from + universe.indices.length;
+    return !Arrays.equals(frame, from, to, this.lastSentFrame, from, to);
+  }
+
+  @Override
+  protected void onSend(int[] colors, byte[][] glut, double brightness) {
+    if (this.channel == null) return;
+
+    int[] frame = (this.frames != null) ? this.frames.getBack() : this.syncFrame;
+    this.wireMap.gather(colors, frame);
+    frame[this.numPixels] = (int) Math.round(255. * brightness);
+    this.glut = glut;
+
+    if (this.frames != null) {
+      if (this.frames.publish()) this.stats.recordDroppedFrame();
+      LockSupport.unpark(this.senderThread);
+    } else {
+      sendFrame(frame);
+    }
+  }
+
+  private void sendFrame(int[] frame) {
+    long now = System.currentTimeMillis();
+    if (this.sendAfter >= now) return;
+
+    byte[][] glut = this.glut;
+    byte[] gamma = glut[frame[this.numPixels]];
+    boolean delta = this.deltaSend.isOn();
+    long keyframeMsec = (long) this.keyframeMsec.getValue();
+    boolean levelsChanged = !delta || glut != this.lastSentGlut ||
+            frame[this.numPixels] != this.lastSentFrame[this.numPixels];
+    WireRecorder recorder = this.recorder;
+    for (ColorCorrection.Tables tables : this.correctionTables) {
+      tables.compose(gamma);
+    }
+    this.frameNumber++;
+
+    try {
+      int sent = 0;
+      for (int u = 0; u < this.universes.length; u++) {
+        Universe universe = this.universes[u];
+        if (!needsSend(universe, frame, levelsChanged, now, keyframeMsec)) {
+          this.stats.recordSkipped();
+          continue;
+        }
+        pack(universe, frame, gamma);
+        updateSequenceNumber(universe);
+        universe.packet.clear();
+        if (recorder != null) recorder.record(this.recorderId, universe.packet);
+        long sendStart = System.nanoTime();
+        int length = this.channel.send(universe.packet, universe.destination);
+        this.stats.recordSend(u, length, System.nanoTime() - sendStart);
+        universe.lastSentMillis = now;
+        System.arraycopy(frame, universe.pixelOffset, this.lastSentFrame, universe.pixelOffset, universe.indices.length);
+        sent++;
+      }
+      this.lastSentGlut = glut;
+      this.lastSentFrame[this.numPixels] = frame[this.numPixels];
+      if (sent > 0) {
+        updateSyncSequenceNumber();
+        this.syncPacket.clear();
+        if (recorder != null) recorder.record(this.recorderId, this.syncPacket);
+        long sendStart = System.nanoTime();
+        int length = this.channel.send(this.syncPacket, this.syncDestination);
+        this.stats.recordSend(OutputTelemetry.NO_UNIVERSE, length, System.nanoTime() - sendStart);
+      }
+      if (this.failureCount > 0) {
+        LXOutput.log("Recovered connectivity to " + this.ipAddress);
+      }
+      this.failureCount = 0;
+      this.sendAfter = 0;
+    } catch (IOException e) {
+      this.stats.recordError();
+      if (this.failureCount == 0) {
+        LXOutput.error("IOException sending to " + this.ipAddress + " (" + e.getLocalizedMessage() + ")");
+      }
+      ++this.failureCount;
+      if (this.failureCount >= 3) {
+        long waitFor = (long) (50 * Math.pow(2, Math.min(5, this.failureCount - 3)));
+        this.sendAfter = now + waitFor;
+      }
+    }
+  }
+
+  @Override
+  public void dispose() {
+    if (this.senderThread != null) {
+      this.running = false;
+      LockSupport.unpark(this.senderThread);
+      try {
+        this.senderThread.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (this.channel != null) {
+      try {
+        this.channel.close();
+      } catch (IOException e) {
+        LXOutput.error(e, "Error closing DatagramChannel for " + this.ipAddress);
+      }
+    }
+    OutputTelemetry.unregister(this.stats);
+    super.dispose();
+  }
+}
@@ -0,0 +1,44 @@
+package titanicsend.output;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free handoff of int[] frames from one producer thread to one consumer
+ * thread. The producer always has a buffer to write into and never waits; if
+ * it publishes again before the consumer picks up the previous frame, that
+ * stale frame is simply dropped.
+ */
+public class TripleBuffer {
+  // Set in `middle` when it holds a frame the consumer hasn't picked up yet
+  private static final int DIRTY = 4;
+
+  private final int[][] buffers;
+  private final AtomicInteger middle = new AtomicInteger(1);
+  private int back = 0;   // Only touched by the producer
+  private int front = 2;  // Only touched by the consumer
+
+  public TripleBuffer(int length) {
+    this.buffers = new int[3][length];
+  }
+
+  // Producer: the buffer to fill with the next frame
+  public int[] getBack() {
+    return this.buffers[this.back];
+  }
+
+  // Producer: hands off the back buffer. Returns true if this overwrote a frame
+  // the consumer never saw.
+  public boolean publish() {
+    int old = this.middle.getAndSet(this.back | DIRTY);
+    this.back = old & ~DIRTY;
+    return (old & DIRTY) != 0;
+  }
+
+  // Consumer: the newest published frame, or null if nothing new has arrived
+  public int[] acquire() {
+    if ((this.middle.get() & DIRTY) == 0) return null;
+    int old = this.middle.getAndSet(this.front);
+    this.front = old & ~DIRTY;
+    return this.buffers[this.front];
+  }
+}
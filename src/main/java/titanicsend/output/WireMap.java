@@ -0,0 +1,93 @@
+package titanicsend.output;
+
+import java.util.Arrays;
+
+/**
+ * A controller's point-to-wire mapping, compiled into runs. Submodel points
+ * have contiguous indexes, so a whole strand usually collapses into a handful
+ * of forward runs (plain array copies), reverse runs (reversed strands), and
+ * fills (gaps, which repeat the gap point). Gathering a frame then costs a few
+ * tight loops instead of a lookup per pixel.
+ */
+public class WireMap {
+  public static final int FILL = 0;
+  public static final int FORWARD = 1;
+  public static final int REVERSE = -1;
+
+  // One entry per run. A run copies `length` pixels into the frame starting at
+  // `dstStart`, reading colors from `srcStart` onward in `direction` (or
+  // repeating colors[srcStart] for a FILL).
+  public final int[] srcStart;
+  public final int[] dstStart;
+  public final int[] length;
+  public final int[] direction;
+  public final int numRuns;
+  public final int numPixels;
+
+  private WireMap(int[] srcStart, int[] dstStart, int[] length, int[] direction, int numRuns, int numPixels) {
+    this.srcStart = srcStart;
+    this.dstStart = dstStart;
+    this.length = length;
+    this.direction = direction;
+    this.numRuns = numRuns;
+    this.numPixels = numPixels;
+  }
+
+  // Compiles a per-pixel index array (LXPoint index for each pixel, in wire order)
+  public static WireMap compile(int[] indices) {
+    int n = indices.length;
+    int[] srcStart = new int[n];
+    int[] dstStart = new int[n];
+    int[] length = new int[n];
+    int[] direction = new int[n];
+    int numRuns = 0;
+
+    int i = 0;
+    while (i < n) {
+      int dir = FORWARD;
+      int end = i + 1;
+      if (end < n) {
+        int step = indices[end] - indices[i];
+        if (step == FORWARD || step == REVERSE || step == FILL) {
+          dir = step;
+          while (end < n && indices[end] - indices[end - 1] == step) end++;
+        }
+      }
+      srcStart[numRuns] = indices[i];
+      dstStart[numRuns] = i;
+      length[numRuns] = end - i;
+      direction[numRuns] = dir;
+      numRuns++;
+      i = end;
+    }
+
+    return new WireMap(
+            Arrays.copyOf(srcStart, numRuns),
+            Arrays.copyOf(dstStart, numRuns),
+            Arrays.copyOf(length, numRuns),
+            Arrays.copyOf(direction, numRuns),
+            numRuns, n);
+  }
+
+  // Copies the mapped pixels out of the engine's colors array, in wire order
+  public void gather(int[] colors, int[] frame) {
+    for (int r = 0; r < this.numRuns; r++) {
+      int src = this.srcStart[r];
+      int dst = this.dstStart[r];
+      int len = this.length[r];
+      switch (this.direction[r]) {
+        case FORWARD:
+          System.arraycopy(colors, src, frame, dst, len);
+          break;
+        case REVERSE:
+          for (int i = 0; i < len; i++) {
+            frame[dst + i] = colors[src - i];
+          }
+          break;
+        default:
+          Arrays.fill(frame, dst, dst + len, colors[src]);
+          break;
+      }
+    }
+  }
+}
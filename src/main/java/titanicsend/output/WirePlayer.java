@@ -0,0 +1,246 @@
+package titanicsend.output;
+
+import heronarts.lx.LX;
+import heronarts.lx.output.ArtNetDatagram;
+import heronarts.lx.output.StreamingACNDatagram;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a WireRecorder capture back out to the controllers at its original
+ * timing, with no LX engine or patterns running. Useful as a near-zero-CPU
+ * "safe show", for feeding the ArtNetSimulator, or (with --stats) for
+ * measuring a show's output bandwidth offline.
+ *
+ * Usage: WirePlayer recording.tewire [--loop] [--loopback] [--stats]
+ *   --loop      Start over at the end, forever
+ *   --loopback  Send to ArtNetSimulator's localhost ports instead of the controllers
+ *   --stats     Don't send anything, just report per-controller bandwidth
+ */
+public class WirePlayer {
+  // Plenty for any record: ArtDMX packets top out at 530 bytes
+  private static final int MAX_RECORD_LENGTH = 1024;
+  private static final int REGION_SIZE = 16 << 20;
+
+  private static class Controller {
+    String ip;
+    InetSocketAddress address;
+    long packets;
+    long bytes;
+  }
+
+  private final File path;
+  private final FileChannel file;
+  private final long fileLength;
+  private MappedByteBuffer region;
+  private long regionStart;
+  private final Map<Integer, Controller> controllers = new HashMap<>();
+
+  public WirePlayer(File path) throws IOException {
+    this.path = path;
+    this.file = FileChannel.open(path.toPath(), StandardOpenOption.READ);
+    this.fileLength = this.file.size();
+    rewind();
+  }
+
+  private void mapRegion(long start) throws IOException {
+    long size = Math.min(REGION_SIZE, this.fileLength - start);
+    this.region = this.file.map(FileChannel.MapMode.READ_ONLY, start, size);
+    this.regionStart = start;
+  }
+
+  private void rewind() throws IOException {
+    mapRegion(0);
+    byte[] magic = new byte[WireRecorder.MAGIC.length];
+    this.region.get(magic);
+    if (!Arrays.equals(magic, WireRecorder.MAGIC)) {
+      throw new IOException(this.path + " is not a TE wire recording");
+    }
+  }
+
+  // Slides the mapped window forward when the next record might not fit in it
+  private boolean hasMore() throws IOException {
+    long position = this.regionStart + this.region.position();
+    if (position >= this.fileLength) return false;
+    if (this.region.remaining() < MAX_RECORD_LENGTH && this.regionStart + this.region.limit() < this.fileLength) {
+      mapRegion(position);
+    }
+    return this.region.get(this.region.position()) != WireRecorder.RECORD_END;
+  }
+
+  private void readController(boolean loopback) {
+    int id = this.region.getShort();
+    byte[] ip = new byte[this.region.getShort()];
+    this.region.get(ip);
+    Controller controller = this.controllers.get(id);
+    if (controller != null) return;
+
+    controller = new Controller();
+    controller.ip = new String(ip, StandardCharsets.UTF_8);
+    if (loopback) {
+      // Leave the address for assignLoopbackPorts() once every controller is known
+      controller.address = null;
+    } else {
+      controller.address = new InetSocketAddress(controller.ip, ArtNetDatagram.ARTNET_PORT);
+    }
+    this.controllers.put(id, controller);
+  }
+
+  // Same port assignment as ArtNetSimulator: BASE_PORT upward, in IP order
+  private void assignLoopbackPorts() {
+    List<Controller> byIp = new ArrayList<>(this.controllers.values());
+    byIp.sort(Comparator.comparing(c -> c.ip));
+    int port = ArtNetSimulator.BASE_PORT;
+    for (Controller controller : byIp) {
+      controller.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port++);
+    }
+  }
+
+  // Reads every controller declaration up front, so loopback ports can be assigned
+  private void scanControllers(boolean loopback) throws IOException {
+    while (hasMore()) {
+      byte type = this.region.get();
+      if (type == WireRecorder.RECORD_CONTROLLER) {
+        readController(loopback);
+      } else {
+        this.region.position(this.region.position() + 8 + 2);
+        int length = this.region.getShort() & 0xffff;
+        this.region.position(this.region.position() + length);
+      }
+    }
+    if (loopback) assignLoopbackPorts();
+    rewind();
+  }
+
+  private static boolean isE131(ByteBuffer packet) {
+    return packet.limit() > 16 && packet.get(4) == 'A' && packet.get(5) == 'S' && packet.get(6) == 'C';
+  }
+
+  // sACN packets go to their universe's multicast group rather than the
+  // controller. Data and sync packets both carry the universe that picks it.
+  private static InetSocketAddress multicastDestination(ByteBuffer packet) {
+    boolean sync = packet.getInt(18) == 0x00000008;
+    int universe = packet.getShort(sync ? 45 : StreamingACNDatagram.OFFSET_UNIVERSE_NUMBER) & 0xffff;
+    return TEControllerOutput.multicastAddress(universe);
+  }
+
+  public void play(boolean loop, boolean loopback) throws IOException {
+    scanControllers(loopback);
+    DatagramChannel channel = DatagramChannel.open();
+    ByteBuffer packet = ByteBuffer.allocateDirect(MAX_RECORD_LENGTH);
+
+    do {
+      // Timestamps count from when the recorder was created, so start the clock at the first packet
+      long startNanos = System.nanoTime();
+      long firstNanos = -1;
+      while (hasMore()) {
+        byte type = this.region.get();
+        if (type == WireRecorder.RECORD_CONTROLLER) {
+          readController(loopback);
+          continue;
+        }
+        long nanos = this.region.getLong();
+        Controller controller = this.controllers.get((int) this.region.getShort());
+        int length = this.region.getShort() & 0xffff;
+
+        packet.clear();
+        packet.put(0, this.region, this.region.position(), length);
+        packet.limit(length);
+        this.region.position(this.region.position() + length);
+
+        if (firstNanos < 0) firstNanos = nanos;
+        long wait = startNanos + nanos - firstNanos - System.nanoTime();
+        if (wait > 0) LockSupport.parkNanos(wait);
+        if (!loopback && isE131(packet)) {
+          channel.send(packet, multicastDestination(packet));
+        } else {
+          channel.send(packet, controller.address);
+        }
+      }
+      rewind();
+    } while (loop);
+
+    channel.close();
+  }
+
+  public String stats() throws IOException {
+    scanControllers(false);
+    long firstNanos = -1;
+    long lastNanos = 0;
+    while (hasMore()) {
+      byte type = this.region.get();
+      if (type == WireRecorder.RECORD_CONTROLLER) {
+        readController(false);
+        continue;
+      }
+      long nanos = this.region.getLong();
+      Controller controller = this.controllers.get((int) this.region.getShort());
+      int length = this.region.getShort() & 0xffff;
+      this.region.position(this.region.position() + length);
+      if (firstNanos < 0) firstNanos = nanos;
+      lastNanos = nanos;
+      controller.packets++;
+      controller.bytes += length;
+    }
+
+    double seconds = Math.max(1e-9, (lastNanos - Math.max(0, firstNanos)) / 1e9);
+    StringBuilder sb = new StringBuilder(String.format("%s: %.1f seconds", this.path, seconds));
+    List<Controller> byIp = new ArrayList<>(this.controllers.values());
+    byIp.sort(Comparator.comparing(c -> c.ip));
+    for (Controller c : byIp) {
+      sb.append(String.format("%n  %s: %d packets, %.0f pkts/s, %.2f Mbit/s",
+              c.ip, c.packets, c.packets / seconds, c.bytes * 8 / seconds / 1e6));
+    }
+    return sb.toString();
+  }
+
+  public void close() throws IOException {
+    this.region = null;
+    this.file.close();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      LX.error("Usage: WirePlayer recording.tewire [--loop] [--loopback] [--stats]");
+      return;
+    }
+    boolean loop = false;
+    boolean loopback = false;
+    boolean stats = false;
+    for (int i = 1; i < args.length; i++) {
+      switch (args[i]) {
+        case "--loop":
+          loop = true;
+          break;
+        case "--loopback":
+          loopback = true;
+          break;
+        case "--stats":
+          stats = true;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown arg: " + args[i]);
+      }
+    }
+
+    WirePlayer player = new WirePlayer(new File(args[0]));
+    if (stats) {
+      LX.log(player.stats());
+    } else {
+      LX.log("Playing " + args[0] + (loopback ? " to loopback" : ""));
+      player.play(loop, loopback);
+    }
+    player.close();
+  }
+}
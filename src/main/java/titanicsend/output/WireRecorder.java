@@ -0,0 +1,109 @@
+package titanicsend.output;
+
+import heronarts.lx.LX;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Output tap that appends every packet the TE controller outputs send to a
+ * memory-mapped file, with a timestamp and the controller it went to. The
+ * packets are stored exactly as sent, ArtNet headers and all, so WirePlayer
+ * can stream a show back out with no engine or patterns running.
+ *
+ * File layout: the MAGIC bytes, then a sequence of records, each starting
+ * with a type byte.
+ *   RECORD_CONTROLLER: short id, short ipLength, ip (UTF-8)
+ *   RECORD_PACKET:     long nanos since start, short controller id, short length, packet
+ *   RECORD_END:        no more records (unwritten file space reads as zero)
+ */
+public class WireRecorder {
+  public static final byte[] MAGIC = "TEWIRE01".getBytes(StandardCharsets.US_ASCII);
+  public static final byte RECORD_END = 0;
+  public static final byte RECORD_CONTROLLER = 1;
+  public static final byte RECORD_PACKET = 2;
+  public static final int PACKET_HEADER_LENGTH = 1 + 8 + 2 + 2;
+
+  private static final int REGION_SIZE = 16 << 20;
+
+  private final File path;
+  private final FileChannel file;
+  private final long startNanos;
+  private MappedByteBuffer region;
+  private long regionStart;
+  private int nextControllerId = 0;
+  private boolean closed = false;
+
+  public WireRecorder(File path) throws IOException {
+    this.path = path;
+    this.file = FileChannel.open(path.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    mapRegion(0);
+    this.region.put(MAGIC);
+    this.startNanos = System.nanoTime();
+  }
+
+  private void mapRegion(long start) throws IOException {
+    this.region = this.file.map(FileChannel.MapMode.READ_WRITE, start, REGION_SIZE);
+    this.regionStart = start;
+  }
+
+  // Makes room for a record of the given length, moving on to a new region if needed
+  private boolean reserve(int length) {
+    if (this.closed) return false;
+    if (this.region.remaining() > length) return true;
+    try {
+      mapRegion(this.regionStart + this.region.position());
+      return true;
+    } catch (IOException e) {
+      LX.error(e, "Wire recording to " + this.path + " failed, stopping");
+      this.closed = true;
+      return false;
+    }
+  }
+
+  // Declares a controller by its configured IP. The returned id goes with each of its packets.
+  public synchronized int addController(String ipAddress) {
+    int id = this.nextControllerId++;
+    byte[] ip = ipAddress.getBytes(StandardCharsets.UTF_8);
+    if (reserve(1 + 2 + 2 + ip.length)) {
+      this.region.put(RECORD_CONTROLLER);
+      this.region.putShort((short) id);
+      this.region.putShort((short) ip.length);
+      this.region.put(ip);
+    }
+    return id;
+  }
+
+  // Appends the packet between 0 and packet's limit, without moving its position
+  public synchronized void record(int controllerId, ByteBuffer packet) {
+    int length = packet.limit();
+    if (!reserve(PACKET_HEADER_LENGTH + length)) return;
+    this.region.put(RECORD_PACKET);
+    this.region.putLong(System.nanoTime() - this.startNanos);
+    this.region.putShort((short) controllerId);
+    this.region.putShort((short) length);
+    this.region.put(this.region.position(), packet, 0, length);
+    this.region.position(this.region.position() + length);
+  }
+
+  public synchronized void close() {
+    if (this.closed) return;
+    this.closed = true;
+    long length = this.regionStart + this.region.position();
+    this.region.force();
+    this.region = null;
+    try {
+      this.file.truncate(length);
+      this.file.close();
+    } catch (IOException e) {
+      LX.error(e, "Error closing wire recording " + this.path);
+    }
+    LX.log("Wire recording " + this.path + " closed, " + length + " bytes");
+  }
+}
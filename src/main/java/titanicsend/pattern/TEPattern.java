@@ -7,11 +7,13 @@ import heronarts.lx.audio.GraphicMeter;
 import heronarts.lx.color.GradientUtils;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.model.LXView;
 import heronarts.lx.pattern.LXModelPattern;
 import heronarts.lx.pattern.LXPattern;
 import titanicsend.model.TELaserModel;
+import titanicsend.model.TEMirrors;
 import titanicsend.model.TEPanelModel;
 import titanicsend.model.TEWholeModel;
 import titanicsend.util.TEColor;
@@ -23,8 +25,8 @@ import static java.lang.Math.PI;
 import static java.lang.Math.sin;
 
 public abstract class TEPattern extends LXModelPattern<TEWholeModel> {
-  private final TEPanelModel sua;
-  private final TEPanelModel sdc;
+  private TEPanelModel sua;
+  private TEPanelModel sdc;
   protected GradientUtils.ColorStops paletteGradient = new GradientUtils.ColorStops();
   protected GradientUtils.ColorStops edgeGradient = new GradientUtils.ColorStops();
   protected GradientUtils.ColorStops panelGradient = new GradientUtils.ColorStops();
@@ -51,14 +53,30 @@ public abstract class TEPattern extends LXModelPattern<TEWholeModel> {
   protected TEPattern(LX lx) {
     super(lx);
     this.clearPixels();
-    this.sua = this.model.panelsById.get("SUA");
-    this.sdc = this.model.panelsById.get("SDC");
+    findPanels();
 
     this.edgeGradient.setNumStops(2);
     this.panelGradient.setNumStops(2);
     updateGradients();
   }
 
+  private void findPanels() {
+    this.sua = this.model.panelsById.get("SUA");
+    this.sdc = this.model.panelsById.get("SDC");
+  }
+
+  /**
+   * Called before the next frame after the geometry is swapped for one with as
+   * many points. this.model is already the new model. Subclasses that work
+   * anything out from the model when they're constructed (index arrays, edge
+   * or panel objects, transformed coordinates) should override this, call
+   * super, and work it out again.
+   */
+  @Override
+  protected void onModelChanged(LXModel model) {
+    super.onModelChanged(model);
+    findPanels();
+  }
 
   /*
    * Color methods
@@ -162,6 +180,26 @@ public abstract class TEPattern extends LXModelPattern<TEWholeModel> {
     }
   }
 
+  /*
+   *  Symmetry methods
+   */
+
+  /**
+   * For patterns whose output is symmetric about the car's center planes:
+   * compute colors only for these points, then call mirrorRest() to copy them
+   * to the rest of the car. See TEMirrors.
+   * @param symmetry Which way the pattern is symmetric; NONE gives every point
+   * @return Point indexes to render, ascending
+   */
+  protected int[] renderIndices(TEMirrors.Symmetry symmetry) {
+    return this.model.mirrors.renderIndices(symmetry);
+  }
+
+  // Fills in the points renderIndices() skipped from their mirror images
+  protected void mirrorRest(TEMirrors.Symmetry symmetry) {
+    this.model.mirrors.copy(symmetry, colors);
+  }
+
   /*
    *  Audio and tempo methods
    */
@@ -4,6 +4,7 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.DiscreteParameter;
@@ -17,9 +18,6 @@ import heronarts.p4lx.ui.UI2dContainer;
 import titanicsend.pattern.TEPattern;
 import titanicsend.util.SimpleScreen;
 
-import java.util.ArrayList;
-import java.util.*;
-
 @LXCategory("Combo FG")
 // A ResizeableScreen is a dynamically-resized rectangular screen that maps pixels without an area
 // defined by the caller.
@@ -100,9 +98,9 @@ public class ResizeableScreen extends TEPattern implements UIDeviceControls<Resi
     }
 
     private void sizeAndPaintScreen() {
-        ArrayList<LXPoint> pointsList = new ArrayList<>(Arrays.asList(this.model.points));
         this.screen = new SimpleScreen(
-            pointsList,
+            this.model.points,
+            this.model.spatialIndex,
             this.lowerYBoundParam.getValuei(),
             this.upperYBoundParam.getValuei(),
             this.lowerZBoundParam.getValuei(),
@@ -123,6 +121,13 @@ public class ResizeableScreen extends TEPattern implements UIDeviceControls<Resi
         this.sizeAndPaintScreen();
     }
 
+    @Override
+    protected void onModelChanged(LXModel model) {
+        super.onModelChanged(model);
+        // The bounds stay as set; the screen is picked out of the new points
+        this.repaint(null);
+    }
+
     public void run(double deltaMs) {
         this.paint(deltaMs);
     }
@@ -3,41 +3,38 @@ package titanicsend.pattern.ben;
 import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.DiscreteParameter;
 import heronarts.lx.parameter.LXParameter;
 import titanicsend.app.TEVirtualColor;
 import titanicsend.model.TEEdgeModel;
-import titanicsend.model.TEVertex;
+import titanicsend.model.TETopology;
 import titanicsend.pattern.TEAudioPattern;
 import titanicsend.util.TEColor;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.stream.Collectors;
 
 @LXCategory("Geometry Masks")
 public class BassLightning extends TEAudioPattern {
 
-	static <T> T randomItem(Collection<T> collection) {
-		return collection.stream().skip((int) (collection.size() * Math.random())).findFirst().get();
-	}
-
+	// Edges and vertexes are numbered as in model.topology
 	class Bolt {
-		TEEdgeModel edge;
+		int edge;
 		float life;
 		int edgePointsIndex;
-		TEVertex startVertex;
+		int startVertex;
 		double waitMs = 0;
-		HashSet<String> visitedEdges = new HashSet<>();
+		BitSet visitedEdges = new BitSet();
 
 		/**
 		 * Make a random bolt
 		 * @param edge
 		 */
-		public Bolt(TEEdgeModel edge) {
-			this(edge, 1, (int) (Math.random() * edge.points.length), Math.random() > .5 ? edge.v0 : edge.v1, 0);
+		public Bolt(int edge) {
+			this(edge, 1, (int) (Math.random() * topology.edges[edge].points.length),
+					Math.random() > .5 ? topology.edgeV0[edge] : topology.edgeV1[edge], 0);
 		}
 
 		/**
@@ -48,13 +45,13 @@ public class BassLightning extends TEAudioPattern {
 		 * @param startVertex
 		 * @param waitMs
 		 */
-		public Bolt(TEEdgeModel edge, float life, int edgePointsIndex, TEVertex startVertex, double waitMs) {
+		public Bolt(int edge, float life, int edgePointsIndex, int startVertex, double waitMs) {
 			this.edge = edge;
 			this.life = life;
 			this.edgePointsIndex = edgePointsIndex;
 			this.startVertex = startVertex;
 			this.waitMs = waitMs;
-			visitedEdges.add(edge.getId());
+			visitedEdges.set(edge);
 		}
 
 		private int pixelsPerJump() {
@@ -71,41 +68,47 @@ public class BassLightning extends TEAudioPattern {
 		 * @return
 		 */
 		Bolt fork() {
-			TEVertex origin = edge.v0 == startVertex ? edge.v1 : edge.v0;
-
-			origin.virtualColor = new TEVirtualColor(0, 100, 255, 255);
-
-			ArrayList<TEEdgeModel> candidateEdges;
-
-			if (allowLoopsParam.getValueb()) {
-				candidateEdges = new ArrayList(origin.edges);
-				candidateEdges.remove(edge);
-			} else {
-				candidateEdges = new ArrayList(
-						origin.edges.stream().filter(e -> !visitedEdges.contains(e.getId())).collect(Collectors.toList())
-				);
+			int origin = topology.edgeV0[edge] == startVertex ? topology.edgeV1[edge] : topology.edgeV0[edge];
+
+			topology.vertexes[origin].virtualColor = new TEVirtualColor(0, 100, 255, 255);
+
+			// Gather the edges we could take next into the shared scratch array. It's
+			// safe to reuse because it's done with before any other bolt forks.
+			int numCandidates = 0;
+			boolean allowLoops = allowLoopsParam.getValueb();
+			for (int i = topology.vertexEdgeStart[origin]; i < topology.vertexEdgeStart[origin + 1]; i++) {
+				int e = topology.vertexEdges[i];
+				if (allowLoops ? e != edge : !visitedEdges.get(e)) {
+					candidateEdges[numCandidates++] = e;
+				}
 			}
 
-			Collections.shuffle(candidateEdges);
+			// Fisher-Yates, like Collections.shuffle
+			for (int i = numCandidates - 1; i > 0; i--) {
+				int j = (int) (Math.random() * (i + 1));
+				int swap = candidateEdges[i];
+				candidateEdges[i] = candidateEdges[j];
+				candidateEdges[j] = swap;
+			}
 
 			//with possibly two edges picked, move this bolt to the first, and make a new bolt for the second
-			if (candidateEdges.size() >= 1) {
-				edge = candidateEdges.get(0);
-				visitedEdges.add(edge.getId());
+			if (numCandidates >= 1) {
+				edge = candidateEdges[0];
+				visitedEdges.set(edge);
 				startVertex = origin;
-				edgePointsIndex = edge.v0 == origin ? 0 : edge.points.length - 1;
+				edgePointsIndex = topology.edgeV0[edge] == origin ? 0 : topology.edges[edge].points.length - 1;
 			} else {
 				life = 0; //no new edges to traverse, die here
 			}
 
-			if (candidateEdges.size() >= 2) {
-				TEEdgeModel e2 = candidateEdges.get(1);
+			if (numCandidates >= 2) {
+				int e2 = candidateEdges[1];
 				Bolt b2 = new Bolt(e2,
 						(float) (life * .7), //randomly shorten life of forks
-						e2.v0 == origin ? 0 : e2.points.length - 1,
+						topology.edgeV0[e2] == origin ? 0 : topology.edges[e2].points.length - 1,
 						origin,
 						waitMs);
-				visitedEdges.add(e2.getId());
+				visitedEdges.set(e2);
 				//overwrite child bolt's visited edges so it shares (TODO refactor for cleaner interface)
 				b2.visitedEdges = visitedEdges;
 				if (b2.life > 0)
@@ -129,10 +132,11 @@ public class BassLightning extends TEAudioPattern {
 
 		private void jump(int pixelsToGo) {
 			while (pixelsToGo > 0 && life > 0) {
-				int dir = edge.v0 == startVertex ? 1 : -1;
+				TEEdgeModel.Point[] points = topology.edges[edge].points;
+				int dir = topology.edgeV0[edge] == startVertex ? 1 : -1;
 				edgePointsIndex += dir;
-				if (edgePointsIndex >= 0 && edgePointsIndex < edge.points.length) {
-					values[edge.points[edgePointsIndex].index] = 1;
+				if (edgePointsIndex >= 0 && edgePointsIndex < points.length) {
+					values[points[edgePointsIndex].index] = 1;
 					pixelsToGo--;
 				} else {
 					//fork at vertex
@@ -179,6 +183,8 @@ public class BassLightning extends TEAudioPattern {
 					.setDescription("Allow bolts to loop to an edge they've already visited");
 
 	float[] values;
+	TETopology topology;
+	int[] candidateEdges;
 	List<Bolt> bolts = new LinkedList<>();
 	List<Bolt> newBolts = new LinkedList<>();
 
@@ -196,6 +202,27 @@ public class BassLightning extends TEAudioPattern {
 		addParameter("loops", allowLoopsParam);
 
 		values = new float[this.colors.length];
+		useTopology();
+	}
+
+	private void useTopology() {
+		topology = this.model.topology;
+		int maxDegree = 0;
+		for (int v = 0; v < topology.vertexes.length; v++) {
+			maxDegree = Math.max(maxDegree, topology.vertexEdgeStart[v + 1] - topology.vertexEdgeStart[v]);
+		}
+		candidateEdges = new int[maxDegree];
+	}
+
+	@Override
+	protected void onModelChanged(LXModel model) {
+		super.onModelChanged(model);
+		// Bolts in flight are numbered by the old topology's edges
+		synchronized (bolts) {
+			bolts.clear();
+			newBolts.clear();
+		}
+		useTopology();
 	}
 
 	double boltWaitMs() {
@@ -213,12 +240,16 @@ public class BassLightning extends TEAudioPattern {
 	}
 
 	private void makeBolt() {
-		TEVertex vertex = model.vertexesById.get(Math.random() > .5 ? 30 : 122);
+		int vertex = topology.vertexNumber(Math.random() > .5 ? 30 : 122);
+		if (vertex < 0) return;
+		int start = topology.vertexEdgeStart[vertex];
+		int degree = topology.vertexEdgeStart[vertex + 1] - start;
+		if (degree == 0) return;
 		synchronized (bolts) {
 			for (int i = 0; i < energy.getValuei(); i++) {
-				Collection<TEEdgeModel> edges = this.model.edgesById.values();
-				TEEdgeModel edge = randomItem(vertex.edges);
-				bolts.add(new Bolt(edge, 1, edge.v0 == vertex ? 0 : edge.points.length - 1, vertex, 0));
+				int edge = topology.vertexEdges[start + (int) (degree * Math.random())];
+				bolts.add(new Bolt(edge, 1,
+						topology.edgeV0[edge] == vertex ? 0 : topology.edges[edge].points.length - 1, vertex, 0));
 			}
 		}
 	}
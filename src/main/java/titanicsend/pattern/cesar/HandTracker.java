@@ -4,11 +4,10 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
-import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.LXParameter;
 import heronarts.lx.parameter.StringParameter;
-import titanicsend.model.TEPanelModel;
+import titanicsend.model.TEPointArrays;
 import titanicsend.pattern.TEPattern;
 
 import static titanicsend.util.TEColor.TRANSPARENT;
@@ -31,8 +30,14 @@ public class HandTracker extends TEPattern {
             new StringParameter("Index Tip", "10,50")
                     .setDescription("Following a finger tip (X, Z) 0-100 like '(10,50)'");
 
+    // Padding on the candidate box, in normalized units, so float rounding can't drop a point
+    private static final float PAD = .01f;
+
+    private final int[] candidates;
+
     public HandTracker(LX lx) {
         super(lx);
+        this.candidates = new int[this.model.points.length];
         addParameter("targetZ", this.targetZ);
         addParameter("targetY", this.targetY);
         addParameter("indexTip", this.indexTip);
@@ -45,15 +50,26 @@ public class HandTracker extends TEPattern {
 
         int color = this.color.calcColor();
 
-        for (TEPanelModel panel : this.model.panelsById.values()) {
-            for (LXPoint point : panel.points) {
-                boolean isCloseToZ = Math.abs(Math.floor(point.zn * 100) - z) < 5;
-                boolean isCloseToY = Math.abs(Math.floor(point.yn * 100 * 2) - y) < 10;
-                if (isCloseToZ && isCloseToY) {
-                    colors[point.index] = color;
-                } else {
-                    colors[point.index] = TRANSPARENT;
-                }
+        TEPointArrays pa = this.model.pointArrays;
+        for (int i : pa.panelIndices) {
+            colors[i] = TRANSPARENT;
+        }
+
+        // Only points near the target can pass the checks below, so look them up by position
+        float znLow = (z - 5) / 100 - PAD, znHigh = (z + 5) / 100 + PAD;
+        float ynLow = (y - 10) / 200 - PAD, ynHigh = (y + 10) / 200 + PAD;
+        int count = this.model.spatialIndex.withinBox(
+                -Float.MAX_VALUE, this.model.yMin + ynLow * this.model.yRange, this.model.zMin + znLow * this.model.zRange,
+                Float.MAX_VALUE, this.model.yMin + ynHigh * this.model.yRange, this.model.zMin + znHigh * this.model.zRange,
+                this.candidates);
+
+        for (int c = 0; c < count; c++) {
+            int i = this.candidates[c];
+            if (pa.kind[i] != TEPointArrays.KIND_PANEL) continue;
+            boolean isCloseToZ = Math.abs(Math.floor(pa.zn[i] * 100) - z) < 5;
+            boolean isCloseToY = Math.abs(Math.floor(pa.yn[i] * 100 * 2) - y) < 10;
+            if (isCloseToZ && isCloseToY) {
+                colors[i] = color;
             }
         }
     }
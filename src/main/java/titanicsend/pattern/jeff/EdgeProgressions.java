@@ -8,6 +8,7 @@ import heronarts.lx.Tempo;
 import heronarts.lx.blend.MultiplyBlend;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.modulator.Click;
 import heronarts.lx.parameter.*;
 import titanicsend.model.TEEdgeModel;
@@ -174,6 +175,16 @@ public class EdgeProgressions extends TEAudioPattern {
         }
     }
 
+    @Override
+    protected void onModelChanged(LXModel model) {
+        super.onModelChanged(model);
+        // The sets hold the old model's edges
+        edgeSets.clear();
+        scenes.clear();
+        loadScenes();
+        setEdges();
+    }
+
     protected void loadScenes() {
         Gson gson = new Gson();
         JsonReader reader = new JsonReader(loadFile("resources/pattern/edgeSets.json"));
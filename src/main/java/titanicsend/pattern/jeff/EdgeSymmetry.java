@@ -5,6 +5,7 @@ import heronarts.lx.LXCategory;
 import heronarts.lx.blend.MultiplyBlend;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.parameter.*;
 import heronarts.lx.transform.LXVector;
 import titanicsend.model.TEEdgeModel;
@@ -58,6 +59,16 @@ public class EdgeSymmetry extends TEPattern {
         addParameter("width", fracFromZCenter);
         addParameter("height", height);
         addParameter("mask", maskMode);
+        groupEdges();
+    }
+
+    @Override
+    protected void onModelChanged(LXModel model) {
+        super.onModelChanged(model);
+        groupEdges();
+    }
+
+    private void groupEdges() {
         edgeGroupsByZ = new ArrayList<>(model.edgesBySymmetryGroup.keySet());
 
         /* Arrange from L-R (aft-fore, axis Z) for index-based sweep.
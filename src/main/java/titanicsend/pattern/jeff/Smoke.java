@@ -4,10 +4,13 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.modulator.DampedParameter;
+import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.CompoundParameter;
-import heronarts.lx.transform.LXVector;
 import heronarts.lx.utils.LXUtils;
+import titanicsend.model.TEMirrors;
+import titanicsend.model.TEPointArrays;
 import titanicsend.pattern.TEAudioPattern;
 
 /* Smoke
@@ -55,8 +58,15 @@ public class Smoke extends TEAudioPattern {
             new CompoundParameter("Audio", 1, 0, 2)
                     .setDescription("Audio responsiveness");
 
-    // Precompute transformed points in space to speed FPS
-    SmokePoint[] transformedPoints;
+    // The field only depends on y and z, so port and starboard look the same
+    public final BooleanParameter mirror =
+            new BooleanParameter("Mirror", false)
+                    .setDescription("Render starboard and copy it to the nearest port pixels. Faster, not exact.");
+
+    // Precompute transformed points in space to speed FPS, indexed by point index
+    float[] transformedY;
+    float[] transformedZ;
+    float[] topDesat;
 
     // Memoizing these boosts FPS significantly due to the many iterations
     protected float scaleValue, frequency;
@@ -70,7 +80,14 @@ public class Smoke extends TEAudioPattern {
         addParameter("scale", scale);
         startModulator(smoothScale);
         addParameter("audioResponsiveness", audioResponsiveness);
-        transformedPoints = transformPoints();
+        addParameter("mirror", mirror);
+        transformPoints();
+    }
+
+    @Override
+    protected void onModelChanged(LXModel model) {
+        super.onModelChanged(model);
+        transformPoints();
     }
 
     @Override
@@ -86,14 +103,28 @@ public class Smoke extends TEAudioPattern {
 
         scaleValue = smoothScale.getValuef();
 
-        for (SmokePoint point : transformedPoints) {
-            float yOut = point.y;
+        // Memoize parameter values rather than reading them per point
+        float energyValue = energy.getValuef();
+        float contrastValue = contrast.getValuef();
+        int baseColor = color.getColor();
+        float hue = LXColor.h(baseColor);
+        float saturation = LXColor.s(baseColor);
+
+        TEMirrors.Symmetry symmetry = mirror.getValueb() ? TEMirrors.Symmetry.PORT_STARBOARD : TEMirrors.Symmetry.NONE;
+
+        // Iterating flat arrays keeps the inner loop on contiguous floats
+        float[] ys = transformedY;
+        float[] zs = transformedZ;
+        float[] desat = topDesat;
+        for (int index : renderIndices(symmetry)) {
+            float yOut = ys[index];
+            float z = zs[index];
 
             // For all octaves except the last, build the iterated sine field
             for (float i = 1.f; i <= octaves - 1; i++) {
                 frequency = i * i * scaleValue;
                 yOut += 0.1 * Math.sin(yOut * frequency + sinFieldPhase) *
-                              Math.sin(point.z * frequency + sinFieldPhase);
+                              Math.sin(z * frequency + sinFieldPhase);
             }
             // Lerp into last octave. Boosts FPS to dupe this code from the loop above.
             int lastOctave = (int) octaves;
@@ -101,52 +132,44 @@ public class Smoke extends TEAudioPattern {
                 frequency = lastOctave * lastOctave * scaleValue;;
                 yOut += 0.1 * (octaves - lastOctave) *
                         Math.sin(yOut * frequency + sinFieldPhase) *
-                        Math.sin(point.z * frequency + sinFieldPhase);
+                        Math.sin(z * frequency + sinFieldPhase);
             }
 
             // Normalize yOut to 0..1. Magic numbers for parameter ranges come from testing.
             // Repeat iterations of += Sin(), for up to 8 octaves yield yOut in (-1.3..1.3).
             float yOutNorm  = LXUtils.clampf(
-                    (energy.getValuef() + yOut) / contrast.getValuef(),
+                    (energyValue + yOut) / contrastValue,
                     0, 1);
 
-            colors[point.index] = LXColor.hsa(
-                    LXColor.h(color.getColor()),
+            colors[index] = LXColor.hsa(
+                    hue,
 
                     // Make the selected color white (icy!) for the top half.
-                    LXUtils.clampf(LXColor.s(color.getColor()) - point.topDesat, 0, 100),
+                    LXUtils.clampf(saturation - desat[index], 0, 100),
 
                     // The yOut value is the alpha. Low values let through the background (or black).
                     yOutNorm
             );
         }
+        mirrorRest(symmetry);
 
     }
 
-    // This enables adding a custom field to the points just for this pattern
-    protected static class SmokePoint extends LXVector {
-        public float topDesat = 0;
-
-        public SmokePoint(LXVector that) {
-            super(that);
-        }
-    }
-
     // Cache the point coordinates transform to boost frame rate
-    protected SmokePoint[] transformPoints() {
-        SmokePoint[] result = new SmokePoint[model.points.length];
-        for (int i = 0; i < model.points.length; i++) {
-            LXVector point = new LXVector(model.points[i]);
+    protected void transformPoints() {
+        TEPointArrays pa = model.pointArrays;
+        transformedY = new float[pa.size];
+        transformedZ = new float[pa.size];
+        topDesat = new float[pa.size];
+        for (int i = 0; i < pa.size; i++) {
             // Centered vertical coordinates, with y in range [-1,1]:
-            LXVector transformedPoint = point.mult(2).sub(0, model.yRange, 0).div(model.yMax);
-            SmokePoint thisPoint = new SmokePoint(transformedPoint);
+            transformedY[i] = (pa.y[i] * 2 - model.yRange) / model.yMax;
+            transformedZ[i] = pa.z[i] * 2 / model.yMax;
 
             // topDesat makes the top points white. Return 0 for the bottom half of this pattern
             // where y is in [-1..0], then slowly ease into 1 when y is in [0..1]
-            float yClamped = LXUtils.clampf(thisPoint.y, -1, 1);
-            thisPoint.topDesat = (yClamped < 0) ? 0 : (float) Math.sqrt(yClamped) * 100;
-            result[i] = thisPoint;
+            float yClamped = LXUtils.clampf(transformedY[i], -1, 1);
+            topDesat[i] = (yClamped < 0) ? 0 : (float) Math.sqrt(yClamped) * 100;
         }
-        return result;
     }
 }
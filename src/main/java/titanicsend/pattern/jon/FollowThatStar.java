@@ -4,8 +4,8 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
-import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.*;
+import titanicsend.model.TEPointArrays;
 import titanicsend.pattern.TEAudioPattern;
 import titanicsend.util.TEMath;
 
@@ -86,11 +86,12 @@ public class FollowThatStar extends TEAudioPattern {
         }
 
         // per pixel calculations
-        for (LXPoint point : model.points) {
+        TEPointArrays pa = model.pointArrays;
+        for (int index = 0; index < pa.size; index++) {
 
             // translate and rescale normalized coords from -1 to 1
-            double x = 2 * (point.zn - 0.5);  // z axis on vehicle
-            double y = 2 * (point.yn - 0.5);
+            double x = 2 * (pa.zn[index] - 0.5);  // z axis on vehicle
+            double y = 2 * (pa.yn[index] - 0.5);
 
             brightness = 0;
 
@@ -104,7 +105,7 @@ public class FollowThatStar extends TEAudioPattern {
 
             saturation = baseSat * (float) TEMath.clamp(100f * (phase+(2.25f-brightness)),0,100);
             brightness = baseBri * (float) TEMath.clamp(brightness * brightness * 100f,0,100);
-            colors[point.index] = LXColor.hsba(
+            colors[index] = LXColor.hsba(
                     baseHue,
                     saturation,
                     brightness,
@@ -4,10 +4,10 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
-import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.LXParameter;
 import heronarts.lx.transform.LXVector;
+import titanicsend.model.TEPointArrays;
 import titanicsend.pattern.TEAudioPattern;
 import titanicsend.util.TEMath;
 
@@ -103,11 +103,12 @@ public class Iceflow extends TEAudioPattern {
         float yOffs = k * (float) Math.cos(time);
 
         // per pixel calculations
-        for (LXPoint point : model.panelPoints) {
+        TEPointArrays pa = model.pointArrays;
+        for (int index : pa.panelIndices) {
 
             // set origin of normalized coordinates to model centroid
-            float u = (point.zn - 0.5f);
-            float v = (point.yn - 0.5f);
+            float u = (pa.zn[index] - 0.5f);
+            float v = (pa.yn[index] - 0.5f);
             float density = 0.0125f;             // minimum brightness level
 
             for (float i = 1; i < 4; i++) {
@@ -118,7 +119,7 @@ public class Iceflow extends TEAudioPattern {
 
             density = Math.max(0f,Math.min(1f,density));   // clamp to 0 to 1 range
             density *= density;
-            colors[point.index] = LXColor.hsba(
+            colors[index] = LXColor.hsba(
                     baseHue,
                     (1-density) * baseSat,
                     density * baseBri,
@@ -6,6 +6,7 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import titanicsend.model.*;
 import titanicsend.pattern.TEPattern;
 
@@ -18,8 +19,8 @@ public class Bubbles extends TEPattern {
   private static final double BUBBLE_LIFETIME_MSEC = 300.0;  // Grow bubble at a rate such that it lives this long
   private static final double BUBBLE_THICKNESS = 0.025;  // Expressed as a fraction of the panel
   private static final int NUM_BUBBLES = 5;
-  private final HashMap<TEPanelModel, Double> bubbleFraction;  // -1 if no bubble; else, 0.0-1.1
-  private final List<TEPanelModel> newBubbleQueue;
+  private final HashMap<TEPanelModel, Double> bubbleFraction = new HashMap<>();  // -1 if no bubble; else, 0.0-1.1
+  private final List<TEPanelModel> newBubbleQueue = new ArrayList<>();
 
   public final LinkedColorParameter color =
           registerColor("Color", "color", ColorType.PANEL,
@@ -27,9 +28,18 @@ public class Bubbles extends TEPattern {
 
   public Bubbles(LX lx) {
     super(lx);
+    startBubbles();
+  }
+
+  @Override
+  protected void onModelChanged(LXModel model) {
+    super.onModelChanged(model);
+    startBubbles();
+  }
 
-    this.bubbleFraction = new HashMap<>();
-    this.newBubbleQueue = new ArrayList<>();
+  private void startBubbles() {
+    this.bubbleFraction.clear();
+    this.newBubbleQueue.clear();
 
     int bubblesLeftToMake = NUM_BUBBLES;
     // Initialize existing bubbles out-of-phase with each other by this fraction
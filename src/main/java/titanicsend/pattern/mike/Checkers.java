@@ -4,6 +4,7 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import titanicsend.model.TEPanelModel;
 import titanicsend.pattern.TEPattern;
@@ -21,12 +22,21 @@ public class Checkers extends TEPattern {
           registerColor("Even", "even", ColorType.SECONDARY,
                   "Color of the even panels");
 
-  private final HashMap<TEPanelModel, Integer> panelGroup;
+  private final HashMap<TEPanelModel, Integer> panelGroup = new HashMap<>();
 
   public Checkers(LX lx) {
     super(lx);
+    groupPanels();
+  }
+
+  @Override
+  protected void onModelChanged(LXModel model) {
+    super.onModelChanged(model);
+    groupPanels();
+  }
 
-    this.panelGroup = new HashMap<>();
+  private void groupPanels() {
+    this.panelGroup.clear();
     List<TEPanelModel> queue = new ArrayList<>(model.panelsById.values());
     while (!queue.isEmpty()) {
       TEPanelModel panel = queue.remove(0);
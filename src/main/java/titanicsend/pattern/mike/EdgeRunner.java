@@ -6,6 +6,7 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 
 import heronarts.lx.modulator.Click;
@@ -84,13 +85,28 @@ public class EdgeRunner extends TEPattern {
     this.spawner.fire();
     this.moveNumber = 0;
     this.panelData = new HashMap<>();
+    findPanels();
+    this.reset();
+  }
+
+  private void findPanels() {
+    this.panelData.clear();
     for (TEPanelModel panel : model.panelsById.values()) {
       if (!panel.panelType.equals(TEPanelModel.LIT)) continue;
       int numEdgePixels = panel.e0.points.length + panel.e1.points.length + panel.e2.points.length;
       PanelData pd = new PanelData(numEdgePixels);
       this.panelData.put(panel, pd);
     }
+  }
+
+  @Override
+  protected void onModelChanged(LXModel model) {
+    super.onModelChanged(model);
+    // Runners and visits are on the old model's edges; start over on the new ones
+    this.runners.clear();
+    findPanels();
     this.reset();
+    this.spawner.fire();
   }
 
   private void reset() {
@@ -141,6 +141,15 @@ public class ModelDebugger extends TEPattern implements UIDeviceControls<ModelDe
     this.pointErrLabel.setVisible(pointErr);
   }
 
+  @Override
+  protected void onModelChanged(LXModel model) {
+    super.onModelChanged(model);
+    // Light the same object on the new model, once the controls exist
+    if (this.idErrLabel != null) {
+      this.repaint(null);
+    }
+  }
+
   public void clearVertexes() {
     for(TEVertex vertex : this.model.vertexesById.values()) {
       vertex.virtualColor = new TEVirtualColor(255, 255, 255, 255);
@@ -1,6 +1,7 @@
 package titanicsend.pattern.pixelblaze;
 
 import heronarts.lx.LX;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import titanicsend.pattern.TEAudioPattern;
 
@@ -24,7 +25,17 @@ public class PixelblazeParallel extends TEAudioPattern {
 
   public PixelblazeParallel(LX lx) {
     super(lx);
+    makeWrappers();
+  }
+
+  @Override
+  protected void onModelChanged(LXModel model) {
+    super.onModelChanged(model);
+    makeWrappers();
+  }
 
+  private void makeWrappers() {
+    wrappers.clear();
     try {
 
       //split edge points into chunks
@@ -1,6 +1,7 @@
 package titanicsend.pattern.pixelblaze;
 
 import heronarts.lx.LX;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.CompoundParameter;
@@ -59,6 +60,12 @@ public abstract class PixelblazePattern extends TEAudioPattern {
     }
   }
 
+  @Override
+  protected void onModelChanged(LXModel model) {
+    super.onModelChanged(model);
+    modelPointsListener.onParameterChanged(null);
+  }
+
   @Override
   public void dispose() {
     enableEdges.removeListener(modelPointsListener);
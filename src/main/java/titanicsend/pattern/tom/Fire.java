@@ -3,6 +3,7 @@ package titanicsend.pattern.tom;
 import heronarts.lx.LX;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.modulator.Click;
 import heronarts.lx.parameter.BooleanParameter;
@@ -43,6 +44,15 @@ public class Fire extends TEPattern {
         addParameter("colorPosition", colorPosition);
     }
 
+    @Override
+    protected void onModelChanged(LXModel model) {
+        super.onModelChanged(model);
+        // The grid covers the model's bounds
+        NUM_ROWS = calculateRows();
+        NUM_COLUMNS = calculateColumns();
+        buffer = new int[NUM_ROWS][NUM_COLUMNS];
+    }
+
     public void spreadFire() {
         checkFuel();
 
@@ -5,6 +5,7 @@ import heronarts.lx.LXCategory;
 import heronarts.lx.Tempo;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LinkedColorParameter;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.modulator.SawLFO;
 import heronarts.lx.parameter.*;
@@ -61,6 +62,12 @@ public class PulsingTriangles extends TEPattern {
         pointMap = buildPointMap(model.panelsById);
     }
 
+    @Override
+    protected void onModelChanged(LXModel model) {
+        super.onModelChanged(model);
+        pointMap = buildPointMap(this.model.panelsById);
+    }
+
     public void run(double deltaMs) {
         float phase = this.phase.getValuef();
 
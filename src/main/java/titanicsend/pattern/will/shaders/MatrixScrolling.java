@@ -7,16 +7,15 @@ import heronarts.lx.parameter.LXParameter;
 import titanicsend.pattern.TEPattern;
 import titanicsend.pattern.yoffa.effect.shaders.FragmentShaderEffect;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
+import titanicsend.util.Vec2;
+import titanicsend.util.Vec3;
+import titanicsend.util.Vec4;
 
-import java.awt.*;
 import java.util.Collection;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
-import static java.lang.Math.pow;
-import static java.lang.Math.sin;
-import static titanicsend.util.TEMath.*;
-import static titanicsend.util.TEMath.multiplyArrays;
+import static titanicsend.util.TEMath.fract;
 
 public class MatrixScrolling extends FragmentShaderEffect {
 
@@ -44,86 +43,96 @@ public class MatrixScrolling extends FragmentShaderEffect {
         speed.setPolarity(LXParameter.Polarity.BIPOLAR);
     }
 
-    @Override
-    protected double[] getColorForPoint(double[] fragCoordinates, double[] resolution, double timeSeconds) {
-//        System.out.printf("Resolution: (%f, %f)", resolution[0], resolution[1]);
-        Random random = new Random();
+    // Per frame, read by every tile
+    private float measureProgress;
+    private int radiusValue;
+    private float centeringValue;
+    private float blockSizeValue;
+    private float speedValue;
+    private float beatLevel;
+
+    // Points may be colored on several threads at once
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private static class Scratch {
+        final Vec3 v = new Vec3();
+        final Vec3 s = new Vec3();
+        final Vec3 i = new Vec3();
+        final Vec3 j = new Vec3();
+    }
 
+    @Override
+    protected void beforeTiles(double deltaMs) {
+        super.beforeTiles(deltaMs);
         // randomly displace coordinates on every measure start
         double measureProgress = 1.0 - this.pattern.getLX().engine.tempo.getBasis(Tempo.Division.WHOLE); // 1 when we start measure, 0 when we finish
-        measureProgress *= measureProgress; // steeper curve
+        this.measureProgress = (float) (measureProgress * measureProgress); // steeper curve
+        radiusValue = (int) radius.getValue();
+        centeringValue = centering.getValuef();
+        blockSizeValue = blockSize.getValuef();
+        speedValue = speed.getValuef();
+        // apply beat
+        beatLevel = beatReactive.getValueb() ? (float) (1.0 - this.pattern.getLX().engine.tempo.basis()) : 1;
+    }
 
-        if (radius.getValue() > 0) {
-            int offset = (int)(measureProgress * random.nextInt( (int)(radius.getValue()) ));
-            fragCoordinates = addToArray(offset, fragCoordinates);
+    @Override
+    protected void getColorForPoint(Vec2 fragCoordinates, Vec2 resolution, float timeSeconds, Vec4 fragColor) {
+//        System.out.printf("Resolution: (%f, %f)", resolution.x, resolution.y);
+        Scratch scratch = this.scratch.get();
+
+        int offset = 0;
+        if (radiusValue > 0) {
+            offset = (int)(measureProgress * ThreadLocalRandom.current().nextInt(radiusValue));
         }
 
         //        vec3 v = vec3(u, 1) / iResolution - 0.5;
-        double[] v = new double[]{
-                fragCoordinates[0] / resolution[0] - centering.getValue(),
-                fragCoordinates[1] / resolution[1] - centering.getValue(),
-                1.0
-        };
+        Vec3 v = scratch.v.set(
+                (fragCoordinates.x + offset) / resolution.x - centeringValue,
+                (fragCoordinates.y + offset) / resolution.y - centeringValue,
+                1.0f);
 
         //        vec3 s = 0.3 / abs(v);
-        double[] s = new double[3];
-        for (int m = 0; m < 3; m++) {
-            s[m] = 0.3 / Math.abs(v[m]);
-        }
+        Vec3 s = scratch.s.set(0.3f / Math.abs(v.x), 0.3f / Math.abs(v.y), 0.3f / Math.abs(v.z));
         //        s.z = min(s.y, s.x);
-        s[2] = Math.min(s[0], s[1]);
+        s.z = Math.min(s.x, s.y);
 
         //        vec3 t = s.y < s.x ? v.xzz : v.zyz;
-        double[] t = new double[3];
-        if (s[1] < s[0]) {
-            t = new double[]{ v[0], v[2], v[2] };
-        } else {
-            t = new double[]{ v[2], v[1], v[2] };
-        }
-
         //        vec3 i = ceil(8e2 * s.z * t);
-        double[] i = new double[3];
-        for (int m = 0; m < 3; m++) {
-            i[m] = Math.ceil(8e2 * s[2] * t[m]) * blockSize.getValue();  //        i *= 0.1;
+        //        i *= 0.1;
+        Vec3 i = scratch.i;
+        if (s.y < s.x) {
+            i.set(v.x, v.z, v.z);
+        } else {
+            i.set(v.z, v.y, v.z);
         }
+        i.mul(8e2f * s.z).ceil().mul(blockSizeValue);
 
         //        vec3 j = fract(i);
-        double[] j = fract(i);
+        Vec3 j = scratch.j.set(i).fract();
 
         //        i -= j;
-        i = subtractArrays(i, j);
+        i.sub(j);
 
         //        float b = (9. + 8. * sin(i).x);
-        double b = (9. + 8. * Math.sin(i[0]));
+        float b = (9f + 8f * (float) Math.sin(i.x));
 
         //        int tb = int(iTime * b);
-        int tb = (int)(timeSeconds * speed.getValue() * b);
+        int tb = (int)(timeSeconds * speedValue * b);
 
         //        vec3 p = vec3(9, tb, 0) + i;
-        double[] p = new double[]{ i[0] + 9.0, i[1] + tb, i[2]};
+        float px = i.x + 9f;
+        float py = i.y + tb;
 
         // #define R fract(1e2 * sin(p.x * 5. + p.y))
         //        color.g = R / s.z;
-        double[] color = new double[3];
-        double R = fract(1e2 * Math.sin(p[0] * 5. + p[1]));
-        color[1] = R / s[2];
-
-        //        p *= j;
-        p = multiplyArrays(p, j);
+        // in double, since py grows with time and sin() magnifies its rounding
+        float R = (float) fract(1e2 * Math.sin(px * 5. + py));
 
         //        bool oneOrZero = R > 0.5 && j.x < 0.6 && j.y <.8;
-        boolean oneOrZero = R > 0.5 && j[0] < 0.6 && j[1] < 0.8;
+        boolean oneOrZero = R > 0.5f && j.x < 0.6f && j.y < 0.8f;
 
         //        color *= (oneOrZero ? 1.0 : 0.0);
-        color = multiplyArray(oneOrZero ? 1.0 : 0.0, color);
-
-        // apply beat
-        if (beatReactive.getValueb()) {
-            double oneOnBeatAndLessNearEnd = 1.0 - this.pattern.getLX().engine.tempo.basis();
-            color = multiplyArray(oneOnBeatAndLessNearEnd, color);
-        }
-
-        return color;
+        fragColor.set(0, oneOrZero ? R / s.z * beatLevel : 0, 0, 1);
     }
 
     @Override
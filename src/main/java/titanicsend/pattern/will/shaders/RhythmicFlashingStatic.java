@@ -4,7 +4,7 @@ import heronarts.lx.color.LXColor;
 import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.LXParameter;
-import titanicsend.pattern.yoffa.effect.shaders.FragmentShaderEffect;
+import titanicsend.pattern.yoffa.effect.shaders.DoubleArrayShaderEffect;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
 
 import java.awt.*;
@@ -31,7 +31,7 @@ import static java.lang.Math.*;
 
 // taken from:
 // https://www.shadertoy.com/view/Xs2BRc
-public class RhythmicFlashingStatic extends FragmentShaderEffect {
+public class RhythmicFlashingStatic extends DoubleArrayShaderEffect {
 
     public static double STAR_WIDTH = 9.0;
     public static double RESOLUTION = 4096.0;
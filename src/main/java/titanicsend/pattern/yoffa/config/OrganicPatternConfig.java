@@ -54,7 +54,7 @@ public class OrganicPatternConfig {
         }
         @Override
         protected List<PatternEffect> createEffects() {
-            return List.of(new RainbowSwirlShader(PatternTarget.allEdgesAsCanvas(this)));
+            return List.of(new RainbowSwirlShader(PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -76,7 +76,7 @@ public class OrganicPatternConfig {
         }
         @Override
         protected List<PatternEffect> createEffects() {
-            return List.of(new NeonBarsShader(PatternTarget.allEdgesAsCanvas(this)));
+            return List.of(new NeonBarsShader(PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -98,7 +98,7 @@ public class OrganicPatternConfig {
         }
         @Override
         protected List<PatternEffect> createEffects() {
-            return List.of(new ElectricShader(PatternTarget.allEdgesAsCanvas(this)));
+            return List.of(new ElectricShader(PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -131,7 +131,7 @@ public class OrganicPatternConfig {
         }
         @Override
         protected List<PatternEffect> createEffects() {
-            return List.of(new WaterShader(PatternTarget.allEdgesAsCanvas(this)));
+            return List.of(new WaterShader(PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -164,7 +164,7 @@ public class OrganicPatternConfig {
         }
         @Override
         protected List<PatternEffect> createEffects() {
-            return List.of(new WavyShader(PatternTarget.allEdgesAsCanvas(this)));
+            return List.of(new WavyShader(PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
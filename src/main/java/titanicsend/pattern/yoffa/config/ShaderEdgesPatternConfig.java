@@ -26,7 +26,7 @@ public class ShaderEdgesPatternConfig {
         @Override
         protected List<PatternEffect> createEffects() {
             return List.of(new NativeShaderPatternEffect("light_beams.fs",
-                    PatternTarget.allEdgesAsCanvas(this)));
+                    PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -38,7 +38,7 @@ public class ShaderEdgesPatternConfig {
         @Override
         protected List<PatternEffect> createEffects() {
             return List.of(new NativeShaderPatternEffect("electric.fs",
-                    PatternTarget.allEdgesAsCanvas(this)));
+                    PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -50,7 +50,7 @@ public class ShaderEdgesPatternConfig {
         @Override
         protected List<PatternEffect> createEffects() {
             return List.of(new NativeShaderPatternEffect("neon_ripples.fs",
-                    PatternTarget.allEdgesAsCanvas(this)));
+                    PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -62,7 +62,7 @@ public class ShaderEdgesPatternConfig {
         @Override
         protected List<PatternEffect> createEffects() {
             return List.of(new NativeShaderPatternEffect("space_explosion.fs",
-                    PatternTarget.allEdgesAsCanvas(this)));
+                    PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -74,7 +74,7 @@ public class ShaderEdgesPatternConfig {
         @Override
         protected List<PatternEffect> createEffects() {
             return List.of(new NativeShaderPatternEffect("synth_waves.fs",
-                    PatternTarget.allEdgesAsCanvas(this)));
+                    PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
@@ -86,7 +86,7 @@ public class ShaderEdgesPatternConfig {
         @Override
         protected List<PatternEffect> createEffects() {
             return List.of(new NativeShaderPatternEffect("pulsing_heart.fs",
-                    PatternTarget.allEdgesAsCanvas(this)));
+                    PatternTarget.symmetricEdgesAsCanvas(this)));
         }
     }
 
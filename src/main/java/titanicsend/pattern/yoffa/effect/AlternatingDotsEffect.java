@@ -14,11 +14,12 @@ import java.util.*;
 @LXCategory("Panel FG")
 public class AlternatingDotsEffect extends PatternEffect {
 
-    private final List<LXPoint> points;
-    private final Dimensions dimensions;
+    private List<LXPoint> points;
+    private Dimensions dimensions;
 
     private static final int MAX_POINTS_DIVIDER = 25;
     private int maxPoints;
+    private double maxPointsScale = 1;
 
     private double minYPercent;
     private Set<LXPoint> breathingPointsPrev = new HashSet<>();
@@ -28,15 +29,22 @@ public class AlternatingDotsEffect extends PatternEffect {
 
     public AlternatingDotsEffect(PatternTarget target) {
         super(target);
-        this.points = new ArrayList<>(getAllPoints());
-        this.maxPoints = points.size() / MAX_POINTS_DIVIDER;
         this.minYPercent = 0;
+        onCanvasesChanged();
+    }
+
+    @Override
+    protected void onCanvasesChanged() {
+        this.points = new ArrayList<>(getAllPoints());
+        this.maxPoints = (int) (maxPointsScale * points.size() / MAX_POINTS_DIVIDER);
         this.dimensions = Dimensions.fromPoints(points);
+        onPatternActive();
     }
 
     public AlternatingDotsEffect setHorizon(double minYPercent) {
         this.minYPercent = minYPercent;
-        this.maxPoints = (int) (minYPercent * points.size() / MAX_POINTS_DIVIDER);
+        this.maxPointsScale = minYPercent;
+        this.maxPoints = (int) (maxPointsScale * points.size() / MAX_POINTS_DIVIDER);
         return this;
     }
 
@@ -1,32 +1,46 @@
 package titanicsend.pattern.yoffa.effect;
 
-import heronarts.lx.model.LXPoint;
+import heronarts.lx.LX;
 import heronarts.lx.parameter.LXParameter;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
 import titanicsend.pattern.yoffa.framework.PatternEffect;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
+import titanicsend.pattern.yoffa.framework.TileRunner;
 import titanicsend.pattern.yoffa.media.ImagePainter;
 import titanicsend.pattern.yoffa.shader_engine.AudioInfo;
 import titanicsend.pattern.yoffa.shader_engine.FragmentShader;
 import titanicsend.pattern.yoffa.shader_engine.OffscreenShaderRenderer;
-import titanicsend.util.Dimensions;
+import titanicsend.pattern.yoffa.shader_engine.cpu.CpuShader;
 
 import java.io.File;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class NativeShaderPatternEffect extends PatternEffect {
 
+    // Shaders run on the GPU unless there isn't one (headless render boxes, CI), or -Dte.shaders=cpu.
+    // On the CPU they're compiled to bytecode and evaluated at just the model's points
+    private static boolean useCpu = "cpu".equals(System.getProperty("te.shaders"));
+    // On the GPU, -Dte.shaders=points renders just the model's points instead of the whole 640x480 frame.
+    // Opt-in until it's proven on more GPUs; any GL error drops back to full frames
+    private static boolean pointSampled = "points".equals(System.getProperty("te.shaders"));
+
     protected OffscreenShaderRenderer offscreenShaderRenderer;
+    private CpuShader cpuShader;
     private FragmentShader fragmentShader;
     private final List<LXParameter> parameters;
+    private int[] canvasOffsets;  // Where each canvas's points start in the GPU's point colors
+    private int[] pointColors;  // This frame's when point-sampled, shared by every tile
+    private ImagePainter imagePainter;  // Or this frame's full frame
 
     public NativeShaderPatternEffect(FragmentShader fragmentShader, PatternTarget target) {
         super(target);
+        canvasOffsets = offsetsOf(canvases);
         if (fragmentShader != null) {
             this.fragmentShader = fragmentShader;
-            this.offscreenShaderRenderer = new OffscreenShaderRenderer(fragmentShader);
+            createRenderer(false);
             this.parameters = fragmentShader.getParameters();
         } else {
             this.parameters = null;
@@ -42,29 +56,141 @@ public class NativeShaderPatternEffect extends PatternEffect {
 
     }
 
+    private static int[] offsetsOf(CompiledCanvas[] canvases) {
+        int[] offsets = new int[canvases.length];
+        for (int i = 1; i < canvases.length; i++) {
+            offsets[i] = offsets[i - 1] + canvases[i - 1].size();
+        }
+        return offsets;
+    }
+
+    @Override
+    protected void onCanvasesChanged() {
+        canvasOffsets = offsetsOf(canvases);
+        // A point-sampled renderer has the old points' positions on the GPU
+        if (offscreenShaderRenderer != null && offscreenShaderRenderer.isPointSampled()) {
+            offscreenShaderRenderer = createGpuRenderer(fragmentShader);
+        }
+    }
+
+    // On the GPU when there is one. The CPU's javac run waits for the pattern to be used
+    private void createRenderer(boolean active) {
+        if (!useCpu) {
+            try {
+                offscreenShaderRenderer = createGpuRenderer(fragmentShader);
+                return;
+            } catch (RuntimeException | LinkageError e) {
+                LX.log("No GPU for shaders (" + e.getMessage() + "), running them on the CPU");
+                useCpu = true;
+            }
+        }
+        offscreenShaderRenderer = null;
+        if (!active) {
+            return;
+        }
+        if (cpuShader != null) {
+            cpuShader.reset();
+            return;
+        }
+        try {
+            cpuShader = new CpuShader(fragmentShader);
+        } catch (RuntimeException e) {
+            LX.log("Couldn't run " + pattern.getClass().getSimpleName() + "'s shader on the CPU: " + e.getMessage());
+            fragmentShader = null;  // so this isn't tried again every time the pattern comes on
+        }
+    }
+
+    protected OffscreenShaderRenderer createGpuRenderer(FragmentShader fragmentShader) {
+        if (pointSampled) {
+            try {
+                return new OffscreenShaderRenderer(fragmentShader, canvases);
+            } catch (RuntimeException e) {
+                LX.log("Couldn't point-sample shaders (" + e.getMessage() + "), rendering full frames");
+                pointSampled = false;
+            }
+        }
+        return new OffscreenShaderRenderer(fragmentShader);
+    }
+
     @Override
     public void onPatternActive() {
         if (fragmentShader != null) {
-            offscreenShaderRenderer = new OffscreenShaderRenderer(fragmentShader);
+            createRenderer(true);
         }
     }
 
     @Override
     public void run(double deltaMs) {
-        if (offscreenShaderRenderer == null) {
+        if (cpuShader == null) {
+            runAllTiles(deltaMs);
+            return;
+        }
+        // Every point is a full shader run, so spread them over the cores even when the pattern doesn't
+        beforeTiles(deltaMs);
+        for (CompiledCanvas canvas : canvases) {
+            int tiles = (canvas.size() + TileRunner.TILE_SIZE - 1) / TileRunner.TILE_SIZE;
+            IntStream.range(0, tiles).parallel().forEach(tile -> runTile(canvas,
+                    tile * TileRunner.TILE_SIZE, Math.min(canvas.size(), (tile + 1) * TileRunner.TILE_SIZE)));
+        }
+    }
+
+    @Override
+    public boolean isTileable() {
+        return true;
+    }
+
+    @Override
+    protected void beforeTiles(double deltaMs) {
+        pointColors = null;
+        imagePainter = null;
+        if (offscreenShaderRenderer == null && cpuShader == null) {
             return;
         }
 
         AudioInfo audioInfo = new AudioInfo(pattern.getTempo().basis(),
                 pattern.sinePhaseOnBeat(), pattern.getBassLevel(), pattern.getTrebleLevel(),
                 pattern.getLX().engine.audio.meter.bands);
+        if (cpuShader != null) {
+            cpuShader.updateUniforms(audioInfo);
+            return;
+        }
+        if (offscreenShaderRenderer.isPointSampled()) {
+            try {
+                pointColors = offscreenShaderRenderer.getPoints(audioInfo);
+                return;
+            } catch (RuntimeException e) {
+                LX.log("Point-sampled shaders failed (" + e.getMessage() + "), rendering full frames");
+                pointSampled = false;
+                offscreenShaderRenderer = new OffscreenShaderRenderer(offscreenShaderRenderer.getFragmentShader());
+            }
+        }
         int[][] snapshot = offscreenShaderRenderer.getFrame(audioInfo);
         //TODO we should really use setColor for this instead of exposing colors as this will break blending
         //ImagePainter is the last thing that hasn't been migrated to new framework
-        ImagePainter imagePainter = new ImagePainter(snapshot, pattern.getColors());
-        for (Map.Entry<LXPoint, Dimensions> entry : pointsToCanvas.entrySet()) {
-            imagePainter.paint(entry.getKey(), entry.getValue(), 1);
+        imagePainter = new ImagePainter(snapshot, pattern.getColors());
+    }
+
+    @Override
+    protected void runTile(CompiledCanvas canvas, int from, int to) {
+        if (cpuShader != null) {
+            cpuShader.paint(canvas, from, to, this::setColor);
+        } else if (pointColors != null) {
+            int offset = canvasOffsets[canvasIndex(canvas)];
+            for (int i = from; i < to; i++) {
+                setColor(canvas.indices[i], pointColors[offset + i]);
+            }
+        } else if (imagePainter != null) {
+            imagePainter.paint(canvas, from, to, 1);
+        }
+    }
+
+    private int canvasIndex(CompiledCanvas canvas) {
+        for (int i = 0; i < canvases.length; i++) {
+            if (canvases[i] == canvas) {
+                return i;
+            }
         }
+        throw new IllegalArgumentException("Not one of this effect's canvases");
     }
 
     @Override
@@ -5,12 +5,14 @@ import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.LXParameter;
 import heronarts.lx.utils.LXUtils;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
 import titanicsend.pattern.yoffa.framework.PatternEffect;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
 import titanicsend.util.TEMath;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static titanicsend.util.TEMath.wave;
 
@@ -28,6 +30,10 @@ public class PulseEffect extends PatternEffect {
     private Double originYn = null;
     private Double originZn = null;
 
+    // This frame's values, shared by every tile
+    private double scaledTrebleRatio;
+    private double measure;
+
     public PulseEffect(PatternTarget target) {
         super(target);
     }
@@ -44,22 +50,40 @@ public class PulseEffect extends PatternEffect {
     // I also expect them to diverge as they are tweaked more, so I don't hate the duplication as of now
     @Override
     public void run(double deltaMs) {
-        double scaledTrebleRatio = LXUtils.clamp(
+        runAllTiles(deltaMs);
+    }
+
+    @Override
+    public boolean isTileable() {
+        return true;
+    }
+
+    @Override
+    protected void beforeTiles(double deltaMs) {
+        scaledTrebleRatio = LXUtils.clamp(
                 (pattern.getTrebleRatio() - .5) / (1.01 - energy.getValue()) / 6 -
                         .2 + energy.getValue() / 2,
                 0, 1);
+        measure = pattern.measure();
+    }
 
-        for (LXPoint point : getAllPoints()) {
+    @Override
+    protected void runTile(CompiledCanvas canvas, int from, int to) {
+        LXPoint[] points = pattern.getModel().points;
+        //Math.random() would have every tile contend for one generator
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = from; i < to; i++) {
+            LXPoint point = points[canvas.indices[i]];
             double distanceFromCenter = originXn == null ? point.rn :
                     TEMath.distance(point.xn, point.yn, point.zn, originXn, originYn, originZn);
 
-            int baseColor = pattern.getEdgeGradientColor((float) (2 * (distanceFromCenter - pattern.measure())));
+            int baseColor = pattern.getEdgeGradientColor((float) (2 * (distanceFromCenter - measure)));
 
             double hue = LXColor.h(baseColor);
             double saturation = LXColor.s(baseColor);
             double brightness = LXColor.b(baseColor);
 
-            saturation = Math.random() < scaledTrebleRatio ? 0 : saturation;
+            saturation = random.nextDouble() < scaledTrebleRatio ? 0 : saturation;
 
             double alphaWave = wave(2 * distanceFromCenter - scaledTrebleRatio);
 
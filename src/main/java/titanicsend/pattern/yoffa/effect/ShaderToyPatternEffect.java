@@ -5,7 +5,6 @@ import heronarts.lx.parameter.LXParameter;
 import titanicsend.pattern.yoffa.client.ShaderToyClient;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
 import titanicsend.pattern.yoffa.shader_engine.FragmentShader;
-import titanicsend.pattern.yoffa.shader_engine.OffscreenShaderRenderer;
 
 import java.awt.*;
 import java.awt.datatransfer.DataFlavor;
@@ -31,7 +30,7 @@ public class ShaderToyPatternEffect extends NativeShaderPatternEffect {
                 if (clipboardValue.isDataFlavorSupported(DataFlavor.stringFlavor)) {
                     String shaderId = (String) clipboardValue.getTransferData(DataFlavor.stringFlavor);
                     FragmentShader fragmentShader = ShaderToyClient.getShader(shaderId);
-                    offscreenShaderRenderer = new OffscreenShaderRenderer(fragmentShader);
+                    offscreenShaderRenderer = createGpuRenderer(fragmentShader);
                 }
             } catch (Exception e) {
                 //usually for this project I like to let exceptions escape and be surfaced to the user, but when they
@@ -2,9 +2,10 @@ package titanicsend.pattern.yoffa.effect;
 
 import heronarts.lx.LXCategory;
 import heronarts.lx.color.LXColor;
-import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.LXParameter;
+import titanicsend.model.TEPointArrays;
 import titanicsend.pattern.TEPattern;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
 import titanicsend.pattern.yoffa.framework.PatternEffect;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
 import titanicsend.util.Dimensions;
@@ -19,6 +20,12 @@ public class ShimmeringEffect extends PatternEffect {
     private int direction;
     private int lastBeat;
 
+    // This frame's values, shared by every tile
+    private int baseColor;
+    private double basis;
+    private int beatCount;
+    private int beatsPerMeasure;
+
     public ShimmeringEffect(PatternTarget target) {
         super(target);
     }
@@ -32,19 +39,37 @@ public class ShimmeringEffect extends PatternEffect {
 
     @Override
     public void run(double deltaMs) {
+        runAllTiles(deltaMs);
+    }
+
+    @Override
+    public boolean isTileable() {
+        return true;
+    }
+
+    @Override
+    protected void beforeTiles(double deltaMs) {
         //todo pattern effects should infer colors, not specify
-        int baseColor = pattern.getSwatchColor(TEPattern.ColorType.EDGE);
-        double basis = getTempo().basis();
-        int beatCount = getTempo().beatCount();
-        int beatsPerMeasure = getTempo().beatsPerMeasure.getValuei();
+        baseColor = pattern.getSwatchColor(TEPattern.ColorType.EDGE);
+        basis = getTempo().basis();
+        beatCount = getTempo().beatCount();
+        beatsPerMeasure = getTempo().beatsPerMeasure.getValuei();
 
         if (beatCount > lastBeat && beatCount % beatsPerMeasure == 0) {
             lastBeat = getTempo().beatCount();
             direction = direction == 3 ? 0 : direction + 1;
         }
+    }
 
-        for (LXPoint point : getAllPoints()) {
-            double distanceFromTarget = getDistanceFromTarget(point, basis, pointsToCanvas.get(point));
+    @Override
+    protected void runTile(CompiledCanvas canvas, int from, int to) {
+        TEPointArrays pa = pattern.getModel().pointArrays;
+        double target = getTarget(basis, canvas.dimensions);
+        float[] coordinates = direction == 0 || direction == 2 ? pa.yn : pa.zn;
+        for (int i = from; i < to; i++) {
+            int index = canvas.indices[i];
+            double current = direction > 1 ? 1 - coordinates[index] : coordinates[index];
+            double distanceFromTarget = current - target;
             double alpha = 100;
             if ((distanceFromTarget > 0 && beatCount % beatsPerMeasure == 0) ||
                     (distanceFromTarget < 0 && beatCount % beatsPerMeasure == beatsPerMeasure - 1)) {
@@ -52,7 +77,7 @@ public class ShimmeringEffect extends PatternEffect {
             }
             double brightness = Math.abs(distanceFromTarget) > pulseLength ? 50 :
                     50 + 50 * (1 - (Math.abs(distanceFromTarget) / pulseLength));
-            setColor(point, LXColor.hsba(
+            setColor(index, LXColor.hsba(
                     LXColor.h(baseColor),
                     LXColor.s(baseColor),
                     brightness,
@@ -66,20 +91,12 @@ public class ShimmeringEffect extends PatternEffect {
         return List.of();
     }
 
-    private double getDistanceFromTarget(LXPoint point, double basis, Dimensions dimensions) {
-        double current;
-        double target;
+    private double getTarget(double basis, Dimensions dimensions) {
         if (direction == 0 || direction == 2) {
-            target = (dimensions.getMaxYn() - dimensions.getMinYn()) * basis + dimensions.getMinYn();
-            current = point.yn;
+            return (dimensions.getMaxYn() - dimensions.getMinYn()) * basis + dimensions.getMinYn();
         } else {
-            target = (dimensions.getMaxZn() - dimensions.getMinZn()) * basis + dimensions.getMinZn();
-            current = point.zn;
-        }
-        if (direction > 1) {
-            current = 1 - current;
+            return (dimensions.getMaxZn() - dimensions.getMinZn()) * basis + dimensions.getMinZn();
         }
-        return current - target;
     }
 
 }
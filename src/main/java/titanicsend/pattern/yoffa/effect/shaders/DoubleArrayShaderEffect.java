@@ -0,0 +1,29 @@
+package titanicsend.pattern.yoffa.effect.shaders;
+
+import titanicsend.pattern.yoffa.framework.PatternTarget;
+import titanicsend.util.Vec2;
+import titanicsend.util.Vec4;
+
+//for shaders written against the original double[] getColorForPoint, which allocates several arrays per
+// point. new and ported shaders should extend FragmentShaderEffect directly
+@Deprecated
+public abstract class DoubleArrayShaderEffect extends FragmentShaderEffect {
+
+    public DoubleArrayShaderEffect(PatternTarget target) {
+        super(target);
+    }
+
+    @Override
+    protected final void getColorForPoint(Vec2 fragCoordinates, Vec2 resolution, float timeSeconds,
+                                          Vec4 fragColor) {
+        double[] colorRgb = getColorForPoint(new double[] {fragCoordinates.x, fragCoordinates.y},
+                new double[] {resolution.x, resolution.y}, getFrameDurationSec());
+        fragColor.set((float) colorRgb[0], (float) colorRgb[1], (float) colorRgb[2],
+                colorRgb.length > 3 ? (float) colorRgb[3] : 1f);
+    }
+
+    //inputs arrays of length 2 for x/y
+    //output should be of length 3 symbolizing RGB for the input coordinates
+    protected abstract double[] getColorForPoint(double[] fragCoordinates, double[] resolution, double timeSeconds);
+
+}
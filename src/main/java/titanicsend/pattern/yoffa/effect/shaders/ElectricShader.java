@@ -1,24 +1,32 @@
 package titanicsend.pattern.yoffa.effect.shaders;
 
-import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.LXParameter;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
+import titanicsend.util.Mat2;
+import titanicsend.util.Vec2;
+import titanicsend.util.Vec3;
+import titanicsend.util.Vec4;
 
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
-import static java.lang.Math.abs;
 import static java.lang.Math.*;
-import static titanicsend.util.TEMath.floor;
-import static titanicsend.util.TEMath.*;
+import static titanicsend.util.TEMath.fract;
 
 //based on https://www.shadertoy.com/view/3sXSD2
 public class ElectricShader extends FragmentShaderEffect {
 
-    private static final double K1 = .366025404;
-    private static final double K2 = .211324865;
+    private static final float K1 = .366025404f;
+    private static final float K2 = .211324865f;
+
+    // fbm() adds each octave as a fraction of the first noise sample rather than
+    // sampling again, so the whole sum is the first sample times this
+    private static final float FBM_GAIN =
+            (float) ((1. + .5) * (1. + .25) * (1. + .125) * (1. + .0625) / (1. + .5 + .25 + .125 + .0625));
+
+    private static final Vec3 COLOR_1 = new Vec3(.1f, .8f, 2);
+    private static final Vec3 COLOR_2 = new Vec3(2, .1f, .8f);
 
     private final CompoundParameter energy =
             new CompoundParameter("Energy", 0, 0, 1);
@@ -35,107 +43,96 @@ public class ElectricShader extends FragmentShaderEffect {
     private final CompoundParameter haze =
             new CompoundParameter("Haze", .075, 0.075, .5);
 
-    public ElectricShader(PatternTarget target) {
-        super(target);
+    // Per frame, read by every tile
+    private final Mat2 rotation = new Mat2();
+    private float curveValue;
+    private float dispersionValue;
+    private float thicknessValue;
+    private float hazeValue;
+
+    // Points may be colored on several threads at once
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private static class Scratch {
+        final Vec2 uv = new Vec2();
+        final Vec2 q = new Vec2();
+        final Vec2 i = new Vec2();
+        final Vec2 a = new Vec2();
+        final Vec2 o = new Vec2();
+        final Vec2 b = new Vec2();
+        final Vec2 c = new Vec2();
+        final Vec2 cell = new Vec2();
+        final Vec2 h = new Vec2();
+        final Vec3 col = new Vec3();
     }
 
-    private double[] hash(double[] p) {
-        p = new double[] {
-                dotProduct(p, new double[]{127.1, 311.7}),
-                dotProduct (p, new double[]{269.5, 183.3})
-        };
-        return addToArray(-1, multiplyArray(dispersion.getValue(),
-                fract(Arrays.stream(p).map(v -> Math.sin(v) * 43758.5453123).toArray())));
-    }
-
-    private double noise (double[] p) {
-        double[] i = floor(addToArray((p[0] + p[1]) * K1, p));
-        double[] a = addToArray((i[1] + i[1]) * K2, subtractArrays(p, i));
-        double[] o = new double[]{
-                step(a[1], a[0]),
-                step(a[0], a[1])
-        };
-        double[] b = addToArray(K2, subtractArrays(a, o));
-        double[] c = addToArray(-1 + 2 * K2, a);
-
-        double[] hTmp = {dotProduct(a, a), dotProduct(b, b), dotProduct(c, c)};
-        double[] h = Arrays.stream(hTmp).map(v -> max(.5 - v, 0)).toArray();
-
-        double[] nTmp = {
-                dotProduct(a, hash(i)),
-                dotProduct(b, hash(addArrays(i, o))),
-                dotProduct(c, hash(addToArray(1, i)))
-        };
-
-        double[] n = new double[3];
-        for (int j = 0; j < h.length; j++) {
-            n[j] = pow(h[j], 4) * nTmp[j];
-        }
-
-        return dotProduct(n, new double[]{70, 70, 70});
-    }
-
-    private double fbm(double[] p) {
-        double[][] rot = rotate2D(27.5);
-        double d = noise(p);
-        p = multiplyVectorByMatrix(p, rot);
-        d += .5 * d;
-        p = multiplyVectorByMatrix(p, rot);
-        d += .25 * d;
-        p = multiplyVectorByMatrix(p, rot);
-        d += .125 * d;
-        p = multiplyVectorByMatrix(p, rot);
-        d += .0625 * d;
-        d /= (1. + .5 + .25 + .125 + .0625);
-        return .5 + .5 * d;
+    public ElectricShader(PatternTarget target) {
+        super(target);
     }
 
-    private double[] toPolar(double[] p) {
-        double r = vectorLength(p);
-        double a = atan2(p[1], p[0]);
-        return new double[]{r, a};
+    @Override
+    protected void beforeTiles(double deltaMs) {
+        super.beforeTiles(deltaMs);
+        rotation.setRotation(12 * getFrameDurationSec());
+        curveValue = curve.getValuef();
+        dispersionValue = dispersion.getValuef();
+        thicknessValue = thickness.getValuef();
+        hazeValue = haze.getValuef();
     }
 
-    private double[] polar2cart(double[] polar) {
-        double x = polar[0] * cos(polar[1]);
-        double y = polar[0] * sin(polar[1]);
-        return new double[]{x, y};
+    // Random-ish offset in [-1, dispersion - 1) for a lattice cell, written into out.
+    // Scaling sin() by 43758 magnifies rounding, so this stays in double to
+    // give the same cells the same values as the original port.
+    private Vec2 hash(Vec2 p, Vec2 out) {
+        double x = p.x * 127.1 + p.y * 311.7;
+        double y = p.x * 269.5 + p.y * 183.3;
+        return out.set((float) fract(sin(x) * 43758.5453123), (float) fract(sin(y) * 43758.5453123))
+                .mul(dispersionValue).add(-1);
     }
 
-    private double[] mapToScreen (double[] p, double scale, double[] resolution) {
-        double[] res = p;
-        res = addToArray(-1, multiplyArray(2, res));
-        res[0] *= resolution[0] / resolution[1];
-        return multiplyArray(scale, res);
+    private float noise(Vec2 p, Scratch s) {
+        Vec2 i = s.i.set(p).add((p.x + p.y) * K1).floor();
+        Vec2 a = s.a.set(p).sub(i).add((i.y + i.y) * K2);
+        Vec2 o = s.o.set(a.y > a.x ? 1 : 0, a.x > a.y ? 1 : 0);
+        Vec2 b = s.b.set(a).sub(o).add(K2);
+        Vec2 c = s.c.set(a).add(-1 + 2 * K2);
+
+        float hA = max(.5f - a.dot(a), 0);
+        float hB = max(.5f - b.dot(b), 0);
+        float hC = max(.5f - c.dot(c), 0);
+
+        float n = hA * hA * hA * hA * a.dot(hash(i, s.h));
+        n += hB * hB * hB * hB * b.dot(hash(s.cell.set(i).add(o), s.h));
+        n += hC * hC * hC * hC * c.dot(hash(s.cell.set(i).add(1), s.h));
+        return 70 * n;
     }
 
-    private double[][] rotate2D(double angle)
-    {
-        angle = Math.toRadians(angle);
-        return new double[][]{
-                {cos(angle), -sin(angle)},
-                {sin(angle), cos(angle)}
-        };
+    private float fbm(Vec2 p, Scratch s) {
+        return .5f + .5f * noise(p, s) * FBM_GAIN;
     }
 
     @Override
-    protected double[] getColorForPoint(double[] fragCoordinates, double[] resolution, double timeSeconds) {
-        double[] uv = mapToScreen(divideArrays(fragCoordinates, resolution), 2.5, resolution);
-
-        uv = multiplyVectorByMatrix(uv, rotate2D(12*timeSeconds));
-        double len = vectorLength(uv);
-
-        // distort UVs a bit
-        uv = toPolar(uv);
-        uv[1] += curve.getValue() * (.5 + .5 * sin(cos (uv[0]) * len));
-        uv = polar2cart (uv);
-
-        double d1 = abs (uv[0] * thickness.getValue() / (uv[0] + fbm (addToArray(1.25 * timeSeconds, uv))));
-        double d2 = abs (uv[1] * thickness.getValue() / (uv[1] + fbm (addToArray(-1.5 * timeSeconds, uv))));
-        double[] col = {0, 0, 0};
-        col = addArrays(col, multiplyArray(d1 * haze.getValue(), new double[]{.1, .8, 2}));
-        col = addArrays(col, multiplyArray(d2 * haze.getValue(), new double[]{2, .1, .8}));
-        return col;
+    protected void getColorForPoint(Vec2 fragCoordinates, Vec2 resolution, float timeSeconds, Vec4 fragColor) {
+        Scratch s = scratch.get();
+
+        // mapToScreen
+        Vec2 uv = s.uv.set(fragCoordinates).div(resolution).mul(2).add(-1);
+        uv.x *= resolution.x / resolution.y;
+        uv.mul(2.5f).mul(rotation);
+        float len = uv.length();
+
+        // distort UVs a bit, in polar coordinates
+        float r = len;
+        float angle = (float) atan2(uv.y, uv.x);
+        angle += curveValue * (.5f + .5f * (float) sin(cos(r) * len));
+        uv.set(r * (float) cos(angle), r * (float) sin(angle));
+
+        float d1 = abs(uv.x * thicknessValue / (uv.x + fbm(s.q.set(uv).add(1.25f * timeSeconds), s)));
+        float d2 = abs(uv.y * thicknessValue / (uv.y + fbm(s.q.set(uv).add(-1.5f * timeSeconds), s)));
+        Vec3 col = s.col.set(0, 0, 0)
+                .addScaled(COLOR_1, d1 * hazeValue)
+                .addScaled(COLOR_2, d2 * hazeValue);
+        fragColor.set(col, 1);
     }
 
     @Override
@@ -1,15 +1,16 @@
 package titanicsend.pattern.yoffa.effect.shaders;
 
-import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.LXParameter;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
 import titanicsend.pattern.yoffa.framework.PatternEffect;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
-import titanicsend.util.Dimensions;
+import titanicsend.pattern.yoffa.framework.TileRunner;
+import titanicsend.util.TEMath;
+import titanicsend.util.Vec2;
+import titanicsend.util.Vec4;
 
-import java.awt.*;
 import java.util.*;
-
-import static heronarts.lx.utils.LXUtils.clamp;
+import java.util.stream.IntStream;
 
 @Deprecated //we have native support for shaders now. use NativeShaderPatternEffect
 public abstract class FragmentShaderEffect extends PatternEffect {
@@ -19,42 +20,67 @@ public abstract class FragmentShaderEffect extends PatternEffect {
     }
 
 
+    private double durationSec;
+
     @Override
     public void run(double deltaMS) {
         //multithreading assumes setColor is doing nothing more than updating an array
-        double durationSec = getDurationSec();
-        pointsToCanvas.entrySet().parallelStream().forEach(entry -> setColor(entry.getKey(),
-                getColorForPoint(entry.getKey(), entry.getValue(), durationSec)));
+        beforeTiles(deltaMS);
+        for (CompiledCanvas canvas : canvases) {
+            int tiles = (canvas.size() + TileRunner.TILE_SIZE - 1) / TileRunner.TILE_SIZE;
+            IntStream.range(0, tiles).parallel().forEach(tile -> runTile(canvas,
+                    tile * TileRunner.TILE_SIZE, Math.min(canvas.size(), (tile + 1) * TileRunner.TILE_SIZE)));
+        }
+    }
+
+    @Override
+    public boolean isTileable() {
+        return true;
     }
 
+    //subclasses computing per-frame values here must call super
+    @Override
+    protected void beforeTiles(double deltaMs) {
+        durationSec = getDurationSec();
+    }
 
-    private int getColorForPoint(LXPoint point, Dimensions canvasDimensions, double timeSec) {
-        boolean useZForX = canvasDimensions.getDepth() > canvasDimensions.getWidth();
-        double xCoordinate = useZForX ? point.z - canvasDimensions.getMinZ() : point.x - canvasDimensions.getMinX();
+    protected double getFrameDurationSec() {
+        return durationSec;
+    }
 
-        double[] fragCoordinates = new double[] {
-                xCoordinate,
-                point.y - canvasDimensions.getMinY()
-        };
+    @Override
+    protected void runTile(CompiledCanvas canvas, int from, int to) {
+        //one set per tile, reused for every point in it
+        Vec2 resolution = new Vec2(canvas.width, canvas.height);
+        Vec2 fragCoordinates = new Vec2();
+        Vec4 fragColor = new Vec4();
+        float timeSeconds = (float) durationSec;
+        for (int i = from; i < to; i++) {
+            fragCoordinates.set(canvas.u[i] * resolution.x, canvas.v[i] * resolution.y);
+            fragColor.set(0, 0, 0, 1);
+            getColorForPoint(fragCoordinates, resolution, timeSeconds, fragColor);
+            setColor(canvas.indices[i], toRGB(fragColor));
+        }
+    }
 
-        double widthResolution = useZForX ? canvasDimensions.getDepth() : canvasDimensions.getWidth();
-        double[] resolution = new double[] {widthResolution, canvasDimensions.getHeight()};
-        double[] colorRgb = getColorForPoint(fragCoordinates, resolution, timeSec);
+    //same rounding as java.awt.Color, without allocating one per point
+    private static int toRGB(Vec4 fragColor) {
         //most shaders ignore alpha but optionally plumbing it through is helpful,
         // esp if we want to layer underneath it. can change black background to transparent, etc.
-        float alpha = colorRgb.length > 3 ? (float) colorRgb[3] : 1f;
-        return new Color(
-                (float) clamp(colorRgb[0], 0, 1),
-                (float) clamp(colorRgb[1], 0, 1),
-                (float) clamp(colorRgb[2], 0, 1),
-                alpha).getRGB();
+        int a = (int) (TEMath.clampf(fragColor.w, 0, 1) * 255 + 0.5f);
+        int r = (int) (TEMath.clampf(fragColor.x, 0, 1) * 255 + 0.5f);
+        int g = (int) (TEMath.clampf(fragColor.y, 0, 1) * 255 + 0.5f);
+        int b = (int) (TEMath.clampf(fragColor.z, 0, 1) * 255 + 0.5f);
+        return (a << 24) | (r << 16) | (g << 8) | b;
     }
 
 
-    //similar to an actual fragment shader function
-    //inputs arrays of length 2 for x/y
-    //output should be of length 3 symbolizing RGB for the input coordinates
-    protected abstract double[] getColorForPoint(double[] fragCoordinates, double[] resolution, double timeSeconds);
+    //similar to an actual fragment shader's mainImage: write this point's color into fragColor,
+    // which starts as opaque black. fragCoordinates and resolution are shared by the whole tile,
+    // so don't modify them. shaders not yet ported to titanicsend.util's vectors extend
+    // DoubleArrayShaderEffect instead
+    protected abstract void getColorForPoint(Vec2 fragCoordinates, Vec2 resolution, float timeSeconds,
+                                             Vec4 fragColor);
 
     public abstract Collection<LXParameter> getParameters();
 
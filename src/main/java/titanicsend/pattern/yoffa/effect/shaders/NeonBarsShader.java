@@ -3,16 +3,23 @@ package titanicsend.pattern.yoffa.effect.shaders;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.LXParameter;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
+import titanicsend.util.Mat2;
+import titanicsend.util.Vec2;
+import titanicsend.util.Vec3;
+import titanicsend.util.Vec4;
 
 import java.util.Collection;
 import java.util.List;
 
 import static java.lang.Math.*;
-import static titanicsend.util.TEMath.*;
+import static titanicsend.util.TEMath.fractf;
 
 //based on https://www.shadertoy.com/view/WsK3D3
 public class NeonBarsShader extends FragmentShaderEffect {
 
+    private static final Mat2 ROTATE_270 = Mat2.rotation(270);
+    private static final Vec3 WHITE = new Vec3(1, 1, 1);
+
     private final CompoundParameter energy =
             new CompoundParameter("Energy", 0, 0, 10);
 
@@ -32,69 +39,75 @@ public class NeonBarsShader extends FragmentShaderEffect {
         super(target);
     }
 
+    // Per frame, read by every tile
+    private final Vec3 baseColor = new Vec3();
+    private float thicknessValue;
+    private float wibbleSizeValue;
+    private float glowValue;
+    private float speedValue;
+    private float glow2Value;
+
+    // Points may be colored on several threads at once
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private static class Scratch {
+        final Vec2 uv = new Vec2();
+        final Vec3 col = new Vec3();
+    }
+
+    @Override
+    protected void beforeTiles(double deltaMs) {
+        super.beforeTiles(deltaMs);
+        hsv2rgb((float) (getFrameDurationSec() * 0.025), 0.5f, 0.5f, baseColor);
+        thicknessValue = (float) (this.thickness.getValue() * pattern.sinePhaseOnBeat());
+        wibbleSizeValue = this.wibbleSize.getValuef(); //pattern.sinePhaseOnBeat()
+        glowValue = this.glow.getValuef();
+        speedValue = speed.getValuef();
+        glow2Value = glow2.getValuef();
+    }
+
     @Override
-    protected double[] getColorForPoint(double[] fragCoordinates, double[] resolution, double timeSeconds) {
+    protected void getColorForPoint(Vec2 fragCoordinates, Vec2 resolution, float timeSeconds, Vec4 fragColor) {
+        Scratch s = scratch.get();
+
+        Vec2 uv = s.uv.set(fragCoordinates).sub(0.5f * resolution.x, 0.5f * resolution.y).mul(1 / resolution.y);
+        uv.mul(ROTATE_270);
 
-        double[] uv = multiplyArray(1 / resolution[1], subtractArrays(fragCoordinates, multiplyArray(0.5, resolution)));
-        uv = multiplyVectorByMatrix(uv, rotate2D(270));
+        uv.x -= 1.0f;
+        uv.x = uv.dot(uv);
+        uv.mul(2);
+        uv.y += 0.1f;			// vscroll
 
-        uv[0] -= 1.0;
-        uv[0] = dotProduct(uv,uv);
-        uv = multiplyArray(2, uv);
-        uv[1] += 0.1;			// vscroll
-        
         // lots of silly parameters, have fun :)
-        double grad = 0;
-        double nlines = 2.0;
-        double thickness = this.thickness.getValue() * pattern.sinePhaseOnBeat();
-        double wibblesize = this.wibbleSize.getValue(); //pattern.sinePhaseOnBeat()
-        double glowintensity = this.glow.getValue();
-        double wibblespeed = speed.getValue();
-        double glowclamp = 1.0;
-        double extraglow = glow2.getValue();
-        double[] col = hsv2rgb(new double[]{timeSeconds * 0.025, 0.5, 0.5});
-        col = SSTLines(uv, col, nlines, grad, thickness, wibblesize, wibblespeed, glowintensity, glowclamp, extraglow, timeSeconds);
+        float grad = 0;
+        float nlines = 2.0f;
+        float glowclamp = 1.0f;
+        Vec3 col = SSTLines(uv, baseColor, s.col, nlines, grad, thicknessValue, wibbleSizeValue, speedValue,
+                glowValue, glowclamp, glow2Value, timeSeconds);
 
         // vignette
-        double[] q = divideArrays(fragCoordinates, resolution);
-        return multiplyArray(0.5 + 0.5 * pow(16.0 * q[0] * q[1] * (1.0-q[0]) * (1.0-q[1]), 0.35), col);
+        float qx = fragCoordinates.x / resolution.x;
+        float qy = fragCoordinates.y / resolution.y;
+        col.mul(0.5f + 0.5f * (float) pow(16.0f * qx * qy * (1.0f - qx) * (1.0f - qy), 0.35));
+        fragColor.set(col, 1);
     }
 
-    private double[] hsv2rgb(double[] c)
+    private static Vec3 hsv2rgb(float h, float s, float v, Vec3 out)
     {
-        double[] rgbTmp = abs(addToArray(-3, mod(addToArray(c[0] * 6.0, new double[]{0.0,4.0,2.0}), 6)));
-        double[] rgb = clamp(addToArray(-1, rgbTmp), 0.0, 1.0);
-        double[] mixed = new double[] {
-                mix(1, rgb[0], c[1]),
-                mix(1, rgb[1], c[1]),
-                mix(1, rgb[2], c[1])
-        };
-        return multiplyArray(c[2], mixed);
+        return out.set(0.0f, 4.0f, 2.0f).add(h * 6.0f).mod(6).add(-3).abs().add(-1).clamp(0.0f, 1.0f)
+                .mix(WHITE, 1 - s).mul(v);
     }
 
-    private double[] SSTLines(double[] duv, double[] col2, double nl, double grad, double thickness, double wibblesize,
-                              double wibblespeed, double glowintensity, double glowclamp, double extraglow, double timeSeconds)
+    // writes into col, which mustn't be col2
+    private static Vec3 SSTLines(Vec2 duv, Vec3 col2, Vec3 col, float nl, float grad, float thickness, float wibblesize,
+                                 float wibblespeed, float glowintensity, float glowclamp, float extraglow, float timeSeconds)
     {
-        duv[1] -= (floor(duv[0])*grad) + (duv[0]*grad);
-        duv = fract(duv);
-        double l1 = abs(fract((duv[0] * grad - duv[1])*nl) -0.5);
-            double dd = sin(-timeSeconds * wibblespeed + duv[0] * 6.28) * wibblesize;
+        duv.y -= ((float) floor(duv.x) * grad) + (duv.x * grad);
+        duv.fract();
+        float l1 = abs(fractf((duv.x * grad - duv.y) * nl) - 0.5f);
+        float dd = (float) sin(-timeSeconds * wibblespeed + duv.x * 6.28f) * wibblesize;
         l1 = min(glowclamp, (thickness + dd) / l1);
-        double[] col = multiplyArray(l1 * glowintensity + (dd * extraglow), col2);
-        return new double[]{
-                mix(col2[0], col[0], l1),
-                mix(col2[1], col[1], l1),
-                mix(col2[2], col[2], l1)
-        };
-    }
-
-    private double[][] rotate2D(double angle)
-    {
-        angle = Math.toRadians(angle);
-        return new double[][]{
-                {cos(angle), -sin(angle)},
-                {sin(angle), cos(angle)}
-        };
+        return col.set(col2).mul(l1 * glowintensity + (dd * extraglow)).mix(col2, 1 - l1);
     }
 
     @Override
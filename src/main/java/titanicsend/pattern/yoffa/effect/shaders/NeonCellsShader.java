@@ -14,7 +14,7 @@ import static java.lang.Math.*;
 import static titanicsend.util.TEMath.*;
 
 //https://www.shadertoy.com/view/3sc3Df
-public class NeonCellsShader extends FragmentShaderEffect {
+public class NeonCellsShader extends DoubleArrayShaderEffect {
 
     private final CompoundParameter energy =
             new CompoundParameter("Energy", 0, 0, 1);
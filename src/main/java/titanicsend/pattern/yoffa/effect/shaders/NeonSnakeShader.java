@@ -12,7 +12,7 @@ import static java.lang.Math.*;
 import static titanicsend.util.TEMath.*;
 
 //https://www.shadertoy.com/view/4lB3DG
-public class NeonSnakeShader extends FragmentShaderEffect {
+public class NeonSnakeShader extends DoubleArrayShaderEffect {
 
     public final CompoundParameter ySquish =
             new CompoundParameter("ySquish", 1.3, 1, 5);
@@ -5,13 +5,14 @@ import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.LXParameter;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
 import titanicsend.util.TEMath;
+import titanicsend.util.Vec2;
+import titanicsend.util.Vec3;
+import titanicsend.util.Vec4;
 
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 import static java.lang.Math.*;
-import static titanicsend.util.TEMath.*;
 
 //https://www.shadertoy.com/view/wstGz4
 //Noncommercial license
@@ -22,6 +23,11 @@ public class OutrunGridShader extends FragmentShaderEffect {
     private static final double DEG2RAD = PI/180.;
     private static final int SUPERSAMP = 8;
 
+    private static final float CAMERA_Y = 1.5f;
+    private static final float HALF_FOV_TAN = (float) tan(90.0 * DEG2RAD * .5);
+    // pow(1.2, x) as exp(LN_FADE * x)
+    private static final double LN_FADE = log(1.2);
+
     private final CompoundParameter forwardSpeed =
             new CompoundParameter("Forward Speed", 4, 0, 10)
                     .setDescription("Forward speed");
@@ -51,78 +57,86 @@ public class OutrunGridShader extends FragmentShaderEffect {
         return List.of(forwardSpeed, sidewaysSpeed, colorChangeSpeed, alphaWaves, glowing);
     }
 
+    // Per frame, read by every tile
+    private float displaceX;
+    private float displaceY;
+    private float colorPhase;
+    private boolean alphaWavesOn;
+    private boolean glowingOn;
+
+    // Points may be colored on several threads at once
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private static class Scratch {
+        final Vec2 p = new Vec2();
+        final Vec2 gridPos = new Vec2();
+        final Vec2 grid = new Vec2();
+        final Vec3 col = new Vec3();
+    }
+
+    @Override
+    protected void beforeTiles(double deltaMs) {
+        super.beforeTiles(deltaMs);
+        double timeSeconds = getFrameDurationSec();
+        //responsible for waving the camera around. only the fractional part of the
+        // displacement moves the grid, so take it here, before it's rounded to float
+        displaceX = (float) TEMath.fract(3 * sin(sidewaysSpeed.getValue() * PI * 0.1 * timeSeconds));
+        displaceY = (float) TEMath.fract(forwardSpeed.getValue() * timeSeconds);
+        colorPhase = (float) (timeSeconds * colorChangeSpeed.getValue());
+        alphaWavesOn = alphaWaves.getValueb();
+        glowingOn = glowing.getValueb();
+    }
+
     @Override
-    protected double[] getColorForPoint(double[] fragCoordinates, double[] resolution, double timeSeconds) {
-        double[] p = new double[]{
-                (fragCoordinates[0] - .5 * resolution[0]) / resolution[1],
-                (fragCoordinates[1] - .5 * resolution[1]) / resolution[1]
-        };
+    protected void getColorForPoint(Vec2 fragCoordinates, Vec2 resolution, float timeSeconds, Vec4 fragColor) {
+        Scratch s = scratch.get();
+        Vec2 p = s.p.set(fragCoordinates).sub(.5f * resolution.x, .5f * resolution.y).mul(1 / resolution.y);
 
-        double fragSize = 1. / resolution[1];
-        double superSize = fragSize / SUPERSAMP;
+        float fragSize = 1f / resolution.y;
+        float superSize = fragSize / SUPERSAMP;
 
         //operates on a scale of (-0.5, .5)
-        double horizonY = HORIZON_Y - 0.5;
+        float horizonY = (float) HORIZON_Y - 0.5f;
 
-        double[] fragColor;
-        if (p[1] > horizonY) {
-            fragColor = new double[]{0, 0, 0, 0};
+        if (p.y > horizonY) {
+            fragColor.set(0, 0, 0, 0);
         } else {
-            double intensity = 0.;
-
-            //responsible for waving the camera around
-            double[] displace = new double[]{3 * sin(sidewaysSpeed.getValue() * PI * 0.1 * timeSeconds),
-                    forwardSpeed.getValue() * timeSeconds, 1.5};
-
-            double fov = 90.0;
+            float intensity = 0;
 
             for (int i = 0; i < SUPERSAMP; i++) {
                 for (int j = 0; j < SUPERSAMP; j++) {
-                    double[] superOffset = multiplyArray(superSize, new double[]{i, j});
-                    double[] gridPosLong = revProject(
-                            subtractArrays(addArrays(superOffset, p), new double[]{0, horizonY}), displace[2], fov);
-
-                    double[] gridPos = new double[]{gridPosLong[0], gridPosLong[2]};
-                    double[] grid = Arrays.stream(
-                            subtractArrays(gridPos, Arrays.copyOfRange(displace, 0, 2)))
-                            .map(v -> TEMath.fract(v) - .5).toArray();
+                    Vec2 gridPos = revProject(p.x + superSize * i, p.y + superSize * j - horizonY, s.gridPos);
+                    Vec2 grid = s.grid.set(gridPos).sub(displaceX, displaceY).fract().add(-.5f);
 
                     //responsible for the dark traveling waves
-                    double pattern = alphaWaves.getValueb() ? 0.7 + 0.6 * sin(gridPos[1] - 6 * timeSeconds) : 1;
+                    float pattern = alphaWavesOn ? 0.7f + 0.6f * (float) sin(gridPos.y - 6 * timeSeconds) : 1;
 
-                    double dist = max(grid[0] * grid[0], grid[1] * grid[1]);
-                    double fade = min(1.5, pow(1.2, -vectorLength(gridPos) + 15.0));
-                    double bright = 0.015 / (0.26 - dist);
+                    float dist = max(grid.x * grid.x, grid.y * grid.y);
+                    float fade = min(1.5f, (float) exp(LN_FADE * (-gridPos.length() + 15.0f)));
+                    float bright = 0.015f / (0.26f - dist);
                     intensity += fade * pattern * bright;
                 }
             }
 
-            double[] baseColor = new double[]{0, 10, 20};
-
-            //responsible for the color changing
-            double[] pTmp = new double[]{p[1], p[0], p[1]};
-            double[] col = Arrays.stream(addArrays(baseColor, pTmp))
-                    .map(v -> .5 + .5 * cos(timeSeconds * colorChangeSpeed.getValue() + v))
-                    .toArray();
-
+            //responsible for the color changing: baseColor (0, 10, 20) + p.yxy
+            Vec3 col = s.col.set(p.y, p.x + 10, p.y + 20).add(colorPhase).cos().mul(.5f).add(.5f);
 
             intensity /= SUPERSAMP*SUPERSAMP;
 
-            fragColor = new double[]{intensity * col[0], intensity * col[1],
-                    intensity * col[2], 1f};
+            fragColor.set(col.mul(intensity), 1f);
         }
 
         //responsible for the glowing
-        if (glowing.getValueb()) {
-            fragColor = Arrays.stream(fragColor).map(v -> pow(v, .4545)).toArray();
+        if (glowingOn) {
+            fragColor.pow(.4545f);
         }
-        return fragColor;
     }
 
-    private double[] revProject(double[] camPos, double worldY, double fov) {
-        double worldZ = worldY / (camPos[1] * tan(fov * DEG2RAD * .5));
-        double worldX = worldY * camPos[0] / camPos[1];
-        return new double[]{worldX, worldY, worldZ};
+    // The ground position (x, z) seen through camPos, with the camera at CAMERA_Y
+    private static Vec2 revProject(float camX, float camY, Vec2 out) {
+        float worldZ = CAMERA_Y / (camY * HALF_FOV_TAN);
+        float worldX = CAMERA_Y * camX / camY;
+        return out.set(worldX, worldZ);
     }
 
 }
@@ -15,7 +15,7 @@ import static java.lang.Math.*;
 import static titanicsend.util.TEMath.*;
 
 //https://www.shadertoy.com/view/Mls3DB
-public class RainbowSwirlShader extends FragmentShaderEffect {
+public class RainbowSwirlShader extends DoubleArrayShaderEffect {
 
     private final CompoundParameter bloom =
             new CompoundParameter("Bloom", 5, -0, 25)
@@ -11,7 +11,7 @@ import static java.lang.Math.*;
 import static titanicsend.util.TEMath.*;
 
 //https://www.shadertoy.com/view/MdlXz8
-public class WaterShader extends FragmentShaderEffect {
+public class WaterShader extends DoubleArrayShaderEffect {
 
     public final CompoundParameter tile =
             new CompoundParameter("Tiling", 0, 1, 4)
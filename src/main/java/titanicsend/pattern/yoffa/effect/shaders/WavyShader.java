@@ -11,7 +11,7 @@ import static java.lang.Math.*;
 import static titanicsend.util.TEMath.*;
 
 //https://www.shadertoy.com/view/4lB3DG
-public class WavyShader extends FragmentShaderEffect {
+public class WavyShader extends DoubleArrayShaderEffect {
 
     public final CompoundParameter intensity =
             new CompoundParameter("Intensity", 0, 0, 10)
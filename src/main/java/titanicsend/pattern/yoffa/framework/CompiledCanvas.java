@@ -0,0 +1,132 @@
+package titanicsend.pattern.yoffa.framework;
+
+import heronarts.lx.model.LXPoint;
+import titanicsend.model.TEWholeModel;
+import titanicsend.util.Dimensions;
+
+import java.util.*;
+
+/**
+ * A group of points painted as one flat canvas, laid out once so effects can
+ * loop over plain arrays instead of a map of points to Dimensions.
+ *
+ * Each point gets u and v, 0-1 across and up the canvas. Across is along z if
+ * the canvas is deeper than it is wide, otherwise along x; that choice is made
+ * here instead of for every point on every frame. width and height are the
+ * canvas's extent along those axes, in model units, for effects that want
+ * fragment coordinates (u * width, v * height) like a shader's gl_FragCoord.
+ *
+ * Compiled canvases are shared: every target asking for the same points on the
+ * same model gets the same instance, so don't modify the arrays.
+ */
+public class CompiledCanvas {
+
+    public final int[] indices;     // LXPoint index of each point on the canvas
+    public final float[] u;
+    public final float[] v;
+    public final boolean useZForX;
+    public final float width;
+    public final float height;
+    public final Dimensions dimensions;
+
+    // Model -> canvases compiled against it, by their points
+    private static final Map<TEWholeModel, Map<IndexKey, CompiledCanvas>> shared = new WeakHashMap<>();
+
+    private CompiledCanvas(int[] indices, LXPoint[] points, Dimensions dimensions) {
+        this.indices = indices;
+        this.dimensions = dimensions;
+        this.useZForX = dimensions.widerOnZThanX();
+        this.width = this.useZForX ? dimensions.getDepth() : dimensions.getWidth();
+        this.height = dimensions.getHeight();
+
+        float minUn = this.useZForX ? dimensions.getMinZn() : dimensions.getMinXn();
+        float rangeUn = this.useZForX ? dimensions.getDepthNormalized() : dimensions.getWidthNormalized();
+        float minVn = dimensions.getMinYn();
+        float rangeVn = dimensions.getHeightNormalized();
+        this.u = new float[indices.length];
+        this.v = new float[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            LXPoint point = points[indices[i]];
+            this.u[i] = ((this.useZForX ? point.zn : point.xn) - minUn) / rangeUn;
+            this.v[i] = (point.yn - minVn) / rangeVn;
+        }
+    }
+
+    public int size() {
+        return this.indices.length;
+    }
+
+    // The shared canvas for these points, compiling it the first time it's asked for
+    public static CompiledCanvas of(TEWholeModel model, Collection<LXPoint> points) {
+        int[] indices = new int[points.size()];
+        int n = 0;
+        for (LXPoint point : points) {
+            indices[n++] = point.index;
+        }
+        Arrays.sort(indices);
+        // The same point twice is still one point on the canvas
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || indices[i] != indices[unique - 1]) indices[unique++] = indices[i];
+        }
+        int[] sorted = unique < n ? Arrays.copyOf(indices, unique) : indices;
+        IndexKey key = new IndexKey(sorted);
+        synchronized (shared) {
+            return shared.computeIfAbsent(model, m -> new HashMap<>())
+                    .computeIfAbsent(key, k -> new CompiledCanvas(sorted, model.points, Dimensions.fromPoints(points)));
+        }
+    }
+
+    // Drops the canvases compiled against a model that's been replaced, so nothing new is handed them
+    public static void forget(TEWholeModel model) {
+        synchronized (shared) {
+            shared.remove(model);
+        }
+    }
+
+    // This canvas minus some points, keeping its layout. Not shared.
+    CompiledCanvas without(BitSet removed) {
+        int n = 0;
+        int[] indices = new int[this.indices.length];
+        float[] u = new float[this.indices.length];
+        float[] v = new float[this.indices.length];
+        for (int i = 0; i < this.indices.length; i++) {
+            if (removed.get(this.indices[i])) continue;
+            indices[n] = this.indices[i];
+            u[n] = this.u[i];
+            v[n] = this.v[i];
+            n++;
+        }
+        return new CompiledCanvas(this, Arrays.copyOf(indices, n), Arrays.copyOf(u, n), Arrays.copyOf(v, n));
+    }
+
+    private CompiledCanvas(CompiledCanvas layout, int[] indices, float[] u, float[] v) {
+        this.indices = indices;
+        this.u = u;
+        this.v = v;
+        this.useZForX = layout.useZForX;
+        this.width = layout.width;
+        this.height = layout.height;
+        this.dimensions = layout.dimensions;
+    }
+
+    private static class IndexKey {
+        private final int[] indices;
+        private final int hash;
+
+        IndexKey(int[] indices) {
+            this.indices = indices;
+            this.hash = Arrays.hashCode(indices);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IndexKey && Arrays.equals(this.indices, ((IndexKey) o).indices);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package titanicsend.pattern.yoffa.framework;
 
 import heronarts.lx.LX;
+import heronarts.lx.model.LXModel;
+import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.LXParameter;
 import titanicsend.pattern.TEAudioPattern;
 
@@ -11,12 +13,17 @@ public abstract class ConstructedPattern extends TEAudioPattern {
 
     private final List<PatternEffect> effects;
 
+    public final BooleanParameter parallel =
+            new BooleanParameter("Parallel", false)
+                    .setDescription("Split effects that support it into tiles and run them on every core");
+
     protected ConstructedPattern(LX lx) {
         super(lx);
         effects = createEffects();
         for (LXParameter parameter : getPatternParameters()) {
             addParameter(parameter.getLabel(), parameter);
         }
+        addParameter("parallel", parallel);
     }
 
 
@@ -29,6 +36,14 @@ public abstract class ConstructedPattern extends TEAudioPattern {
                 .collect(Collectors.toSet());
     }
 
+    @Override
+    protected void onModelChanged(LXModel model) {
+        super.onModelChanged(model);
+        for (PatternEffect effect : effects) {
+            effect.onModelChanged();
+        }
+    }
+
     @Override
     public void onActive() {
         for (PatternEffect effect : effects) {
@@ -52,8 +67,14 @@ public abstract class ConstructedPattern extends TEAudioPattern {
     @Override
     protected void runTEAudioPattern(double deltaMillis) {
         clearColors();
+        boolean tiled = parallel.isOn();
         for (PatternEffect effect : effects) {
-            effect.run(deltaMillis);
+            if (tiled && effect.isTileable()) {
+                TileRunner.run(effect, deltaMillis);
+            } else {
+                effect.run(deltaMillis);
+            }
+            effect.mirrorRest();
         }
     }
 
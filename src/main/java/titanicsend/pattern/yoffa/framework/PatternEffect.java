@@ -4,25 +4,46 @@ import heronarts.lx.Tempo;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.LXParameter;
+import titanicsend.model.TEMirrors;
 import titanicsend.pattern.TEAudioPattern;
 import titanicsend.pattern.TEPattern;
-import titanicsend.util.Dimensions;
 
 import java.util.*;
 
 public abstract class PatternEffect {
 
     protected final TEAudioPattern pattern;
-    protected final Map<LXPoint, Dimensions> pointsToCanvas;
+    private final PatternTarget target;
+    //laid out again when the geometry changes; see onCanvasesChanged
+    protected CompiledCanvas[] canvases;
+    // Fills in the points a symmetric target left off the canvases; null if it has no symmetry
+    private TEMirrors.CopyPlan mirrorPlan;
+    private Set<LXPoint> allPoints = null;
+    private TileRunner.Tile[] tiles = null;
     private boolean shouldBlend;
     private long startTime = System.currentTimeMillis();
 
 
     public PatternEffect(PatternTarget target) {
         this.pattern = target.pattern;
-        this.pointsToCanvas = target.pointsToCanvas;
+        this.target = target;
+        this.mirrorPlan = target.mirrorPlan();
+        this.canvases = target.renderedCanvases(this.mirrorPlan);
     }
 
+    //ConstructedPattern calls this on the engine thread when the pattern's model has been swapped
+    final void onModelChanged() {
+        target.rebuild();
+        mirrorPlan = target.mirrorPlan();
+        canvases = target.renderedCanvases(mirrorPlan);
+        tiles = null;
+        allPoints = null;
+        onCanvasesChanged();
+    }
+
+    //for effects that work anything out from canvases or getAllPoints() when they're constructed
+    protected void onCanvasesChanged() {}
+
     public final void onActive() {
         startTime = System.currentTimeMillis();
         onPatternActive();
@@ -36,6 +57,41 @@ public abstract class PatternEffect {
 
     public abstract void run(double deltaMs);
 
+    //effects that can color any slice of a canvas on its own, from any thread, return true and
+    //implement beforeTiles and runTile. ConstructedPattern can then run them across cores.
+    public boolean isTileable() {
+        return false;
+    }
+
+    //once per frame before any tile runs, on the engine thread
+    protected void beforeTiles(double deltaMs) {}
+
+    //colors points from (inclusive) to to (exclusive) of the canvas. must be thread safe
+    protected void runTile(CompiledCanvas canvas, int from, int to) {}
+
+    //what run does for a tileable effect, on one thread
+    protected final void runAllTiles(double deltaMs) {
+        beforeTiles(deltaMs);
+        for (CompiledCanvas canvas : canvases) {
+            runTile(canvas, 0, canvas.size());
+        }
+    }
+
+    TileRunner.Tile[] getTiles() {
+        if (tiles == null) {
+            tiles = TileRunner.tiles(canvases);
+        }
+        return tiles;
+    }
+
+    //copies the rendered points onto the ones a symmetric target skipped. ConstructedPattern calls this right
+    //after the effect runs, before the next effect draws over it
+    final void mirrorRest() {
+        if (mirrorPlan != null) {
+            mirrorPlan.copy(pattern.getColors());
+        }
+    }
+
     public abstract Collection<? extends LXParameter> getParameters();
 
     public boolean hasParameters() {
@@ -53,11 +109,16 @@ public abstract class PatternEffect {
 
     //must be thread safe
     protected void setColor(LXPoint point, int color) {
+        setColor(point.index, color);
+    }
+
+    //must be thread safe
+    protected void setColor(int index, int color) {
         int[] colors = pattern.getColors();
         if (shouldBlend()) {
-            colors[point.index] = LXColor.blend(colors[point.index], color, LXColor.Blend.ADD);
+            colors[index] = LXColor.blend(colors[index], color, LXColor.Blend.ADD);
         } else {
-            colors[point.index] = color;
+            colors[index] = color;
         }
     }
 
@@ -65,8 +126,19 @@ public abstract class PatternEffect {
         return (System.currentTimeMillis() - startTime) / 1000.;
     }
 
+    //for per-frame loops, iterating canvases' indices is cheaper
     protected Set<LXPoint> getAllPoints() {
-        return pointsToCanvas.keySet();
+        if (allPoints == null) {
+            LXPoint[] points = pattern.getModel().points;
+            Set<LXPoint> set = new LinkedHashSet<>();
+            for (CompiledCanvas canvas : canvases) {
+                for (int index : canvas.indices) {
+                    set.add(points[index]);
+                }
+            }
+            allPoints = Collections.unmodifiableSet(set);
+        }
+        return allPoints;
     }
 
     protected Tempo getTempo() {
@@ -1,18 +1,23 @@
 package titanicsend.pattern.yoffa.framework;
 
 import heronarts.lx.model.LXPoint;
+import titanicsend.model.TEMirrors;
 import titanicsend.model.TEModel;
 import titanicsend.model.TEPanelSection;
 import titanicsend.pattern.TEAudioPattern;
-import titanicsend.pattern.TEPattern;
-import titanicsend.util.Dimensions;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class PatternTarget {
 
-    final Map<LXPoint, Dimensions> pointsToCanvas = new HashMap<>();
+    // Compiled once per set of points and shared between targets; see CompiledCanvas
+    final List<CompiledCanvas> canvases = new ArrayList<>();
+    private final BitSet targeted = new BitSet();
+    private TEMirrors.Symmetry symmetry = TEMirrors.Symmetry.NONE;
+    // How the canvases were asked for, so they can be worked out again when the geometry changes
+    private final List<Consumer<PatternTarget>> steps = new ArrayList<>();
 
     TEAudioPattern pattern;
 
@@ -20,15 +25,93 @@ public class PatternTarget {
         this.pattern = pattern;
     }
 
+    private PatternTarget add(Consumer<PatternTarget> step) {
+        steps.add(step);
+        step.accept(this);
+        return this;
+    }
+
+    // Lays the canvases out again on the pattern's current model, the same way they were asked for
+    void rebuild() {
+        canvases.clear();
+        targeted.clear();
+        for (Consumer<PatternTarget> step : steps) {
+            step.accept(this);
+        }
+    }
+
+    private void addCanvas(Collection<LXPoint> points) {
+        if (points.isEmpty()) return;
+        CompiledCanvas canvas = CompiledCanvas.of(pattern.getModel(), points);
+
+        // A point belongs to the last canvas it was added to
+        BitSet overlap = new BitSet();
+        for (int index : canvas.indices) {
+            if (targeted.get(index)) overlap.set(index);
+            targeted.set(index);
+        }
+        if (!overlap.isEmpty()) {
+            canvases.replaceAll(earlier -> earlier.without(overlap));
+            canvases.removeIf(earlier -> earlier.size() == 0);
+        }
+        canvases.add(canvas);
+    }
+
+    // Points picked out by the caller are kept by index, which a geometry change that keeps the
+    // point count leaves valid
+    private List<LXPoint> pointsAt(int[] indices) {
+        LXPoint[] points = pattern.getModel().points;
+        List<LXPoint> list = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            if (index < points.length) list.add(points[index]);
+        }
+        return list;
+    }
+
+    private static int[] indicesOf(Collection<LXPoint> points) {
+        return points.stream().mapToInt(point -> point.index).toArray();
+    }
+
+    private static Collection<LXPoint> pointsOf(Collection<? extends TEModel> models) {
+        return models.stream().map(TEModel::getPoints).flatMap(List::stream).collect(Collectors.toSet());
+    }
+
     public PatternTarget addPointsAsCanvas(Collection<LXPoint> points) {
-        Dimensions dimensions = Dimensions.fromPoints(points);
-        points.forEach(point -> pointsToCanvas.put(point, dimensions));
+        int[] indices = indicesOf(points);
+        return add(target -> target.addCanvas(target.pointsAt(indices)));
+    }
+
+    /**
+     * Render only part of the target and copy the rest from its mirror images;
+     * see TEMirrors. Only for effects whose output is symmetric across the
+     * chosen plane(s) on these canvases. It changes how anything else looks.
+     */
+    public PatternTarget setSymmetry(TEMirrors.Symmetry symmetry) {
+        this.symmetry = symmetry;
         return this;
     }
 
+    // Copies that fill in what renderedCanvases() leaves out; null without a symmetry
+    TEMirrors.CopyPlan mirrorPlan() {
+        if (symmetry == TEMirrors.Symmetry.NONE) return null;
+        return pattern.getModel().mirrors.plan(symmetry, targeted);
+    }
+
+    // The canvases minus the points mirrorPlan() will copy to, each keeping its layout
+    CompiledCanvas[] renderedCanvases(TEMirrors.CopyPlan plan) {
+        if (plan == null || plan.isEmpty()) return canvases.toArray(new CompiledCanvas[0]);
+        BitSet copied = new BitSet();
+        for (int i = 0; i < plan.size(); i++) {
+            copied.set(plan.target(i));
+        }
+        return canvases.stream()
+                .map(canvas -> canvas.without(copied))
+                .filter(canvas -> canvas.size() > 0)
+                .toArray(CompiledCanvas[]::new);
+    }
+
     public PatternTarget addModelsAsOneCanvas(Collection<? extends TEModel> models) {
-        addPointsAsCanvas(models.stream().map(TEModel::getPoints).flatMap(List::stream).collect(Collectors.toSet()));
-        return this;
+        return addPointsAsCanvas(pointsOf(models));
     }
 
     public PatternTarget addModelsWithIndividualCanvases(Collection<? extends TEModel> models) {
@@ -36,24 +119,35 @@ public class PatternTarget {
         return this;
     }
 
+    // Sections and the whole-model targets below are looked up again on each new model
     public PatternTarget addPanelSectionAsCanvas(TEPanelSection section) {
-        return addModelsAsOneCanvas(pattern.getModel().getPanelsBySection(section));
+        return add(target -> target.addCanvas(pointsOf(target.pattern.getModel().getPanelsBySection(section))));
     }
 
     public PatternTarget addPanelSectionAsIndividualCanvases(TEPanelSection section) {
-        return addModelsWithIndividualCanvases(pattern.getModel().getPanelsBySection(section));
+        return add(target -> target.pattern.getModel().getPanelsBySection(section)
+                .forEach(panel -> target.addCanvas(panel.getPoints())));
     }
 
     public static PatternTarget allEdgesAsCanvas(TEAudioPattern pattern) {
-        return new PatternTarget(pattern).addPointsAsCanvas(pattern.getModel().edgePoints);
+        return new PatternTarget(pattern).add(target -> target.addCanvas(target.pattern.getModel().edgePoints));
+    }
+
+    // All edges, rendering only the starboard half when the canvas runs along z. Then u and v come from z
+    // and y alone, so an effect painting from them can't tell port from starboard anyway
+    public static PatternTarget symmetricEdgesAsCanvas(TEAudioPattern pattern) {
+        return allEdgesAsCanvas(pattern).add(target ->
+                target.symmetry = target.canvases.size() == 1 && target.canvases.get(0).useZForX ?
+                        TEMirrors.Symmetry.PORT_STARBOARD : TEMirrors.Symmetry.NONE);
     }
 
     public static PatternTarget allPanelsAsCanvas(TEAudioPattern pattern) {
-        return new PatternTarget(pattern).addPointsAsCanvas(pattern.getModel().panelPoints);
+        return new PatternTarget(pattern).add(target -> target.addCanvas(target.pattern.getModel().panelPoints));
     }
 
     public static PatternTarget allPanelsAsIndividual(TEAudioPattern pattern) {
-        return new PatternTarget(pattern).addModelsWithIndividualCanvases(pattern.getModel().getAllPanels());
+        return new PatternTarget(pattern).add(target -> target.pattern.getModel().getAllPanels()
+                .forEach(panel -> target.addCanvas(panel.getPoints())));
     }
 
     public static PatternTarget doubleLargeCanvas(TEAudioPattern pattern) {
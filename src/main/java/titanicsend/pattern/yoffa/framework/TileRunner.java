@@ -0,0 +1,91 @@
+package titanicsend.pattern.yoffa.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs tileable PatternEffects across cores. Each effect's canvases are cut
+ * into tiles of at most TILE_SIZE points, small enough that a tile's indices,
+ * u and v stay in cache while it's colored, and the tiles are spread over one
+ * ForkJoinPool shared by every pattern.
+ *
+ * Effects still run one at a time, in order, and each waits for all its
+ * tiles to finish. Since a point is on only one of an effect's canvases,
+ * every tile writes different pixels, so effects that blend (setShouldBlend)
+ * add onto exactly what the effect before them left, and the frame comes out
+ * the same as running the effects on one thread.
+ */
+public class TileRunner {
+
+    // 3 arrays of 1024 entries: 12KB, comfortably inside L1 plus the colors touched
+    public static final int TILE_SIZE = 1024;
+
+    // One core stays free for the engine thread, which waits on the pool anyway,
+    // and the output senders
+    private static final ForkJoinPool pool =
+            new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    static class Tile {
+        final CompiledCanvas canvas;
+        final int from;
+        final int to;
+
+        Tile(CompiledCanvas canvas, int from, int to) {
+            this.canvas = canvas;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    // An effect's canvases cut into tiles, worked out once
+    static Tile[] tiles(CompiledCanvas[] canvases) {
+        List<Tile> tiles = new ArrayList<>();
+        for (CompiledCanvas canvas : canvases) {
+            for (int from = 0; from < canvas.size(); from += TILE_SIZE) {
+                tiles.add(new Tile(canvas, from, Math.min(canvas.size(), from + TILE_SIZE)));
+            }
+        }
+        return tiles.toArray(new Tile[0]);
+    }
+
+    // Colors every tile of a tileable effect, returning when they're all done
+    static void run(PatternEffect effect, double deltaMs) {
+        effect.beforeTiles(deltaMs);
+        Tile[] tiles = effect.getTiles();
+        if (tiles.length == 1) {
+            effect.runTile(tiles[0].canvas, tiles[0].from, tiles[0].to);
+        } else if (tiles.length > 1) {
+            pool.invoke(new TileTask(effect, tiles, 0, tiles.length));
+        }
+    }
+
+    // Splits the tiles in half until there's one left to run
+    private static class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PatternEffect effect;
+        private final Tile[] tiles;
+        private final int lo;
+        private final int hi;
+
+        TileTask(PatternEffect effect, Tile[] tiles, int lo, int hi) {
+            this.effect = effect;
+            this.tiles = tiles;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                Tile tile = tiles[lo];
+                effect.runTile(tile.canvas, tile.from, tile.to);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new TileTask(effect, tiles, lo, mid), new TileTask(effect, tiles, mid, hi));
+            }
+        }
+    }
+}
@@ -1,15 +1,13 @@
 package titanicsend.pattern.yoffa.media;
 
 import heronarts.lx.LXCategory;
-import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.LXParameter;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
 import titanicsend.pattern.yoffa.framework.PatternEffect;
 import titanicsend.pattern.yoffa.framework.PatternTarget;
-import titanicsend.util.Dimensions;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 // Example to show how we could map a video onto our panels
 // Not intended from production use
@@ -48,8 +46,8 @@ public class BasicVideoPatternEffect extends PatternEffect {
         try {
             videoPainter.grabFrame();
 
-            for (Map.Entry<LXPoint, Dimensions> pointToCanvas : pointsToCanvas.entrySet()) {
-                videoPainter.paint(pointToCanvas.getKey(), pointToCanvas.getValue());
+            for (CompiledCanvas canvas : canvases) {
+                videoPainter.paint(canvas);
             }
         } catch (Exception e) {
             //fail silently so we can swap out videos live
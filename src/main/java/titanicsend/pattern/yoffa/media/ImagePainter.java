@@ -4,6 +4,7 @@ import heronarts.lx.color.LXColor;
 import heronarts.lx.model.LXPoint;
 import titanicsend.model.TEModel;
 import titanicsend.model.TEPanelModel;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
 import titanicsend.util.Dimensions;
 
 import javax.imageio.ImageIO;
@@ -66,7 +67,25 @@ public class ImagePainter {
             normalizedX = (point.xn - canvasDimensions.getMinXn()) / canvasDimensions.getWidthNormalized();
         }
         float normalizedY = (point.yn - canvasDimensions.getMinYn()) / canvasDimensions.getHeightNormalized();
+        colors[point.index] = colorAt(normalizedX, normalizedY, scaleRatio);
+    }
+
+    // Same as painting each point with its canvas's Dimensions, with the layout already worked out
+    public void paint(CompiledCanvas canvas, double scaleRatio) {
+        paint(canvas, 0, canvas.size(), scaleRatio);
+    }
+
+    // Just points from (inclusive) to to (exclusive) of the canvas, for tiled effects
+    public void paint(CompiledCanvas canvas, int from, int to, double scaleRatio) {
+        int[] indices = canvas.indices;
+        float[] u = canvas.u;
+        float[] v = canvas.v;
+        for (int i = from; i < to; i++) {
+            colors[indices[i]] = colorAt(u[i], v[i], scaleRatio);
+        }
+    }
 
+    private int colorAt(float normalizedX, float normalizedY, double scaleRatio) {
         double x = (1 - normalizedX) * image.getWidth();
         x = x / scaleRatio + ((image.getWidth()-(image.getWidth() / scaleRatio)) / 2);
         int xi = (int) Math.min(Math.round(x), image.getWidth() - 1);
@@ -75,8 +94,7 @@ public class ImagePainter {
         y = y / scaleRatio + ((image.getHeight()-(image.getHeight() / scaleRatio)) / 2);
         int yi = (int) Math.min(Math.round(y), image.getHeight() - 1);
 
-        int color = (x < 0 || y < 0) ? LXColor.BLACK : image.getColor(xi, yi);
-        colors[point.index] = color;
+        return (x < 0 || y < 0) ? LXColor.BLACK : image.getColor(xi, yi);
     }
 
     public interface ImageSource {
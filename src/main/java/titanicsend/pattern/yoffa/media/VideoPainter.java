@@ -6,6 +6,7 @@ import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameGrabber;
 import org.bytedeco.javacv.Java2DFrameConverter;
 import titanicsend.model.TEModel;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
 import titanicsend.util.Dimensions;
 
 import java.util.Collection;
@@ -59,6 +60,12 @@ public class VideoPainter {
         }
     }
 
+    public void paint(CompiledCanvas canvas) {
+        if (currentFramePainter != null) {
+            currentFramePainter.paint(canvas, 1);
+        }
+    }
+
     public void startVideo() {
         try {
             frameGrabber.start();
@@ -51,6 +51,8 @@ public class NativeShader implements GLEventListener {
     private static final String FRAGMENT_SHADER_TEMPLATE =
             ShaderUtils.loadResource("resources/shaders/framework/template.fs");
     private static final String SHADER_BODY_PLACEHOLDER = "{{%shader_body%}}";
+    private static final String DEFINES_PLACEHOLDER = "{{%defines%}}";
+    private static final String POINT_TARGET_SIZE = "pointTargetSize";
 
     private final FragmentShader fragmentShader;
     private final int xResolution;
@@ -65,12 +67,39 @@ public class NativeShader implements GLEventListener {
     private int[][] snapshot;
     private AudioInfo audioInfo;
 
-
+    //point-sampled: instead of the whole screen, the shader is run at just these coordinates (x, y pairs),
+    //  one per pixel of a small target, and the colors are read back in the same order
+    private final FloatBuffer pointBuffer;
+    private final int pointCount;
+    private final int targetWidth;
+    private final int targetHeight;
+    private IntBuffer pointPixels;
+    private int[] pointColors;
+    private int pointBufferHandle;
 
     public NativeShader(FragmentShader fragmentShader, int xResolution, int yResolution) {
+        this(fragmentShader, xResolution, yResolution, null, xResolution, yResolution);
+    }
+
+    //the target must have at least as many pixels as there are points
+    public NativeShader(FragmentShader fragmentShader, int xResolution, int yResolution,
+                        float[] pointCoords, int targetWidth, int targetHeight) {
         this.xResolution = xResolution;
         this.yResolution = yResolution;
         this.fragmentShader = fragmentShader;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        if (pointCoords != null) {
+            this.pointCount = pointCoords.length / 2;
+            if (pointCount > targetWidth * targetHeight) {
+                throw new IllegalArgumentException(pointCount + " points don't fit a " + targetWidth + "x" +
+                        targetHeight + " target");
+            }
+            this.pointBuffer = Buffers.newDirectFloatBuffer(pointCoords);
+        } else {
+            this.pointCount = 0;
+            this.pointBuffer = null;
+        }
         this.vertexBuffer = Buffers.newDirectFloatBuffer(VERTICES.length);
         this.indexBuffer = Buffers.newDirectIntBuffer(INDICES.length);
         this.vertexBuffer.put(VERTICES);
@@ -84,18 +113,64 @@ public class NativeShader implements GLEventListener {
     public void init(GLAutoDrawable glAutoDrawable) {
         initShaderProgram(glAutoDrawable);
         downloadTextureFiles(fragmentShader);
+        if (isPointSampled()) {
+            //the points don't move, so they're uploaded once
+            GL4 gl4 = glAutoDrawable.getGL().getGL4();
+            pointBufferHandle = bindBufferData(gl4, pointBuffer, GL_ARRAY_BUFFER, Float.BYTES);
+            pointPixels = Buffers.newDirectIntBuffer(targetWidth * targetHeight);
+            pointColors = new int[pointCount];
+            checkGlError(gl4, "uploading points");
+        }
         startTime = System.currentTimeMillis();
     }
 
     @Override
     public void display(GLAutoDrawable glAutoDrawable) {
         GL4 gl4 = glAutoDrawable.getGL().getGL4();
-        setUpCanvas(gl4);
-        setUniforms(gl4);
-        saveSnapshot(gl4, xResolution, yResolution);
+        if (isPointSampled()) {
+            gl4.glUseProgram(shaderProgram.getProgramId());
+            setUniforms(gl4);
+            drawPoints(gl4);
+            savePointColors(gl4);
+        } else {
+            setUpCanvas(gl4);
+            setUniforms(gl4);
+            saveSnapshot(gl4, xResolution, yResolution);
+        }
         gl4.glUseProgram(0);
     }
 
+    private void drawPoints(GL4 gl4) {
+        gl4.glViewport(0, 0, targetWidth, targetHeight);
+        //a point whose shader discards it stays black
+        gl4.glClearColor(0, 0, 0, 1);
+        gl4.glClear(GL_COLOR_BUFFER_BIT);
+
+        int sizeLocation = gl4.glGetUniformLocation(shaderProgram.getProgramId(), POINT_TARGET_SIZE);
+        gl4.glUniform2i(sizeLocation, targetWidth, targetHeight);
+
+        int positionLocation = shaderProgram.getShaderAttributeLocation(ShaderAttribute.POSITION);
+        gl4.glBindBuffer(GL_ARRAY_BUFFER, pointBufferHandle);
+        gl4.glVertexAttribPointer(positionLocation, 2, GL_FLOAT, false, 0, 0);
+        gl4.glEnableVertexAttribArray(positionLocation);
+        gl4.glDrawArrays(GL_POINTS, 0, pointCount);
+        gl4.glDisableVertexAttribArray(positionLocation);
+        checkGlError(gl4, "drawing points");
+    }
+
+    private void savePointColors(GL4 gl4) {
+        //BGRA packed in reverse is LX's ARGB int, so there's nothing to convert
+        pointPixels.rewind();
+        gl4.glReadBuffer(GL_BACK);
+        gl4.glReadPixels(0, 0, targetWidth, targetHeight, GL_BGRA, GL4.GL_UNSIGNED_INT_8_8_8_8_REV, pointPixels);
+        checkGlError(gl4, "reading points");
+        pointPixels.rewind();
+        pointPixels.get(pointColors, 0, pointCount);
+        for (int i = 0; i < pointCount; i++) {
+            pointColors[i] |= 0xff000000;   // opaque, like the snapshot
+        }
+    }
+
     private void saveSnapshot(GL4 gl4, int width, int height) {
         //read colors directly from the buffer for perf
         ByteBuffer buffer = GLBuffers.newDirectByteBuffer(width * height * 4);
@@ -115,6 +190,15 @@ public class NativeShader implements GLEventListener {
         }
     }
 
+    //the point-sampled path is newer than the full frame one, so it says when GL doesn't like it rather than
+    //  quietly showing whatever was left in the target
+    private static void checkGlError(GL4 gl4, String doing) {
+        int error = gl4.glGetError();
+        if (error != GL_NO_ERROR) {
+            throw new RuntimeException("GL error 0x" + Integer.toHexString(error) + " " + doing);
+        }
+    }
+
     private void setUpCanvas(GL4 gl4) {
         gl4.glUseProgram(shaderProgram.getProgramId());
 
@@ -202,9 +286,12 @@ public class NativeShader implements GLEventListener {
     private void initShaderProgram(GLAutoDrawable glAutoDrawable) {
         glAutoDrawable.getContext().makeCurrent();
         GL4 gl4 = glAutoDrawable.getGL().getGL4();
-        File vertexShader = new File("resources/shaders/framework/default.vs");
+        File vertexShader = new File(isPointSampled() ?
+                "resources/shaders/framework/points.vs" : "resources/shaders/framework/default.vs");
         shaderProgram = new ShaderProgram();
-        String shaderCode = FRAGMENT_SHADER_TEMPLATE.replace(SHADER_BODY_PLACEHOLDER, fragmentShader.getShaderBody());
+        String shaderCode = FRAGMENT_SHADER_TEMPLATE
+                .replace(DEFINES_PLACEHOLDER, isPointSampled() ? "#define POINT_SAMPLED" : "")
+                .replace(SHADER_BODY_PLACEHOLDER, fragmentShader.getShaderBody());
         shaderProgram.init(gl4, vertexShader, shaderCode);
     }
 
@@ -224,7 +311,7 @@ public class NativeShader implements GLEventListener {
         }
     }
 
-    private void bindBufferData(GL4 gl4, Buffer buffer, int destinationBufferConstant, int bufferElementBytes) {
+    private int bindBufferData(GL4 gl4, Buffer buffer, int destinationBufferConstant, int bufferElementBytes) {
         int[] bufferHandles = new int[1];
         gl4.glGenBuffers(1, bufferHandles, 0);
 
@@ -232,11 +319,15 @@ public class NativeShader implements GLEventListener {
         gl4.glBindBuffer(destinationBufferConstant, bufferHandles[0]);
         gl4.glBufferData(destinationBufferConstant, (long) buffer.capacity() * bufferElementBytes,
                 buffer, gl4.GL_STATIC_DRAW);
+        return bufferHandles[0];
     }
 
     @Override
     public void dispose(GLAutoDrawable glAutoDrawable) {
         GL4 gl4 = glAutoDrawable.getGL().getGL4();
+        if (isPointSampled()) {
+            gl4.glDeleteBuffers(1, new int[] {pointBufferHandle}, 0);
+        }
         shaderProgram.dispose(gl4);
     }
 
@@ -249,6 +340,16 @@ public class NativeShader implements GLEventListener {
         return snapshot;
     }
 
+    //point-sampled only: the last frame's color at each point, in the order of the coordinates.
+    //  the same array every frame
+    public int[] getPointColors() {
+        return pointColors;
+    }
+
+    public boolean isPointSampled() {
+        return pointBuffer != null;
+    }
+
     public void updateAudioInfo(AudioInfo audioInfo) {
         this.audioInfo = audioInfo;
     }
@@ -1,16 +1,38 @@
 package titanicsend.pattern.yoffa.shader_engine;
 
 import com.jogamp.opengl.*;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
 
 public class OffscreenShaderRenderer {
 
     private final static int xResolution = 640;
     private final static int yResolution = 480;
 
+    //point-sampled targets are this wide, with as many rows as the points need
+    private final static int POINTS_PER_ROW = 1024;
+
+    private final FragmentShader fragmentShader;
     private final NativeShader nativeShader;
     private final GLAutoDrawable offscreenDrawable;
 
+    //renders the whole 640x480 frame, for getFrame
     public OffscreenShaderRenderer(FragmentShader fragmentShader) {
+        this(fragmentShader, null);
+    }
+
+    //renders just the canvases' points, for getPoints. it's far less to read back than the whole frame, and
+    //  each point gets the shader's exact value where it lands rather than its nearest pixel
+    public OffscreenShaderRenderer(FragmentShader fragmentShader, CompiledCanvas[] canvases) {
+        this.fragmentShader = fragmentShader;
+        float[] pointCoords = canvases == null ? null : pointCoords(canvases);
+        int width = xResolution;
+        int height = yResolution;
+        if (pointCoords != null) {
+            int pointCount = pointCoords.length / 2;
+            width = Math.max(1, Math.min(pointCount, POINTS_PER_ROW));
+            height = Math.max(1, (pointCount + width - 1) / width);
+        }
+
         GLProfile glProfile = GLProfile.getGL4ES3();
         GLCapabilities glCapabilities = new GLCapabilities(glProfile);
         glCapabilities.setHardwareAccelerated(true);
@@ -20,13 +42,44 @@ public class OffscreenShaderRenderer {
         //need to specifically create an offscreen drawable
         //there is no way to have a normal drawable render on a panel/canvas which is not visible
         offscreenDrawable = factory.createOffscreenAutoDrawable(factory.getDefaultDevice(), glCapabilities,
-                new DefaultGLCapabilitiesChooser(), xResolution, yResolution);
+                new DefaultGLCapabilitiesChooser(), width, height);
         offscreenDrawable.display();
-        nativeShader = new NativeShader(fragmentShader, xResolution, yResolution);
+        nativeShader = new NativeShader(fragmentShader, xResolution, yResolution, pointCoords, width, height);
 
     }
 
+    //where on the 640x480 screen each point of the canvases is, x then y, one canvas after another. this is
+    //  where getFrame's image would show the point, mirrored in x like ImagePainter reads it, and where
+    //  CpuShader runs the shader for it
+    private static float[] pointCoords(CompiledCanvas[] canvases) {
+        int pointCount = 0;
+        for (CompiledCanvas canvas : canvases) {
+            pointCount += canvas.size();
+        }
+        float[] coords = new float[pointCount * 2];
+        int n = 0;
+        for (CompiledCanvas canvas : canvases) {
+            for (int i = 0; i < canvas.size(); i++) {
+                coords[n++] = (1 - canvas.u[i]) * xResolution;
+                coords[n++] = canvas.v[i] * yResolution;
+            }
+        }
+        return coords;
+    }
+
     public int[][] getFrame(AudioInfo audioInfo) {
+        render(audioInfo);
+        return nativeShader.getSnapshot();
+    }
+
+    //each point's color, ARGB, in the order of the canvases and their points. the same array every frame.
+    //  throws if GL reports an error drawing or reading them
+    public int[] getPoints(AudioInfo audioInfo) {
+        render(audioInfo);
+        return nativeShader.getPointColors();
+    }
+
+    private void render(AudioInfo audioInfo) {
         //lazy initialize
         //if this get called too early on it will disrupt lx's gl initialization
         if (!nativeShader.isInitialized()) {
@@ -36,7 +89,14 @@ public class OffscreenShaderRenderer {
 
         nativeShader.updateAudioInfo(audioInfo);
         nativeShader.display(offscreenDrawable);
-        return nativeShader.getSnapshot();
+    }
+
+    public boolean isPointSampled() {
+        return nativeShader.isPointSampled();
+    }
+
+    public FragmentShader getFragmentShader() {
+        return fragmentShader;
     }
 
     public void reset() {
@@ -0,0 +1,134 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import heronarts.lx.parameter.LXParameter;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
+import titanicsend.pattern.yoffa.shader_engine.AudioInfo;
+import titanicsend.pattern.yoffa.shader_engine.FragmentShader;
+import titanicsend.pattern.yoffa.shader_engine.Uniforms;
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Vec2;
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Vec4;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A FragmentShader compiled by GlslCompiler and run on the CPU, at just the
+ * points of a canvas rather than every pixel of a frame. Takes the same
+ * inputs NativeShader gives the GPU, on the same 640x480 virtual screen, so
+ * a shader looks the same either way.
+ *
+ * Colors any slice of a canvas from any thread: each thread gets its own
+ * program, since programs hold the shader's globals, and they all read one
+ * set of uniforms that updateUniforms() sets between frames.
+ */
+public class CpuShader {
+
+    // NativeShader's resolution, as OffscreenShaderRenderer sets it up
+    public static final int X_RESOLUTION = 640;
+    public static final int Y_RESOLUTION = 480;
+
+    public interface ColorSetter {
+        void setColor(int index, int color);
+    }
+
+    private final CpuShaderUniforms uniforms;
+    private final LXParameter[] customParameters;  // by uniform slot, null where nothing feeds one
+    private final ThreadLocal<CpuShaderProgram> programs;
+    private long startTime = System.currentTimeMillis();
+
+    public CpuShader(FragmentShader fragmentShader) {
+        GlslCompiler.Compiled compiled = GlslCompiler.compile(fragmentShader.getShaderBody());
+        uniforms = compiled.newUniforms();
+        uniforms.iResolution = new Vec2(X_RESOLUTION, Y_RESOLUTION);
+
+        List<String> names = compiled.getCustomUniforms();
+        customParameters = new LXParameter[names.size()];
+        for (LXParameter parameter : fragmentShader.getParameters()) {
+            int slot = names.indexOf(parameter.getLabel() + Uniforms.CUSTOM_SUFFIX);
+            if (slot >= 0) {
+                customParameters[slot] = parameter;
+            }
+        }
+
+        for (Map.Entry<Integer, String> texture : fragmentShader.getChannelToTexture().entrySet()) {
+            if (texture.getKey() < CpuShaderUniforms.CHANNELS) {
+                uniforms.iChannel[texture.getKey()] =
+                        loadTexture(texture.getValue(), fragmentShader.hasRemoteTextures());
+            }
+        }
+
+        programs = ThreadLocal.withInitial(() -> compiled.newProgram(uniforms));
+    }
+
+    private static Glsl.Sampler loadTexture(String path, boolean remote) {
+        try {
+            BufferedImage image = remote ? ImageIO.read(new URL(path)) : ImageIO.read(new File(path));
+            if (image == null) {
+                throw new IOException("unreadable image");
+            }
+            int width = image.getWidth();
+            int height = image.getHeight();
+            float[] rgba = new float[width * height * 4];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int argb = image.getRGB(x, y);
+                    int i = (y * width + x) * 4;
+                    rgba[i] = ((argb >> 16) & 0xff) / 255f;
+                    rgba[i + 1] = ((argb >> 8) & 0xff) / 255f;
+                    rgba[i + 2] = (argb & 0xff) / 255f;
+                    rgba[i + 3] = ((argb >>> 24) & 0xff) / 255f;
+                }
+            }
+            return new Glsl.Sampler(width, height, rgba);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't load texture " + path, e);
+        }
+    }
+
+    public void reset() {
+        startTime = System.currentTimeMillis();
+    }
+
+    // Once a frame, before any point is colored
+    public void updateUniforms(AudioInfo audioInfo) {
+        uniforms.iTime = ((float) (System.currentTimeMillis() - startTime)) / 1000;
+        Map<Uniforms.Audio, Float> audio = audioInfo.getUniformMap();
+        uniforms.beat = audio.get(Uniforms.Audio.BEAT);
+        uniforms.sinPhaseBeat = audio.get(Uniforms.Audio.SIN_PHASE_BEAT);
+        uniforms.bassLevel = audio.get(Uniforms.Audio.BASS_LEVEL);
+        uniforms.trebleLevel = audio.get(Uniforms.Audio.TREBLE_LEVEL);
+        for (int slot = 0; slot < customParameters.length; slot++) {
+            if (customParameters[slot] != null) {
+                uniforms.custom[slot] = customParameters[slot].getValuef();
+            }
+        }
+    }
+
+    // Colors points from (inclusive) to to (exclusive) of the canvas. Thread safe
+    public void paint(CompiledCanvas canvas, int from, int to, ColorSetter colors) {
+        CpuShaderProgram program = programs.get();
+        int[] indices = canvas.indices;
+        float[] u = canvas.u;
+        float[] v = canvas.v;
+        for (int i = from; i < to; i++) {
+            // Where the GPU's frame shows this point, mirrored in x, and where -Dte.shaders=points runs it
+            Vec2 fragCoord = new Vec2((1 - u[i]) * X_RESOLUTION, v[i] * Y_RESOLUTION);
+            colors.setColor(indices[i], toRGB(program.mainImage(fragCoord)));
+        }
+    }
+
+    // What reading the pixel back from an RGBA8 framebuffer gives, opaque like NativeShader's snapshot
+    private static int toRGB(Vec4 color) {
+        return 0xff000000 | (channel(color.x) << 16) | (channel(color.y) << 8) | channel(color.z);
+    }
+
+    private static int channel(float value) {
+        // NaN, which the GPU leaves undefined, comes out 0
+        return (int) (Math.min(Math.max(value, 0), 1) * 255 + .5f);
+    }
+}
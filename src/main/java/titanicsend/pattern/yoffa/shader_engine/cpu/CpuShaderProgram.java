@@ -0,0 +1,40 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Vec2;
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Vec4;
+
+/**
+ * What GlslCompiler compiles a shader into. An instance keeps the shader's
+ * globals between calls, so it must only be used by one thread at a time;
+ * the uniforms can be shared by every instance of the same running shader.
+ */
+public abstract class CpuShaderProgram {
+
+    // Thrown by discard; nothing is drawn, as the GPU would leave the cleared background
+    protected static final RuntimeException DISCARD = new RuntimeException("discard", null, false, false) {
+    };
+
+    private static final Vec4 DISCARDED = new Vec4(0, 0, 0, 0);
+
+    protected final CpuShaderUniforms u;
+    protected Vec4 gl_FragCoord = Glsl.ZERO4;
+
+    protected CpuShaderProgram(CpuShaderUniforms u) {
+        this.u = u;
+    }
+
+    // The shader's mainImage(out fragColor, fragCoord)
+    protected abstract Vec4 run(Vec2 fragCoord);
+
+    public Vec4 mainImage(Vec2 fragCoord) {
+        gl_FragCoord = new Vec4(fragCoord.x, fragCoord.y, 0, 1);
+        try {
+            return run(fragCoord);
+        } catch (RuntimeException e) {
+            if (e == DISCARD) {
+                return DISCARDED;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Sampler;
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Vec2;
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Vec4;
+
+/**
+ * The uniforms of one running shader, set once a frame before any point is
+ * colored and only read while they are. The built-in ones are what
+ * resources/shaders/framework/template.fs declares; custom holds the rest
+ * (FragmentShader's {%placeholder} parameters) in GlslCompiler's order.
+ */
+public class CpuShaderUniforms {
+
+    public static final int CHANNELS = 4;
+
+    public float iTime;
+    public Vec2 iResolution = Glsl.ZERO2;
+    public Vec4 iMouse = Glsl.ZERO4;
+    public final Sampler[] iChannel = new Sampler[CHANNELS];
+
+    public float beat;
+    public float sinPhaseBeat;
+    public float bassLevel;
+    public float trebleLevel;
+
+    public final float[] custom;
+
+    public CpuShaderUniforms(int customCount) {
+        this.custom = new float[customCount];
+    }
+}
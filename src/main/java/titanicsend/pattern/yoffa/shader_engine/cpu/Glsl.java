@@ -0,0 +1,1395 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+/**
+ * Runtime for shaders compiled by GlslCompiler: GLSL's vector and matrix
+ * types and its built-in functions, as static methods the generated code
+ * imports. GLSL's operators become add/sub/mul/div calls so Java's
+ * overloading picks the vector, matrix or scalar version, the way the GLSL
+ * compiler would.
+ *
+ * Vectors and matrices are immutable, like GLSL values: assigning one never
+ * aliases another. Swizzle writes build a new vector with the components
+ * replaced (see with()). Everything is float, as in a fragment shader.
+ */
+public final class Glsl {
+
+    private static final double LN2 = Math.log(2);
+
+    public static final Vec2 ZERO2 = new Vec2(0, 0);
+    public static final Vec3 ZERO3 = new Vec3(0, 0, 0);
+    public static final Vec4 ZERO4 = new Vec4(0, 0, 0, 0);
+
+    private Glsl() {
+    }
+
+    public static final class Vec2 {
+        public final float x, y;
+
+        public Vec2(float x, float y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public String toString() {
+            return "vec2(" + x + ", " + y + ")";
+        }
+    }
+
+    public static final class Vec3 {
+        public final float x, y, z;
+
+        public Vec3(float x, float y, float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public String toString() {
+            return "vec3(" + x + ", " + y + ", " + z + ")";
+        }
+    }
+
+    public static final class Vec4 {
+        public final float x, y, z, w;
+
+        public Vec4(float x, float y, float z, float w) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.w = w;
+        }
+
+        @Override
+        public String toString() {
+            return "vec4(" + x + ", " + y + ", " + z + ", " + w + ")";
+        }
+    }
+
+    // Column-major, like GLSL: cNr is column N, row r
+    public static final class Mat2 {
+        public final float c0x, c0y, c1x, c1y;
+
+        public Mat2(float c0x, float c0y, float c1x, float c1y) {
+            this.c0x = c0x;
+            this.c0y = c0y;
+            this.c1x = c1x;
+            this.c1y = c1y;
+        }
+    }
+
+    public static final class Mat3 {
+        public final float c0x, c0y, c0z, c1x, c1y, c1z, c2x, c2y, c2z;
+
+        public Mat3(float c0x, float c0y, float c0z, float c1x, float c1y, float c1z,
+                    float c2x, float c2y, float c2z) {
+            this.c0x = c0x;
+            this.c0y = c0y;
+            this.c0z = c0z;
+            this.c1x = c1x;
+            this.c1y = c1y;
+            this.c1z = c1z;
+            this.c2x = c2x;
+            this.c2y = c2y;
+            this.c2z = c2z;
+        }
+    }
+
+    /**
+     * A texture as RGBA floats, sampled bilinearly with repeat wrapping like
+     * ShaderToy's default. Row 0 is the top row of the image, which is what
+     * OpenGL sees at t = 0 for images JOGL uploads without flipping.
+     */
+    public static final class Sampler {
+        private final int width;
+        private final int height;
+        private final float[] rgba;
+
+        public Sampler(int width, int height, float[] rgba) {
+            this.width = width;
+            this.height = height;
+            this.rgba = rgba;
+        }
+
+        Vec4 sample(float s, float t) {
+            float x = s * width - .5f;
+            float y = t * height - .5f;
+            int x0 = (int) Math.floor(x);
+            int y0 = (int) Math.floor(y);
+            float fx = x - x0;
+            float fy = y - y0;
+            int i00 = index(x0, y0);
+            int i10 = index(x0 + 1, y0);
+            int i01 = index(x0, y0 + 1);
+            int i11 = index(x0 + 1, y0 + 1);
+            float[] c = new float[4];
+            for (int k = 0; k < 4; k++) {
+                float top = rgba[i00 + k] + (rgba[i10 + k] - rgba[i00 + k]) * fx;
+                float bottom = rgba[i01 + k] + (rgba[i11 + k] - rgba[i01 + k]) * fx;
+                c[k] = top + (bottom - top) * fy;
+            }
+            return new Vec4(c[0], c[1], c[2], c[3]);
+        }
+
+        private int index(int x, int y) {
+            return (Math.floorMod(y, height) * width + Math.floorMod(x, width)) * 4;
+        }
+    }
+
+    // ---- Constructors ----
+
+    public static Vec2 vec2(float a) {
+        return new Vec2(a, a);
+    }
+
+    public static Vec2 vec2(float x, float y) {
+        return new Vec2(x, y);
+    }
+
+    public static Vec2 vec2(Vec2 v) {
+        return v;
+    }
+
+    public static Vec2 vec2(Vec3 v) {
+        return new Vec2(v.x, v.y);
+    }
+
+    public static Vec2 vec2(Vec4 v) {
+        return new Vec2(v.x, v.y);
+    }
+
+    public static Vec3 vec3(float a) {
+        return new Vec3(a, a, a);
+    }
+
+    public static Vec3 vec3(float x, float y, float z) {
+        return new Vec3(x, y, z);
+    }
+
+    public static Vec3 vec3(Vec2 xy, float z) {
+        return new Vec3(xy.x, xy.y, z);
+    }
+
+    public static Vec3 vec3(float x, Vec2 yz) {
+        return new Vec3(x, yz.x, yz.y);
+    }
+
+    public static Vec3 vec3(Vec3 v) {
+        return v;
+    }
+
+    public static Vec3 vec3(Vec4 v) {
+        return new Vec3(v.x, v.y, v.z);
+    }
+
+    public static Vec4 vec4(float a) {
+        return new Vec4(a, a, a, a);
+    }
+
+    public static Vec4 vec4(float x, float y, float z, float w) {
+        return new Vec4(x, y, z, w);
+    }
+
+    public static Vec4 vec4(Vec3 xyz, float w) {
+        return new Vec4(xyz.x, xyz.y, xyz.z, w);
+    }
+
+    public static Vec4 vec4(float x, Vec3 yzw) {
+        return new Vec4(x, yzw.x, yzw.y, yzw.z);
+    }
+
+    public static Vec4 vec4(Vec2 xy, float z, float w) {
+        return new Vec4(xy.x, xy.y, z, w);
+    }
+
+    public static Vec4 vec4(float x, Vec2 yz, float w) {
+        return new Vec4(x, yz.x, yz.y, w);
+    }
+
+    public static Vec4 vec4(float x, float y, Vec2 zw) {
+        return new Vec4(x, y, zw.x, zw.y);
+    }
+
+    public static Vec4 vec4(Vec2 xy, Vec2 zw) {
+        return new Vec4(xy.x, xy.y, zw.x, zw.y);
+    }
+
+    public static Vec4 vec4(Vec4 v) {
+        return v;
+    }
+
+    public static Mat2 mat2(float a) {
+        return new Mat2(a, 0, 0, a);
+    }
+
+    public static Mat2 mat2(float c0x, float c0y, float c1x, float c1y) {
+        return new Mat2(c0x, c0y, c1x, c1y);
+    }
+
+    public static Mat2 mat2(Vec2 c0, Vec2 c1) {
+        return new Mat2(c0.x, c0.y, c1.x, c1.y);
+    }
+
+    public static Mat2 mat2(Vec4 v) {
+        return new Mat2(v.x, v.y, v.z, v.w);
+    }
+
+    public static Mat2 mat2(Mat2 m) {
+        return m;
+    }
+
+    public static Mat3 mat3(float a) {
+        return new Mat3(a, 0, 0, 0, a, 0, 0, 0, a);
+    }
+
+    public static Mat3 mat3(float c0x, float c0y, float c0z, float c1x, float c1y, float c1z,
+                            float c2x, float c2y, float c2z) {
+        return new Mat3(c0x, c0y, c0z, c1x, c1y, c1z, c2x, c2y, c2z);
+    }
+
+    public static Mat3 mat3(Vec3 c0, Vec3 c1, Vec3 c2) {
+        return new Mat3(c0.x, c0.y, c0.z, c1.x, c1.y, c1.z, c2.x, c2.y, c2.z);
+    }
+
+    public static Mat3 mat3(Mat3 m) {
+        return m;
+    }
+
+    public static Vec2[] vec2Array(int length) {
+        Vec2[] array = new Vec2[length];
+        java.util.Arrays.fill(array, ZERO2);
+        return array;
+    }
+
+    public static Vec3[] vec3Array(int length) {
+        Vec3[] array = new Vec3[length];
+        java.util.Arrays.fill(array, ZERO3);
+        return array;
+    }
+
+    public static Vec4[] vec4Array(int length) {
+        Vec4[] array = new Vec4[length];
+        java.util.Arrays.fill(array, ZERO4);
+        return array;
+    }
+
+    // ---- Operators ----
+
+    public static int add(int a, int b) {
+        return a + b;
+    }
+
+    public static int sub(int a, int b) {
+        return a - b;
+    }
+
+    public static int mul(int a, int b) {
+        return a * b;
+    }
+
+    // GLSL leaves division by zero undefined; Java would throw
+    public static int div(int a, int b) {
+        return b == 0 ? 0 : a / b;
+    }
+
+    public static int rem(int a, int b) {
+        return b == 0 ? 0 : a % b;
+    }
+
+    public static int neg(int a) {
+        return -a;
+    }
+
+    public static float neg(float a) {
+        return -a;
+    }
+
+    public static float add(float a, float b) {
+        return a + b;
+    }
+
+    public static Vec2 add(Vec2 a, Vec2 b) {
+        return new Vec2(add(a.x, b.x), add(a.y, b.y));
+    }
+
+    public static Vec2 add(Vec2 a, float b) {
+        return new Vec2(add(a.x, b), add(a.y, b));
+    }
+
+    public static Vec2 add(float a, Vec2 b) {
+        return new Vec2(add(a, b.x), add(a, b.y));
+    }
+
+    public static Vec3 add(Vec3 a, Vec3 b) {
+        return new Vec3(add(a.x, b.x), add(a.y, b.y), add(a.z, b.z));
+    }
+
+    public static Vec3 add(Vec3 a, float b) {
+        return new Vec3(add(a.x, b), add(a.y, b), add(a.z, b));
+    }
+
+    public static Vec3 add(float a, Vec3 b) {
+        return new Vec3(add(a, b.x), add(a, b.y), add(a, b.z));
+    }
+
+    public static Vec4 add(Vec4 a, Vec4 b) {
+        return new Vec4(add(a.x, b.x), add(a.y, b.y), add(a.z, b.z), add(a.w, b.w));
+    }
+
+    public static Vec4 add(Vec4 a, float b) {
+        return new Vec4(add(a.x, b), add(a.y, b), add(a.z, b), add(a.w, b));
+    }
+
+    public static Vec4 add(float a, Vec4 b) {
+        return new Vec4(add(a, b.x), add(a, b.y), add(a, b.z), add(a, b.w));
+    }
+
+    public static float sub(float a, float b) {
+        return a - b;
+    }
+
+    public static Vec2 sub(Vec2 a, Vec2 b) {
+        return new Vec2(sub(a.x, b.x), sub(a.y, b.y));
+    }
+
+    public static Vec2 sub(Vec2 a, float b) {
+        return new Vec2(sub(a.x, b), sub(a.y, b));
+    }
+
+    public static Vec2 sub(float a, Vec2 b) {
+        return new Vec2(sub(a, b.x), sub(a, b.y));
+    }
+
+    public static Vec3 sub(Vec3 a, Vec3 b) {
+        return new Vec3(sub(a.x, b.x), sub(a.y, b.y), sub(a.z, b.z));
+    }
+
+    public static Vec3 sub(Vec3 a, float b) {
+        return new Vec3(sub(a.x, b), sub(a.y, b), sub(a.z, b));
+    }
+
+    public static Vec3 sub(float a, Vec3 b) {
+        return new Vec3(sub(a, b.x), sub(a, b.y), sub(a, b.z));
+    }
+
+    public static Vec4 sub(Vec4 a, Vec4 b) {
+        return new Vec4(sub(a.x, b.x), sub(a.y, b.y), sub(a.z, b.z), sub(a.w, b.w));
+    }
+
+    public static Vec4 sub(Vec4 a, float b) {
+        return new Vec4(sub(a.x, b), sub(a.y, b), sub(a.z, b), sub(a.w, b));
+    }
+
+    public static Vec4 sub(float a, Vec4 b) {
+        return new Vec4(sub(a, b.x), sub(a, b.y), sub(a, b.z), sub(a, b.w));
+    }
+
+    public static float mul(float a, float b) {
+        return a * b;
+    }
+
+    public static Vec2 mul(Vec2 a, Vec2 b) {
+        return new Vec2(mul(a.x, b.x), mul(a.y, b.y));
+    }
+
+    public static Vec2 mul(Vec2 a, float b) {
+        return new Vec2(mul(a.x, b), mul(a.y, b));
+    }
+
+    public static Vec2 mul(float a, Vec2 b) {
+        return new Vec2(mul(a, b.x), mul(a, b.y));
+    }
+
+    public static Vec3 mul(Vec3 a, Vec3 b) {
+        return new Vec3(mul(a.x, b.x), mul(a.y, b.y), mul(a.z, b.z));
+    }
+
+    public static Vec3 mul(Vec3 a, float b) {
+        return new Vec3(mul(a.x, b), mul(a.y, b), mul(a.z, b));
+    }
+
+    public static Vec3 mul(float a, Vec3 b) {
+        return new Vec3(mul(a, b.x), mul(a, b.y), mul(a, b.z));
+    }
+
+    public static Vec4 mul(Vec4 a, Vec4 b) {
+        return new Vec4(mul(a.x, b.x), mul(a.y, b.y), mul(a.z, b.z), mul(a.w, b.w));
+    }
+
+    public static Vec4 mul(Vec4 a, float b) {
+        return new Vec4(mul(a.x, b), mul(a.y, b), mul(a.z, b), mul(a.w, b));
+    }
+
+    public static Vec4 mul(float a, Vec4 b) {
+        return new Vec4(mul(a, b.x), mul(a, b.y), mul(a, b.z), mul(a, b.w));
+    }
+
+    public static float div(float a, float b) {
+        return a / b;
+    }
+
+    public static Vec2 div(Vec2 a, Vec2 b) {
+        return new Vec2(div(a.x, b.x), div(a.y, b.y));
+    }
+
+    public static Vec2 div(Vec2 a, float b) {
+        return new Vec2(div(a.x, b), div(a.y, b));
+    }
+
+    public static Vec2 div(float a, Vec2 b) {
+        return new Vec2(div(a, b.x), div(a, b.y));
+    }
+
+    public static Vec3 div(Vec3 a, Vec3 b) {
+        return new Vec3(div(a.x, b.x), div(a.y, b.y), div(a.z, b.z));
+    }
+
+    public static Vec3 div(Vec3 a, float b) {
+        return new Vec3(div(a.x, b), div(a.y, b), div(a.z, b));
+    }
+
+    public static Vec3 div(float a, Vec3 b) {
+        return new Vec3(div(a, b.x), div(a, b.y), div(a, b.z));
+    }
+
+    public static Vec4 div(Vec4 a, Vec4 b) {
+        return new Vec4(div(a.x, b.x), div(a.y, b.y), div(a.z, b.z), div(a.w, b.w));
+    }
+
+    public static Vec4 div(Vec4 a, float b) {
+        return new Vec4(div(a.x, b), div(a.y, b), div(a.z, b), div(a.w, b));
+    }
+
+    public static Vec4 div(float a, Vec4 b) {
+        return new Vec4(div(a, b.x), div(a, b.y), div(a, b.z), div(a, b.w));
+    }
+
+    public static Vec2 neg(Vec2 v) {
+        return new Vec2(-v.x, -v.y);
+    }
+
+    public static Vec3 neg(Vec3 v) {
+        return new Vec3(-v.x, -v.y, -v.z);
+    }
+
+    public static Vec4 neg(Vec4 v) {
+        return new Vec4(-v.x, -v.y, -v.z, -v.w);
+    }
+
+    public static boolean eq(Vec2 a, Vec2 b) {
+        return a.x == b.x && a.y == b.y;
+    }
+
+    public static boolean eq(Vec3 a, Vec3 b) {
+        return a.x == b.x && a.y == b.y && a.z == b.z;
+    }
+
+    public static boolean eq(Vec4 a, Vec4 b) {
+        return a.x == b.x && a.y == b.y && a.z == b.z && a.w == b.w;
+    }
+
+    public static Vec2 mul(Mat2 m, Vec2 v) {
+        return new Vec2(m.c0x * v.x + m.c1x * v.y, m.c0y * v.x + m.c1y * v.y);
+    }
+
+    public static Vec2 mul(Vec2 v, Mat2 m) {
+        return new Vec2(v.x * m.c0x + v.y * m.c0y, v.x * m.c1x + v.y * m.c1y);
+    }
+
+    public static Mat2 mul(Mat2 a, Mat2 b) {
+        return new Mat2(a.c0x * b.c0x + a.c1x * b.c0y, a.c0y * b.c0x + a.c1y * b.c0y,
+                a.c0x * b.c1x + a.c1x * b.c1y, a.c0y * b.c1x + a.c1y * b.c1y);
+    }
+
+    public static Mat2 mul(Mat2 m, float a) {
+        return new Mat2(m.c0x * a, m.c0y * a, m.c1x * a, m.c1y * a);
+    }
+
+    public static Mat2 mul(float a, Mat2 m) {
+        return mul(m, a);
+    }
+
+    public static Vec3 mul(Mat3 m, Vec3 v) {
+        return new Vec3(m.c0x * v.x + m.c1x * v.y + m.c2x * v.z,
+                m.c0y * v.x + m.c1y * v.y + m.c2y * v.z,
+                m.c0z * v.x + m.c1z * v.y + m.c2z * v.z);
+    }
+
+    public static Vec3 mul(Vec3 v, Mat3 m) {
+        return new Vec3(v.x * m.c0x + v.y * m.c0y + v.z * m.c0z,
+                v.x * m.c1x + v.y * m.c1y + v.z * m.c1z,
+                v.x * m.c2x + v.y * m.c2y + v.z * m.c2z);
+    }
+
+    public static Mat3 mul(Mat3 a, Mat3 b) {
+        Vec3 c0 = mul(a, new Vec3(b.c0x, b.c0y, b.c0z));
+        Vec3 c1 = mul(a, new Vec3(b.c1x, b.c1y, b.c1z));
+        Vec3 c2 = mul(a, new Vec3(b.c2x, b.c2y, b.c2z));
+        return mat3(c0, c1, c2);
+    }
+
+    public static Mat3 mul(Mat3 m, float a) {
+        return new Mat3(m.c0x * a, m.c0y * a, m.c0z * a, m.c1x * a, m.c1y * a, m.c1z * a,
+                m.c2x * a, m.c2y * a, m.c2z * a);
+    }
+
+    public static Mat3 mul(float a, Mat3 m) {
+        return mul(m, a);
+    }
+
+    public static Vec2 col(Mat2 m, int i) {
+        return i == 0 ? new Vec2(m.c0x, m.c0y) : new Vec2(m.c1x, m.c1y);
+    }
+
+    public static Vec3 col(Mat3 m, int i) {
+        switch (i) {
+            case 0: return new Vec3(m.c0x, m.c0y, m.c0z);
+            case 1: return new Vec3(m.c1x, m.c1y, m.c1z);
+            default: return new Vec3(m.c2x, m.c2y, m.c2z);
+        }
+    }
+
+    // ---- Swizzles and indexing ----
+
+    public static float get(Vec2 v, int i) {
+        switch (i) {
+            case 0: return v.x;
+            default: return v.y;
+        }
+    }
+
+    public static float get(Vec3 v, int i) {
+        switch (i) {
+            case 0: return v.x;
+            case 1: return v.y;
+            default: return v.z;
+        }
+    }
+
+    public static float get(Vec4 v, int i) {
+        switch (i) {
+            case 0: return v.x;
+            case 1: return v.y;
+            case 2: return v.z;
+            default: return v.w;
+        }
+    }
+
+    public static Vec2 sw(Vec2 v, int a, int b) {
+        return new Vec2(get(v, a), get(v, b));
+    }
+
+    public static Vec3 sw(Vec2 v, int a, int b, int c) {
+        return new Vec3(get(v, a), get(v, b), get(v, c));
+    }
+
+    public static Vec4 sw(Vec2 v, int a, int b, int c, int d) {
+        return new Vec4(get(v, a), get(v, b), get(v, c), get(v, d));
+    }
+
+    public static Vec2 sw(Vec3 v, int a, int b) {
+        return new Vec2(get(v, a), get(v, b));
+    }
+
+    public static Vec3 sw(Vec3 v, int a, int b, int c) {
+        return new Vec3(get(v, a), get(v, b), get(v, c));
+    }
+
+    public static Vec4 sw(Vec3 v, int a, int b, int c, int d) {
+        return new Vec4(get(v, a), get(v, b), get(v, c), get(v, d));
+    }
+
+    public static Vec2 sw(Vec4 v, int a, int b) {
+        return new Vec2(get(v, a), get(v, b));
+    }
+
+    public static Vec3 sw(Vec4 v, int a, int b, int c) {
+        return new Vec3(get(v, a), get(v, b), get(v, c));
+    }
+
+    public static Vec4 sw(Vec4 v, int a, int b, int c, int d) {
+        return new Vec4(get(v, a), get(v, b), get(v, c), get(v, d));
+    }
+
+    public static Vec2 with(Vec2 v, int i, float value) {
+        return new Vec2(i == 0 ? value : v.x, i == 1 ? value : v.y);
+    }
+
+    public static Vec3 with(Vec3 v, int i, float value) {
+        return new Vec3(i == 0 ? value : v.x, i == 1 ? value : v.y, i == 2 ? value : v.z);
+    }
+
+    public static Vec4 with(Vec4 v, int i, float value) {
+        return new Vec4(i == 0 ? value : v.x, i == 1 ? value : v.y, i == 2 ? value : v.z, i == 3 ? value : v.w);
+    }
+
+    public static Vec2 with(Vec2 v, int a, int b, Vec2 value) {
+        v = with(v, a, value.x);
+        v = with(v, b, value.y);
+        return v;
+    }
+
+    public static Vec3 with(Vec3 v, int a, int b, Vec2 value) {
+        v = with(v, a, value.x);
+        v = with(v, b, value.y);
+        return v;
+    }
+
+    public static Vec3 with(Vec3 v, int a, int b, int c, Vec3 value) {
+        v = with(v, a, value.x);
+        v = with(v, b, value.y);
+        v = with(v, c, value.z);
+        return v;
+    }
+
+    public static Vec4 with(Vec4 v, int a, int b, Vec2 value) {
+        v = with(v, a, value.x);
+        v = with(v, b, value.y);
+        return v;
+    }
+
+    public static Vec4 with(Vec4 v, int a, int b, int c, Vec3 value) {
+        v = with(v, a, value.x);
+        v = with(v, b, value.y);
+        v = with(v, c, value.z);
+        return v;
+    }
+
+    public static Vec4 with(Vec4 v, int a, int b, int c, int d, Vec4 value) {
+        v = with(v, a, value.x);
+        v = with(v, b, value.y);
+        v = with(v, c, value.z);
+        v = with(v, d, value.w);
+        return v;
+    }
+
+    // ---- Built-in functions ----
+
+    public static float radians(float a) {
+        return (float) Math.toRadians(a);
+    }
+
+    public static Vec2 radians(Vec2 v) {
+        return new Vec2(radians(v.x), radians(v.y));
+    }
+
+    public static Vec3 radians(Vec3 v) {
+        return new Vec3(radians(v.x), radians(v.y), radians(v.z));
+    }
+
+    public static Vec4 radians(Vec4 v) {
+        return new Vec4(radians(v.x), radians(v.y), radians(v.z), radians(v.w));
+    }
+
+    public static float degrees(float a) {
+        return (float) Math.toDegrees(a);
+    }
+
+    public static Vec2 degrees(Vec2 v) {
+        return new Vec2(degrees(v.x), degrees(v.y));
+    }
+
+    public static Vec3 degrees(Vec3 v) {
+        return new Vec3(degrees(v.x), degrees(v.y), degrees(v.z));
+    }
+
+    public static Vec4 degrees(Vec4 v) {
+        return new Vec4(degrees(v.x), degrees(v.y), degrees(v.z), degrees(v.w));
+    }
+
+    public static float sin(float a) {
+        return (float) Math.sin(a);
+    }
+
+    public static Vec2 sin(Vec2 v) {
+        return new Vec2(sin(v.x), sin(v.y));
+    }
+
+    public static Vec3 sin(Vec3 v) {
+        return new Vec3(sin(v.x), sin(v.y), sin(v.z));
+    }
+
+    public static Vec4 sin(Vec4 v) {
+        return new Vec4(sin(v.x), sin(v.y), sin(v.z), sin(v.w));
+    }
+
+    public static float cos(float a) {
+        return (float) Math.cos(a);
+    }
+
+    public static Vec2 cos(Vec2 v) {
+        return new Vec2(cos(v.x), cos(v.y));
+    }
+
+    public static Vec3 cos(Vec3 v) {
+        return new Vec3(cos(v.x), cos(v.y), cos(v.z));
+    }
+
+    public static Vec4 cos(Vec4 v) {
+        return new Vec4(cos(v.x), cos(v.y), cos(v.z), cos(v.w));
+    }
+
+    public static float tan(float a) {
+        return (float) Math.tan(a);
+    }
+
+    public static Vec2 tan(Vec2 v) {
+        return new Vec2(tan(v.x), tan(v.y));
+    }
+
+    public static Vec3 tan(Vec3 v) {
+        return new Vec3(tan(v.x), tan(v.y), tan(v.z));
+    }
+
+    public static Vec4 tan(Vec4 v) {
+        return new Vec4(tan(v.x), tan(v.y), tan(v.z), tan(v.w));
+    }
+
+    public static float asin(float a) {
+        return (float) Math.asin(a);
+    }
+
+    public static Vec2 asin(Vec2 v) {
+        return new Vec2(asin(v.x), asin(v.y));
+    }
+
+    public static Vec3 asin(Vec3 v) {
+        return new Vec3(asin(v.x), asin(v.y), asin(v.z));
+    }
+
+    public static Vec4 asin(Vec4 v) {
+        return new Vec4(asin(v.x), asin(v.y), asin(v.z), asin(v.w));
+    }
+
+    public static float acos(float a) {
+        return (float) Math.acos(a);
+    }
+
+    public static Vec2 acos(Vec2 v) {
+        return new Vec2(acos(v.x), acos(v.y));
+    }
+
+    public static Vec3 acos(Vec3 v) {
+        return new Vec3(acos(v.x), acos(v.y), acos(v.z));
+    }
+
+    public static Vec4 acos(Vec4 v) {
+        return new Vec4(acos(v.x), acos(v.y), acos(v.z), acos(v.w));
+    }
+
+    public static float atan(float a) {
+        return (float) Math.atan(a);
+    }
+
+    public static Vec2 atan(Vec2 v) {
+        return new Vec2(atan(v.x), atan(v.y));
+    }
+
+    public static Vec3 atan(Vec3 v) {
+        return new Vec3(atan(v.x), atan(v.y), atan(v.z));
+    }
+
+    public static Vec4 atan(Vec4 v) {
+        return new Vec4(atan(v.x), atan(v.y), atan(v.z), atan(v.w));
+    }
+
+    public static float sinh(float a) {
+        return (float) Math.sinh(a);
+    }
+
+    public static Vec2 sinh(Vec2 v) {
+        return new Vec2(sinh(v.x), sinh(v.y));
+    }
+
+    public static Vec3 sinh(Vec3 v) {
+        return new Vec3(sinh(v.x), sinh(v.y), sinh(v.z));
+    }
+
+    public static Vec4 sinh(Vec4 v) {
+        return new Vec4(sinh(v.x), sinh(v.y), sinh(v.z), sinh(v.w));
+    }
+
+    public static float cosh(float a) {
+        return (float) Math.cosh(a);
+    }
+
+    public static Vec2 cosh(Vec2 v) {
+        return new Vec2(cosh(v.x), cosh(v.y));
+    }
+
+    public static Vec3 cosh(Vec3 v) {
+        return new Vec3(cosh(v.x), cosh(v.y), cosh(v.z));
+    }
+
+    public static Vec4 cosh(Vec4 v) {
+        return new Vec4(cosh(v.x), cosh(v.y), cosh(v.z), cosh(v.w));
+    }
+
+    public static float tanh(float a) {
+        return (float) Math.tanh(a);
+    }
+
+    public static Vec2 tanh(Vec2 v) {
+        return new Vec2(tanh(v.x), tanh(v.y));
+    }
+
+    public static Vec3 tanh(Vec3 v) {
+        return new Vec3(tanh(v.x), tanh(v.y), tanh(v.z));
+    }
+
+    public static Vec4 tanh(Vec4 v) {
+        return new Vec4(tanh(v.x), tanh(v.y), tanh(v.z), tanh(v.w));
+    }
+
+    public static float exp(float a) {
+        return (float) Math.exp(a);
+    }
+
+    public static Vec2 exp(Vec2 v) {
+        return new Vec2(exp(v.x), exp(v.y));
+    }
+
+    public static Vec3 exp(Vec3 v) {
+        return new Vec3(exp(v.x), exp(v.y), exp(v.z));
+    }
+
+    public static Vec4 exp(Vec4 v) {
+        return new Vec4(exp(v.x), exp(v.y), exp(v.z), exp(v.w));
+    }
+
+    public static float log(float a) {
+        return (float) Math.log(a);
+    }
+
+    public static Vec2 log(Vec2 v) {
+        return new Vec2(log(v.x), log(v.y));
+    }
+
+    public static Vec3 log(Vec3 v) {
+        return new Vec3(log(v.x), log(v.y), log(v.z));
+    }
+
+    public static Vec4 log(Vec4 v) {
+        return new Vec4(log(v.x), log(v.y), log(v.z), log(v.w));
+    }
+
+    public static float exp2(float a) {
+        return (float) Math.pow(2, a);
+    }
+
+    public static Vec2 exp2(Vec2 v) {
+        return new Vec2(exp2(v.x), exp2(v.y));
+    }
+
+    public static Vec3 exp2(Vec3 v) {
+        return new Vec3(exp2(v.x), exp2(v.y), exp2(v.z));
+    }
+
+    public static Vec4 exp2(Vec4 v) {
+        return new Vec4(exp2(v.x), exp2(v.y), exp2(v.z), exp2(v.w));
+    }
+
+    public static float log2(float a) {
+        return (float) (Math.log(a) / LN2);
+    }
+
+    public static Vec2 log2(Vec2 v) {
+        return new Vec2(log2(v.x), log2(v.y));
+    }
+
+    public static Vec3 log2(Vec3 v) {
+        return new Vec3(log2(v.x), log2(v.y), log2(v.z));
+    }
+
+    public static Vec4 log2(Vec4 v) {
+        return new Vec4(log2(v.x), log2(v.y), log2(v.z), log2(v.w));
+    }
+
+    public static float sqrt(float a) {
+        return (float) Math.sqrt(a);
+    }
+
+    public static Vec2 sqrt(Vec2 v) {
+        return new Vec2(sqrt(v.x), sqrt(v.y));
+    }
+
+    public static Vec3 sqrt(Vec3 v) {
+        return new Vec3(sqrt(v.x), sqrt(v.y), sqrt(v.z));
+    }
+
+    public static Vec4 sqrt(Vec4 v) {
+        return new Vec4(sqrt(v.x), sqrt(v.y), sqrt(v.z), sqrt(v.w));
+    }
+
+    public static float inversesqrt(float a) {
+        return (float) (1 / Math.sqrt(a));
+    }
+
+    public static Vec2 inversesqrt(Vec2 v) {
+        return new Vec2(inversesqrt(v.x), inversesqrt(v.y));
+    }
+
+    public static Vec3 inversesqrt(Vec3 v) {
+        return new Vec3(inversesqrt(v.x), inversesqrt(v.y), inversesqrt(v.z));
+    }
+
+    public static Vec4 inversesqrt(Vec4 v) {
+        return new Vec4(inversesqrt(v.x), inversesqrt(v.y), inversesqrt(v.z), inversesqrt(v.w));
+    }
+
+    public static float abs(float a) {
+        return Math.abs(a);
+    }
+
+    public static Vec2 abs(Vec2 v) {
+        return new Vec2(abs(v.x), abs(v.y));
+    }
+
+    public static Vec3 abs(Vec3 v) {
+        return new Vec3(abs(v.x), abs(v.y), abs(v.z));
+    }
+
+    public static Vec4 abs(Vec4 v) {
+        return new Vec4(abs(v.x), abs(v.y), abs(v.z), abs(v.w));
+    }
+
+    public static float sign(float a) {
+        return Math.signum(a);
+    }
+
+    public static Vec2 sign(Vec2 v) {
+        return new Vec2(sign(v.x), sign(v.y));
+    }
+
+    public static Vec3 sign(Vec3 v) {
+        return new Vec3(sign(v.x), sign(v.y), sign(v.z));
+    }
+
+    public static Vec4 sign(Vec4 v) {
+        return new Vec4(sign(v.x), sign(v.y), sign(v.z), sign(v.w));
+    }
+
+    public static float floor(float a) {
+        return (float) Math.floor(a);
+    }
+
+    public static Vec2 floor(Vec2 v) {
+        return new Vec2(floor(v.x), floor(v.y));
+    }
+
+    public static Vec3 floor(Vec3 v) {
+        return new Vec3(floor(v.x), floor(v.y), floor(v.z));
+    }
+
+    public static Vec4 floor(Vec4 v) {
+        return new Vec4(floor(v.x), floor(v.y), floor(v.z), floor(v.w));
+    }
+
+    public static float ceil(float a) {
+        return (float) Math.ceil(a);
+    }
+
+    public static Vec2 ceil(Vec2 v) {
+        return new Vec2(ceil(v.x), ceil(v.y));
+    }
+
+    public static Vec3 ceil(Vec3 v) {
+        return new Vec3(ceil(v.x), ceil(v.y), ceil(v.z));
+    }
+
+    public static Vec4 ceil(Vec4 v) {
+        return new Vec4(ceil(v.x), ceil(v.y), ceil(v.z), ceil(v.w));
+    }
+
+    public static float fract(float a) {
+        return a - (float) Math.floor(a);
+    }
+
+    public static Vec2 fract(Vec2 v) {
+        return new Vec2(fract(v.x), fract(v.y));
+    }
+
+    public static Vec3 fract(Vec3 v) {
+        return new Vec3(fract(v.x), fract(v.y), fract(v.z));
+    }
+
+    public static Vec4 fract(Vec4 v) {
+        return new Vec4(fract(v.x), fract(v.y), fract(v.z), fract(v.w));
+    }
+
+    public static float trunc(float a) {
+        return (float) (a < 0 ? Math.ceil(a) : Math.floor(a));
+    }
+
+    public static Vec2 trunc(Vec2 v) {
+        return new Vec2(trunc(v.x), trunc(v.y));
+    }
+
+    public static Vec3 trunc(Vec3 v) {
+        return new Vec3(trunc(v.x), trunc(v.y), trunc(v.z));
+    }
+
+    public static Vec4 trunc(Vec4 v) {
+        return new Vec4(trunc(v.x), trunc(v.y), trunc(v.z), trunc(v.w));
+    }
+
+    public static float round(float a) {
+        return (float) Math.rint(a);
+    }
+
+    public static Vec2 round(Vec2 v) {
+        return new Vec2(round(v.x), round(v.y));
+    }
+
+    public static Vec3 round(Vec3 v) {
+        return new Vec3(round(v.x), round(v.y), round(v.z));
+    }
+
+    public static Vec4 round(Vec4 v) {
+        return new Vec4(round(v.x), round(v.y), round(v.z), round(v.w));
+    }
+
+    public static int abs(int a) {
+        return Math.abs(a);
+    }
+
+    public static int sign(int a) {
+        return Integer.signum(a);
+    }
+
+    public static float pow(float a, float b) {
+        return (float) Math.pow(a, b);
+    }
+
+    public static Vec2 pow(Vec2 a, Vec2 b) {
+        return new Vec2(pow(a.x, b.x), pow(a.y, b.y));
+    }
+
+    public static Vec3 pow(Vec3 a, Vec3 b) {
+        return new Vec3(pow(a.x, b.x), pow(a.y, b.y), pow(a.z, b.z));
+    }
+
+    public static Vec4 pow(Vec4 a, Vec4 b) {
+        return new Vec4(pow(a.x, b.x), pow(a.y, b.y), pow(a.z, b.z), pow(a.w, b.w));
+    }
+
+    public static float atan(float a, float b) {
+        return (float) Math.atan2(a, b);
+    }
+
+    public static Vec2 atan(Vec2 a, Vec2 b) {
+        return new Vec2(atan(a.x, b.x), atan(a.y, b.y));
+    }
+
+    public static Vec3 atan(Vec3 a, Vec3 b) {
+        return new Vec3(atan(a.x, b.x), atan(a.y, b.y), atan(a.z, b.z));
+    }
+
+    public static Vec4 atan(Vec4 a, Vec4 b) {
+        return new Vec4(atan(a.x, b.x), atan(a.y, b.y), atan(a.z, b.z), atan(a.w, b.w));
+    }
+
+    public static float mod(float a, float b) {
+        return a - b * (float) Math.floor(a / b);
+    }
+
+    public static Vec2 mod(Vec2 a, Vec2 b) {
+        return new Vec2(mod(a.x, b.x), mod(a.y, b.y));
+    }
+
+    public static Vec2 mod(Vec2 a, float b) {
+        return new Vec2(mod(a.x, b), mod(a.y, b));
+    }
+
+    public static Vec3 mod(Vec3 a, Vec3 b) {
+        return new Vec3(mod(a.x, b.x), mod(a.y, b.y), mod(a.z, b.z));
+    }
+
+    public static Vec3 mod(Vec3 a, float b) {
+        return new Vec3(mod(a.x, b), mod(a.y, b), mod(a.z, b));
+    }
+
+    public static Vec4 mod(Vec4 a, Vec4 b) {
+        return new Vec4(mod(a.x, b.x), mod(a.y, b.y), mod(a.z, b.z), mod(a.w, b.w));
+    }
+
+    public static Vec4 mod(Vec4 a, float b) {
+        return new Vec4(mod(a.x, b), mod(a.y, b), mod(a.z, b), mod(a.w, b));
+    }
+
+    public static float min(float a, float b) {
+        return Math.min(a, b);
+    }
+
+    public static Vec2 min(Vec2 a, Vec2 b) {
+        return new Vec2(min(a.x, b.x), min(a.y, b.y));
+    }
+
+    public static Vec2 min(Vec2 a, float b) {
+        return new Vec2(min(a.x, b), min(a.y, b));
+    }
+
+    public static Vec3 min(Vec3 a, Vec3 b) {
+        return new Vec3(min(a.x, b.x), min(a.y, b.y), min(a.z, b.z));
+    }
+
+    public static Vec3 min(Vec3 a, float b) {
+        return new Vec3(min(a.x, b), min(a.y, b), min(a.z, b));
+    }
+
+    public static Vec4 min(Vec4 a, Vec4 b) {
+        return new Vec4(min(a.x, b.x), min(a.y, b.y), min(a.z, b.z), min(a.w, b.w));
+    }
+
+    public static Vec4 min(Vec4 a, float b) {
+        return new Vec4(min(a.x, b), min(a.y, b), min(a.z, b), min(a.w, b));
+    }
+
+    public static float max(float a, float b) {
+        return Math.max(a, b);
+    }
+
+    public static Vec2 max(Vec2 a, Vec2 b) {
+        return new Vec2(max(a.x, b.x), max(a.y, b.y));
+    }
+
+    public static Vec2 max(Vec2 a, float b) {
+        return new Vec2(max(a.x, b), max(a.y, b));
+    }
+
+    public static Vec3 max(Vec3 a, Vec3 b) {
+        return new Vec3(max(a.x, b.x), max(a.y, b.y), max(a.z, b.z));
+    }
+
+    public static Vec3 max(Vec3 a, float b) {
+        return new Vec3(max(a.x, b), max(a.y, b), max(a.z, b));
+    }
+
+    public static Vec4 max(Vec4 a, Vec4 b) {
+        return new Vec4(max(a.x, b.x), max(a.y, b.y), max(a.z, b.z), max(a.w, b.w));
+    }
+
+    public static Vec4 max(Vec4 a, float b) {
+        return new Vec4(max(a.x, b), max(a.y, b), max(a.z, b), max(a.w, b));
+    }
+
+    public static float step(float a, float b) {
+        return b < a ? 0 : 1;
+    }
+
+    public static Vec2 step(Vec2 a, Vec2 b) {
+        return new Vec2(step(a.x, b.x), step(a.y, b.y));
+    }
+
+    public static Vec2 step(float a, Vec2 b) {
+        return new Vec2(step(a, b.x), step(a, b.y));
+    }
+
+    public static Vec3 step(Vec3 a, Vec3 b) {
+        return new Vec3(step(a.x, b.x), step(a.y, b.y), step(a.z, b.z));
+    }
+
+    public static Vec3 step(float a, Vec3 b) {
+        return new Vec3(step(a, b.x), step(a, b.y), step(a, b.z));
+    }
+
+    public static Vec4 step(Vec4 a, Vec4 b) {
+        return new Vec4(step(a.x, b.x), step(a.y, b.y), step(a.z, b.z), step(a.w, b.w));
+    }
+
+    public static Vec4 step(float a, Vec4 b) {
+        return new Vec4(step(a, b.x), step(a, b.y), step(a, b.z), step(a, b.w));
+    }
+
+    public static int min(int a, int b) {
+        return Math.min(a, b);
+    }
+
+    public static int max(int a, int b) {
+        return Math.max(a, b);
+    }
+
+    public static int clamp(int x, int lo, int hi) {
+        return Math.min(Math.max(x, lo), hi);
+    }
+
+    public static float clamp(float x, float lo, float hi) {
+        return Math.min(Math.max(x, lo), hi);
+    }
+
+    public static float mix(float x, float y, float a) {
+        return x + (y - x) * a;
+    }
+
+    public static float smoothstep(float e0, float e1, float x) {
+        float t = clamp((x - e0) / (e1 - e0), 0, 1);
+        return t * t * (3 - 2 * t);
+    }
+
+    public static Vec2 clamp(Vec2 x, Vec2 lo, Vec2 hi) {
+        return new Vec2(clamp(x.x, lo.x, hi.x), clamp(x.y, lo.y, hi.y));
+    }
+
+    public static Vec2 clamp(Vec2 x, float lo, float hi) {
+        return new Vec2(clamp(x.x, lo, hi), clamp(x.y, lo, hi));
+    }
+
+    public static Vec3 clamp(Vec3 x, Vec3 lo, Vec3 hi) {
+        return new Vec3(clamp(x.x, lo.x, hi.x), clamp(x.y, lo.y, hi.y), clamp(x.z, lo.z, hi.z));
+    }
+
+    public static Vec3 clamp(Vec3 x, float lo, float hi) {
+        return new Vec3(clamp(x.x, lo, hi), clamp(x.y, lo, hi), clamp(x.z, lo, hi));
+    }
+
+    public static Vec4 clamp(Vec4 x, Vec4 lo, Vec4 hi) {
+        return new Vec4(clamp(x.x, lo.x, hi.x), clamp(x.y, lo.y, hi.y), clamp(x.z, lo.z, hi.z), clamp(x.w, lo.w, hi.w));
+    }
+
+    public static Vec4 clamp(Vec4 x, float lo, float hi) {
+        return new Vec4(clamp(x.x, lo, hi), clamp(x.y, lo, hi), clamp(x.z, lo, hi), clamp(x.w, lo, hi));
+    }
+
+    public static Vec2 mix(Vec2 x, Vec2 y, Vec2 a) {
+        return new Vec2(mix(x.x, y.x, a.x), mix(x.y, y.y, a.y));
+    }
+
+    public static Vec2 mix(Vec2 x, Vec2 y, float a) {
+        return new Vec2(mix(x.x, y.x, a), mix(x.y, y.y, a));
+    }
+
+    public static Vec3 mix(Vec3 x, Vec3 y, Vec3 a) {
+        return new Vec3(mix(x.x, y.x, a.x), mix(x.y, y.y, a.y), mix(x.z, y.z, a.z));
+    }
+
+    public static Vec3 mix(Vec3 x, Vec3 y, float a) {
+        return new Vec3(mix(x.x, y.x, a), mix(x.y, y.y, a), mix(x.z, y.z, a));
+    }
+
+    public static Vec4 mix(Vec4 x, Vec4 y, Vec4 a) {
+        return new Vec4(mix(x.x, y.x, a.x), mix(x.y, y.y, a.y), mix(x.z, y.z, a.z), mix(x.w, y.w, a.w));
+    }
+
+    public static Vec4 mix(Vec4 x, Vec4 y, float a) {
+        return new Vec4(mix(x.x, y.x, a), mix(x.y, y.y, a), mix(x.z, y.z, a), mix(x.w, y.w, a));
+    }
+
+    public static Vec2 smoothstep(Vec2 e0, Vec2 e1, Vec2 x) {
+        return new Vec2(smoothstep(e0.x, e1.x, x.x), smoothstep(e0.y, e1.y, x.y));
+    }
+
+    public static Vec2 smoothstep(float e0, float e1, Vec2 x) {
+        return new Vec2(smoothstep(e0, e1, x.x), smoothstep(e0, e1, x.y));
+    }
+
+    public static Vec3 smoothstep(Vec3 e0, Vec3 e1, Vec3 x) {
+        return new Vec3(smoothstep(e0.x, e1.x, x.x), smoothstep(e0.y, e1.y, x.y), smoothstep(e0.z, e1.z, x.z));
+    }
+
+    public static Vec3 smoothstep(float e0, float e1, Vec3 x) {
+        return new Vec3(smoothstep(e0, e1, x.x), smoothstep(e0, e1, x.y), smoothstep(e0, e1, x.z));
+    }
+
+    public static Vec4 smoothstep(Vec4 e0, Vec4 e1, Vec4 x) {
+        return new Vec4(smoothstep(e0.x, e1.x, x.x), smoothstep(e0.y, e1.y, x.y), smoothstep(e0.z, e1.z, x.z), smoothstep(e0.w, e1.w, x.w));
+    }
+
+    public static Vec4 smoothstep(float e0, float e1, Vec4 x) {
+        return new Vec4(smoothstep(e0, e1, x.x), smoothstep(e0, e1, x.y), smoothstep(e0, e1, x.z), smoothstep(e0, e1, x.w));
+    }
+
+    public static float length(float a) {
+        return Math.abs(a);
+    }
+
+    public static float distance(float a, float b) {
+        return Math.abs(a - b);
+    }
+
+    public static float dot(float a, float b) {
+        return a * b;
+    }
+
+    public static float normalize(float a) {
+        return Math.signum(a);
+    }
+
+    public static float dot(Vec2 a, Vec2 b) {
+        return a.x * b.x + a.y * b.y;
+    }
+
+    public static float length(Vec2 v) {
+        return (float) Math.sqrt(dot(v, v));
+    }
+
+    public static float distance(Vec2 a, Vec2 b) {
+        return length(sub(a, b));
+    }
+
+    public static Vec2 normalize(Vec2 v) {
+        return div(v, length(v));
+    }
+
+    public static Vec2 reflect(Vec2 i, Vec2 n) {
+        return sub(i, mul(2 * dot(n, i), n));
+    }
+
+    public static float dot(Vec3 a, Vec3 b) {
+        return a.x * b.x + a.y * b.y + a.z * b.z;
+    }
+
+    public static float length(Vec3 v) {
+        return (float) Math.sqrt(dot(v, v));
+    }
+
+    public static float distance(Vec3 a, Vec3 b) {
+        return length(sub(a, b));
+    }
+
+    public static Vec3 normalize(Vec3 v) {
+        return div(v, length(v));
+    }
+
+    public static Vec3 reflect(Vec3 i, Vec3 n) {
+        return sub(i, mul(2 * dot(n, i), n));
+    }
+
+    public static float dot(Vec4 a, Vec4 b) {
+        return a.x * b.x + a.y * b.y + a.z * b.z + a.w * b.w;
+    }
+
+    public static float length(Vec4 v) {
+        return (float) Math.sqrt(dot(v, v));
+    }
+
+    public static float distance(Vec4 a, Vec4 b) {
+        return length(sub(a, b));
+    }
+
+    public static Vec4 normalize(Vec4 v) {
+        return div(v, length(v));
+    }
+
+    public static Vec4 reflect(Vec4 i, Vec4 n) {
+        return sub(i, mul(2 * dot(n, i), n));
+    }
+
+    public static Vec3 cross(Vec3 a, Vec3 b) {
+        return new Vec3(a.y * b.z - a.z * b.y, a.z * b.x - a.x * b.z, a.x * b.y - a.y * b.x);
+    }
+
+    // An unbound sampler reads as OpenGL's incomplete texture does
+    public static Vec4 texture(Sampler sampler, Vec2 uv) {
+        return sampler == null ? new Vec4(0, 0, 0, 1) : sampler.sample(uv.x, uv.y);
+    }
+
+    public static Vec4 texture(Sampler sampler, Vec2 uv, float bias) {
+        return texture(sampler, uv);
+    }
+
+    // No mipmaps, so every level is the base level
+    public static Vec4 textureLod(Sampler sampler, Vec2 uv, float lod) {
+        return texture(sampler, uv);
+    }
+}
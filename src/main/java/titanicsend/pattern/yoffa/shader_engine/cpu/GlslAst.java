@@ -0,0 +1,307 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import java.util.List;
+
+/**
+ * Syntax tree GlslParser builds and GlslToJava translates. Types are kept as
+ * their GLSL names ("vec3", or a struct's name) until translation.
+ */
+final class GlslAst {
+
+    private GlslAst() {
+    }
+
+    // ---- Declarations ----
+
+    static class Field {
+        final String type;
+        final String name;
+        final Expr arraySize;  // null unless an array
+
+        Field(String type, String name, Expr arraySize) {
+            this.type = type;
+            this.name = name;
+            this.arraySize = arraySize;
+        }
+    }
+
+    static class StructDecl {
+        final String name;
+        final List<Field> fields;
+
+        StructDecl(String name, List<Field> fields) {
+            this.name = name;
+            this.fields = fields;
+        }
+    }
+
+    enum Qualifier { IN, OUT, INOUT }
+
+    static class Param extends Field {
+        final Qualifier qualifier;
+
+        Param(Qualifier qualifier, String type, String name, Expr arraySize) {
+            super(type, name, arraySize);
+            this.qualifier = qualifier;
+        }
+    }
+
+    static class FunctionDecl {
+        final String returnType;
+        final String name;
+        final List<Param> params;
+        final Block body;  // null for a prototype
+        final int line;
+
+        FunctionDecl(String returnType, String name, List<Param> params, Block body, int line) {
+            this.returnType = returnType;
+            this.name = name;
+            this.params = params;
+            this.body = body;
+            this.line = line;
+        }
+    }
+
+    static class Declarator {
+        final String name;
+        final Expr arraySize;  // null unless an array
+        final Expr init;       // null if not initialized
+
+        Declarator(String name, Expr arraySize, Expr init) {
+            this.name = name;
+            this.arraySize = arraySize;
+            this.init = init;
+        }
+    }
+
+    static class Shader {
+        final List<StructDecl> structs;
+        final List<FunctionDecl> functions;
+        final List<VarDecl> globals;
+
+        Shader(List<StructDecl> structs, List<FunctionDecl> functions, List<VarDecl> globals) {
+            this.structs = structs;
+            this.functions = functions;
+            this.globals = globals;
+        }
+    }
+
+    // ---- Statements ----
+
+    abstract static class Stmt {
+        final int line;
+
+        Stmt(int line) {
+            this.line = line;
+        }
+    }
+
+    static class VarDecl extends Stmt {
+        final boolean uniform;
+        final String type;
+        final List<Declarator> declarators;
+
+        VarDecl(int line, boolean uniform, String type, List<Declarator> declarators) {
+            super(line);
+            this.uniform = uniform;
+            this.type = type;
+            this.declarators = declarators;
+        }
+    }
+
+    static class Block extends Stmt {
+        final List<Stmt> statements;
+
+        Block(int line, List<Stmt> statements) {
+            super(line);
+            this.statements = statements;
+        }
+    }
+
+    static class ExprStmt extends Stmt {
+        final Expr expr;
+
+        ExprStmt(int line, Expr expr) {
+            super(line);
+            this.expr = expr;
+        }
+    }
+
+    static class If extends Stmt {
+        final Expr condition;
+        final Stmt then;
+        final Stmt otherwise;  // null without an else
+
+        If(int line, Expr condition, Stmt then, Stmt otherwise) {
+            super(line);
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+    }
+
+    static class For extends Stmt {
+        final Stmt init;       // null, a VarDecl or an ExprStmt
+        final Expr condition;  // null loops forever
+        final Expr update;     // may be null
+        final Stmt body;
+
+        For(int line, Stmt init, Expr condition, Expr update, Stmt body) {
+            super(line);
+            this.init = init;
+            this.condition = condition;
+            this.update = update;
+            this.body = body;
+        }
+    }
+
+    static class While extends Stmt {
+        final Expr condition;
+        final Stmt body;
+        final boolean doWhile;
+
+        While(int line, Expr condition, Stmt body, boolean doWhile) {
+            super(line);
+            this.condition = condition;
+            this.body = body;
+            this.doWhile = doWhile;
+        }
+    }
+
+    static class Return extends Stmt {
+        final Expr value;  // null in void functions
+
+        Return(int line, Expr value) {
+            super(line);
+            this.value = value;
+        }
+    }
+
+    // break, continue or discard
+    static class Jump extends Stmt {
+        final String keyword;
+
+        Jump(int line, String keyword) {
+            super(line);
+            this.keyword = keyword;
+        }
+    }
+
+    // ---- Expressions ----
+
+    abstract static class Expr {
+        final int line;
+
+        Expr(int line) {
+            this.line = line;
+        }
+    }
+
+    static class Literal extends Expr {
+        final String type;  // int, float or bool
+        final String text;
+
+        Literal(int line, String type, String text) {
+            super(line);
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    static class Ident extends Expr {
+        final String name;
+
+        Ident(int line, String name) {
+            super(line);
+            this.name = name;
+        }
+    }
+
+    static class Unary extends Expr {
+        final String op;
+        final Expr operand;
+        final boolean postfix;
+
+        Unary(int line, String op, Expr operand, boolean postfix) {
+            super(line);
+            this.op = op;
+            this.operand = operand;
+            this.postfix = postfix;
+        }
+    }
+
+    static class Binary extends Expr {
+        final String op;
+        final Expr left;
+        final Expr right;
+
+        Binary(int line, String op, Expr left, Expr right) {
+            super(line);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    // = or a compound assignment like +=
+    static class Assign extends Expr {
+        final String op;
+        final Expr target;
+        final Expr value;
+
+        Assign(int line, String op, Expr target, Expr value) {
+            super(line);
+            this.op = op;
+            this.target = target;
+            this.value = value;
+        }
+    }
+
+    static class Ternary extends Expr {
+        final Expr condition;
+        final Expr then;
+        final Expr otherwise;
+
+        Ternary(int line, Expr condition, Expr then, Expr otherwise) {
+            super(line);
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+    }
+
+    // A function call, or a constructor when name is a type
+    static class Call extends Expr {
+        final String name;
+        final List<Expr> args;
+
+        Call(int line, String name, List<Expr> args) {
+            super(line);
+            this.name = name;
+            this.args = args;
+        }
+    }
+
+    // A struct field or a swizzle
+    static class Member extends Expr {
+        final Expr base;
+        final String name;
+
+        Member(int line, Expr base, String name) {
+            super(line);
+            this.base = base;
+            this.name = name;
+        }
+    }
+
+    static class Index extends Expr {
+        final Expr base;
+        final Expr index;
+
+        Index(int line, Expr base, Expr index) {
+            super(line);
+            this.base = base;
+            this.index = index;
+        }
+    }
+}
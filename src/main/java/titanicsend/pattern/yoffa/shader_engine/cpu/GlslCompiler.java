@@ -0,0 +1,155 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles GLSL fragment shaders to JVM bytecode, so they can run on
+ * machines without a GPU. The shader is parsed, translated to Java by
+ * GlslToJava, and handed to the JDK's own compiler in memory; the JIT then
+ * treats it like any other Java. Each distinct shader source is compiled
+ * once per run, however many patterns use it.
+ *
+ * Needs a JDK at runtime, not just a JRE, for javax.tools.
+ */
+public class GlslCompiler {
+
+    private static final Map<String, Compiled> cache = new ConcurrentHashMap<>();
+    private static final AtomicInteger classCount = new AtomicInteger();
+
+    public static class Compiled {
+        private final Constructor<? extends CpuShaderProgram> constructor;
+        private final List<String> customUniforms;
+
+        Compiled(Constructor<? extends CpuShaderProgram> constructor, List<String> customUniforms) {
+            this.constructor = constructor;
+            this.customUniforms = customUniforms;
+        }
+
+        // Uniform names, in the order of CpuShaderUniforms.custom
+        public List<String> getCustomUniforms() {
+            return customUniforms;
+        }
+
+        public CpuShaderUniforms newUniforms() {
+            return new CpuShaderUniforms(customUniforms.size());
+        }
+
+        // One per thread coloring points
+        public CpuShaderProgram newProgram(CpuShaderUniforms uniforms) {
+            try {
+                return constructor.newInstance(uniforms);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    // shaderBody as FragmentShader gives it: no template, uniforms for its parameters declared
+    public static Compiled compile(String shaderBody) {
+        return cache.computeIfAbsent(shaderBody, GlslCompiler::compileUncached);
+    }
+
+    private static Compiled compileUncached(String shaderBody) {
+        String className = "GlslShader" + classCount.incrementAndGet();
+        GlslToJava.Result java = translate(shaderBody, className);
+        Class<? extends CpuShaderProgram> type =
+                compileJava(GlslToJava.PACKAGE + "." + className, java.source).asSubclass(CpuShaderProgram.class);
+        try {
+            return new Compiled(type.getConstructor(CpuShaderUniforms.class), List.copyOf(java.customUniforms));
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static GlslToJava.Result translate(String shaderBody, String className) {
+        return GlslToJava.translate(GlslParser.parse(shaderBody), className);
+    }
+
+    private static Class<?> compileJava(String className, String source) {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new RuntimeException("Running shaders on the CPU needs a JDK, but "
+                    + System.getProperty("java.home") + " has no Java compiler");
+        }
+
+        Map<String, ByteArrayOutputStream> classFiles = new HashMap<>();
+        StandardJavaFileManager standardFiles = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        JavaFileManager files = new ForwardingJavaFileManager<>(standardFiles) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension),
+                        kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        classFiles.put(name, bytes);
+                        return bytes;
+                    }
+                };
+            }
+        };
+        JavaFileObject sourceFile = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        StringWriter errors = new StringWriter();
+        List<String> options = List.of("-classpath", classPath(), "-nowarn", "-g:none");
+        boolean compiled = javac.getTask(errors, files, null, options, null, List.of(sourceFile)).call();
+        if (!compiled) {
+            throw new RuntimeException("Generated Java didn't compile:\n" + errors + "\n" + numbered(source));
+        }
+
+        ClassLoader loader = new ClassLoader(CpuShaderProgram.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                ByteArrayOutputStream bytes = classFiles.get(name);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                byte[] classFile = bytes.toByteArray();
+                return defineClass(name, classFile, 0, classFile.length);
+            }
+        };
+        try {
+            return loader.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // The app's class path, plus wherever this package was loaded from in case that isn't on it
+    private static String classPath() {
+        String classPath = System.getProperty("java.class.path");
+        try {
+            String own = new File(CpuShaderProgram.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getPath();
+            return own + File.pathSeparator + classPath;
+        } catch (Exception e) {
+            return classPath;
+        }
+    }
+
+    private static String numbered(String source) {
+        StringBuilder numbered = new StringBuilder();
+        String[] lines = source.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            numbered.append(String.format("%4d  %s%n", i + 1, lines[i]));
+        }
+        return numbered.toString();
+    }
+}
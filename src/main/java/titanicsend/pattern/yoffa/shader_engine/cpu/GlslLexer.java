@@ -0,0 +1,206 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits GLSL source into tokens. Comments are dropped; preprocessor lines
+ * come through whole as DIRECTIVE tokens for GlslPreprocessor.
+ */
+class GlslLexer {
+
+    enum Kind { IDENT, INT, FLOAT, OP, DIRECTIVE, EOF }
+
+    static class Token {
+        final Kind kind;
+        final String text;
+        final int line;
+
+        Token(Kind kind, String text, int line) {
+            this.kind = kind;
+            this.text = text;
+            this.line = line;
+        }
+
+        boolean is(String op) {
+            return (kind == Kind.OP || kind == Kind.IDENT) && text.equals(op);
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.EOF ? "end of file" : "'" + text + "'";
+        }
+    }
+
+    // Longest first, so "<<=" isn't read as "<" "<="
+    private static final String[] OPERATORS = {
+            "<<=", ">>=",
+            "++", "--", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=", "==", "!=", "<=", ">=",
+            "&&", "||", "^^", "<<", ">>",
+            "+", "-", "*", "/", "%", "=", "<", ">", "!", "~", "&", "|", "^", "?", ":", ";", ",", ".",
+            "(", ")", "[", "]", "{", "}"
+    };
+
+    private final String source;
+    private int pos;
+    private int line = 1;
+    private boolean lineStart = true;
+
+    GlslLexer(String source) {
+        this.source = source;
+    }
+
+    static List<Token> tokenize(String source) {
+        return new GlslLexer(source).tokenize();
+    }
+
+    List<Token> tokenize() {
+        List<Token> tokens = new ArrayList<>();
+        while (true) {
+            skipSpaceAndComments();
+            if (pos >= source.length()) {
+                tokens.add(new Token(Kind.EOF, "", line));
+                return tokens;
+            }
+            char c = source.charAt(pos);
+            if (c == '#' && lineStart) {
+                tokens.add(directive());
+            } else if (Character.isLetter(c) || c == '_') {
+                tokens.add(identifier());
+            } else if (Character.isDigit(c) || (c == '.' && pos + 1 < source.length()
+                    && Character.isDigit(source.charAt(pos + 1)))) {
+                tokens.add(number());
+            } else {
+                tokens.add(operator());
+            }
+            lineStart = false;
+        }
+    }
+
+    private void skipSpaceAndComments() {
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (c == '\n') {
+                line++;
+                pos++;
+                lineStart = true;
+            } else if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (source.startsWith("//", pos)) {
+                while (pos < source.length() && source.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (source.startsWith("/*", pos)) {
+                int end = source.indexOf("*/", pos + 2);
+                end = end < 0 ? source.length() : end + 2;
+                for (int i = pos; i < end; i++) {
+                    if (source.charAt(i) == '\n') {
+                        line++;
+                    }
+                }
+                pos = end;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // The rest of the line, joining lines ending in a backslash and dropping comments
+    private Token directive() {
+        int startLine = line;
+        StringBuilder text = new StringBuilder();
+        while (pos < source.length() && source.charAt(pos) != '\n') {
+            char c = source.charAt(pos);
+            if (c == '\\' && pos + 1 < source.length() && source.charAt(pos + 1) == '\n') {
+                pos += 2;
+                line++;
+            } else if (source.startsWith("//", pos)) {
+                while (pos < source.length() && source.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (source.startsWith("/*", pos)) {
+                int end = source.indexOf("*/", pos + 2);
+                end = end < 0 ? source.length() : end + 2;
+                for (int i = pos; i < end; i++) {
+                    if (source.charAt(i) == '\n') {
+                        line++;
+                    }
+                }
+                pos = end;
+                text.append(' ');
+            } else {
+                text.append(c);
+                pos++;
+            }
+        }
+        return new Token(Kind.DIRECTIVE, text.toString().trim(), startLine);
+    }
+
+    private Token identifier() {
+        int start = pos;
+        while (pos < source.length() && (Character.isLetterOrDigit(source.charAt(pos)) || source.charAt(pos) == '_')) {
+            pos++;
+        }
+        return new Token(Kind.IDENT, source.substring(start, pos), line);
+    }
+
+    private Token number() {
+        int start = pos;
+        if (source.startsWith("0x", pos) || source.startsWith("0X", pos)) {
+            pos += 2;
+            while (pos < source.length() && Character.digit(source.charAt(pos), 16) >= 0) {
+                pos++;
+            }
+            skipSuffix("uU");
+            return new Token(Kind.INT, source.substring(start, pos), line);
+        }
+        boolean isFloat = false;
+        while (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+            pos++;
+        }
+        if (pos < source.length() && source.charAt(pos) == '.') {
+            isFloat = true;
+            pos++;
+            while (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+                pos++;
+            }
+        }
+        if (pos < source.length() && (source.charAt(pos) == 'e' || source.charAt(pos) == 'E')) {
+            int mark = pos++;
+            if (pos < source.length() && (source.charAt(pos) == '+' || source.charAt(pos) == '-')) {
+                pos++;
+            }
+            if (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+                isFloat = true;
+                while (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+                    pos++;
+                }
+            } else {
+                pos = mark;
+            }
+        }
+        if (pos < source.length() && "fF".indexOf(source.charAt(pos)) >= 0) {
+            isFloat = true;
+            pos++;
+        } else {
+            skipSuffix("uU");
+        }
+        return new Token(isFloat ? Kind.FLOAT : Kind.INT, source.substring(start, pos), line);
+    }
+
+    private void skipSuffix(String suffixes) {
+        if (pos < source.length() && suffixes.indexOf(source.charAt(pos)) >= 0) {
+            pos++;
+        }
+    }
+
+    private Token operator() {
+        for (String op : OPERATORS) {
+            if (source.startsWith(op, pos)) {
+                pos += op.length();
+                return new Token(Kind.OP, op, line);
+            }
+        }
+        throw new RuntimeException("Line " + line + ": unexpected character '" + source.charAt(pos) + "'");
+    }
+}
@@ -0,0 +1,452 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import titanicsend.pattern.yoffa.shader_engine.cpu.GlslAst.*;
+import titanicsend.pattern.yoffa.shader_engine.cpu.GlslLexer.Kind;
+import titanicsend.pattern.yoffa.shader_engine.cpu.GlslLexer.Token;
+
+import java.util.*;
+
+/**
+ * Recursive descent parser for the subset of GLSL our shaders are written
+ * in: structs, functions with in/out/inout parameters, global and local
+ * variables (arrays too), the usual statements and GLSL's full set of
+ * expression operators, with GLSL's precedence.
+ */
+class GlslParser {
+
+    static final Set<String> TYPES = Set.of(
+            "void", "bool", "int", "uint", "float",
+            "vec2", "vec3", "vec4", "bvec2", "bvec3", "bvec4", "ivec2", "ivec3", "ivec4",
+            "mat2", "mat3", "mat4", "sampler2D");
+
+    // Precision and interpolation qualifiers change nothing on the CPU
+    private static final Set<String> IGNORED_QUALIFIERS = Set.of(
+            "highp", "mediump", "lowp", "precise", "invariant", "flat", "smooth", "noperspective", "centroid");
+
+    private static final Set<String> ASSIGNMENTS = Set.of(
+            "=", "+=", "-=", "*=", "/=", "%=", "<<=", ">>=", "&=", "|=", "^=");
+
+    // Binary operators by precedence, loosest first
+    private static final List<Set<String>> BINARY = List.of(
+            Set.of("||"), Set.of("^^"), Set.of("&&"), Set.of("|"), Set.of("^"), Set.of("&"),
+            Set.of("==", "!="), Set.of("<", ">", "<=", ">="), Set.of("<<", ">>"),
+            Set.of("+", "-"), Set.of("*", "/", "%"));
+
+    private final List<Token> tokens;
+    private final Set<String> structNames = new HashSet<>();
+    private int pos;
+
+    private GlslParser(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    static Shader parse(String source) {
+        return new GlslParser(GlslPreprocessor.process(GlslLexer.tokenize(source))).shader();
+    }
+
+    // ---- Token helpers ----
+
+    private Token peek() {
+        return tokens.get(pos);
+    }
+
+    private Token peek(int ahead) {
+        return tokens.get(Math.min(pos + ahead, tokens.size() - 1));
+    }
+
+    private Token next() {
+        Token token = tokens.get(pos);
+        if (token.kind != Kind.EOF) {
+            pos++;
+        }
+        return token;
+    }
+
+    private boolean accept(String text) {
+        if (peek().is(text)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private Token expect(String text) {
+        if (!peek().is(text)) {
+            throw error("expected '" + text + "' but found " + peek());
+        }
+        return next();
+    }
+
+    private String identifier() {
+        if (peek().kind != Kind.IDENT) {
+            throw error("expected a name but found " + peek());
+        }
+        return next().text;
+    }
+
+    private RuntimeException error(String message) {
+        return new RuntimeException("Line " + peek().line + ": " + message);
+    }
+
+    private boolean isType(Token token) {
+        return token.kind == Kind.IDENT && (TYPES.contains(token.text) || structNames.contains(token.text));
+    }
+
+    private void skipIgnoredQualifiers() {
+        while (peek().kind == Kind.IDENT && IGNORED_QUALIFIERS.contains(peek().text)) {
+            next();
+        }
+    }
+
+    // ---- Declarations ----
+
+    private Shader shader() {
+        List<StructDecl> structs = new ArrayList<>();
+        List<FunctionDecl> functions = new ArrayList<>();
+        List<VarDecl> globals = new ArrayList<>();
+        while (peek().kind != Kind.EOF) {
+            if (accept(";")) {
+                continue;
+            }
+            if (accept("precision")) {
+                while (!accept(";")) {
+                    next();
+                }
+                continue;
+            }
+            if (accept("layout")) {
+                expect("(");
+                while (!accept(")")) {
+                    next();
+                }
+            }
+            int line = peek().line;
+            boolean uniform = false;
+            while (true) {
+                skipIgnoredQualifiers();
+                if (accept("uniform")) {
+                    uniform = true;
+                } else if (!accept("const") && !accept("in") && !accept("out")) {
+                    break;
+                }
+            }
+            if (peek().is("struct")) {
+                structs.add(struct());
+                if (accept(";")) {
+                    continue;
+                }
+                throw error("declaring variables along with struct " + structs.get(structs.size() - 1).name
+                        + " isn't supported");
+            }
+            String type = type();
+            String name = identifier();
+            if (peek().is("(")) {
+                functions.add(function(type, name, line));
+            } else {
+                globals.add(declarators(line, uniform, type, name));
+                expect(";");
+            }
+        }
+        return new Shader(structs, functions, globals);
+    }
+
+    private String type() {
+        skipIgnoredQualifiers();
+        if (!isType(peek())) {
+            throw error("expected a type but found " + peek());
+        }
+        String type = next().text;
+        if (peek().is("[")) {
+            throw error("array types like " + type + "[] aren't supported; put the size after the name");
+        }
+        return type;
+    }
+
+    private StructDecl struct() {
+        expect("struct");
+        String name = identifier();
+        structNames.add(name);
+        expect("{");
+        List<Field> fields = new ArrayList<>();
+        while (!accept("}")) {
+            String type = type();
+            do {
+                String field = identifier();
+                fields.add(new Field(type, field, arraySize()));
+            } while (accept(","));
+            expect(";");
+        }
+        return new StructDecl(name, fields);
+    }
+
+    private Expr arraySize() {
+        if (!accept("[")) {
+            return null;
+        }
+        Expr size = expression();
+        expect("]");
+        return size;
+    }
+
+    private FunctionDecl function(String returnType, String name, int line) {
+        expect("(");
+        List<Param> params = new ArrayList<>();
+        if (peek().is("void") && peek(1).is(")")) {
+            next();
+        }
+        while (!accept(")")) {
+            if (!params.isEmpty()) {
+                expect(",");
+            }
+            Qualifier qualifier = Qualifier.IN;
+            while (true) {
+                skipIgnoredQualifiers();
+                if (accept("in") || accept("const")) {
+                    continue;
+                }
+                if (accept("out")) {
+                    qualifier = Qualifier.OUT;
+                } else if (accept("inout")) {
+                    qualifier = Qualifier.INOUT;
+                } else {
+                    break;
+                }
+            }
+            String type = type();
+            String paramName = peek().kind == Kind.IDENT ? identifier() : "unnamed" + params.size();
+            params.add(new Param(qualifier, type, paramName, arraySize()));
+        }
+        Block body = accept(";") ? null : block();
+        return new FunctionDecl(returnType, name, params, body, line);
+    }
+
+    // The rest of a declaration whose type and first name have been read
+    private VarDecl declarators(int line, boolean uniform, String type, String firstName) {
+        List<Declarator> declarators = new ArrayList<>();
+        String name = firstName;
+        while (true) {
+            Expr size = arraySize();
+            Expr init = accept("=") ? assignment() : null;
+            declarators.add(new Declarator(name, size, init));
+            if (!accept(",")) {
+                return new VarDecl(line, uniform, type, declarators);
+            }
+            name = identifier();
+        }
+    }
+
+    // ---- Statements ----
+
+    private Block block() {
+        int line = expect("{").line;
+        List<Stmt> statements = new ArrayList<>();
+        while (!accept("}")) {
+            if (peek().kind == Kind.EOF) {
+                throw error("missing '}'");
+            }
+            statements.add(statement());
+        }
+        return new Block(line, statements);
+    }
+
+    private boolean isDeclaration() {
+        Token token = peek();
+        if (token.is("const") || (token.kind == Kind.IDENT && IGNORED_QUALIFIERS.contains(token.text))) {
+            return true;
+        }
+        return isType(token) && peek(1).kind == Kind.IDENT;
+    }
+
+    private VarDecl declaration() {
+        int line = peek().line;
+        while (accept("const")) {
+            skipIgnoredQualifiers();
+        }
+        String type = type();
+        return declarators(line, false, type, identifier());
+    }
+
+    private Stmt statement() {
+        Token token = peek();
+        int line = token.line;
+        if (token.is("{")) {
+            return block();
+        }
+        if (accept(";")) {
+            return new Block(line, List.of());
+        }
+        if (accept("if")) {
+            expect("(");
+            Expr condition = expression();
+            expect(")");
+            Stmt then = statement();
+            Stmt otherwise = accept("else") ? statement() : null;
+            return new If(line, condition, then, otherwise);
+        }
+        if (accept("for")) {
+            expect("(");
+            Stmt init = null;
+            if (!accept(";")) {
+                init = isDeclaration() ? declaration() : new ExprStmt(line, expression());
+                expect(";");
+            }
+            Expr condition = peek().is(";") ? null : expression();
+            expect(";");
+            Expr update = peek().is(")") ? null : expression();
+            expect(")");
+            return new For(line, init, condition, update, statement());
+        }
+        if (accept("while")) {
+            expect("(");
+            Expr condition = expression();
+            expect(")");
+            return new While(line, condition, statement(), false);
+        }
+        if (accept("do")) {
+            Stmt body = statement();
+            expect("while");
+            expect("(");
+            Expr condition = expression();
+            expect(")");
+            expect(";");
+            return new While(line, condition, body, true);
+        }
+        if (accept("return")) {
+            Expr value = peek().is(";") ? null : expression();
+            expect(";");
+            return new Return(line, value);
+        }
+        if (token.is("break") || token.is("continue") || token.is("discard")) {
+            next();
+            expect(";");
+            return new Jump(line, token.text);
+        }
+        if (isDeclaration()) {
+            VarDecl declaration = declaration();
+            expect(";");
+            return declaration;
+        }
+        Expr expr = expression();
+        expect(";");
+        return new ExprStmt(line, expr);
+    }
+
+    // ---- Expressions ----
+
+    private Expr expression() {
+        Expr expr = assignment();
+        if (peek().is(",")) {
+            throw error("the comma operator isn't supported");
+        }
+        return expr;
+    }
+
+    private Expr assignment() {
+        Expr left = conditional();
+        Token token = peek();
+        if (token.kind == Kind.OP && ASSIGNMENTS.contains(token.text)) {
+            next();
+            return new Assign(token.line, token.text, left, assignment());
+        }
+        return left;
+    }
+
+    private Expr conditional() {
+        Expr condition = binary(0);
+        if (peek().is("?")) {
+            int line = next().line;
+            Expr then = assignment();
+            expect(":");
+            Expr otherwise = assignment();
+            return new Ternary(line, condition, then, otherwise);
+        }
+        return condition;
+    }
+
+    private Expr binary(int level) {
+        if (level == BINARY.size()) {
+            return unary();
+        }
+        Expr left = binary(level + 1);
+        while (peek().kind == Kind.OP && BINARY.get(level).contains(peek().text)) {
+            Token op = next();
+            left = new Binary(op.line, op.text, left, binary(level + 1));
+        }
+        return left;
+    }
+
+    private Expr unary() {
+        Token token = peek();
+        if (token.kind == Kind.OP && Set.of("+", "-", "!", "~", "++", "--").contains(token.text)) {
+            next();
+            return new Unary(token.line, token.text, unary(), false);
+        }
+        return postfix(primary());
+    }
+
+    private Expr postfix(Expr expr) {
+        while (true) {
+            Token token = peek();
+            if (accept(".")) {
+                String name = identifier();
+                if (peek().is("(")) {
+                    throw error("method calls like ." + name + "() aren't supported");
+                }
+                expr = new Member(token.line, expr, name);
+            } else if (accept("[")) {
+                expr = new Index(token.line, expr, expression());
+                expect("]");
+            } else if (token.is("++") || token.is("--")) {
+                next();
+                expr = new Unary(token.line, token.text, expr, true);
+            } else {
+                return expr;
+            }
+        }
+    }
+
+    private Expr primary() {
+        Token token = next();
+        switch (token.kind) {
+            case INT:
+                return new Literal(token.line, "int", token.text);
+            case FLOAT:
+                return new Literal(token.line, "float", token.text);
+            case IDENT:
+                if (token.text.equals("true") || token.text.equals("false")) {
+                    return new Literal(token.line, "bool", token.text);
+                }
+                if (peek().is("(")) {
+                    return new Call(token.line, token.text, arguments());
+                }
+                if (isType(token)) {
+                    throw error("expected '(' after " + token.text);
+                }
+                return new Ident(token.line, token.text);
+            case OP:
+                if (token.is("(")) {
+                    Expr expr = expression();
+                    expect(")");
+                    return expr;
+                }
+                throw error("unexpected " + token);
+            default:
+                throw error("unexpected " + token);
+        }
+    }
+
+    private List<Expr> arguments() {
+        expect("(");
+        List<Expr> args = new ArrayList<>();
+        if (peek().is("void") && peek(1).is(")")) {
+            next();
+        }
+        while (!accept(")")) {
+            if (!args.isEmpty()) {
+                expect(",");
+            }
+            args.add(assignment());
+        }
+        return args;
+    }
+}
@@ -0,0 +1,266 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import titanicsend.pattern.yoffa.shader_engine.cpu.GlslLexer.Kind;
+import titanicsend.pattern.yoffa.shader_engine.cpu.GlslLexer.Token;
+
+import java.util.*;
+
+/**
+ * Runs the preprocessor over a token stream: #define (object-like and
+ * function-like) and #undef, #ifdef/#ifndef/#if/#else/#endif with constant
+ * or defined() conditions. #version, #extension and #pragma are ignored.
+ *
+ * Macros expand on tokens, not text, and a macro is only in effect from its
+ * #define on, as with the C preprocessor.
+ */
+class GlslPreprocessor {
+
+    private static class Macro {
+        final List<String> params;  // null for object-like macros
+        final List<Token> body;
+
+        Macro(List<String> params, List<Token> body) {
+            this.params = params;
+            this.body = body;
+        }
+    }
+
+    private final Map<String, Macro> macros = new HashMap<>();
+
+    static List<Token> process(List<Token> tokens) {
+        return new GlslPreprocessor().run(tokens);
+    }
+
+    private List<Token> run(List<Token> tokens) {
+        List<Token> out = new ArrayList<>();
+        List<Token> segment = new ArrayList<>();
+        // One entry per open #if: whether its current branch is live, and whether any branch was
+        Deque<boolean[]> conditions = new ArrayDeque<>();
+        for (Token token : tokens) {
+            if (token.kind != Kind.DIRECTIVE) {
+                if (token.kind == Kind.EOF || isLive(conditions)) {
+                    segment.add(token);
+                }
+                continue;
+            }
+            // A directive may redefine what follows, so expand everything before it first
+            out.addAll(expand(segment, Collections.emptySet()));
+            segment.clear();
+
+            String text = token.text.substring(1).trim();
+            String keyword = text.split("[\\s(]", 2)[0];
+            String rest = text.substring(keyword.length()).trim();
+            switch (keyword) {
+                case "ifdef":
+                case "ifndef": {
+                    boolean defined = macros.containsKey(rest);
+                    boolean taken = keyword.equals("ifdef") == defined;
+                    conditions.push(new boolean[] {taken, taken});
+                    break;
+                }
+                case "if": {
+                    boolean taken = isLive(conditions) && evaluate(rest, token.line);
+                    conditions.push(new boolean[] {taken, taken});
+                    break;
+                }
+                case "elif": {
+                    boolean[] condition = top(conditions, token);
+                    condition[0] = !condition[1] && evaluate(rest, token.line);
+                    condition[1] |= condition[0];
+                    break;
+                }
+                case "else": {
+                    boolean[] condition = top(conditions, token);
+                    condition[0] = !condition[1];
+                    condition[1] = true;
+                    break;
+                }
+                case "endif":
+                    top(conditions, token);
+                    conditions.pop();
+                    break;
+                default:
+                    if (isLive(conditions)) {
+                        directive(keyword, rest, token.line);
+                    }
+            }
+        }
+        out.addAll(expand(segment, Collections.emptySet()));
+        return out;
+    }
+
+    private static boolean isLive(Deque<boolean[]> conditions) {
+        for (boolean[] condition : conditions) {
+            if (!condition[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean[] top(Deque<boolean[]> conditions, Token token) {
+        if (conditions.isEmpty()) {
+            throw new RuntimeException("Line " + token.line + ": " + token.text + " without #if");
+        }
+        return conditions.peek();
+    }
+
+    private void directive(String keyword, String rest, int line) {
+        switch (keyword) {
+            case "define":
+                define(rest, line);
+                break;
+            case "undef":
+                macros.remove(rest);
+                break;
+            case "version":
+            case "extension":
+            case "pragma":
+            case "":
+                break;
+            default:
+                throw new RuntimeException("Line " + line + ": unsupported directive #" + keyword);
+        }
+    }
+
+    private void define(String definition, int line) {
+        int nameEnd = 0;
+        while (nameEnd < definition.length() && (Character.isLetterOrDigit(definition.charAt(nameEnd))
+                || definition.charAt(nameEnd) == '_')) {
+            nameEnd++;
+        }
+        String name = definition.substring(0, nameEnd);
+        if (name.isEmpty()) {
+            throw new RuntimeException("Line " + line + ": #define without a name");
+        }
+        String body = definition.substring(nameEnd);
+        List<String> params = null;
+        // Function-like only when the ( touches the name
+        if (body.startsWith("(")) {
+            int close = body.indexOf(')');
+            if (close < 0) {
+                throw new RuntimeException("Line " + line + ": unclosed parameter list in #define " + name);
+            }
+            params = new ArrayList<>();
+            for (String param : body.substring(1, close).split(",")) {
+                if (!param.isBlank()) {
+                    params.add(param.trim());
+                }
+            }
+            body = body.substring(close + 1);
+        }
+        List<Token> tokens = new ArrayList<>();
+        for (Token token : GlslLexer.tokenize(body)) {
+            if (token.kind != Kind.EOF) {
+                tokens.add(new Token(token.kind, token.text, line));
+            }
+        }
+        macros.put(name, new Macro(params, tokens));
+    }
+
+    // #if conditions: an integer, defined(NAME), or !, && and || of those
+    private boolean evaluate(String condition, int line) {
+        String expanded = condition.replaceAll("defined\\s*\\(\\s*(\\w+)\\s*\\)", "defined $1");
+        boolean result = false;
+        for (String or : expanded.split("\\|\\|")) {
+            boolean all = true;
+            for (String and : or.split("&&")) {
+                String term = and.trim();
+                boolean negate = false;
+                while (term.startsWith("!")) {
+                    negate = !negate;
+                    term = term.substring(1).trim();
+                }
+                boolean value;
+                if (term.startsWith("defined ")) {
+                    value = macros.containsKey(term.substring("defined ".length()).trim());
+                } else {
+                    List<Token> tokens = expand(GlslLexer.tokenize(term).subList(0, 1), Collections.emptySet());
+                    try {
+                        value = !tokens.isEmpty() && Integer.decode(tokens.get(0).text) != 0;
+                    } catch (NumberFormatException e) {
+                        throw new RuntimeException("Line " + line + ": unsupported #if condition " + condition);
+                    }
+                }
+                all &= value != negate;
+            }
+            result |= all;
+        }
+        return result;
+    }
+
+    // Replaces macros in tokens, rescanning each replacement with that macro turned off
+    private List<Token> expand(List<Token> tokens, Set<String> disabled) {
+        List<Token> out = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            Macro macro = token.kind == Kind.IDENT && !disabled.contains(token.text) ? macros.get(token.text) : null;
+            if (macro == null) {
+                out.add(token);
+                continue;
+            }
+            Set<String> inner = new HashSet<>(disabled);
+            inner.add(token.text);
+            if (macro.params == null) {
+                out.addAll(expand(relocate(macro.body, token.line), inner));
+                continue;
+            }
+            if (i + 1 >= tokens.size() || !tokens.get(i + 1).is("(")) {
+                out.add(token);
+                continue;
+            }
+            List<List<Token>> args = new ArrayList<>();
+            List<Token> arg = new ArrayList<>();
+            int depth = 0;
+            int j = i + 2;
+            for (; j < tokens.size(); j++) {
+                Token t = tokens.get(j);
+                if (t.kind == Kind.EOF) {
+                    throw new RuntimeException("Line " + token.line + ": unclosed call to macro " + token.text);
+                }
+                if (depth == 0 && (t.is(")") || t.is(","))) {
+                    args.add(arg);
+                    arg = new ArrayList<>();
+                    if (t.is(")")) {
+                        break;
+                    }
+                    continue;
+                }
+                if (t.is("(")) {
+                    depth++;
+                } else if (t.is(")")) {
+                    depth--;
+                }
+                arg.add(t);
+            }
+            if (args.size() == 1 && args.get(0).isEmpty() && macro.params.isEmpty()) {
+                args.clear();
+            }
+            if (args.size() != macro.params.size()) {
+                throw new RuntimeException("Line " + token.line + ": macro " + token.text + " takes "
+                        + macro.params.size() + " arguments, got " + args.size());
+            }
+            List<Token> replaced = new ArrayList<>();
+            for (Token t : relocate(macro.body, token.line)) {
+                int param = t.kind == Kind.IDENT ? macro.params.indexOf(t.text) : -1;
+                if (param >= 0) {
+                    replaced.addAll(expand(args.get(param), disabled));
+                } else {
+                    replaced.add(t);
+                }
+            }
+            out.addAll(expand(replaced, inner));
+            i = j;
+        }
+        return out;
+    }
+
+    // Expanded tokens report the line the macro was used on
+    private static List<Token> relocate(List<Token> body, int line) {
+        List<Token> tokens = new ArrayList<>(body.size());
+        for (Token token : body) {
+            tokens.add(new Token(token.kind, token.text, line));
+        }
+        return tokens;
+    }
+}
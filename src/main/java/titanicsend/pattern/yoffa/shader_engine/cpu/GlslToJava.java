@@ -0,0 +1,1094 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import titanicsend.pattern.yoffa.shader_engine.Uniforms;
+import titanicsend.pattern.yoffa.shader_engine.cpu.GlslAst.*;
+
+import java.util.*;
+
+/**
+ * Translates a parsed shader into the source of a CpuShaderProgram subclass.
+ *
+ * Operators become calls into Glsl (add, mul, ...) and Java's overloading
+ * picks the scalar, vector or matrix version, so types are only tracked as
+ * far as GLSL needs them to read the code: struct fields versus swizzles,
+ * which overload of a shader's own function is called, and what type a
+ * temporary needs.
+ *
+ * GLSL names are prefixed (v_ variables, f_ functions, S_ structs) so they
+ * can't collide with Java's keywords or with Glsl's functions, which is what
+ * lets a shader name a variable "length". Globals are fields, reset before
+ * every pixel since shaders may change them. out and inout parameters are
+ * one element arrays; calls passing them are hoisted into statements of
+ * their own that copy the results back.
+ */
+class GlslToJava {
+
+    static final String PACKAGE = "titanicsend.pattern.yoffa.shader_engine.cpu.compiled";
+
+    private static final Set<String> JAVA_KEYWORDS = Set.of(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+            "volatile", "while", "true", "false", "null", "var", "record", "yield", "copy");
+
+    // Built-in functions returning the type of their vector argument, or a scalar
+    private static final Set<String> GEN_TYPE_FUNCTIONS = Set.of(
+            "radians", "degrees", "sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh",
+            "pow", "exp", "log", "exp2", "log2", "sqrt", "inversesqrt", "abs", "sign", "floor", "ceil",
+            "fract", "trunc", "round", "mod", "min", "max", "clamp", "mix", "step", "smoothstep",
+            "normalize", "reflect");
+    private static final Set<String> INT_FUNCTIONS = Set.of("abs", "sign", "min", "max", "clamp");
+    private static final Map<String, String> FIXED_TYPE_FUNCTIONS = Map.of(
+            "length", "float", "distance", "float", "dot", "float", "cross", "vec3",
+            "texture", "vec4", "textureLod", "vec4");
+
+    private static final String[] SWIZZLE_SETS = {"xyzw", "rgba", "stpq"};
+
+    private static class Var {
+        final String type;
+        final String java;
+        final boolean ref;       // out/inout parameter, held in a one element array
+        final boolean readOnly;  // uniforms
+
+        Var(String type, String java, boolean ref, boolean readOnly) {
+            this.type = type;
+            this.java = java;
+            this.ref = ref;
+            this.readOnly = readOnly;
+        }
+    }
+
+    private static class Code {
+        final String text;
+        final String type;
+        final boolean statement;   // can stand alone as a Java statement
+        final boolean assignment;  // needs parentheses inside another expression
+        final boolean fresh;       // a new value no variable refers to
+
+        Code(String text, String type, boolean statement, boolean assignment, boolean fresh) {
+            this.text = text;
+            this.type = type;
+            this.statement = statement;
+            this.assignment = assignment;
+            this.fresh = fresh;
+        }
+
+        Code(String text, String type) {
+            this(text, type, false, false, false);
+        }
+
+        String nested() {
+            return assignment ? "(" + text + ")" : text;
+        }
+    }
+
+    private final Shader shader;
+    private final String className;
+    private final Map<String, StructDecl> structs = new LinkedHashMap<>();
+    private final Map<String, List<FunctionDecl>> functions = new HashMap<>();
+    private final List<String> customUniforms = new ArrayList<>();
+    private final Deque<Map<String, Var>> scopes = new ArrayDeque<>();
+    private final StringBuilder out = new StringBuilder();
+    private int indent;
+    private int temps;
+
+    // Statements hoisted out of the expression being translated, and whether that's allowed there
+    private List<String> pre = new ArrayList<>();
+    private boolean hoistable;
+
+    private GlslToJava(Shader shader, String className) {
+        this.shader = shader;
+        this.className = className;
+    }
+
+    static class Result {
+        final String source;
+        // Names of the uniforms read from CpuShaderUniforms.custom, in order
+        final List<String> customUniforms;
+
+        Result(String source, List<String> customUniforms) {
+            this.source = source;
+            this.customUniforms = customUniforms;
+        }
+    }
+
+    static Result translate(Shader shader, String className) {
+        GlslToJava translator = new GlslToJava(shader, className);
+        translator.translate();
+        return new Result(translator.out.toString(), translator.customUniforms);
+    }
+
+    // ---- Output ----
+
+    private void line(String text) {
+        if (!text.isEmpty()) {
+            out.append("    ".repeat(indent)).append(text);
+        }
+        out.append('\n');
+    }
+
+    private void open(String text) {
+        line(text.isEmpty() ? "{" : text + " {");
+        indent++;
+    }
+
+    private void close(String text) {
+        indent--;
+        line("}" + text);
+    }
+
+    private void flushPre() {
+        for (String statement : pre) {
+            line(statement);
+        }
+        pre = new ArrayList<>();
+    }
+
+    private String temp() {
+        return "t" + (++temps);
+    }
+
+    private static RuntimeException error(int line, String message) {
+        return new RuntimeException("Line " + line + ": " + message);
+    }
+
+    // ---- Types ----
+
+    private static boolean isScalar(String type) {
+        return type.equals("float") || type.equals("int") || type.equals("uint") || type.equals("bool");
+    }
+
+    private static boolean isInt(String type) {
+        return type.equals("int") || type.equals("uint");
+    }
+
+    private static boolean isVector(String type) {
+        return type.equals("vec2") || type.equals("vec3") || type.equals("vec4");
+    }
+
+    private static boolean isMatrix(String type) {
+        return type.equals("mat2") || type.equals("mat3");
+    }
+
+    private static boolean isArray(String type) {
+        return type.endsWith("[]");
+    }
+
+    private static String element(String type) {
+        return type.substring(0, type.length() - 2);
+    }
+
+    private static int size(String type) {
+        return type.charAt(type.length() - 1) - '0';
+    }
+
+    private boolean isStruct(String type) {
+        return structs.containsKey(type);
+    }
+
+    private String javaType(String type, int line) {
+        if (isArray(type)) {
+            return javaType(element(type), line) + "[]";
+        }
+        switch (type) {
+            case "void":
+            case "float":
+            case "int":
+                return type;
+            case "uint":
+                return "int";
+            case "bool":
+                return "boolean";
+            case "vec2":
+            case "vec3":
+            case "vec4":
+            case "mat2":
+            case "mat3":
+                return Character.toUpperCase(type.charAt(0)) + type.substring(1);
+            case "sampler2D":
+                return "Sampler";
+            default:
+                if (isStruct(type)) {
+                    return "S_" + type;
+                }
+                throw error(line, "type " + type + " isn't supported on the CPU");
+        }
+    }
+
+    private String zero(String type, int line) {
+        switch (type) {
+            case "float":
+                return "0f";
+            case "int":
+            case "uint":
+                return "0";
+            case "bool":
+                return "false";
+            case "vec2":
+            case "vec3":
+            case "vec4":
+                return "ZERO" + size(type);
+            case "mat2":
+            case "mat3":
+                return type + "(0f)";
+            case "sampler2D":
+                return "null";
+            default:
+                if (isStruct(type)) {
+                    return "new S_" + type + "()";
+                }
+                throw error(line, "type " + type + " isn't supported on the CPU");
+        }
+    }
+
+    private String newArray(String elementType, String size, int line) {
+        switch (elementType) {
+            case "float":
+            case "int":
+            case "uint":
+            case "bool":
+                return "new " + javaType(elementType, line) + "[" + size + "]";
+            case "vec2":
+            case "vec3":
+            case "vec4":
+                return elementType + "Array(" + size + ")";
+            default:
+                if (isStruct(elementType)) {
+                    return "S_" + elementType + "_array(" + size + ")";
+                }
+                throw error(line, "arrays of " + elementType + " aren't supported on the CPU");
+        }
+    }
+
+    // GLSL assigns by value; vectors are immutable, but structs and arrays need copying
+    private String copy(Code code) {
+        if (code.fresh) {
+            return code.text;
+        } else if (isStruct(code.type)) {
+            return code.nested() + ".copy()";
+        } else if (isArray(code.type)) {
+            return code.nested() + ".clone()";
+        }
+        return code.text;
+    }
+
+    private static String safe(String name) {
+        return JAVA_KEYWORDS.contains(name) ? name + "_" : name;
+    }
+
+    // ---- Scopes ----
+
+    private Var lookup(String name, int line) {
+        for (Map<String, Var> scope : scopes) {
+            Var var = scope.get(name);
+            if (var != null) {
+                return var;
+            }
+        }
+        throw error(line, "'" + name + "' isn't declared");
+    }
+
+    // Java won't let a local hide another, so a GLSL local that does gets a new name
+    private Var declareLocal(String name, String type, boolean ref) {
+        String java = "v_" + name;
+        for (int n = 2; isVisible(java); n++) {
+            java = "v_" + name + "_" + n;
+        }
+        Var var = new Var(type, java, ref, false);
+        scopes.peek().put(name, var);
+        return var;
+    }
+
+    private boolean isVisible(String java) {
+        for (Map<String, Var> scope : scopes) {
+            for (Var var : scope.values()) {
+                if (var.java.equals(java)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // ---- Shader ----
+
+    private void translate() {
+        for (StructDecl struct : shader.structs) {
+            structs.put(struct.name, struct);
+        }
+        for (FunctionDecl function : shader.functions) {
+            if (function.body != null) {
+                functions.computeIfAbsent(function.name, name -> new ArrayList<>()).add(function);
+            }
+        }
+
+        scopes.push(new LinkedHashMap<>());
+        Map<String, Var> globals = scopes.peek();
+        globals.put(Uniforms.TIME_SECONDS, new Var("float", "u.iTime", false, true));
+        globals.put(Uniforms.RESOLUTION, new Var("vec2", "u.iResolution", false, true));
+        globals.put(Uniforms.MOUSE, new Var("vec4", "u.iMouse", false, true));
+        for (int i = 0; i < CpuShaderUniforms.CHANNELS; i++) {
+            globals.put(Uniforms.CHANNEL + i, new Var("sampler2D", "u.iChannel[" + i + "]", false, true));
+        }
+        for (Uniforms.Audio audio : Uniforms.Audio.values()) {
+            globals.put(audio.getUniformName(), new Var("float", "u." + audio.getUniformName(), false, true));
+        }
+        globals.put("gl_FragCoord", new Var("vec4", "gl_FragCoord", false, true));
+
+        line("package " + PACKAGE + ";");
+        line("");
+        line("import titanicsend.pattern.yoffa.shader_engine.cpu.CpuShaderProgram;");
+        line("import titanicsend.pattern.yoffa.shader_engine.cpu.CpuShaderUniforms;");
+        line("");
+        line("import static titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.*;");
+        line("");
+        open("public final class " + className + " extends CpuShaderProgram");
+        line("");
+        open("public " + className + "(CpuShaderUniforms u)");
+        line("super(u);");
+        close("");
+
+        globals();
+        for (StructDecl struct : shader.structs) {
+            struct(struct);
+        }
+        for (FunctionDecl function : shader.functions) {
+            if (function.body != null) {
+                function(function);
+            }
+        }
+        entryPoint();
+        close("");
+    }
+
+    private void struct(StructDecl struct) {
+        String java = "S_" + struct.name;
+        line("");
+        open("final class " + java);
+        List<String> params = new ArrayList<>();
+        for (Field field : struct.fields) {
+            String type = field.arraySize == null ? field.type : field.type + "[]";
+            String value = field.arraySize == null ? zero(field.type, 0)
+                    : newArray(field.type, expression(field.arraySize).text, 0);
+            line(javaType(type, 0) + " " + safe(field.name) + " = " + value + ";");
+            params.add(javaType(type, 0) + " " + safe(field.name));
+        }
+        line("");
+        open(java + "()");
+        close("");
+        line("");
+        open(java + "(" + String.join(", ", params) + ")");
+        for (Field field : struct.fields) {
+            line("this." + safe(field.name) + " = " + safe(field.name) + ";");
+        }
+        close("");
+        line("");
+        open(java + " copy()");
+        line(java + " copy = new " + java + "();");
+        for (Field field : struct.fields) {
+            String type = field.arraySize == null ? field.type : field.type + "[]";
+            String name = safe(field.name);
+            line("copy." + name + " = " + copy(new Code(name, type)) + ";");
+        }
+        line("return copy;");
+        close("");
+        close("");
+        line("");
+        open("private " + java + "[] " + java + "_array(int length)");
+        line(java + "[] array = new " + java + "[length];");
+        open("for (int i = 0; i < length; i++)");
+        line("array[i] = new " + java + "();");
+        close("");
+        line("return array;");
+        close("");
+    }
+
+    private void globals() {
+        // Fields, then a method giving them their initial values before each pixel.
+        // The method's body is translated first, since translating may hoist statements
+        String before = out.toString();
+        int bodyIndent = indent;
+        out.setLength(0);
+        indent = bodyIndent + 1;
+        List<String> fields = new ArrayList<>();
+        Map<String, Var> globals = scopes.peek();
+        for (VarDecl decl : shader.globals) {
+            for (Declarator declarator : decl.declarators) {
+                Var existing = globals.get(declarator.name);
+                if (existing != null && existing.readOnly && decl.uniform) {
+                    continue;  // already provided, like the template's
+                } else if (existing != null) {
+                    throw error(decl.line, "'" + declarator.name + "' is already declared");
+                }
+                if (decl.uniform) {
+                    globals.put(declarator.name, uniform(decl.type, declarator.name, decl.line));
+                    continue;
+                }
+                String type = declarator.arraySize == null ? decl.type : decl.type + "[]";
+                Var var = new Var(type, "v_" + declarator.name, false, false);
+                fields.add("private " + javaType(type, decl.line) + " " + var.java + ";");
+                hoistable = true;
+                String value = initialValue(decl.type, declarator, decl.line);
+                flushPre();
+                line(var.java + " = " + value + ";");
+                globals.put(declarator.name, var);
+            }
+        }
+        String init = out.toString();
+        out.setLength(0);
+        out.append(before);
+        indent = bodyIndent;
+        if (!fields.isEmpty()) {
+            line("");
+        }
+        for (String field : fields) {
+            line(field);
+        }
+        line("");
+        open("private void initGlobals()");
+        out.append(init);
+        close("");
+    }
+
+    // A uniform the template doesn't declare: placeholders from FragmentShader, floats or bools
+    private Var uniform(String type, String name, int line) {
+        if (type.equals("float") || type.equals("bool")) {
+            int slot = customUniforms.size();
+            customUniforms.add(name);
+            String read = "u.custom[" + slot + "]";
+            return new Var(type, type.equals("bool") ? "(" + read + " != 0)" : read, false, true);
+        }
+        // Never set, so always 0, as an unset uniform is in OpenGL
+        return new Var(type, zero(type, line), false, true);
+    }
+
+    private String initialValue(String type, Declarator declarator, int line) {
+        if (declarator.arraySize != null) {
+            if (declarator.init != null) {
+                throw error(line, "array initializers aren't supported on the CPU");
+            }
+            return newArray(type, expression(declarator.arraySize).text, line);
+        }
+        if (declarator.init == null) {
+            return zero(type, line);
+        }
+        return copy(expression(declarator.init));
+    }
+
+    private void function(FunctionDecl function) {
+        scopes.push(new LinkedHashMap<>());
+        List<String> params = new ArrayList<>();
+        for (Param param : function.params) {
+            String type = param.arraySize == null ? param.type : param.type + "[]";
+            boolean ref = param.qualifier != Qualifier.IN;
+            Var var = declareLocal(param.name, type, ref);
+            params.add(javaType(type, function.line) + (ref ? "[] " : " ") + var.java);
+        }
+        line("");
+        open("private " + javaType(function.returnType, function.line) + " f_" + function.name
+                + "(" + String.join(", ", params) + ")");
+        statements(function.body.statements);
+        if (!function.returnType.equals("void") && completesNormally(function.body)) {
+            // Falling off the end is undefined in GLSL; Java wants a value
+            line("return " + zero(function.returnType, function.line) + ";");
+        }
+        close("");
+        scopes.pop();
+    }
+
+    private void entryPoint() {
+        FunctionDecl main = null;
+        for (FunctionDecl function : functions.getOrDefault("mainImage", List.of())) {
+            if (function.params.size() == 2 && function.params.get(0).type.equals("vec4")
+                    && function.params.get(0).qualifier == Qualifier.OUT
+                    && function.params.get(1).type.equals("vec2")) {
+                main = function;
+            }
+        }
+        if (main == null) {
+            throw new RuntimeException("No mainImage(out vec4, in vec2) to run");
+        }
+        line("");
+        line("@Override");
+        open("protected Vec4 run(Vec2 fragCoord)");
+        line("initGlobals();");
+        line("Vec4[] fragColor = {ZERO4};");
+        line("f_mainImage(fragColor, fragCoord);");
+        line("return fragColor[0];");
+        close("");
+    }
+
+    // ---- Statements ----
+
+    private void statements(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            statement(statement);
+            // Java rejects unreachable statements, GLSL just ignores them
+            if (!completesNormally(statement)) {
+                return;
+            }
+        }
+    }
+
+    // Braced, in its own scope, even when GLSL has a lone statement
+    private void body(Stmt statement) {
+        scopes.push(new LinkedHashMap<>());
+        if (statement instanceof Block) {
+            statements(((Block) statement).statements);
+        } else {
+            statement(statement);
+        }
+        scopes.pop();
+    }
+
+    private void statement(Stmt statement) {
+        pre = new ArrayList<>();
+        hoistable = true;
+        if (statement instanceof Block) {
+            if (!((Block) statement).statements.isEmpty()) {
+                open("");
+                body(statement);
+                close("");
+            }
+        } else if (statement instanceof VarDecl) {
+            VarDecl decl = (VarDecl) statement;
+            for (Declarator declarator : decl.declarators) {
+                String type = declarator.arraySize == null ? decl.type : decl.type + "[]";
+                String value = initialValue(decl.type, declarator, decl.line);
+                flushPre();
+                Var var = declareLocal(declarator.name, type, false);
+                line(javaType(type, decl.line) + " " + var.java + " = " + value + ";");
+            }
+        } else if (statement instanceof ExprStmt) {
+            Code code = expression(((ExprStmt) statement).expr);
+            flushPre();
+            if (code.statement) {
+                line(code.text + ";");
+            }
+        } else if (statement instanceof If) {
+            If ifStatement = (If) statement;
+            String condition = expression(ifStatement.condition).text;
+            flushPre();
+            open("if (" + condition + ")");
+            body(ifStatement.then);
+            if (ifStatement.otherwise != null) {
+                close(" else {");
+                indent++;
+                body(ifStatement.otherwise);
+            }
+            close("");
+        } else if (statement instanceof For) {
+            For loop = (For) statement;
+            // The initializer goes before the loop, in a block scoping it to the loop
+            open("");
+            scopes.push(new LinkedHashMap<>());
+            if (loop.init != null) {
+                statement(loop.init);
+            }
+            hoistable = false;
+            String condition = loop.condition == null ? "" : expression(loop.condition).text;
+            String update = "";
+            if (loop.update != null) {
+                Code code = expression(loop.update);
+                if (!code.statement) {
+                    throw error(loop.line, "a for loop's update must assign or call something");
+                }
+                update = code.text;
+            }
+            open("for (; " + condition + "; " + update + ")");
+            body(loop.body);
+            close("");
+            scopes.pop();
+            close("");
+        } else if (statement instanceof While) {
+            While loop = (While) statement;
+            hoistable = false;
+            String condition = expression(loop.condition).text;
+            if (loop.doWhile) {
+                open("do");
+                body(loop.body);
+                close(" while (" + condition + ");");
+            } else {
+                open("while (" + condition + ")");
+                body(loop.body);
+                close("");
+            }
+        } else if (statement instanceof Return) {
+            Return ret = (Return) statement;
+            if (ret.value == null) {
+                line("return;");
+            } else {
+                Code value = expression(ret.value);
+                flushPre();
+                line("return " + value.text + ";");
+            }
+        } else if (statement instanceof Jump) {
+            String keyword = ((Jump) statement).keyword;
+            line(keyword.equals("discard") ? "throw DISCARD;" : keyword + ";");
+        } else {
+            throw error(statement.line, "unsupported statement");
+        }
+    }
+
+    // Java's reachability rules, closely enough for what shaders do
+    private boolean completesNormally(Stmt statement) {
+        if (statement instanceof Return || statement instanceof Jump) {
+            return false;
+        } else if (statement instanceof Block) {
+            for (Stmt inner : ((Block) statement).statements) {
+                if (!completesNormally(inner)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (statement instanceof If) {
+            If ifStatement = (If) statement;
+            return ifStatement.otherwise == null || completesNormally(ifStatement.then)
+                    || completesNormally(ifStatement.otherwise);
+        } else if (statement instanceof For) {
+            For loop = (For) statement;
+            return loop.condition != null && !isTrue(loop.condition) || breaks(loop.body);
+        } else if (statement instanceof While) {
+            While loop = (While) statement;
+            return !isTrue(loop.condition) || breaks(loop.body);
+        }
+        return true;
+    }
+
+    private static boolean isTrue(Expr expr) {
+        return expr instanceof Literal && ((Literal) expr).text.equals("true");
+    }
+
+    // Whether a loop body breaks out of that loop
+    private static boolean breaks(Stmt statement) {
+        if (statement instanceof Jump) {
+            return ((Jump) statement).keyword.equals("break");
+        } else if (statement instanceof Block) {
+            for (Stmt inner : ((Block) statement).statements) {
+                if (breaks(inner)) {
+                    return true;
+                }
+            }
+        } else if (statement instanceof If) {
+            If ifStatement = (If) statement;
+            return breaks(ifStatement.then) || (ifStatement.otherwise != null && breaks(ifStatement.otherwise));
+        }
+        return false;
+    }
+
+    // ---- Expressions ----
+
+    private Code expression(Expr expr) {
+        if (expr instanceof Literal) {
+            return literal((Literal) expr);
+        } else if (expr instanceof Ident) {
+            Var var = lookup(((Ident) expr).name, expr.line);
+            return new Code(var.ref ? var.java + "[0]" : var.java, var.type);
+        } else if (expr instanceof Unary) {
+            return unary((Unary) expr);
+        } else if (expr instanceof Binary) {
+            Binary binary = (Binary) expr;
+            Code left = expression(binary.left);
+            Code right;
+            if (binary.op.equals("&&") || binary.op.equals("||")) {
+                right = unhoisted(binary.right);
+            } else {
+                right = expression(binary.right);
+            }
+            return binary(binary.op, left, right, binary.line);
+        } else if (expr instanceof Assign) {
+            return assign((Assign) expr);
+        } else if (expr instanceof Ternary) {
+            Ternary ternary = (Ternary) expr;
+            Code condition = expression(ternary.condition);
+            Code then = unhoisted(ternary.then);
+            Code otherwise = unhoisted(ternary.otherwise);
+            String type = isScalar(then.type) && isScalar(otherwise.type) && !then.type.equals(otherwise.type)
+                    ? "float" : then.type;
+            return new Code("(" + condition.nested() + " ? " + then.nested() + " : " + otherwise.nested() + ")",
+                    type, false, false, then.fresh && otherwise.fresh);
+        } else if (expr instanceof Call) {
+            return call((Call) expr);
+        } else if (expr instanceof Member) {
+            return member((Member) expr);
+        } else if (expr instanceof Index) {
+            Index index = (Index) expr;
+            Code base = expression(index.base);
+            Code i = expression(index.index);
+            if (isArray(base.type)) {
+                return new Code(base.nested() + "[" + i.text + "]", element(base.type));
+            } else if (isVector(base.type)) {
+                return new Code("get(" + base.text + ", " + i.text + ")", "float");
+            } else if (isMatrix(base.type)) {
+                return new Code("col(" + base.text + ", " + i.text + ")", "vec" + size(base.type));
+            }
+            throw error(index.line, "can't index a " + base.type);
+        }
+        throw error(expr.line, "unsupported expression");
+    }
+
+    // Code that may not run, so nothing can be hoisted out of it
+    private Code unhoisted(Expr expr) {
+        boolean wasHoistable = hoistable;
+        hoistable = false;
+        Code code = expression(expr);
+        hoistable = wasHoistable;
+        return code;
+    }
+
+    private Code literal(Literal literal) {
+        switch (literal.type) {
+            case "float":
+                String text = literal.text;
+                if (text.endsWith("f") || text.endsWith("F")) {
+                    text = text.substring(0, text.length() - 1);
+                }
+                return new Code(text + "f", "float");
+            case "int":
+                return new Code(literal.text.replaceAll("[uU]$", ""), "int");
+            default:
+                return new Code(literal.text, "bool");
+        }
+    }
+
+    private Code unary(Unary unary) {
+        if (unary.op.equals("++") || unary.op.equals("--")) {
+            Code target = expression(unary.operand);
+            if (isScalar(target.type) && isJavaVariable(unary.operand)) {
+                String text = unary.postfix ? target.text + unary.op : unary.op + target.text;
+                return new Code(text, target.type, true, true, false);
+            }
+            Code one = binary(unary.op.substring(1), target, new Code("1", "int"), unary.line);
+            return new Code(assignTo(unary.operand, one.text), target.type, true, true, false);
+        }
+        Code operand = expression(unary.operand);
+        switch (unary.op) {
+            case "-":
+                if (isScalar(operand.type)) {
+                    String text = operand.nested();
+                    return new Code(text.startsWith("-") || text.startsWith("+") ? "-(" + text + ")" : "-" + text,
+                            operand.type);
+                }
+                return new Code("neg(" + operand.text + ")", operand.type, false, false, true);
+            case "+":
+                return operand;
+            case "!":
+                return new Code("!" + operand.nested(), "bool");
+            case "~":
+                return new Code("~" + operand.nested(), operand.type);
+            default:
+                throw error(unary.line, "unsupported operator " + unary.op);
+        }
+    }
+
+    private Code binary(String op, Code left, Code right, int line) {
+        switch (op) {
+            case "+":
+            case "-":
+            case "*":
+            case "/":
+            case "%":
+                String type = arithmeticType(left.type, right.type, line);
+                if (isScalar(left.type) && isScalar(right.type)) {
+                    if (isInt(type) && op.equals("/")) {
+                        return new Code("div(" + left.text + ", " + right.text + ")", type);
+                    } else if (isInt(type) && op.equals("%")) {
+                        return new Code("rem(" + left.text + ", " + right.text + ")", type);
+                    }
+                    return new Code("(" + left.nested() + " " + op + " " + right.nested() + ")", type);
+                }
+                if (op.equals("%")) {
+                    throw error(line, "% only works on ints; use mod()");
+                }
+                String function = Map.of("+", "add", "-", "sub", "*", "mul", "/", "div").get(op);
+                return new Code(function + "(" + left.text + ", " + right.text + ")", type, false, false, true);
+            case "==":
+            case "!=":
+                if (isVector(left.type)) {
+                    String eq = "eq(" + left.text + ", " + right.text + ")";
+                    return new Code(op.equals("==") ? eq : "!" + eq, "bool");
+                } else if (!isScalar(left.type)) {
+                    throw error(line, "can't compare " + left.type + "s on the CPU");
+                }
+                return new Code("(" + left.nested() + " " + op + " " + right.nested() + ")", "bool");
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+            case "&&":
+            case "||":
+                return new Code("(" + left.nested() + " " + op + " " + right.nested() + ")", "bool");
+            case "^^":
+                return new Code("(" + left.nested() + " != " + right.nested() + ")", "bool");
+            case "&":
+            case "|":
+            case "^":
+            case "<<":
+            case ">>":
+                return new Code("(" + left.nested() + " " + op + " " + right.nested() + ")", left.type);
+            default:
+                throw error(line, "unsupported operator " + op);
+        }
+    }
+
+    private String arithmeticType(String left, String right, int line) {
+        if (isScalar(left) && isScalar(right)) {
+            return isInt(left) && isInt(right) ? "int" : "float";
+        } else if (isMatrix(left) && isVector(right)) {
+            return right;
+        } else if (isVector(left) || isMatrix(left)) {
+            return left;
+        } else if (isVector(right) || isMatrix(right)) {
+            return right;
+        }
+        throw error(line, "no arithmetic on " + left + " and " + right);
+    }
+
+    private Code assign(Assign assign) {
+        Code target = expression(assign.target);
+        Code value = expression(assign.value);
+        String text;
+        if (assign.op.equals("=")) {
+            text = assignTo(assign.target, copy(value));
+        } else {
+            String op = assign.op.substring(0, assign.op.length() - 1);
+            boolean javaCompound = isScalar(target.type) && isScalar(value.type)
+                    && !(isInt(target.type) && (op.equals("/") || op.equals("%")));
+            if (javaCompound && isJavaVariable(assign.target)) {
+                text = target.text + " " + assign.op + " " + value.nested();
+            } else {
+                text = assignTo(assign.target, binary(op, target, value, assign.line).text);
+            }
+        }
+        return new Code(text, target.type, true, true, false);
+    }
+
+    // Whether GLSL's lvalue is a Java variable, field or array element, which Java can assign directly
+    private boolean isJavaVariable(Expr expr) {
+        if (expr instanceof Ident) {
+            return true;
+        } else if (expr instanceof Member) {
+            return isStruct(expression(((Member) expr).base).type);
+        } else if (expr instanceof Index) {
+            return isArray(expression(((Index) expr).base).type);
+        }
+        return false;
+    }
+
+    // Java assigning value to GLSL's lvalue target, replacing whole vectors to set their components
+    private String assignTo(Expr target, String value) {
+        if (target instanceof Ident) {
+            Var var = lookup(((Ident) target).name, target.line);
+            if (var.readOnly) {
+                throw error(target.line, "can't assign to " + ((Ident) target).name);
+            }
+            return (var.ref ? var.java + "[0]" : var.java) + " = " + value;
+        } else if (target instanceof Member) {
+            Member member = (Member) target;
+            Code base = expression(member.base);
+            if (isStruct(base.type)) {
+                return base.nested() + "." + safe(member.name) + " = " + value;
+            }
+            int[] components = swizzle(base.type, member.name, member.line);
+            StringBuilder with = new StringBuilder("with(").append(base.text);
+            for (int component : components) {
+                with.append(", ").append(component);
+            }
+            return assignTo(member.base, with.append(", ").append(value).append(")").toString());
+        } else if (target instanceof Index) {
+            Index index = (Index) target;
+            Code base = expression(index.base);
+            Code i = expression(index.index);
+            if (isArray(base.type)) {
+                return base.nested() + "[" + i.text + "] = " + value;
+            } else if (isVector(base.type)) {
+                return assignTo(index.base, "with(" + base.text + ", " + i.text + ", " + value + ")");
+            }
+        }
+        throw error(target.line, "can't assign to that");
+    }
+
+    private int[] swizzle(String type, String name, int line) {
+        if (!isVector(type)) {
+            throw error(line, "no field ." + name + " on " + type);
+        }
+        for (String set : SWIZZLE_SETS) {
+            int[] components = new int[name.length()];
+            boolean matches = name.length() <= 4;
+            for (int i = 0; i < name.length() && matches; i++) {
+                components[i] = set.indexOf(name.charAt(i));
+                matches = components[i] >= 0 && components[i] < size(type);
+            }
+            if (matches) {
+                return components;
+            }
+        }
+        throw error(line, "no component ." + name + " on " + type);
+    }
+
+    private Code member(Member member) {
+        Code base = expression(member.base);
+        if (isStruct(base.type)) {
+            for (Field field : structs.get(base.type).fields) {
+                if (field.name.equals(member.name)) {
+                    String type = field.arraySize == null ? field.type : field.type + "[]";
+                    return new Code(base.nested() + "." + safe(member.name), type);
+                }
+            }
+            throw error(member.line, base.type + " has no field " + member.name);
+        }
+        int[] components = swizzle(base.type, member.name, member.line);
+        if (components.length == 1) {
+            return new Code(base.nested() + "." + "xyzw".charAt(components[0]), "float");
+        }
+        String type = "vec" + components.length;
+        StringBuilder text = new StringBuilder();
+        // Reading a variable twice costs nothing; anything else is evaluated once by sw()
+        if (base.text.matches("[\\w.\\[\\]]+")) {
+            text.append(type).append("(");
+            for (int i = 0; i < components.length; i++) {
+                text.append(i > 0 ? ", " : "").append(base.text).append('.').append("xyzw".charAt(components[i]));
+            }
+        } else {
+            text.append("sw(").append(base.text);
+            for (int component : components) {
+                text.append(", ").append(component);
+            }
+        }
+        return new Code(text.append(")").toString(), type, false, false, true);
+    }
+
+    private Code call(Call call) {
+        List<Code> args = new ArrayList<>();
+        String name = call.name;
+        if (functions.containsKey(name)) {
+            return userCall(call);
+        }
+        for (Expr arg : call.args) {
+            args.add(expression(arg));
+        }
+        if (isStruct(name)) {
+            List<String> values = new ArrayList<>();
+            for (Code arg : args) {
+                values.add(copy(arg));
+            }
+            return new Code("new S_" + name + "(" + String.join(", ", values) + ")", name, true, false, true);
+        }
+        List<String> texts = new ArrayList<>();
+        for (Code arg : args) {
+            texts.add(arg.text);
+        }
+        String joined = String.join(", ", texts);
+        switch (name) {
+            case "float":
+            case "int":
+            case "uint":
+                if (args.size() != 1) {
+                    throw error(call.line, name + "() takes one argument");
+                }
+                Code arg = args.get(0);
+                String java = javaType(name, call.line);
+                if (arg.type.equals("bool")) {
+                    return new Code("(" + arg.nested() + " ? 1 : 0)", name);
+                }
+                return new Code("((" + java + ") " + arg.nested() + ")", name);
+            case "bool":
+                return new Code("(" + args.get(0).nested() + " != 0)", "bool");
+            case "vec2":
+            case "vec3":
+            case "vec4":
+            case "mat2":
+            case "mat3":
+                return new Code(name + "(" + joined + ")", name, false, false, true);
+        }
+        if (GEN_TYPE_FUNCTIONS.contains(name)) {
+            String type = null;
+            boolean allInts = true;
+            for (Code a : args) {
+                if (type == null && (isVector(a.type) || isMatrix(a.type))) {
+                    type = a.type;
+                }
+                allInts &= isInt(a.type);
+            }
+            if (type == null) {
+                type = allInts && INT_FUNCTIONS.contains(name) ? "int" : "float";
+            }
+            return new Code(name + "(" + joined + ")", type, false, false, true);
+        } else if (FIXED_TYPE_FUNCTIONS.containsKey(name)) {
+            return new Code(name + "(" + joined + ")", FIXED_TYPE_FUNCTIONS.get(name), false, false, true);
+        }
+        throw error(call.line, "function " + name + " isn't supported on the CPU");
+    }
+
+    private Code userCall(Call call) {
+        List<Code> args = new ArrayList<>();
+        for (Expr arg : call.args) {
+            args.add(expression(arg));
+        }
+        FunctionDecl function = resolve(call, args);
+        List<String> texts = new ArrayList<>();
+        List<String> writeBacks = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            Param param = function.params.get(i);
+            Code arg = args.get(i);
+            if (param.qualifier == Qualifier.IN) {
+                texts.add(copy(arg));
+                continue;
+            }
+            if (!hoistable) {
+                throw error(call.line, "a call passing out or inout arguments can't go here on the CPU;"
+                        + " give it its own statement");
+            }
+            String type = param.arraySize == null ? param.type : param.type + "[]";
+            String holder = temp();
+            pre.add(javaType(type, call.line) + "[] " + holder + " = {" + copy(arg) + "};");
+            texts.add(holder);
+            writeBacks.add(assignTo(call.args.get(i), holder + "[0]") + ";");
+        }
+        String text = "f_" + function.name + "(" + String.join(", ", texts) + ")";
+        if (writeBacks.isEmpty()) {
+            return new Code(text, function.returnType, true, false, false);
+        }
+        if (function.returnType.equals("void")) {
+            pre.add(text + ";");
+            pre.addAll(writeBacks);
+            return new Code("", "void");
+        }
+        String result = temp();
+        pre.add(javaType(function.returnType, call.line) + " " + result + " = " + text + ";");
+        pre.addAll(writeBacks);
+        return new Code(result, function.returnType);
+    }
+
+    // The overload whose parameters match exactly, else the first GLSL could convert to
+    private FunctionDecl resolve(Call call, List<Code> args) {
+        FunctionDecl convertible = null;
+        for (FunctionDecl function : functions.get(call.name)) {
+            if (function.params.size() != args.size()) {
+                continue;
+            }
+            boolean exact = true;
+            boolean converts = true;
+            for (int i = 0; i < args.size(); i++) {
+                Param param = function.params.get(i);
+                String type = param.arraySize == null ? param.type : param.type + "[]";
+                String argType = args.get(i).type;
+                if (!type.equals(argType)) {
+                    exact = false;
+                    converts &= type.equals("float") && isInt(argType);
+                }
+            }
+            if (exact) {
+                return function;
+            } else if (converts && convertible == null) {
+                convertible = function;
+            }
+        }
+        if (convertible == null) {
+            throw error(call.line, "no " + call.name + "() takes those arguments");
+        }
+        return convertible;
+    }
+}
@@ -0,0 +1,47 @@
+package titanicsend.util;
+
+/**
+ * A 2x2 float matrix, by row like TEMath's double[][] matrices. Vec2.mul(Mat2)
+ * multiplies a row vector by it.
+ */
+public class Mat2 {
+    public float m00, m01;
+    public float m10, m11;
+
+    public Mat2() {
+        setIdentity();
+    }
+
+    public Mat2(float m00, float m01, float m10, float m11) {
+        set(m00, m01, m10, m11);
+    }
+
+    public Mat2 set(float m00, float m01, float m10, float m11) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m10 = m10;
+        this.m11 = m11;
+        return this;
+    }
+
+    public Mat2 setIdentity() {
+        return set(1, 0, 0, 1);
+    }
+
+    /** The rotation the CPU shaders build as {{cos, -sin}, {sin, cos}} */
+    public Mat2 setRotation(double degrees) {
+        double radians = Math.toRadians(degrees);
+        float c = (float) Math.cos(radians);
+        float s = (float) Math.sin(radians);
+        return set(c, -s, s, c);
+    }
+
+    public static Mat2 rotation(double degrees) {
+        return new Mat2().setRotation(degrees);
+    }
+
+    @Override
+    public String toString() {
+        return "mat2(" + m00 + ", " + m01 + ", " + m10 + ", " + m11 + ")";
+    }
+}
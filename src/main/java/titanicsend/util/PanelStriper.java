@@ -9,6 +9,8 @@ import java.util.*;
 public class PanelStriper {
   public static final int MARGIN = 68000; // 50k microns ~= 2 inches
   public static final int DISTANCE_BETWEEN_PIXELS = 62000; // 50k microns ~= 2 inches
+  // Bump whenever the striping code changes, so GeometryCache restripes instead of serving old pixels
+  public static final int VERSION = 1;
 
   public static String stripe(TEVertex v0, TEVertex v1, TEVertex v2, List<LXPoint> pointList) {
     TEVertex vStart;
@@ -2,8 +2,10 @@ package titanicsend.util;
 
 import heronarts.lx.LX;
 import heronarts.lx.model.LXPoint;
+import titanicsend.model.TESpatialIndex;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 
 // A SimpleScreen is a two-dimensional approximation of a monitor or TV screen against
@@ -43,6 +45,31 @@ public class SimpleScreen {
         this.screenGrid = screenGrid;
     }
 
+    // Same screen, but asks the spatial index for the points in the box instead of testing every point
+    private void buildScreenGrid(
+        LXPoint[] points,
+        TESpatialIndex index,
+        int yLowerBound,
+        int yUpperBound,
+        int zLowerBound,
+        int zUpperBound,
+        boolean doubleSided) {
+        float xLowerBound = doubleSided ? -Float.MAX_VALUE : 0;
+        int[] found = new int[points.length];
+        int count = index.withinBox(
+            xLowerBound, yLowerBound, zLowerBound,
+            Float.MAX_VALUE, yUpperBound, zUpperBound,
+            found);
+        // Keep the points in model order, like the full scan does
+        Arrays.sort(found, 0, count);
+
+        ArrayList<LXPoint> screenGrid = new ArrayList<LXPoint>(count);
+        for (int i = 0; i < count; i++) {
+            screenGrid.add(points[found[i]]);
+        }
+        this.screenGrid = screenGrid;
+    }
+
     public SimpleScreen(
         ArrayList<LXPoint> pointsList,
         int yLowerBound,
@@ -52,4 +79,15 @@ public class SimpleScreen {
         boolean doubleSided) {
         buildScreenGrid(pointsList, yLowerBound, yUpperBound, zLowerBound, zUpperBound, doubleSided);
     }
+
+    public SimpleScreen(
+        LXPoint[] points,
+        TESpatialIndex index,
+        int yLowerBound,
+        int yUpperBound,
+        int zLowerBound,
+        int zUpperBound,
+        boolean doubleSided) {
+        buildScreenGrid(points, index, yLowerBound, yUpperBound, zLowerBound, zUpperBound, doubleSided);
+    }
 }
@@ -109,6 +109,8 @@ public class TEMath {
         return x * x * (3 - 2 * x);
     }
 
+    // The double[] helpers below return a new array on every call. For code run
+    // per pixel per frame, Vec2, Vec3, Vec4 and Mat2 do the same math in place.
     public static double[] addArrays(double[] a, double[] b) {
         if (a.length != b.length) {
             throw new ArithmeticException();
@@ -177,6 +179,10 @@ public class TEMath {
         return Math.max(min, Math.min(max, value));
     }
 
+    public static float clampf(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
     public static double[] clamp(double[] array, double min, double max) {
         return Arrays.stream(array).map(x -> clamp(x, min, max)).toArray();
     }
@@ -209,6 +215,10 @@ public class TEMath {
         return x - Math.floor(x);
     }
 
+    public static float fractf(float x) {
+        return x - (float) Math.floor(x);
+    }
+
     public static double[] fract(double[] x) {
         return Arrays.stream(x).map(TEMath::fract).toArray();
     }
@@ -233,6 +243,10 @@ public class TEMath {
         return x * (1 - a) + y * a;
     }
 
+    public static float mixf(float x, float y, float a) {
+        return x * (1 - a) + y * a;
+    }
+
     public static double[][] multiplyMatricies(double[][] m1, double[][] m2) {
         int m1ColLength = m1[0].length; // m1 columns length
         int m2RowLength = m2.length;    // m2 rows length
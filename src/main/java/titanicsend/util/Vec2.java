@@ -0,0 +1,102 @@
+package titanicsend.util;
+
+/**
+ * A GLSL-style vec2 of floats for shader code ported to the CPU.
+ *
+ * Operations change the vector in place and return it, so expressions chain
+ * like GLSL without allocating: uv.set(fragCoord).div(resolution).mul(2).add(-1).
+ * Keep scratch vectors in a field (per thread if the shader runs in tiles) or
+ * make them local to a small method, where the JIT can usually leave them off
+ * the heap entirely.
+ */
+public class Vec2 {
+    public float x;
+    public float y;
+
+    public Vec2() {
+    }
+
+    public Vec2(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public Vec2 set(float x, float y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public Vec2 set(Vec2 v) {
+        return set(v.x, v.y);
+    }
+
+    public Vec2 add(float s) {
+        return set(x + s, y + s);
+    }
+
+    public Vec2 add(float x, float y) {
+        return set(this.x + x, this.y + y);
+    }
+
+    public Vec2 add(Vec2 v) {
+        return set(x + v.x, y + v.y);
+    }
+
+    public Vec2 sub(float x, float y) {
+        return set(this.x - x, this.y - y);
+    }
+
+    public Vec2 sub(Vec2 v) {
+        return set(x - v.x, y - v.y);
+    }
+
+    public Vec2 mul(float s) {
+        return set(x * s, y * s);
+    }
+
+    public Vec2 mul(Vec2 v) {
+        return set(x * v.x, y * v.y);
+    }
+
+    /**
+     * Row vector times matrix, GLSL's v * m, the same as
+     * TEMath.multiplyVectorByMatrix(v, m)
+     */
+    public Vec2 mul(Mat2 m) {
+        return set(x * m.m00 + y * m.m10, x * m.m01 + y * m.m11);
+    }
+
+    public Vec2 div(Vec2 v) {
+        return set(x / v.x, y / v.y);
+    }
+
+    public Vec2 floor() {
+        return set((float) Math.floor(x), (float) Math.floor(y));
+    }
+
+    public Vec2 fract() {
+        return set(TEMath.fractf(x), TEMath.fractf(y));
+    }
+
+    public Vec2 abs() {
+        return set(Math.abs(x), Math.abs(y));
+    }
+
+    public float dot(Vec2 v) {
+        return x * v.x + y * v.y;
+    }
+
+    public float dot(float x, float y) {
+        return this.x * x + this.y * y;
+    }
+
+    public float length() {
+        return (float) Math.sqrt(x * x + y * y);
+    }
+
+    @Override
+    public String toString() {
+        return "vec2(" + x + ", " + y + ")";
+    }
+}
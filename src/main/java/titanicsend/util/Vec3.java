@@ -0,0 +1,110 @@
+package titanicsend.util;
+
+/**
+ * A GLSL-style vec3 of floats, changed in place like Vec2
+ */
+public class Vec3 {
+    public float x;
+    public float y;
+    public float z;
+
+    public Vec3() {
+    }
+
+    public Vec3(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public Vec3 set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public Vec3 set(Vec3 v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    public Vec3 add(float s) {
+        return set(x + s, y + s, z + s);
+    }
+
+    public Vec3 add(float x, float y, float z) {
+        return set(this.x + x, this.y + y, this.z + z);
+    }
+
+    public Vec3 add(Vec3 v) {
+        return set(x + v.x, y + v.y, z + v.z);
+    }
+
+    public Vec3 sub(Vec3 v) {
+        return set(x - v.x, y - v.y, z - v.z);
+    }
+
+    public Vec3 mul(float s) {
+        return set(x * s, y * s, z * s);
+    }
+
+    public Vec3 mul(Vec3 v) {
+        return set(x * v.x, y * v.y, z * v.z);
+    }
+
+    /** this + v * s, GLSL's a += v * s in one step */
+    public Vec3 addScaled(Vec3 v, float s) {
+        return set(x + v.x * s, y + v.y * s, z + v.z * s);
+    }
+
+    public Vec3 floor() {
+        return set((float) Math.floor(x), (float) Math.floor(y), (float) Math.floor(z));
+    }
+
+    public Vec3 ceil() {
+        return set((float) Math.ceil(x), (float) Math.ceil(y), (float) Math.ceil(z));
+    }
+
+    public Vec3 fract() {
+        return set(TEMath.fractf(x), TEMath.fractf(y), TEMath.fractf(z));
+    }
+
+    public Vec3 abs() {
+        return set(Math.abs(x), Math.abs(y), Math.abs(z));
+    }
+
+    /** GLSL mod, which floors, so negative components come out positive */
+    public Vec3 mod(float m) {
+        return set(TEMath.floorModf(x, m), TEMath.floorModf(y, m), TEMath.floorModf(z, m));
+    }
+
+    public Vec3 clamp(float min, float max) {
+        return set(TEMath.clampf(x, min, max), TEMath.clampf(y, min, max), TEMath.clampf(z, min, max));
+    }
+
+    /** GLSL mix(this, v, a) */
+    public Vec3 mix(Vec3 v, float a) {
+        return set(TEMath.mixf(x, v.x, a), TEMath.mixf(y, v.y, a), TEMath.mixf(z, v.z, a));
+    }
+
+    public Vec3 cos() {
+        return set((float) Math.cos(x), (float) Math.cos(y), (float) Math.cos(z));
+    }
+
+    public Vec3 pow(float e) {
+        return set((float) Math.pow(x, e), (float) Math.pow(y, e), (float) Math.pow(z, e));
+    }
+
+    public float dot(Vec3 v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    public float length() {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    @Override
+    public String toString() {
+        return "vec3(" + x + ", " + y + ", " + z + ")";
+    }
+}
@@ -0,0 +1,51 @@
+package titanicsend.util;
+
+/**
+ * A GLSL-style vec4 of floats, changed in place like Vec2. Mostly a shader's
+ * fragColor, with w as alpha.
+ */
+public class Vec4 {
+    public float x;
+    public float y;
+    public float z;
+    public float w;
+
+    public Vec4() {
+    }
+
+    public Vec4(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+    }
+
+    public Vec4 set(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
+    public Vec4 set(Vec3 v, float w) {
+        return set(v.x, v.y, v.z, w);
+    }
+
+    public Vec4 set(Vec4 v) {
+        return set(v.x, v.y, v.z, v.w);
+    }
+
+    public Vec4 mul(float s) {
+        return set(x * s, y * s, z * s, w * s);
+    }
+
+    public Vec4 pow(float e) {
+        return set((float) Math.pow(x, e), (float) Math.pow(y, e), (float) Math.pow(z, e), (float) Math.pow(w, e));
+    }
+
+    @Override
+    public String toString() {
+        return "vec4(" + x + ", " + y + ", " + z + ", " + w + ")";
+    }
+}
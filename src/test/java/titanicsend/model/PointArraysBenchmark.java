@@ -0,0 +1,57 @@
+package titanicsend.model;
+
+import heronarts.lx.model.LXPoint;
+
+/**
+ * Compares a typical light per-pixel loop (a gradient over normalized
+ * coordinates) walking LXPoint objects against the same loop over
+ * TEPointArrays, on the full vehicle model. Not a unit test; run main() from
+ * the repo root.
+ */
+public class PointArraysBenchmark {
+    private static final int WARMUP_FRAMES = 5_000;
+    private static final int FRAMES = 20_000;
+
+    private static void byPoint(TEWholeModel model, float phase, int[] colors) {
+        for (LXPoint point : model.points) {
+            float u = point.zn - .5f;
+            float v = point.yn - .5f;
+            float level = Math.abs(u * u + v * v - phase);
+            colors[point.index] = (int) (Math.min(1f, level) * 255);
+        }
+    }
+
+    private static void byArrays(TEPointArrays pa, float phase, int[] colors) {
+        float[] zn = pa.zn;
+        float[] yn = pa.yn;
+        for (int index = 0; index < pa.size; index++) {
+            float u = zn[index] - .5f;
+            float v = yn[index] - .5f;
+            float level = Math.abs(u * u + v * v - phase);
+            colors[index] = (int) (Math.min(1f, level) * 255);
+        }
+    }
+
+    public static void main(String[] args) {
+        TEWholeModel model = new TEWholeModel("vehicle");
+        TEPointArrays pa = model.pointArrays;
+        int[] colors = new int[model.points.length];
+        System.out.println(pa.size + " points");
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            byPoint(model, i * .001f, colors);
+            byArrays(pa, i * .001f, colors);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) byPoint(model, i * .001f, colors);
+        double pointNs = (System.nanoTime() - start) / (double) FRAMES;
+
+        start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) byArrays(pa, i * .001f, colors);
+        double arraysNs = (System.nanoTime() - start) / (double) FRAMES;
+
+        System.out.printf("LXPoint loop:       %.0f ns/frame%n", pointNs);
+        System.out.printf("TEPointArrays loop: %.0f ns/frame (%.1fx)%n", arraysNs, pointNs / arraysNs);
+    }
+}
@@ -0,0 +1,105 @@
+package titanicsend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TEMirrorsTest {
+    private static final TEWholeModel model = new TEWholeModel("testahedron");
+    // Built the same on both sides of x = 0
+    private static final TEWholeModel vehicle = new TEWholeModel("vehicle");
+
+    @Test
+    public void MirrorsAreSameKindNearReflection() {
+        for (TEWholeModel m : List.of(model, vehicle)) {
+            TEPointArrays pa = m.pointArrays;
+            TEMirrors mirrors = m.mirrors;
+            for (int i = 0; i < pa.size; i++) {
+                checkMirror(pa, i, mirrors.foreAft[i], 1, -1);
+                checkMirror(pa, i, mirrors.portStarboard[i], -1, 1);
+                checkMirror(pa, i, mirrors.diagonal[i], -1, -1);
+            }
+        }
+    }
+
+    @Test
+    public void SymmetricModelHasMirrors() {
+        TEPointArrays pa = vehicle.pointArrays;
+        int lit = pa.edgeIndices.length + pa.panelIndices.length;
+        int mirrored = 0;
+        for (int i = 0; i < pa.size; i++) {
+            if (vehicle.mirrors.portStarboard[i] >= 0) mirrored++;
+        }
+        assertTrue(mirrored > lit * 9 / 10, mirrored + " of " + lit + " points have a mirror");
+
+        // Mirrored points on the port side get copied instead of rendered
+        int rendered = vehicle.mirrors.renderIndices(TEMirrors.Symmetry.PORT_STARBOARD).length;
+        assertTrue(rendered < pa.size * 9 / 10, rendered + " of " + pa.size + " points rendered");
+    }
+
+    private void checkMirror(TEPointArrays pa, int i, int mirror, float xSign, float zSign) {
+        if (mirror < 0) {
+            return;
+        }
+        assertEquals(pa.kind[i], pa.kind[mirror]);
+        float tolerance = pa.kind[i] == TEPointArrays.KIND_EDGE ?
+                2 * TEEdgeModel.DISTANCE_BETWEEN_PIXELS : 2 * titanicsend.util.PanelStriper.DISTANCE_BETWEEN_PIXELS;
+        float dx = pa.x[mirror] - xSign * pa.x[i];
+        float dy = pa.y[mirror] - pa.y[i];
+        float dz = pa.z[mirror] - zSign * pa.z[i];
+        assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) <= tolerance);
+    }
+
+    @Test
+    public void NoneRendersEverything() {
+        int[] render = model.mirrors.renderIndices(TEMirrors.Symmetry.NONE);
+        assertEquals(model.pointArrays.size, render.length);
+        for (int i = 0; i < render.length; i++) {
+            assertEquals(i, render[i]);
+        }
+    }
+
+    @Test
+    public void CopyFillsEverySkippedPoint() {
+        for (TEWholeModel m : List.of(model, vehicle)) {
+            int size = m.pointArrays.size;
+            for (TEMirrors.Symmetry symmetry : TEMirrors.Symmetry.values()) {
+                int[] colors = new int[size];
+                Arrays.fill(colors, -1);
+                for (int i : m.mirrors.renderIndices(symmetry)) {
+                    colors[i] = i;
+                }
+                m.mirrors.copy(symmetry, colors);
+                for (int i = 0; i < size; i++) {
+                    assertTrue(colors[i] >= 0, symmetry + " left point " + i + " unset");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void PlanStaysWithinPoints() {
+        TEPointArrays pa = vehicle.pointArrays;
+        BitSet starboardAndSome = new BitSet();
+        for (int i = 0; i < pa.size; i++) {
+            if (pa.x[i] >= 0 || i % 2 == 0) starboardAndSome.set(i);
+        }
+        TEMirrors.CopyPlan plan = vehicle.mirrors.plan(TEMirrors.Symmetry.PORT_STARBOARD, starboardAndSome);
+        assertTrue(plan.size() > 0);
+        int[] colors = new int[pa.size];
+        for (int i = 0; i < pa.size; i++) {
+            colors[i] = starboardAndSome.get(i) ? i : -1;
+        }
+        plan.copy(colors);
+        for (int i = 0; i < plan.size(); i++) {
+            int target = plan.target(i);
+            assertTrue(starboardAndSome.get(target));
+            assertTrue(starboardAndSome.get(colors[target]), "copied from a point outside the set");
+            assertEquals(vehicle.mirrors.portStarboard[target], colors[target]);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package titanicsend.model;
+
+import heronarts.lx.model.LXPoint;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TEPointSetsTest {
+    private static final TEWholeModel model = new TEWholeModel("testahedron");
+
+    @Test
+    public void PointKindsAreExact() {
+        TEPointArrays pa = model.pointArrays;
+        for (int i = 0; i < pa.size; i++) {
+            assertEquals(pa.kind[i] == TEPointArrays.KIND_EDGE, model.isEdgePoint(i));
+            assertEquals(pa.kind[i] == TEPointArrays.KIND_PANEL, model.isPanelPoint(i));
+        }
+        assertFalse(model.isEdgePoint(model.gapPoint.index));
+        assertFalse(model.isPanelPoint(-1));
+        assertFalse(model.isPanelPoint(pa.size));
+    }
+
+    @Test
+    public void SectionsMatchPanels() {
+        for (TEPanelSection section : TEPanelSection.values()) {
+            TEPointSets.PointSet set = model.pointSets.section(section);
+            assertEquals(model.getPointsBySection(section).size(), set.size());
+            for (LXPoint p : model.getPointsBySection(section)) {
+                assertTrue(set.contains(p.index));
+            }
+            for (int i = 1; i < set.size(); i++) {
+                assertTrue(set.index(i - 1) < set.index(i));
+            }
+        }
+    }
+
+    @Test
+    public void FlavorsMatchPanels() {
+        for (String flavor : model.panelsByFlavor.keySet()) {
+            int count = 0;
+            for (TEPanelModel panel : model.panelsByFlavor.get(flavor)) {
+                count += panel.points.length;
+                for (LXPoint p : panel.points) {
+                    assertTrue(model.pointSets.flavor(flavor).contains(p.index));
+                }
+            }
+            assertEquals(count, model.pointSets.flavor(flavor).size());
+        }
+        assertEquals(0, model.pointSets.flavor("no such flavor").size());
+    }
+
+    @Test
+    public void SetsCantBeChanged() {
+        TEPointSets.PointSet set = model.pointSets.panel(0);
+        int first = set.index(0);
+        int[] copy = set.toArray();
+        copy[0] = -1;
+        assertEquals(first, set.index(0));
+        assertEquals(first, set.toArray()[0]);
+        assertEquals(first, set.stream().findFirst().getAsInt());
+    }
+}
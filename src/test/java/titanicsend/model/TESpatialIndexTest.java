@@ -0,0 +1,101 @@
+package titanicsend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TESpatialIndexTest {
+    private static final TEWholeModel model = new TEWholeModel("testahedron");
+
+    private static float dist2(TEPointArrays pa, int i, float x, float y, float z) {
+        float dx = pa.x[i] - x, dy = pa.y[i] - y, dz = pa.z[i] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int[] sorted(int[] buffer, int count) {
+        int[] result = Arrays.copyOf(buffer, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Test
+    public void WithinRadiusMatchesScan() {
+        TEPointArrays pa = model.pointArrays;
+        TESpatialIndex index = model.spatialIndex;
+        int[] buffer = new int[pa.size];
+        Random random = new Random(1);
+        for (int q = 0; q < 50; q++) {
+            int center = random.nextInt(pa.size);
+            float radius = 50_000 + random.nextFloat() * 500_000;
+            int count = index.withinRadius(pa.x[center], pa.y[center], pa.z[center], radius, buffer);
+
+            int[] expected = new int[pa.size];
+            int n = 0;
+            for (int i = 0; i < pa.size; i++) {
+                if (dist2(pa, i, pa.x[center], pa.y[center], pa.z[center]) <= radius * radius) expected[n++] = i;
+            }
+            assertArrayEquals(sorted(expected, n), sorted(buffer, count));
+        }
+    }
+
+    @Test
+    public void WithinBoxMatchesScan() {
+        TEPointArrays pa = model.pointArrays;
+        int[] buffer = new int[pa.size];
+        float minY = 100_000, maxY = 900_000, minZ = -300_000, maxZ = 200_000;
+        int count = model.spatialIndex.withinBox(0, minY, minZ, Float.MAX_VALUE, maxY, maxZ, buffer);
+
+        int[] expected = new int[pa.size];
+        int n = 0;
+        for (int i = 0; i < pa.size; i++) {
+            if (pa.x[i] >= 0 && pa.y[i] >= minY && pa.y[i] <= maxY && pa.z[i] >= minZ && pa.z[i] <= maxZ) {
+                expected[n++] = i;
+            }
+        }
+        assertArrayEquals(sorted(expected, n), sorted(buffer, count));
+    }
+
+    @Test
+    public void KNearestMatchesScan() {
+        TEPointArrays pa = model.pointArrays;
+        int k = 7;
+        int[] buffer = new int[k];
+        Random random = new Random(2);
+        for (int q = 0; q < 50; q++) {
+            // Anywhere around the model, including outside it
+            float x = (random.nextFloat() - .5f) * 4_000_000;
+            float y = (random.nextFloat() - .5f) * 4_000_000;
+            float z = (random.nextFloat() - .5f) * 4_000_000;
+            assertEquals(k, model.spatialIndex.kNearest(x, y, z, k, buffer));
+
+            Integer[] all = new Integer[pa.size];
+            for (int i = 0; i < pa.size; i++) all[i] = i;
+            Arrays.sort(all, (a, b) -> {
+                int byDistance = Float.compare(dist2(pa, a, x, y, z), dist2(pa, b, x, y, z));
+                return byDistance != 0 ? byDistance : Integer.compare(a, b);
+            });
+            for (int i = 0; i < k; i++) {
+                assertEquals((int) all[i], buffer[i]);
+            }
+        }
+    }
+
+    @Test
+    public void PanelFramesLieFlat() {
+        TEPointArrays pa = model.pointArrays;
+        for (TESpatialIndex.PanelFrame frame : model.spatialIndex.panelFrames) {
+            if (frame == null) continue;
+            // Distances within the panel are the same in 2D as in 3D
+            for (int i = 1; i < frame.indices.length; i++) {
+                int a = frame.indices[0], b = frame.indices[i];
+                double du = frame.u[i] - frame.u[0], dv = frame.v[i] - frame.v[0];
+                double flat = Math.sqrt(du * du + dv * dv);
+                double actual = Math.sqrt(dist2(pa, a, pa.x[b], pa.y[b], pa.z[b]));
+                assertEquals(actual, flat, 10);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package titanicsend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TETopologyTest {
+    private static final TEWholeModel model = new TEWholeModel("testahedron");
+
+    @Test
+    public void AdjacencyMatchesModels() {
+        TETopology t = model.topology;
+        for (int v = 0; v < t.vertexes.length; v++) {
+            Set<TEEdgeModel> edges = new HashSet<>();
+            for (int i = t.vertexEdgeStart[v]; i < t.vertexEdgeStart[v + 1]; i++) {
+                edges.add(t.edges[t.vertexEdges[i]]);
+            }
+            assertEquals(t.vertexes[v].edges, edges);
+        }
+        for (int p = 0; p < t.panels.length; p++) {
+            Set<TEPanelModel> neighbors = new HashSet<>();
+            for (int i = t.panelNeighborStart[p]; i < t.panelNeighborStart[p + 1]; i++) {
+                neighbors.add(t.panels[t.panelNeighbors[i]]);
+            }
+            Set<TEPanelModel> expected = t.panels[p].neighbors();
+            expected.remove(t.panels[p]);
+            assertEquals(expected, neighbors);
+        }
+    }
+
+    @Test
+    public void ContinuationsLeaveWhereTheStepArrives() {
+        TETopology t = model.topology;
+        for (int step = 0; step < 2 * t.edges.length; step++) {
+            int at = t.stepTo(step);
+            int count = 0;
+            for (int i = t.continuationStart[step]; i < t.continuationStart[step + 1]; i++) {
+                int next = t.continuations[i];
+                assertEquals(at, t.stepFrom(next));
+                assertNotEquals(t.stepEdge(step), t.stepEdge(next));
+                count++;
+            }
+            assertEquals(t.vertexes[at].edges.size() - 1, count);
+        }
+    }
+
+    @Test
+    public void HopsAreSymmetricAndOneAcrossEachEdge() {
+        TETopology t = model.topology;
+        for (int e = 0; e < t.edges.length; e++) {
+            assertEquals(1, t.vertexHops(t.edgeV0[e], t.edgeV1[e]));
+        }
+        for (int a = 0; a < t.vertexes.length; a++) {
+            assertEquals(0, t.vertexHops(a, a));
+            for (int b = 0; b < t.vertexes.length; b++) {
+                assertEquals(t.vertexHops(a, b), t.vertexHops(b, a));
+            }
+        }
+        for (int a = 0; a < t.edges.length; a++) {
+            for (int b = 0; b < t.edges.length; b++) {
+                int hops = t.edgeHops(a, b);
+                if (a == b) assertEquals(0, hops);
+                else assertEquals(t.edges[a].touches(t.edges[b]), hops == 1);
+            }
+        }
+    }
+}
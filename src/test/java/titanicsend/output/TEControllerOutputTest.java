@@ -0,0 +1,68 @@
+package titanicsend.output;
+
+import heronarts.lx.LX;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TEControllerOutputTest {
+    // Identity gamma at every brightness
+    private static byte[][] identityGlut() {
+        byte[][] glut = new byte[256][256];
+        for (int b = 0; b < 256; b++) {
+            for (int v = 0; v < 256; v++) {
+                glut[b][v] = (byte) v;
+            }
+        }
+        return glut;
+    }
+
+    @Test
+    public void DeltaSendSkipsUnchangedUniverses() throws Exception {
+        LX lx = new LX();
+        try (DatagramChannel receiver = DatagramChannel.open()) {
+            receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            InetSocketAddress address = (InetSocketAddress) receiver.getLocalAddress();
+            TEControllerOutput output = new TEControllerOutput(lx, "127.0.0.1", TEControllerOutput.Protocol.ARTNET,
+                    address, List.of(
+                            new TEControllerOutput.Universe(1, new int[]{0, 1, 2}),
+                            new TEControllerOutput.Universe(2, new int[]{3, 4, 5})),
+                    false);
+            try {
+                assertFalse(output.deltaSend.isOn(), "delta send is opt-in");
+                output.deltaSend.setValue(true);
+                byte[][] glut = identityGlut();
+                int[] colors = new int[]{0xff102030, 0xff102030, 0xff102030, 0xff405060, 0xff405060, 0xff405060};
+
+                output.onSend(colors, glut, 1);
+                assertEquals(0, output.stats.skippedPackets.sum());
+                assertEquals(2, output.stats.universePackets[0].sum() + output.stats.universePackets[1].sum());
+
+                // Nothing changed: both universes are skipped
+                output.onSend(colors, glut, 1);
+                assertEquals(2, output.stats.skippedPackets.sum());
+
+                // Only the second universe changed
+                colors[4] = 0xffffffff;
+                output.onSend(colors, glut, 1);
+                assertEquals(3, output.stats.skippedPackets.sum());
+                assertEquals(1, output.stats.universePackets[0].sum());
+                assertEquals(2, output.stats.universePackets[1].sum());
+
+                OutputTelemetry.Sample sample = new OutputTelemetry.Sampler().sample().stream()
+                        .filter(s -> s.controller == output.stats).findFirst().orElseThrow();
+                assertEquals(3, sample.skippedPackets);
+                assertEquals(.5, sample.savedFraction, 1e-9);
+            } finally {
+                output.dispose();
+            }
+        } finally {
+            lx.dispose();
+        }
+    }
+}
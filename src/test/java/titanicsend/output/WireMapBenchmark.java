@@ -0,0 +1,88 @@
+package titanicsend.output;
+
+import heronarts.lx.model.LXPoint;
+import titanicsend.model.TEEdgeModel;
+import titanicsend.model.TEModel;
+import titanicsend.model.TEPanelModel;
+import titanicsend.model.TEWholeModel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compares gathering a frame through a per-pixel index array against a
+ * compiled WireMap, on the full vehicle model. Not a unit test; run main()
+ * from the repo root.
+ *
+ * The vehicle's controller config is still mostly "uncontrolled", so this
+ * wires every edge and lit panel in a plausible way: three submodels per
+ * strand with a small gap between them, and every other edge reversed.
+ */
+public class WireMapBenchmark {
+    private static final int GAP = 3;
+    private static final int SUBMODELS_PER_STRAND = 3;
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int FRAMES = 100_000;
+
+    private static int[] wireVehicle(TEWholeModel model) {
+        List<TEModel> subModels = new ArrayList<>();
+        List<TEEdgeModel> edges = new ArrayList<>(model.edgesById.values());
+        edges.sort(Comparator.comparing(TEEdgeModel::getId));
+        subModels.addAll(edges);
+        List<TEPanelModel> panels = new ArrayList<>(model.panelsById.values());
+        panels.sort(Comparator.comparing(TEPanelModel::getId));
+        for (TEPanelModel panel : panels) {
+            if (panel.panelType.equals(TEPanelModel.LIT)) subModels.add(panel);
+        }
+
+        List<Integer> indices = new ArrayList<>();
+        int n = 0;
+        for (TEModel subModel : subModels) {
+            if (subModel.points.length == 0) continue;
+            if (n % SUBMODELS_PER_STRAND != 0) {
+                for (int i = 0; i < GAP; i++) indices.add(model.gapPoint.index);
+            }
+            boolean fwd = !(subModel instanceof TEEdgeModel) || n % 2 == 0;
+            for (int i = 0; i < subModel.points.length; i++) {
+                LXPoint point = fwd ? subModel.points[i] : subModel.points[subModel.points.length - i - 1];
+                indices.add(point.index);
+            }
+            n++;
+        }
+        return indices.stream().mapToInt(i -> i).toArray();
+    }
+
+    private static void gatherByIndex(int[] colors, int[] indices, int[] frame) {
+        for (int i = 0; i < indices.length; i++) {
+            frame[i] = colors[indices[i]];
+        }
+    }
+
+    public static void main(String[] args) {
+        TEWholeModel model = new TEWholeModel("vehicle");
+        int[] indices = wireVehicle(model);
+        WireMap wireMap = WireMap.compile(indices);
+        System.out.println(indices.length + " pixels compiled into " + wireMap.numRuns + " runs");
+
+        int[] colors = new int[model.points.length];
+        for (int i = 0; i < colors.length; i++) colors[i] = 0xff000000 | (i * 7919);
+        int[] frame = new int[indices.length];
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            gatherByIndex(colors, indices, frame);
+            wireMap.gather(colors, frame);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) gatherByIndex(colors, indices, frame);
+        double indexNs = (System.nanoTime() - start) / (double) FRAMES;
+
+        start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) wireMap.gather(colors, frame);
+        double runNs = (System.nanoTime() - start) / (double) FRAMES;
+
+        System.out.printf("Index array gather: %.0f ns/frame%n", indexNs);
+        System.out.printf("WireMap run gather: %.0f ns/frame (%.1fx)%n", runNs, indexNs / runNs);
+    }
+}
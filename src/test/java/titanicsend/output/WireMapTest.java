@@ -0,0 +1,45 @@
+package titanicsend.output;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireMapTest {
+    private static int[] gatherByIndex(int[] colors, int[] indices) {
+        int[] frame = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            frame[i] = colors[indices[i]];
+        }
+        return frame;
+    }
+
+    @Test
+    public void CompilesStrandIntoRuns() {
+        // Forward submodel, a two-pixel gap, then a reversed submodel
+        int gap = 99;
+        int[] indices = new int[]{10, 11, 12, 13, gap, gap, 7, 6, 5};
+
+        WireMap wireMap = WireMap.compile(indices);
+
+        assertEquals(3, wireMap.numRuns);
+        assertArrayEquals(new int[]{WireMap.FORWARD, WireMap.FILL, WireMap.REVERSE}, wireMap.direction);
+        assertArrayEquals(new int[]{10, gap, 7}, wireMap.srcStart);
+        assertArrayEquals(new int[]{0, 4, 6}, wireMap.dstStart);
+        assertArrayEquals(new int[]{4, 2, 3}, wireMap.length);
+    }
+
+    @Test
+    public void GatherMatchesPerPixelLookup() {
+        int[] colors = new int[100];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xff000000 | (i * 7919);
+        }
+        int[] indices = new int[]{3, 40, 41, 42, 99, 99, 99, 20, 19, 18, 17, 50, 60, 61, 5};
+
+        WireMap wireMap = WireMap.compile(indices);
+        int[] frame = new int[indices.length];
+        wireMap.gather(colors, frame);
+
+        assertArrayEquals(gatherByIndex(colors, indices), frame);
+    }
+}
@@ -0,0 +1,53 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import heronarts.lx.parameter.NormalizedParameter;
+import titanicsend.model.TEWholeModel;
+import titanicsend.pattern.yoffa.framework.CompiledCanvas;
+import titanicsend.pattern.yoffa.shader_engine.AudioInfo;
+import titanicsend.pattern.yoffa.shader_engine.FragmentShader;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times every shader in resources/shaders compiled for the CPU, colored at
+ * each point of the full vehicle model on one thread: compile time, then
+ * time per frame and per point. Not a unit test; run main() from the repo
+ * root.
+ */
+public class CpuShaderBenchmark {
+    private static final int WARMUP_FRAMES = 10;
+    private static final int FRAMES = 10;
+
+    public static void main(String[] args) {
+        TEWholeModel model = new TEWholeModel("vehicle");
+        CompiledCanvas canvas = CompiledCanvas.of(model, Arrays.asList(model.points));
+        AudioInfo audio = new AudioInfo(0, 0, 0, 0, new NormalizedParameter[0]);
+        int[] colors = new int[model.points.length];
+        System.out.println(canvas.size() + " points");
+
+        File[] files = new File("resources/shaders").listFiles((dir, name) -> name.endsWith(".fs"));
+        Arrays.sort(files);
+        for (File file : files) {
+            FragmentShader fragmentShader = new FragmentShader(file,
+                    List.of(new File("resources/shaders/textures/gray_noise.png")));
+            long start = System.nanoTime();
+            CpuShader shader = new CpuShader(fragmentShader);
+            double compileMs = (System.nanoTime() - start) / 1e6;
+
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                shader.updateUniforms(audio);
+                shader.paint(canvas, 0, canvas.size(), (index, color) -> colors[index] = color);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                shader.updateUniforms(audio);
+                shader.paint(canvas, 0, canvas.size(), (index, color) -> colors[index] = color);
+            }
+            double frameMs = (System.nanoTime() - start) / 1e6 / FRAMES;
+            System.out.printf("%-26s compile %5.0f ms, %7.1f ms/frame, %6.0f ns/point%n",
+                    file.getName(), compileMs, frameMs, frameMs * 1e6 / canvas.size());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package titanicsend.pattern.yoffa.shader_engine.cpu;
+
+import org.junit.jupiter.api.Test;
+import titanicsend.pattern.yoffa.shader_engine.FragmentShader;
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Vec2;
+import titanicsend.pattern.yoffa.shader_engine.cpu.Glsl.Vec4;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlslCompilerTest {
+
+    private static Vec4 run(String shader, float x, float y) {
+        GlslCompiler.Compiled compiled = GlslCompiler.compile(shader);
+        CpuShaderUniforms uniforms = compiled.newUniforms();
+        uniforms.iResolution = new Vec2(640, 480);
+        uniforms.iTime = 2;
+        for (int i = 0; i < uniforms.custom.length; i++) {
+            uniforms.custom[i] = .25f;
+        }
+        return compiled.newProgram(uniforms).mainImage(new Vec2(x, y));
+    }
+
+    private static void assertColor(Vec4 color, float r, float g, float b, float a) {
+        assertEquals(r, color.x, 1e-5, "r");
+        assertEquals(g, color.y, 1e-5, "g");
+        assertEquals(b, color.z, 1e-5, "b");
+        assertEquals(a, color.w, 1e-5, "a");
+    }
+
+    @Test
+    public void everyShaderRuns() {
+        File[] shaders = new File("resources/shaders").listFiles((dir, name) -> name.endsWith(".fs"));
+        assertNotNull(shaders);
+        assertTrue(shaders.length > 0);
+        for (File file : shaders) {
+            FragmentShader shader = new FragmentShader(file, List.of());
+            assertDoesNotThrow(() -> run(shader.getShaderBody(), 100, 200), file.getName());
+        }
+    }
+
+    @Test
+    public void outAndInoutParameters() {
+        Vec4 color = run(
+                "void pMod(inout float p, float size) { p = mod(p, size); }\n" +
+                "void split(vec2 v, out float a, out float b) { a = v.x; b = v.y; }\n" +
+                "float twice(inout vec2 v) { v *= 2.; return v.x + v.y; }\n" +
+                "void mainImage(out vec4 fragColor, in vec2 fragCoord) {\n" +
+                "    vec2 p = vec2(5.5, 7.);\n" +
+                "    pMod(p.x, 2.);\n" +
+                "    float a, b;\n" +
+                "    split(p, a, b);\n" +
+                "    vec2 q = vec2(1., 2.);\n" +
+                "    float sum = twice(q) + 1.;\n" +
+                "    fragColor = vec4(a, b, sum, q.y);\n" +
+                "}\n", 0, 0);
+        assertColor(color, 1.5f, 7, 7, 4);
+    }
+
+    @Test
+    public void swizzlesAndMatrices() {
+        Vec4 color = run(
+                "void mainImage(out vec4 fragColor, in vec2 fragCoord) {\n" +
+                "    vec3 v = vec3(1., 2., 3.);\n" +
+                "    v.zx = v.xz;\n" +
+                "    v.yz *= mat2(0., 1., -1., 0.);\n" +
+                "    fragColor = vec4(v, (mat2(2.) * vec2(1., 0.)).x);\n" +
+                "}\n", 0, 0);
+        assertColor(color, 3, 1, -2, 2);
+    }
+
+    @Test
+    public void structsAreCopiedByValue() {
+        Vec4 color = run(
+                "struct Hit { float dist; vec3 n; };\n" +
+                "void mainImage(out vec4 fragColor, in vec2 fragCoord) {\n" +
+                "    Hit a = Hit(1., vec3(0.));\n" +
+                "    Hit b = a;\n" +
+                "    b.dist = 2.;\n" +
+                "    b.n.y = 3.;\n" +
+                "    fragColor = vec4(a.dist, b.dist, a.n.y, b.n.y);\n" +
+                "}\n", 0, 0);
+        assertColor(color, 1, 2, 0, 3);
+    }
+
+    @Test
+    public void macrosIntsAndGlobals() {
+        String shader =
+                "#define SQUARE(x) ((x)*(x))\n" +
+                "#define TWO 2.;\n" +
+                "float seed = 1.;\n" +
+                "float next() { seed *= 2.; return seed; }\n" +
+                "int hash(int x) { x = x << 13 ^ x; return x & 0x7fffffff; }\n" +
+                "void mainImage(out vec4 fragColor, in vec2 fragCoord) {\n" +
+                "    float a = next() + next();\n" +
+                "    float t = TWO\n" +
+                "    fragColor = vec4(a, SQUARE(t + 1.), float(hash(3) & 255), float(7 / 2));\n" +
+                "}\n";
+        assertColor(run(shader, 0, 0), 6, 9, 3, 3);
+        // Globals start over for every pixel
+        assertColor(run(shader, 1, 1), 6, 9, 3, 3);
+    }
+
+    @Test
+    public void uniformsAndFragCoord() {
+        Vec4 color = run(
+                "uniform float level_parameter;\n" +
+                "uniform bool on_parameter;\n" +
+                "void mainImage(out vec4 fragColor, in vec2 fragCoord) {\n" +
+                "    vec2 uv = fragCoord / iResolution;\n" +
+                "    fragColor = vec4(uv, iTime, on_parameter ? level_parameter : 0.);\n" +
+                "}\n", 320, 120);
+        assertColor(color, .5f, .25f, 2, .25f);
+    }
+}
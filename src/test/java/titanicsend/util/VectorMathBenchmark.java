@@ -0,0 +1,150 @@
+package titanicsend.util;
+
+import titanicsend.model.TEPointArrays;
+import titanicsend.model.TEWholeModel;
+
+import java.lang.management.ManagementFactory;
+
+import static titanicsend.util.TEMath.*;
+
+/**
+ * Compares ElectricShader's simplex noise, its hottest per-pixel code, written
+ * with TEMath's double[] helpers (as it was) against the same noise on Vec2,
+ * for every point of the full vehicle model. Reports time per pixel and bytes
+ * allocated per frame. Not a unit test; run main() from the repo root.
+ */
+public class VectorMathBenchmark {
+    private static final int WARMUP_FRAMES = 200;
+    private static final int FRAMES = 500;
+    private static final double K1 = .366025404;
+    private static final double K2 = .211324865;
+    private static final double DISPERSION = 2;
+
+    // ---- TEMath double[] version ----
+
+    private static double[] hash(double[] p) {
+        p = new double[] {
+                dotProduct(p, new double[]{127.1, 311.7}),
+                dotProduct(p, new double[]{269.5, 183.3})
+        };
+        return addToArray(-1, multiplyArray(DISPERSION,
+                fract(new double[]{Math.sin(p[0]) * 43758.5453123, Math.sin(p[1]) * 43758.5453123})));
+    }
+
+    private static double noise(double[] p) {
+        double[] i = floor(addToArray((p[0] + p[1]) * K1, p));
+        double[] a = addToArray((i[1] + i[1]) * K2, subtractArrays(p, i));
+        double[] o = new double[]{step(a[1], a[0]), step(a[0], a[1])};
+        double[] b = addToArray(K2, subtractArrays(a, o));
+        double[] c = addToArray(-1 + 2 * K2, a);
+        double[] h = {
+                Math.max(.5 - dotProduct(a, a), 0),
+                Math.max(.5 - dotProduct(b, b), 0),
+                Math.max(.5 - dotProduct(c, c), 0)
+        };
+        double[] n = {
+                dotProduct(a, hash(i)),
+                dotProduct(b, hash(addArrays(i, o))),
+                dotProduct(c, hash(addToArray(1, i)))
+        };
+        for (int j = 0; j < h.length; j++) {
+            n[j] = Math.pow(h[j], 4) * n[j];
+        }
+        return dotProduct(n, new double[]{70, 70, 70});
+    }
+
+    private static double frameArrays(TEPointArrays pa, double time, double[][] rotation) {
+        double sum = 0;
+        for (int index = 0; index < pa.size; index++) {
+            double[] uv = multiplyVectorByMatrix(new double[]{pa.zn[index] * 8, pa.yn[index] * 8}, rotation);
+            sum += noise(addToArray(time, uv));
+        }
+        return sum;
+    }
+
+    // ---- Vec2 version ----
+
+    private static class Scratch {
+        final Vec2 uv = new Vec2();
+        final Vec2 i = new Vec2();
+        final Vec2 a = new Vec2();
+        final Vec2 o = new Vec2();
+        final Vec2 b = new Vec2();
+        final Vec2 c = new Vec2();
+        final Vec2 cell = new Vec2();
+        final Vec2 h = new Vec2();
+    }
+
+    // In double, like ElectricShader's, since the sin() hash magnifies float rounding
+    private static Vec2 hash(Vec2 p, Vec2 out) {
+        double x = p.x * 127.1 + p.y * 311.7;
+        double y = p.x * 269.5 + p.y * 183.3;
+        return out.set((float) fract(Math.sin(x) * 43758.5453123), (float) fract(Math.sin(y) * 43758.5453123))
+                .mul((float) DISPERSION).add(-1);
+    }
+
+    private static float noise(Vec2 p, Scratch s) {
+        Vec2 i = s.i.set(p).add((p.x + p.y) * (float) K1).floor();
+        Vec2 a = s.a.set(p).sub(i).add((i.y + i.y) * (float) K2);
+        Vec2 o = s.o.set(a.y > a.x ? 1 : 0, a.x > a.y ? 1 : 0);
+        Vec2 b = s.b.set(a).sub(o).add((float) K2);
+        Vec2 c = s.c.set(a).add(-1 + 2 * (float) K2);
+        float hA = Math.max(.5f - a.dot(a), 0);
+        float hB = Math.max(.5f - b.dot(b), 0);
+        float hC = Math.max(.5f - c.dot(c), 0);
+        float n = hA * hA * hA * hA * a.dot(hash(i, s.h));
+        n += hB * hB * hB * hB * b.dot(hash(s.cell.set(i).add(o), s.h));
+        n += hC * hC * hC * hC * c.dot(hash(s.cell.set(i).add(1), s.h));
+        return 70 * n;
+    }
+
+    private static double frameVectors(TEPointArrays pa, float time, Mat2 rotation, Scratch s) {
+        double sum = 0;
+        for (int index = 0; index < pa.size; index++) {
+            Vec2 uv = s.uv.set(pa.zn[index] * 8, pa.yn[index] * 8).mul(rotation).add(time);
+            sum += noise(uv, s);
+        }
+        return sum;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    public static void main(String[] args) {
+        TEWholeModel model = new TEWholeModel("vehicle");
+        TEPointArrays pa = model.pointArrays;
+        double[][] rotationArrays = {{Math.cos(.3), -Math.sin(.3)}, {Math.sin(.3), Math.cos(.3)}};
+        Mat2 rotation = Mat2.rotation(Math.toDegrees(.3));
+        Scratch scratch = new Scratch();
+        System.out.println(pa.size + " points");
+
+        // Same noise either way, give or take float rounding
+        double arraysSum = frameArrays(pa, 1, rotationArrays);
+        double vectorsSum = frameVectors(pa, 1, rotation, scratch);
+        System.out.printf("Mean noise: %.4f (double[]) vs %.4f (Vec2)%n", arraysSum / pa.size, vectorsSum / pa.size);
+
+        double sink = 0;
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            sink += frameArrays(pa, i * .01, rotationArrays);
+            sink += frameVectors(pa, i * .01f, rotation, scratch);
+        }
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) sink += frameArrays(pa, i * .01, rotationArrays);
+        double arraysNs = (System.nanoTime() - start) / (double) FRAMES / pa.size;
+        double arraysBytes = (allocatedBytes() - bytes) / (double) FRAMES;
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) sink += frameVectors(pa, i * .01f, rotation, scratch);
+        double vectorsNs = (System.nanoTime() - start) / (double) FRAMES / pa.size;
+        double vectorsBytes = (allocatedBytes() - bytes) / (double) FRAMES;
+
+        System.out.printf("TEMath double[]: %.1f ns/pixel, %.0f bytes/frame%n", arraysNs, arraysBytes);
+        System.out.printf("Vec2:            %.1f ns/pixel, %.0f bytes/frame (%.1fx)%n",
+                vectorsNs, vectorsBytes, arraysNs / vectorsNs);
+        if (sink == 42) System.out.println();
+    }
+}